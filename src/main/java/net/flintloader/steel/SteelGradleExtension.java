@@ -28,6 +28,7 @@ package net.flintloader.steel;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Supplier;
+import java.util.zip.Deflater;
 
 import org.cadixdev.lorenz.MappingSet;
 import org.cadixdev.mercury.Mercury;
@@ -35,6 +36,7 @@ import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.FileCollection;
 
+import net.flintloader.steel.api.CacheJarType;
 import net.flintloader.steel.api.SteelGradleExtensionAPI;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.configuration.InstallerData;
@@ -56,6 +58,10 @@ public interface SteelGradleExtension extends SteelGradleExtensionAPI {
 
 	SteelFiles getFiles();
 
+	/**
+	 * @deprecated the lorenz mappings are shared between projects by {@link MappingsProviderImpl#getMappingSet(String, String)}, which should be used instead
+	 */
+	@Deprecated
 	MappingSet getOrCreateSrcMappingCache(int id, Supplier<MappingSet> factory);
 
 	Mercury getOrCreateSrcMercuryCache(int id, Supplier<Mercury> factory);
@@ -100,6 +106,13 @@ public interface SteelGradleExtension extends SteelGradleExtensionAPI {
 
 	FileCollection getMinecraftJarsCollection(MappingsNamespace mappingsNamespace);
 
+	/**
+	 * @return the level that the given type of cache jar is to be written with, {@link Deflater#NO_COMPRESSION} when it is to be stored
+	 */
+	default int getCacheJarCompressionLevel(CacheJarType type) {
+		return getCacheJarCompression().getting(type).getOrElse(Deflater.NO_COMPRESSION);
+	}
+
 	boolean isRootProject();
 
 	@Override
@@ -25,6 +25,10 @@
 
 package net.flintloader.steel;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.ArtifactRepositoryContainer;
@@ -40,6 +44,7 @@ import org.jetbrains.annotations.NotNull;
 
 import net.flintloader.steel.extension.SteelFiles;
 import net.flintloader.steel.util.MirrorUtil;
+import net.flintloader.steel.util.download.CacheBundle;
 
 public class SteelRepositoryPlugin implements Plugin<PluginAware> {
 	@Override
@@ -63,6 +68,14 @@ public class SteelRepositoryPlugin implements Plugin<PluginAware> {
 	}
 
 	private void declareRepositories(RepositoryHandler repositories, SteelFiles files, ExtensionAware target) {
+		importCacheBundles(files, target);
+
+		repositories.maven(repo -> {
+			// Libraries imported from a cache bundle.
+			repo.setName("SteelOfflineLibraries");
+			repo.setUrl(files.getOfflineLibraries());
+			repo.metadataSources(MavenArtifactRepository.MetadataSources::artifact);
+		});
 		repositories.maven(repo -> {
 			repo.setName("UserLocalRemappedMods");
 			repo.setUrl(files.getRemappedModCache());
@@ -112,6 +125,27 @@ public class SteelRepositoryPlugin implements Plugin<PluginAware> {
 		});
 	}
 
+	/**
+	 * Imports the cache bundles, separated by commas, set by the {@code steel_cache_bundle} property. Each bundle is only imported once.
+	 */
+	private static void importCacheBundles(SteelFiles files, ExtensionAware target) {
+		if (!target.getExtensions().getExtraProperties().has("steel_cache_bundle")) {
+			return;
+		}
+
+		for (String bundle : String.valueOf(target.getExtensions().getExtraProperties().get("steel_cache_bundle")).split(",")) {
+			if (bundle.isBlank()) {
+				continue;
+			}
+
+			try {
+				CacheBundle.importBundle(Path.of(bundle.trim()), files.getUserCache().toPath(), files.getOfflineLibraries().toPath());
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to import cache bundle " + bundle, e);
+			}
+		}
+	}
+
 	public static void setupForLegacyVersions(Project project) {
 		// 1.4.7 contains an LWJGL version with an invalid maven pom, set the metadata sources to not use the pom for this version.
 		project.getRepositories().named("Mojang", MavenArtifactRepository.class, repo -> {
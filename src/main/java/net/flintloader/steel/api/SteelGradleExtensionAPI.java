@@ -35,6 +35,7 @@ import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.tasks.SourceSet;
@@ -195,4 +196,14 @@ public interface SteelGradleExtensionAPI {
 	Property<Boolean> getRuntimeOnlyLog4j();
 
 	Property<Boolean> getSplitModuleDependencies();
+
+	/**
+	 * The deflate level that each type of cache jar is written with, types without a level are stored uncompressed.
+	 * Storing the jars uses more disk space, but saves deflating them when they are written and inflating them every time they are read.
+	 * A new level is only used once the jar is next written.
+	 *
+	 * @return the property controlling the compression level of each type of cache jar
+	 */
+	@ApiStatus.Experimental
+	MapProperty<CacheJarType, Integer> getCacheJarCompression();
 }
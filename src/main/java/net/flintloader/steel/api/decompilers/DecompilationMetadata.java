@@ -29,7 +29,11 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
 
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
 import net.flintloader.steel.util.IOStringConsumer;
 
+/**
+ * @param javaDocs the mappings to read javadoc from, either a tiny file or a {@link MappingSnapshot}, both of which can be read with {@link MappingSnapshot#read}
+ */
 public record DecompilationMetadata(int numberOfThreads, Path javaDocs, Collection<Path> libraries, IOStringConsumer logger, Map<String, String> options) {
 }
@@ -29,6 +29,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Set;
@@ -36,7 +38,6 @@ import java.util.Set;
 import com.google.common.collect.Sets;
 import com.google.common.hash.Hashing;
 import com.google.gson.JsonObject;
-import org.apache.commons.io.FileUtils;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
@@ -53,9 +54,9 @@ import org.jetbrains.annotations.Nullable;
 
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.SteelGradlePlugin;
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex;
 import net.flintloader.steel.task.RemapTaskConfiguration;
-import net.flintloader.steel.util.ModuleUtils;
-import net.flintloader.steel.util.ZipUtils;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public final class IncludedJarFactory {
 	private final Project project;
@@ -143,33 +144,39 @@ public final class IncludedJarFactory {
 		return files;
 	}
 
+	/**
+	 * @return the jar as it is to be nested, jars that are not modules are wrapped with a generated flintmodule.json.
+	 * Wrapped jars are cached by the hash of the input and the generated json, so are only written again when either changes.
+	 */
 	private File getNestableJar(final File input, final Metadata metadata) {
-		if (ModuleUtils.isModule(input)) {
+		final ModuleMetadataIndex index = ModuleMetadataIndex.get(project);
+
+		if (index.isModule(input.toPath())) {
 			// Input is a mod, nothing needs to be done.
 			return input;
 		}
 
-		SteelGradleExtension extension = SteelGradleExtension.get(project);
-		File tempDir = new File(extension.getFiles().getUserCache(), "temp/modprocessing");
+		final String moduleJson = generateModuleForDependency(metadata);
+		final String hash = Hashing.sha256()
+				.hashString(index.getSha1(input.toPath()) + moduleJson, StandardCharsets.UTF_8)
+				.toString();
 
-		if (!tempDir.exists()) {
-			tempDir.mkdirs();
-		}
-
-		File tempFile = new File(tempDir, input.getName());
+		SteelGradleExtension extension = SteelGradleExtension.get(project);
+		// The jar keeps its name, as that is the name it is nested with.
+		final Path output = extension.getFiles().getUserCache().toPath().resolve("nested_jars").resolve(hash).resolve(input.getName());
 
-		if (tempFile.exists()) {
-			tempFile.delete();
+		if (Files.exists(output)) {
+			return output.toFile();
 		}
 
-		try {
-			FileUtils.copyFile(input, tempFile);
-			ZipUtils.add(tempFile.toPath(), "flintmodule.json", generateModuleForDependency(metadata).getBytes(StandardCharsets.UTF_8));
+		try (ZipRewriter rewriter = ZipRewriter.open(input.toPath(), output)) {
+			rewriter.put("flintmodule.json", moduleJson.getBytes(StandardCharsets.UTF_8));
+			rewriter.commit();
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to add dummy mod while including %s".formatted(input), e);
 		}
 
-		return tempFile;
+		return output.toFile();
 	}
 
 	// Generates a barebones mod for a dependency
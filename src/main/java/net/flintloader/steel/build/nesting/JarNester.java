@@ -27,74 +27,83 @@ package net.flintloader.steel.build.nesting;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.util.Collection;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 
-import net.flintloader.steel.util.ModuleUtils;
-import net.flintloader.steel.util.Pair;
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex;
 import net.flintloader.steel.util.ZipUtils;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public class JarNester {
-	public static void nestJars(Collection<File> jars, File modJar, Logger logger) {
+	public static void nestJars(Collection<File> jars, File modJar, ModuleMetadataIndex index, Logger logger) {
 		if (jars.isEmpty()) {
 			logger.debug("Nothing to nest into " + modJar.getName());
 			return;
 		}
 
-		Preconditions.checkArgument(ModuleUtils.isModule(modJar), "Cannot nest jars into none mod jar " + modJar.getName());
+		try (ZipRewriter rewriter = ZipRewriter.open(modJar.toPath())) {
+			nestJars(jars, rewriter, modJar.getName(), index, logger);
+			rewriter.commit();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
+		}
+	}
 
-		try {
-			ZipUtils.add(modJar.toPath(), jars.stream().map(file -> {
-				try {
-					return new Pair<>("META-INF/jars/" + file.getName(), Files.readAllBytes(file.toPath()));
-				} catch (IOException e) {
-					throw new UncheckedIOException(e);
-				}
-			}).collect(Collectors.toList()));
+	/**
+	 * Nests the jars into a mod jar that is being rewritten, along with the changes to its flintmodule.json.
+	 * The jars are streamed into the mod jar stored as they are when it is committed, so are never held in memory.
+	 * Whether each jar is a module is answered by the index, which has usually already read them when the included jars were resolved.
+	 */
+	public static void nestJars(Collection<File> jars, ZipRewriter modJar, String name, ModuleMetadataIndex index, Logger logger) throws IOException {
+		if (jars.isEmpty()) {
+			logger.debug("Nothing to nest into " + name);
+			return;
+		}
 
-			int count = ZipUtils.transformJson(JsonObject.class, modJar.toPath(), Stream.of(new Pair<>("flintmodule.json", json -> {
-				JsonArray nestedJars = json.getAsJsonArray("jars");
+		Preconditions.checkArgument(modJar.contains("flintmodule.json"), "Cannot nest jars into none mod jar " + name);
 
-				if (nestedJars == null || !json.has("jars")) {
-					nestedJars = new JsonArray();
-				}
+		for (File file : jars) {
+			modJar.putFile("META-INF/jars/" + file.getName(), file.toPath());
+		}
 
-				for (File file : jars) {
-					String nestedJarPath = "META-INF/jars/" + file.getName();
-					Preconditions.checkArgument(ModuleUtils.isModule(file), "Cannot nest none mod jar: " + file.getName());
+		int count = ZipUtils.transformJson(JsonObject.class, modJar, Map.of("flintmodule.json", json -> {
+			JsonArray nestedJars = json.getAsJsonArray("jars");
 
-					for (JsonElement nestedJar : nestedJars) {
-						JsonObject jsonObject = nestedJar.getAsJsonObject();
+			if (nestedJars == null || !json.has("jars")) {
+				nestedJars = new JsonArray();
+			}
 
-						if (jsonObject.has("file") && jsonObject.get("file").getAsString().equals(nestedJarPath)) {
-							throw new IllegalStateException("Cannot nest 2 jars at the same path: " + nestedJarPath);
-						}
-					}
+			for (File file : jars) {
+				String nestedJarPath = "META-INF/jars/" + file.getName();
+				Preconditions.checkArgument(index.isModule(file.toPath()), "Cannot nest none mod jar: " + file.getName());
 
-					JsonObject jsonObject = new JsonObject();
-					jsonObject.addProperty("file", nestedJarPath);
-					nestedJars.add(jsonObject);
+				for (JsonElement nestedJar : nestedJars) {
+					JsonObject jsonObject = nestedJar.getAsJsonObject();
 
-					logger.debug("Nested " + nestedJarPath + " into " + modJar.getName());
+					if (jsonObject.has("file") && jsonObject.get("file").getAsString().equals(nestedJarPath)) {
+						throw new IllegalStateException("Cannot nest 2 jars at the same path: " + nestedJarPath);
+					}
 				}
 
-				json.add("jars", nestedJars);
+				JsonObject jsonObject = new JsonObject();
+				jsonObject.addProperty("file", nestedJarPath);
+				nestedJars.add(jsonObject);
 
-				return json;
-			})));
+				logger.debug("Nested " + nestedJarPath + " into " + name);
+			}
 
-			Preconditions.checkState(count > 0, "Failed to transform flintmodule.json");
-		} catch (IOException e) {
-			throw new java.io.UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
-		}
+			json.add("jars", nestedJars);
+
+			return json;
+		}));
+
+		Preconditions.checkState(count > 0, "Failed to transform flintmodule.json");
 	}
 }
@@ -31,6 +31,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
@@ -52,6 +54,7 @@ import net.flintloader.steel.configuration.accesswidener.TransitiveAccessWidener
 import net.flintloader.steel.configuration.ifaceinject.InterfaceInjectionProcessor;
 import net.flintloader.steel.configuration.processors.JarProcessorManager;
 import net.flintloader.steel.configuration.processors.ModuleJavadocProcessor;
+import net.flintloader.steel.configuration.providers.mappings.IntermediateMappingsService;
 import net.flintloader.steel.configuration.providers.mappings.MappingsProviderImpl;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftJarConfiguration;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider;
@@ -183,21 +186,29 @@ public final class CompileConfiguration {
 		final SteelGradleExtension extension = SteelGradleExtension.get(project);
 		final MinecraftJarConfiguration jarConfiguration = extension.getMinecraftJarConfiguration().get();
 
+		final SetupStages stages = new SetupStages("Minecraft setup");
+
 		// Provide the vanilla mc jars -- TODO share across projects.
 		final MinecraftProvider minecraftProvider = jarConfiguration.getMinecraftProviderFunction().apply(project);
 		extension.setMinecraftProvider(minecraftProvider);
-		minecraftProvider.provide();
+		minecraftProvider.provide(stages);
+
+		// Only needs the minecraft version, so can be provided while the jars are downloading.
+		final Supplier<IntermediateMappingsService> intermediaryFactory = IntermediateMappingsService.factory(project, minecraftProvider);
+		final CompletableFuture<IntermediateMappingsService> intermediary = stages.callAsync("intermediary mappings", intermediaryFactory::get);
 
-		final DependencyInfo mappingsDep = DependencyInfo.create(project, Constants.Configurations.MAPPINGS);
-		final MappingsProviderImpl mappingsProvider = MappingsProviderImpl.getInstance(project, mappingsDep, minecraftProvider);
+		final DependencyInfo mappingsDep = stages.call("resolve mappings", () -> DependencyInfo.create(project, Constants.Configurations.MAPPINGS));
+		final MappingsProviderImpl mappingsProvider = stages.call("mappings", () -> MappingsProviderImpl.getInstance(project, mappingsDep, minecraftProvider));
 		extension.setMappingsProvider(mappingsProvider);
-		mappingsProvider.applyToProject(project, mappingsDep);
+		stages.run("apply mappings", () -> mappingsProvider.applyToProject(project, mappingsDep));
+
+		stages.run("minecraft libraries", minecraftProvider::provideLibraries);
 
 		// Provide the remapped mc jars
 		final IntermediaryMinecraftProvider<?> intermediaryMinecraftProvider = jarConfiguration.getIntermediaryMinecraftProviderBiFunction().apply(project, minecraftProvider);
 		NamedMinecraftProvider<?> namedMinecraftProvider = jarConfiguration.getNamedMinecraftProviderBiFunction().apply(project, minecraftProvider);
 
-		final JarProcessorManager jarProcessorManager = createJarProcessorManager(project);
+		final JarProcessorManager jarProcessorManager = stages.call("jar processors", () -> createJarProcessorManager(project));
 
 		if (jarProcessorManager.active()) {
 			// Wrap the named MC provider for one that will provide the processed jars
@@ -205,10 +216,15 @@ public final class CompileConfiguration {
 		}
 
 		extension.setIntermediaryMinecraftProvider(intermediaryMinecraftProvider);
-		intermediaryMinecraftProvider.provide(true);
+		stages.run("intermediary minecraft", () -> intermediaryMinecraftProvider.provide(true));
+
+		final NamedMinecraftProvider<?> finalNamedMinecraftProvider = namedMinecraftProvider;
+		extension.setNamedMinecraftProvider(finalNamedMinecraftProvider);
+		stages.run("named minecraft", () -> finalNamedMinecraftProvider.provide(true));
 
-		extension.setNamedMinecraftProvider(namedMinecraftProvider);
-		namedMinecraftProvider.provide(true);
+		// Surface any failure, should nothing above have needed the intermediary mappings.
+		SetupStages.await(intermediary);
+		stages.log(project.getLogger());
 	}
 
 	private static JarProcessorManager createJarProcessorManager(Project project) {
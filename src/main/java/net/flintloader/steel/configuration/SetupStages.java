@@ -0,0 +1,210 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * Runs the steps of a setup process, either on the calling thread or in the background, and records how long each one took.
+ *
+ * <p>Steps that use the Gradle API (resolving configurations, adding dependencies) must be run on the calling thread,
+ * while steps that only download or process files can be run in the background and joined once their output is needed.
+ * The background steps share one pool across all projects, so any Gradle properties they need must be resolved before they are submitted.
+ *
+ * <p>When a step on the calling thread fails the background steps that are still running are cancelled, as the setup will not complete.
+ */
+public final class SetupStages {
+	private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+	private final String name;
+	private final long startTime = System.nanoTime();
+	private final List<Timing> timings = new ArrayList<>();
+	private final List<Future<?>> backgroundSteps = new ArrayList<>();
+
+	public SetupStages(String name) {
+		this.name = name;
+	}
+
+	public <T> T call(String stage, Step<T> step) throws Exception {
+		try {
+			return time(stage, step);
+		} catch (Exception e) {
+			cancelBackgroundSteps();
+			throw e;
+		}
+	}
+
+	public void run(String stage, VoidStep step) throws Exception {
+		call(stage, () -> {
+			step.run();
+			return null;
+		});
+	}
+
+	public <T> CompletableFuture<T> callAsync(String stage, Step<T> step) {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		final Future<?> task = EXECUTOR.submit(() -> {
+			try {
+				result.complete(time(stage, step));
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+
+		// Cancelling the returned future interrupts the step if it has started.
+		result.whenComplete((value, throwable) -> {
+			if (result.isCancelled()) {
+				task.cancel(true);
+			}
+		});
+
+		synchronized (backgroundSteps) {
+			backgroundSteps.add(result);
+		}
+
+		return result;
+	}
+
+	public CompletableFuture<Void> runAsync(String stage, VoidStep step) {
+		return callAsync(stage, () -> {
+			step.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Waits for a background step to complete, re-throwing its exception on the calling thread.
+	 */
+	public static <T> T await(CompletableFuture<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception cause) {
+				throw cause;
+			}
+
+			throw e;
+		}
+	}
+
+	private <T> T time(String stage, Step<T> step) throws Exception {
+		final long start = System.nanoTime();
+
+		try {
+			return step.run();
+		} finally {
+			record(stage, start);
+		}
+	}
+
+	private void cancelBackgroundSteps() {
+		synchronized (backgroundSteps) {
+			for (Future<?> future : backgroundSteps) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private void record(String stage, long start) {
+		final long end = System.nanoTime();
+
+		synchronized (timings) {
+			timings.add(new Timing(stage, Thread.currentThread().getName(), start - startTime, end - start));
+		}
+	}
+
+	/**
+	 * Logs each step, in the order that they started, with when it started and how long it took.
+	 */
+	public void log(Logger logger) {
+		if (!logger.isInfoEnabled()) {
+			return;
+		}
+
+		final List<Timing> sorted;
+
+		synchronized (timings) {
+			sorted = timings.stream().sorted(Comparator.comparingLong(Timing::offset)).toList();
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ENGLISH, "%s took %dms:", name, toMillis(System.nanoTime() - startTime)));
+
+		for (Timing timing : sorted) {
+			sb.append(String.format(Locale.ENGLISH, "%n  %-28s +%6dms %6dms  (%s)", timing.stage(), toMillis(timing.offset()), toMillis(timing.duration()), timing.thread()));
+		}
+
+		logger.info(sb.toString());
+	}
+
+	private static long toMillis(long nanos) {
+		return nanos / 1_000_000;
+	}
+
+	private record Timing(String stage, String thread, long offset, long duration) {
+	}
+
+	@FunctionalInterface
+	public interface Step<T> {
+		T run() throws Exception;
+	}
+
+	@FunctionalInterface
+	public interface VoidStep {
+		void run() throws Exception;
+	}
+
+	private static ThreadPoolExecutor createExecutor() {
+		// Bounded, as every project being configured in parallel shares the pool.
+		final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "steel-setup-" + count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
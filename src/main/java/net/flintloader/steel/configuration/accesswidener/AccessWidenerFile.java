@@ -82,6 +82,13 @@ public record AccessWidenerFile(
 		);
 	}
 
+	/**
+	 * @return true when the access widener contains any transitive entries
+	 */
+	public static boolean isTransitive(byte[] content) {
+		return TransitiveDetectorVisitor.isTransitive(content);
+	}
+
 	@Override
 	public int hashCode() {
 		int result = Objects.hash(path, modId);
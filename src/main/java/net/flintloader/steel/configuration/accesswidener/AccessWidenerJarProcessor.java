@@ -27,18 +27,18 @@ package net.flintloader.steel.configuration.accesswidener;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.Map;
 
 import com.google.common.hash.Hashing;
 import org.gradle.api.Project;
 
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.configuration.processors.JarProcessor;
+import net.flintloader.steel.configuration.processors.JarProcessorManager;
 import net.flintloader.steel.util.Checksum;
-import net.flintloader.steel.util.ZipUtils;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerReader;
@@ -84,13 +84,11 @@ public class AccessWidenerJarProcessor implements JarProcessor {
 
 	@Override
 	public void process(File file) {
-		AccessWidenerTransformer applier = new AccessWidenerTransformer(project.getLogger(), accessWidener);
-		applier.apply(file);
+		JarProcessorManager.applyTransformer(file, createClassTransformer());
+	}
 
-		try {
-			ZipUtils.add(file.toPath(), HASH_FILENAME, inputHash);
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to write aw jar hash", e);
-		}
+	@Override
+	public JarProcessor.ClassTransformer createClassTransformer() {
+		return new AccessWidenerTransformer(project.getLogger(), accessWidener, Map.of(HASH_FILENAME, inputHash));
 	}
 }
@@ -25,61 +25,45 @@
 
 package net.flintloader.steel.configuration.accesswidener;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.gradle.api.logging.Logger;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.ClassWriter;
 
+import net.flintloader.steel.configuration.processors.JarProcessor;
 import net.flintloader.steel.util.Constants;
-import net.flintloader.steel.util.Pair;
-import net.flintloader.steel.util.ZipUtils;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerClassVisitor;
 
-final class AccessWidenerTransformer {
+final class AccessWidenerTransformer implements JarProcessor.ClassTransformer {
 	private final Logger logger;
 	private final AccessWidener accessWidener;
+	private final Map<String, byte[]> additionalEntries;
 
-	AccessWidenerTransformer(Logger logger, AccessWidener accessWidener) {
+	AccessWidenerTransformer(Logger logger, AccessWidener accessWidener, Map<String, byte[]> additionalEntries) {
 		this.logger = logger;
 		this.accessWidener = accessWidener;
+		this.additionalEntries = additionalEntries;
 	}
 
-	/**
-	 * Apply the rules from an access-widener to the given jar or zip file.
-	 */
-	void apply(File jarFile) {
-		try {
-			ZipUtils.transform(jarFile.toPath(), getTransformers(accessWidener.getTargets()));
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to apply access wideners to %s".formatted(jarFile), e);
-		}
+	@Override
+	public Set<String> getTargets() {
+		return accessWidener.getTargets().stream()
+				.map(string -> string.replaceAll("\\.", "/"))
+				.collect(Collectors.toSet());
 	}
 
-	private List<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> getTransformers(Set<String> classes) {
-		return classes.stream()
-				.map(string -> new Pair<>(string.replaceAll("\\.", "/") + ".class", getTransformer(string)))
-				.collect(Collectors.toList());
+	@Override
+	public ClassVisitor createClassVisitor(String className, ClassVisitor next) {
+		logger.info("Applying access widener to " + className);
+		return AccessWidenerClassVisitor.createClassVisitor(Constants.ASM_VERSION, next, accessWidener);
 	}
 
-	private ZipUtils.UnsafeUnaryOperator<byte[]> getTransformer(String className) {
-		return input -> {
-			ClassReader reader = new ClassReader(input);
-			ClassWriter writer = new ClassWriter(0);
-			ClassVisitor classVisitor = AccessWidenerClassVisitor.createClassVisitor(Constants.ASM_VERSION, writer, accessWidener);
-
-			logger.info("Applying access widener to " + className);
-
-			reader.accept(classVisitor, 0);
-			return writer.toByteArray();
-		};
+	@Override
+	public Map<String, byte[]> getAdditionalEntries() {
+		return additionalEntries;
 	}
 }
@@ -27,11 +27,14 @@ package net.flintloader.steel.configuration.accesswidener;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
@@ -44,13 +47,15 @@ import org.gradle.api.file.FileCollection;
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.api.RemapConfigurationSettings;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
+import net.flintloader.steel.configuration.modules.ModuleMetadata;
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex;
 import net.flintloader.steel.configuration.processors.JarProcessor;
+import net.flintloader.steel.configuration.processors.JarProcessorManager;
 import net.flintloader.steel.util.TinyRemapperHelper;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerReader;
 import net.fabricmc.accesswidener.AccessWidenerRemapper;
-import net.fabricmc.accesswidener.AccessWidenerVisitor;
 import net.fabricmc.accesswidener.TransitiveOnlyFilter;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
@@ -90,6 +95,7 @@ public class TransitiveAccessWidenerJarProcessor implements JarProcessor {
 	private List<AccessWidenerFile> getTransitiveAccessWideners() {
 		final List<AccessWidenerFile> accessWideners = new ArrayList<>();
 		final Set<Path> possibleModJars = new HashSet<>();
+		final ModuleMetadataIndex moduleMetadataIndex = ModuleMetadataIndex.get(project);
 
 		// Only apply global AWs from modules that are part of the compile classpath
 		for (RemapConfigurationSettings entry : extension.getCompileRemapConfigurations()) {
@@ -115,13 +121,22 @@ public class TransitiveAccessWidenerJarProcessor implements JarProcessor {
 				continue;
 			}
 
-			AccessWidenerFile accessWidener = AccessWidenerFile.fromModuleJar(path);
+			final ModuleMetadata metadata = moduleMetadataIndex.get(path);
+			final AccessWidenerFile accessWidener;
+
+			try {
+				accessWidener = metadata.getAccessWidenerFile();
+			} catch (NoSuchFileException e) {
+				throw new UncheckedIOException("Could not find access widener file (%s) defined in the flintmodule.json file of %s".formatted(e.getFile(), path.toAbsolutePath()), e);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read access widener from %s".formatted(path.toAbsolutePath()), e);
+			}
 
 			if (accessWidener == null) {
 				continue;
 			}
 
-			if (!TransitiveDetectorVisitor.isTransitive(accessWidener.content())) {
+			if (!metadata.transitiveAccessWidener()) {
 				// AW does not contain anything transitive, skip over it
 				continue;
 			}
@@ -134,11 +149,15 @@ public class TransitiveAccessWidenerJarProcessor implements JarProcessor {
 
 	@Override
 	public void process(File file) {
+		JarProcessorManager.applyTransformer(file, createClassTransformer());
+	}
+
+	@Override
+	public JarProcessor.ClassTransformer createClassTransformer() {
 		Preconditions.checkArgument(!isEmpty());
 
 		AccessWidener accessWidener = createAccessWidener();
-		AccessWidenerTransformer transformer = new AccessWidenerTransformer(project.getLogger(), accessWidener);
-		transformer.apply(file);
+		return new AccessWidenerTransformer(project.getLogger(), accessWidener, Map.of());
 	}
 
 	private AccessWidener createAccessWidener() {
@@ -181,40 +200,4 @@ public class TransitiveAccessWidenerJarProcessor implements JarProcessor {
 			throw new RuntimeException("Failed to create tiny remapper for intermediary->named", e);
 		}
 	}
-
-	private static class TransitiveDetectorVisitor implements AccessWidenerVisitor {
-		private boolean transitive = false;
-
-		@Override
-		public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
-			if (transitive) {
-				this.transitive = true;
-			}
-		}
-
-		@Override
-		public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
-			if (transitive) {
-				this.transitive = true;
-			}
-		}
-
-		@Override
-		public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
-			if (transitive) {
-				this.transitive = true;
-			}
-		}
-
-		public static boolean isTransitive(byte[] content) {
-			if (AccessWidenerReader.readVersion(content) < 2) {
-				// Transitive AWs are only in v2 or higher, so we can save parsing the file to find out...
-				return false;
-			}
-
-			TransitiveDetectorVisitor transitiveDetector = new TransitiveDetectorVisitor();
-			new AccessWidenerReader(transitiveDetector).read(content);
-			return transitiveDetector.transitive;
-		}
-	}
 }
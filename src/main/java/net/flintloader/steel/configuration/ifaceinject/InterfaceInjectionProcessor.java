@@ -50,9 +50,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
 import org.gradle.api.tasks.SourceSet;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.commons.Remapper;
 
 import net.flintloader.steel.SteelGradleExtension;
@@ -60,14 +58,14 @@ import net.flintloader.steel.SteelGradlePlugin;
 import net.flintloader.steel.api.InterfaceInjectionExtensionAPI;
 import net.flintloader.steel.api.RemapConfigurationSettings;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
+import net.flintloader.steel.configuration.modules.ModuleMetadata;
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex;
 import net.flintloader.steel.configuration.processors.JarProcessor;
+import net.flintloader.steel.configuration.processors.JarProcessorManager;
 import net.flintloader.steel.task.GenerateSourcesTask;
 import net.flintloader.steel.util.Checksum;
 import net.flintloader.steel.util.Constants;
-import net.flintloader.steel.util.ModuleUtils;
-import net.flintloader.steel.util.Pair;
 import net.flintloader.steel.util.TinyRemapperHelper;
-import net.flintloader.steel.util.ZipUtils;
 
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -109,7 +107,12 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 	}
 
 	@Override
-	public void process(File jarFile) {
+	public void process(File file) {
+		JarProcessorManager.applyTransformer(file, createClassTransformer());
+	}
+
+	@Override
+	public JarProcessor.ClassTransformer createClassTransformer() {
 		// Lazily remap from intermediary->named
 		if (remappedInjectedInterfaces == null) {
 			TinyRemapper tinyRemapper = createTinyRemapper();
@@ -137,33 +140,25 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 			}
 		}
 
-		try {
-			ZipUtils.transform(jarFile.toPath(), getTransformers());
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to apply interface injections to " + jarFile, e);
-		}
-	}
-
-	private List<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> getTransformers() {
-		return remappedInjectedInterfaces.keySet().stream()
-				.map(string -> new Pair<>(string.replaceAll("\\.", "/") + ".class", getTransformer(string)))
-				.collect(Collectors.toList());
-	}
+		return new JarProcessor.ClassTransformer() {
+			@Override
+			public Set<String> getTargets() {
+				return remappedInjectedInterfaces.keySet().stream()
+						.map(string -> string.replaceAll("\\.", "/"))
+						.collect(Collectors.toSet());
+			}
 
-	private ZipUtils.UnsafeUnaryOperator<byte[]> getTransformer(String className) {
-		return input -> {
-			ClassReader reader = new ClassReader(input);
-			ClassWriter writer = new ClassWriter(0);
-			List<InjectedInterface> ifaces = remappedInjectedInterfaces.get(className);
-			ClassVisitor classVisitor = new InjectingClassVisitor(Constants.ASM_VERSION, writer, ifaces);
+			@Override
+			public ClassVisitor createClassVisitor(String className, ClassVisitor next) {
+				List<InjectedInterface> ifaces = remappedInjectedInterfaces.get(className);
 
-			// Log which modules add which interface to the class
-			project.getLogger().info("Injecting interfaces into " + className + ": "
-					+ ifaces.stream().map(i -> i.ifaceName() + " [" + i.modId() + "]"
-			).collect(Collectors.joining(", ")));
+				// Log which modules add which interface to the class
+				project.getLogger().info("Injecting interfaces into " + className + ": "
+						+ ifaces.stream().map(i -> i.ifaceName() + " [" + i.modId() + "]"
+				).collect(Collectors.joining(", ")));
 
-			reader.accept(classVisitor, 0);
-			return writer.toByteArray();
+				return new InjectingClassVisitor(Constants.ASM_VERSION, next, ifaces);
+			}
 		};
 	}
 
@@ -188,6 +183,7 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 				settings.getSourceConfiguration().get().resolve().stream()
 						.map(File::toPath);
 
+		final ModuleMetadataIndex moduleMetadataIndex = ModuleMetadataIndex.get(project);
 		final List<Path> runtimeEntries = extension.getRuntimeRemapConfigurations().stream()
 				.flatMap(resolve)
 				.toList();
@@ -195,7 +191,7 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 		return extension.getCompileRemapConfigurations().stream()
 				.flatMap(resolve)
 				.filter(runtimeEntries::contains) // Use the intersection of the two configurations.
-				.flatMap(path -> InjectedInterface.fromModuleJar(path).stream())
+				.flatMap(path -> InjectedInterface.fromModuleJar(moduleMetadataIndex.get(path)).stream())
 				.toList();
 	}
 
@@ -272,8 +268,8 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 		/**
 		 * Reads the injected interfaces contained in a mod jar, or returns empty if there is none.
 		 */
-		public static List<InjectedInterface> fromModuleJar(Path modJarPath) {
-			final JsonObject jsonObject = ModuleUtils.getFlintModuleJson(modJarPath);
+		public static List<InjectedInterface> fromModuleJar(ModuleMetadata metadata) {
+			final JsonObject jsonObject = metadata.getModJson();
 
 			if (jsonObject == null) {
 				return Collections.emptyList();
@@ -314,8 +310,8 @@ public class InterfaceInjectionProcessor implements JarProcessor, GenerateSource
 	private static class InjectingClassVisitor extends ClassVisitor {
 		private final List<InjectedInterface> injectedInterfaces;
 
-		InjectingClassVisitor(int asmVersion, ClassWriter writer, List<InjectedInterface> injectedInterfaces) {
-			super(asmVersion, writer);
+		InjectingClassVisitor(int asmVersion, ClassVisitor next, List<InjectedInterface> injectedInterfaces) {
+			super(asmVersion, next);
 			this.injectedInterfaces = injectedInterfaces;
 		}
 
@@ -26,15 +26,12 @@
 package net.flintloader.steel.configuration.modules;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
-import com.google.gson.JsonObject;
 import org.objectweb.asm.commons.Remapper;
 
-import net.flintloader.steel.SteelGradlePlugin;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
-import net.flintloader.steel.util.ZipUtils;
+import net.flintloader.steel.configuration.accesswidener.AccessWidenerFile;
 
 import net.fabricmc.accesswidener.AccessWidenerReader;
 import net.fabricmc.accesswidener.AccessWidenerRemapper;
@@ -60,18 +57,19 @@ public class AccessWidenerUtils {
 	}
 
 	public static AccessWidenerData readAccessWidenerData(Path inputJar) throws IOException {
-		byte[] modJsonBytes = ZipUtils.unpack(inputJar, "flintmodule.json");
-		JsonObject jsonObject = SteelGradlePlugin.GSON.fromJson(new String(modJsonBytes, StandardCharsets.UTF_8), JsonObject.class);
+		return readAccessWidenerData(ModuleMetadata.read(inputJar));
+	}
+
+	public static AccessWidenerData readAccessWidenerData(ModuleMetadata metadata) throws IOException {
+		AccessWidenerFile accessWidenerFile = metadata.getAccessWidenerFile();
 
-		if (!jsonObject.has("accessWidener")) {
+		if (accessWidenerFile == null) {
 			return null;
 		}
 
-		String accessWidenerPath = jsonObject.get("accessWidener").getAsString();
-		byte[] accessWidener = ZipUtils.unpack(inputJar, accessWidenerPath);
-		AccessWidenerReader.Header header = AccessWidenerReader.readHeader(accessWidener);
+		AccessWidenerReader.Header header = AccessWidenerReader.readHeader(accessWidenerFile.content());
 
-		return new AccessWidenerData(accessWidenerPath, header, accessWidener);
+		return new AccessWidenerData(accessWidenerFile.path(), header, accessWidenerFile.content());
 	}
 
 	public record AccessWidenerData(String path, AccessWidenerReader.Header header, byte[] content) {
@@ -25,27 +25,30 @@
 
 package net.flintloader.steel.configuration.modules;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
-import java.util.stream.Stream;
 
 import org.jetbrains.annotations.Nullable;
 
 import net.flintloader.steel.task.AbstractRemapJarTask;
-import net.flintloader.steel.util.FileSystemUtil;
+import net.flintloader.steel.util.zip.RawZipEntry;
+import net.flintloader.steel.util.zip.RawZipFile;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public class JarSplitter {
 	public static final String MANIFEST_SPLIT_ENV_NAME_KEY = "Flint-Steel-Split-Environment-Name";
@@ -58,8 +61,8 @@ public class JarSplitter {
 
 	@Nullable
 	public Target analyseTarget() {
-		try (FileSystemUtil.Delegate input = FileSystemUtil.getJarFileSystem(inputJar)) {
-			final Manifest manifest = input.fromInputStream(Manifest::new, AbstractRemapJarTask.MANIFEST_PATH);
+		try (RawZipFile input = RawZipFile.open(inputJar)) {
+			final Manifest manifest = readManifest(input);
 
 			if (!Boolean.parseBoolean(manifest.getMainAttributes().getValue(AbstractRemapJarTask.MANIFEST_SPLIT_ENV_KEY))) {
 				// Jar was not built with splitting enabled.
@@ -73,39 +76,14 @@ public class JarSplitter {
 				return Target.COMMON_ONLY;
 			}
 
-			final List<String> entries = new LinkedList<>();
-
-			// Must collect all the input entries to see if this might be a client only jar.
-			try (Stream<Path> walk = Files.walk(input.get().getPath("/"))) {
-				final Iterator<Path> iterator = walk.iterator();
-
-				while (iterator.hasNext()) {
-					final Path entry = iterator.next();
-
-					if (!Files.isRegularFile(entry)) {
-						continue;
-					}
-
-					final Path relativePath = input.get().getPath("/").relativize(entry);
-
-					if (relativePath.startsWith("META-INF")) {
-						if (isSignatureData(relativePath)) {
-							// Ignore any signature data
-							continue;
-						}
-
-						if (relativePath.endsWith("MANIFEST.MF")) {
-							// Ignore the manifest
-							continue;
-						}
-					}
-
-					entries.add(relativePath.toString());
+			// Must check all the input entries to see if this might be a client only jar.
+			for (RawZipEntry entry : input.getEntries()) {
+				if (entry.isDirectory() || isSignatureData(entry.name()) || entry.name().equals(AbstractRemapJarTask.MANIFEST_PATH)) {
+					// Ignore any signature data and the manifest
+					continue;
 				}
-			}
 
-			for (String entry : entries) {
-				if (!clientEntries.contains(entry)) {
+				if (!clientEntries.contains(entry.name())) {
 					// Found a common entry, we need to split,.
 					return Target.SPLIT;
 				}
@@ -122,77 +100,60 @@ public class JarSplitter {
 		Files.deleteIfExists(commonOutputJar);
 		Files.deleteIfExists(clientOutputJar);
 
-		try (FileSystemUtil.Delegate input = FileSystemUtil.getJarFileSystem(inputJar)) {
-			final Manifest manifest = input.fromInputStream(Manifest::new, AbstractRemapJarTask.MANIFEST_PATH);
+		try (RawZipFile input = RawZipFile.open(inputJar)) {
+			final Manifest manifest = readManifest(input);
 
 			if (!Boolean.parseBoolean(manifest.getMainAttributes().getValue(AbstractRemapJarTask.MANIFEST_SPLIT_ENV_KEY))) {
 				throw new UnsupportedOperationException("Cannot split jar that has not been built with a split env");
 			}
 
-			final List<String> clientEntries = readClientEntries(manifest);
+			final Set<String> clientEntries = new HashSet<>(readClientEntries(manifest));
 
 			if (clientEntries.isEmpty()) {
 				throw new IllegalStateException("Expected to split jar with no client entries");
 			}
 
-			try (FileSystemUtil.Delegate commonOutput = FileSystemUtil.getJarFileSystem(commonOutputJar, true);
-					FileSystemUtil.Delegate clientOutput = FileSystemUtil.getJarFileSystem(clientOutputJar, true);
-					Stream<Path> walk = Files.walk(input.get().getPath("/"))) {
-				final Iterator<Path> iterator = walk.iterator();
-
-				while (iterator.hasNext()) {
-					final Path entry = iterator.next();
-
-					if (!Files.isRegularFile(entry)) {
-						continue;
-					}
-
-					final Path relativePath = input.get().getPath("/").relativize(entry);
-
-					if (relativePath.startsWith("META-INF")) {
-						if (isSignatureData(relativePath)) {
-							// Strip any signature data
-							continue;
-						}
-					}
-
-					final String entryPath = relativePath.toString();
-
-					if (entryPath.equals(AbstractRemapJarTask.MANIFEST_PATH)) {
-						continue;
-					}
-
-					final FileSystemUtil.Delegate target = clientEntries.contains(entryPath) ? clientOutput : commonOutput;
-					final Path outputEntry = target.getPath(entryPath);
-					final Path outputParent = outputEntry.getParent();
+			/*
+			Write the manifest to both jars
+			- Remove signature data
+			- Remove split data as its already been split.
+			- Add env name.
+			 */
+			final Manifest outManifest = new Manifest(manifest);
+			final Attributes attributes = outManifest.getMainAttributes();
+			stripSignatureData(outManifest);
+
+			attributes.remove(Attributes.Name.SIGNATURE_VERSION);
+			Objects.requireNonNull(attributes.remove(AbstractRemapJarTask.MANIFEST_SPLIT_ENV_NAME));
+			Objects.requireNonNull(attributes.remove(AbstractRemapJarTask.MANIFEST_CLIENT_ENTRIES_NAME));
+
+			// Both jars are written at the same time, with the entries copied as they are stored in the input.
+			try (ZipRewriter commonOutput = ZipRewriter.open(input, commonOutputJar);
+					ZipRewriter clientOutput = ZipRewriter.open(input, clientOutputJar)) {
+				// Strip any signature data, the manifest is replaced.
+				final Predicate<String> copied = name -> !isSignatureData(name) && !name.equals(AbstractRemapJarTask.MANIFEST_PATH);
+
+				commonOutput.retainAll(copied.and(name -> !clientEntries.contains(name)));
+				clientOutput.retainAll(copied.and(clientEntries::contains));
+
+				commonOutput.put(AbstractRemapJarTask.MANIFEST_PATH, writeWithEnvironment(outManifest, "common"));
+				clientOutput.put(AbstractRemapJarTask.MANIFEST_PATH, writeWithEnvironment(outManifest, "client"));
+
+				ZipRewriter.commitAll(List.of(commonOutput, clientOutput));
+			}
+		}
 
-					if (outputParent != null) {
-						Files.createDirectories(outputParent);
-					}
+		return true;
+	}
 
-					Files.copy(entry, outputEntry, StandardCopyOption.COPY_ATTRIBUTES);
-				}
+	private static Manifest readManifest(RawZipFile input) throws IOException {
+		final RawZipEntry entry = input.getEntry(AbstractRemapJarTask.MANIFEST_PATH);
 
-				/*
-				Write the manifest to both jars
-				- Remove signature data
-				- Remove split data as its already been split.
-				- Add env name.
-				 */
-				final Manifest outManifest = new Manifest(manifest);
-				final Attributes attributes = outManifest.getMainAttributes();
-				stripSignatureData(outManifest);
-
-				attributes.remove(Attributes.Name.SIGNATURE_VERSION);
-				Objects.requireNonNull(attributes.remove(AbstractRemapJarTask.MANIFEST_SPLIT_ENV_NAME));
-				Objects.requireNonNull(attributes.remove(AbstractRemapJarTask.MANIFEST_CLIENT_ENTRIES_NAME));
-
-				writeBytes(writeWithEnvironment(outManifest, "common"), commonOutput.getPath(AbstractRemapJarTask.MANIFEST_PATH));
-				writeBytes(writeWithEnvironment(outManifest, "client"), clientOutput.getPath(AbstractRemapJarTask.MANIFEST_PATH));
-			}
+		if (entry == null) {
+			throw new NoSuchFileException(AbstractRemapJarTask.MANIFEST_PATH);
 		}
 
-		return true;
+		return new Manifest(new ByteArrayInputStream(input.read(entry)));
 	}
 
 	private byte[] writeWithEnvironment(Manifest in, String value) throws IOException {
@@ -216,8 +177,12 @@ public class JarSplitter {
 		return Arrays.stream(clientEntriesValue.split(";")).toList();
 	}
 
-	private boolean isSignatureData(Path path) {
-		final String fileName = path.getFileName().toString();
+	public static boolean isSignatureData(String name) {
+		if (!name.startsWith("META-INF/")) {
+			return false;
+		}
+
+		final String fileName = name.substring(name.lastIndexOf('/') + 1);
 		return fileName.endsWith(".SF")
 				|| fileName.endsWith(".DSA")
 				|| fileName.endsWith(".RSA")
@@ -225,7 +190,7 @@ public class JarSplitter {
 	}
 
 	// Based off tiny-remapper's MetaInfFixer
-	private static void stripSignatureData(Manifest manifest) {
+	public static void stripSignatureData(Manifest manifest) {
 		for (Iterator<Attributes> it = manifest.getEntries().values().iterator(); it.hasNext(); ) {
 			Attributes attrs = it.next();
 
@@ -242,16 +207,6 @@ public class JarSplitter {
 		}
 	}
 
-	private static void writeBytes(byte[] bytes, Path path) throws IOException {
-		final Path parent = path.getParent();
-
-		if (parent != null) {
-			Files.createDirectories(parent);
-		}
-
-		Files.write(path, bytes);
-	}
-
 	public enum Target {
 		COMMON_ONLY(true, false),
 		CLIENT_ONLY(false, true),
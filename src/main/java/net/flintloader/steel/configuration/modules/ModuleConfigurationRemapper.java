@@ -56,7 +56,6 @@ import net.flintloader.steel.configuration.modules.dependency.ModuleDependency;
 import net.flintloader.steel.configuration.modules.dependency.ModuleDependencyFactory;
 import net.flintloader.steel.util.Checksum;
 import net.flintloader.steel.util.Constants;
-import net.flintloader.steel.util.ModuleUtils;
 import net.flintloader.steel.util.OperatingSystem;
 import net.flintloader.steel.util.SourceRemapper;
 
@@ -89,7 +88,7 @@ public class ModuleConfigurationRemapper {
 				final List<ModuleDependency> modDependencies = new ArrayList<>();
 
 				for (ArtifactRef artifact : resolveArtifacts(project, sourceConfig)) {
-					if (!ModuleUtils.isModule(artifact.path())) {
+					if (!ModuleMetadataIndex.get(project).isModule(artifact.path())) {
 						artifact.applyToConfiguration(project, targetConfig);
 						continue;
 					}
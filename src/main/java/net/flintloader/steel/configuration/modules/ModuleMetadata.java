@@ -0,0 +1,201 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration.modules;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.Nullable;
+
+import net.flintloader.steel.SteelGradlePlugin;
+import net.flintloader.steel.configuration.accesswidener.AccessWidenerFile;
+import net.flintloader.steel.util.Constants;
+import net.flintloader.steel.util.FileSystemUtil;
+import net.flintloader.steel.util.zip.RawZipEntry;
+import net.flintloader.steel.util.zip.RawZipFile;
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+
+/**
+ * The module related contents of a jar, including the access widener and provided javadoc so that the jar does not need to be opened again.
+ *
+ * @param modJson the flintmodule.json, or null when the jar is not a module
+ * @param accessWidener the access widener declared in the flintmodule.json, or null when it does not exist in the jar
+ * @param providedJavadoc the javadoc mappings declared in the flintmodule.json, or null when they do not exist in the jar
+ */
+public record ModuleMetadata(
+		@Nullable String modJson,
+		@Nullable String accessWidenerPath,
+		byte @Nullable [] accessWidener,
+		boolean transitiveAccessWidener,
+		@Nullable String providedJavadocPath,
+		byte @Nullable [] providedJavadoc
+) {
+	private static final String MOD_JSON = "flintmodule.json";
+	private static final ModuleMetadata NOT_A_MODULE = new ModuleMetadata(null, null, null, false, null, null);
+
+	public static ModuleMetadata read(Path jar) throws IOException {
+		try (RawZipFile zip = RawZipFile.open(jar)) {
+			return read(path -> {
+				final RawZipEntry entry = zip.getEntry(path);
+				return entry != null ? zip.read(entry) : null;
+			});
+		} catch (UnsupportedZipException e) {
+			try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jar)) {
+				return read(path -> {
+					final Path fsPath = fs.get().getPath(path);
+					return Files.exists(fsPath) ? Files.readAllBytes(fsPath) : null;
+				});
+			}
+		}
+	}
+
+	private static ModuleMetadata read(EntryReader zip) throws IOException {
+		final byte[] modJsonBytes = readNullable(zip, MOD_JSON);
+
+		if (modJsonBytes == null) {
+			return NOT_A_MODULE;
+		}
+
+		final String modJson = new String(modJsonBytes, StandardCharsets.UTF_8);
+		final JsonObject jsonObject = SteelGradlePlugin.GSON.fromJson(modJson, JsonObject.class);
+
+		final String accessWidenerPath = jsonObject.has("accessWidener") ? jsonObject.get("accessWidener").getAsString() : null;
+		final byte[] accessWidener = accessWidenerPath != null ? readNullable(zip, accessWidenerPath) : null;
+
+		final JsonPrimitive javadoc = jsonObject.has("custom") ? jsonObject.getAsJsonObject("custom").getAsJsonPrimitive(Constants.CustomModJsonKeys.PROVIDED_JAVADOC) : null;
+		final String providedJavadocPath = javadoc != null ? javadoc.getAsString() : null;
+		final byte[] providedJavadoc = providedJavadocPath != null ? readNullable(zip, providedJavadocPath) : null;
+
+		return new ModuleMetadata(
+				modJson,
+				accessWidenerPath,
+				accessWidener,
+				accessWidener != null && AccessWidenerFile.isTransitive(accessWidener),
+				providedJavadocPath,
+				providedJavadoc
+		);
+	}
+
+	private static byte @Nullable [] readNullable(EntryReader zip, String path) throws IOException {
+		return zip.read(path.startsWith("/") ? path.substring(1) : path);
+	}
+
+	public boolean isModule() {
+		return modJson != null;
+	}
+
+	/**
+	 * @return a new copy of the parsed flintmodule.json, or null when the jar is not a module
+	 */
+	@Nullable
+	public JsonObject getModJson() {
+		return modJson != null ? SteelGradlePlugin.GSON.fromJson(modJson, JsonObject.class) : null;
+	}
+
+	/**
+	 * @return the access widener of the module, or null if it does not declare one
+	 * @throws NoSuchFileException when the declared access widener does not exist in the jar
+	 */
+	@Nullable
+	public AccessWidenerFile getAccessWidenerFile() throws IOException {
+		if (accessWidenerPath == null) {
+			return null;
+		}
+
+		if (accessWidener == null) {
+			throw new NoSuchFileException(accessWidenerPath);
+		}
+
+		return new AccessWidenerFile(accessWidenerPath, getModJson().get("id").getAsString(), accessWidener);
+	}
+
+	/**
+	 * @return the javadoc mappings provided by the module, or null if it does not provide any
+	 * @throws NoSuchFileException when the declared mappings do not exist in the jar
+	 */
+	public byte @Nullable [] getProvidedJavadoc() throws IOException {
+		if (providedJavadocPath == null) {
+			return null;
+		}
+
+		if (providedJavadoc == null) {
+			throw new NoSuchFileException(providedJavadocPath);
+		}
+
+		return providedJavadoc;
+	}
+
+	void write(DataOutput out) throws IOException {
+		writeNullable(out, modJson != null ? modJson.getBytes(StandardCharsets.UTF_8) : null);
+		writeNullable(out, accessWidenerPath != null ? accessWidenerPath.getBytes(StandardCharsets.UTF_8) : null);
+		writeNullable(out, accessWidener);
+		out.writeBoolean(transitiveAccessWidener);
+		writeNullable(out, providedJavadocPath != null ? providedJavadocPath.getBytes(StandardCharsets.UTF_8) : null);
+		writeNullable(out, providedJavadoc);
+	}
+
+	static ModuleMetadata read(DataInput in) throws IOException {
+		return new ModuleMetadata(readString(in), readString(in), readNullable(in), in.readBoolean(), readString(in), readNullable(in));
+	}
+
+	private static void writeNullable(DataOutput out, byte @Nullable [] bytes) throws IOException {
+		out.writeInt(bytes != null ? bytes.length : -1);
+
+		if (bytes != null) {
+			out.write(bytes);
+		}
+	}
+
+	private static byte @Nullable [] readNullable(DataInput in) throws IOException {
+		final int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	@Nullable
+	private static String readString(DataInput in) throws IOException {
+		final byte[] bytes = readNullable(in);
+		return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+	}
+
+	@FunctionalInterface
+	private interface EntryReader {
+		byte @Nullable [] read(String path) throws IOException;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration.modules;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.api.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.flintloader.steel.SteelGradleExtension;
+import net.flintloader.steel.util.Checksum;
+import net.flintloader.steel.util.service.SharedService;
+import net.flintloader.steel.util.service.SharedServiceManager;
+
+/**
+ * A persistent index of the {@link ModuleMetadata} of every jar that has been looked at, kept in the user cache.
+ *
+ * <p>A jar is looked up by its path, size and modification time, falling back to its sha1 hash so that a copy of a jar in another location is only read once.
+ * The access widener and provided javadoc are indexed along with the flintmodule.json, so an indexed jar is never opened again.
+ */
+public final class ModuleMetadataIndex implements SharedService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ModuleMetadataIndex.class);
+	private static final int MAGIC = 0x534D4D49; // SMMI
+	private static final int VERSION = 3;
+
+	private final Path file;
+	private final Map<String, Stat> paths;
+	private final Map<String, ModuleMetadata> metadata;
+	private boolean dirty = false;
+
+	private ModuleMetadataIndex(Path file, Map<String, Stat> paths, Map<String, ModuleMetadata> metadata) {
+		this.file = file;
+		this.paths = paths;
+		this.metadata = metadata;
+	}
+
+	public static synchronized ModuleMetadataIndex get(Project project) {
+		final Path file = SteelGradleExtension.get(project).getFiles().getUserCache().toPath().resolve("module_metadata.bin");
+		return SharedServiceManager.get(project).getOrCreateService("ModuleMetadataIndex:" + file, () -> read(file));
+	}
+
+	/**
+	 * Reads the index, returning an empty one if it is missing or unreadable.
+	 */
+	static ModuleMetadataIndex read(Path file) {
+		final ModuleMetadataIndex empty = new ModuleMetadataIndex(file, new HashMap<>(), new HashMap<>());
+
+		if (Files.notExists(file)) {
+			return empty;
+		}
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return empty;
+			}
+
+			final int metadataCount = in.readInt();
+			final Map<String, ModuleMetadata> metadata = new HashMap<>(metadataCount * 2);
+
+			for (int i = 0; i < metadataCount; i++) {
+				metadata.put(in.readUTF(), ModuleMetadata.read(in));
+			}
+
+			final int pathCount = in.readInt();
+			final Map<String, Stat> paths = new HashMap<>(pathCount * 2);
+
+			for (int i = 0; i < pathCount; i++) {
+				paths.put(in.readUTF(), new Stat(in.readLong(), in.readLong(), in.readUTF()));
+			}
+
+			return new ModuleMetadataIndex(file, paths, metadata);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read module metadata index {}, all jars will be read again", file, e);
+			return empty;
+		}
+	}
+
+	/**
+	 * @return the module metadata of the given jar, read from the jar only when it has not been indexed before
+	 */
+	public synchronized ModuleMetadata get(Path jar) {
+		final String key = jar.toAbsolutePath().toString();
+
+		try {
+			final BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+			final Stat indexed = paths.get(key);
+
+			if (indexed != null && indexed.size() == attributes.size() && indexed.lastModified() == attributes.lastModifiedTime().toMillis()) {
+				final ModuleMetadata moduleMetadata = metadata.get(indexed.sha1());
+
+				if (moduleMetadata != null) {
+					return moduleMetadata;
+				}
+			}
+
+			final String sha1 = Checksum.sha1Hex(jar);
+			ModuleMetadata moduleMetadata = metadata.get(sha1);
+
+			if (moduleMetadata == null) {
+				moduleMetadata = ModuleMetadata.read(jar);
+				metadata.put(sha1, moduleMetadata);
+			}
+
+			paths.put(key, new Stat(attributes.size(), attributes.lastModifiedTime().toMillis(), sha1));
+			dirty = true;
+			return moduleMetadata;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read module metadata from (%s)".formatted(jar), e);
+		}
+	}
+
+	public boolean isModule(Path jar) {
+		return get(jar).isModule();
+	}
+
+	/**
+	 * @return the sha1 hash of the given jar, which is only hashed again when it has changed since it was indexed
+	 */
+	public synchronized String getSha1(Path jar) {
+		get(jar);
+		return paths.get(jar.toAbsolutePath().toString()).sha1();
+	}
+
+	/**
+	 * Writes the index if it has changed, dropping the jars that no longer exist.
+	 */
+	synchronized void write() throws IOException {
+		if (!dirty) {
+			return;
+		}
+
+		paths.keySet().removeIf(path -> Files.notExists(Path.of(path)));
+
+		final Set<String> referenced = new HashSet<>();
+
+		for (Stat stat : paths.values()) {
+			referenced.add(stat.sha1());
+		}
+
+		metadata.keySet().retainAll(referenced);
+
+		Files.createDirectories(file.getParent());
+		final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(metadata.size());
+
+				for (Map.Entry<String, ModuleMetadata> entry : metadata.entrySet()) {
+					out.writeUTF(entry.getKey());
+					entry.getValue().write(out);
+				}
+
+				out.writeInt(paths.size());
+
+				for (Map.Entry<String, Stat> entry : paths.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeLong(entry.getValue().size());
+					out.writeLong(entry.getValue().lastModified());
+					out.writeUTF(entry.getValue().sha1());
+				}
+			}
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		dirty = false;
+	}
+
+	@Override
+	public void close() {
+		try {
+			write();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write module metadata index {}", file, e);
+		}
+	}
+
+	private record Stat(long size, long lastModified, String sha1) {
+	}
+}
@@ -50,7 +50,6 @@ import net.flintloader.steel.configuration.providers.mappings.MappingsProviderIm
 import net.flintloader.steel.task.RemapJarTask;
 import net.flintloader.steel.util.Constants;
 import net.flintloader.steel.util.Pair;
-import net.flintloader.steel.util.TinyRemapperHelper;
 import net.flintloader.steel.util.ZipUtils;
 import net.flintloader.steel.util.kotlin.KotlinClasspathService;
 import net.flintloader.steel.util.kotlin.KotlinRemapperClassloader;
@@ -100,7 +99,7 @@ public class ModuleProcessor {
 				.stream().map(File::toPath).toArray(Path[]::new);
 
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper()
-				.withMappings(TinyRemapperHelper.create(mappingsProvider.getMappings(), fromM, toM, false))
+				.withMappings(mappingsProvider.createMappingProvider(fromM, toM, false))
 				.renameInvalidLocals(false);
 
 		final KotlinClasspathService kotlinClasspathService = KotlinClasspathService.getOrCreateIfRequired(project);
@@ -144,6 +143,8 @@ public class ModuleProcessor {
 			Files.deleteIfExists(getRemappedOutput(info));
 		}
 
+		final ModuleMetadataIndex moduleMetadataIndex = ModuleMetadataIndex.get(project);
+
 		try {
 			// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
 			for (ModuleDependency dependency : remapList) {
@@ -153,7 +154,7 @@ public class ModuleProcessor {
 					outputConsumer.addNonClassFiles(dependency.getInputFile(), NonClassCopyMode.FIX_META_INF, remapper);
 					outputConsumerMap.put(dependency, outputConsumer);
 
-					final AccessWidenerUtils.AccessWidenerData accessWidenerData = AccessWidenerUtils.readAccessWidenerData(dependency.getInputFile());
+					final AccessWidenerUtils.AccessWidenerData accessWidenerData = AccessWidenerUtils.readAccessWidenerData(moduleMetadataIndex.get(dependency.getInputFile()));
 
 					if (accessWidenerData != null) {
 						project.getLogger().debug("Remapping access widener in {}", dependency.getInputFile());
@@ -26,6 +26,11 @@
 package net.flintloader.steel.configuration.processors;
 
 import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
 
 public interface JarProcessor {
 	/**
@@ -42,6 +47,50 @@ public interface JarProcessor {
 
 	/**
 	 * Currently this is a destructive process that replaces the existing jar.
+	 *
+	 * <p>This is not called for processors that provide a {@link ClassTransformer},
+	 * as the {@link JarProcessorManager} applies all of the transformers in a single pass over the jar.
+	 * Such processors can implement it with {@link JarProcessorManager#applyTransformer(File, ClassTransformer)}.
 	 */
 	void process(File file);
+
+	/**
+	 * Returns a transformer that is fused with the other processors into a single rewrite of the jar,
+	 * or null when the processor has to rewrite the jar by itself in {@link #process(File)}.
+	 */
+	@Nullable
+	default ClassTransformer createClassTransformer() {
+		return null;
+	}
+
+	interface ClassTransformer {
+		ClassTransformer NONE = new ClassTransformer() {
+			@Override
+			public Set<String> getTargets() {
+				return Set.of();
+			}
+
+			@Override
+			public ClassVisitor createClassVisitor(String className, ClassVisitor next) {
+				return next;
+			}
+		};
+
+		/**
+		 * @return the internal names of the classes to transform
+		 */
+		Set<String> getTargets();
+
+		/**
+		 * Wraps the visitor of one of the targeted classes, this is called concurrently for different classes.
+		 */
+		ClassVisitor createClassVisitor(String className, ClassVisitor next);
+
+		/**
+		 * @return extra files to add to the jar, keyed by their path
+		 */
+		default Map<String, byte[]> getAdditionalEntries() {
+			return Map.of();
+		}
+	}
 }
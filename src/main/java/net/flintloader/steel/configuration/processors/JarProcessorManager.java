@@ -31,8 +31,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -41,6 +46,9 @@ import java.util.stream.Collectors;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.Hashing;
 import com.google.common.io.CharSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 
 import net.flintloader.steel.util.ZipUtils;
 
@@ -104,22 +112,84 @@ public class JarProcessorManager {
 	}
 
 	public void process(File file) {
+		final List<JarProcessor.ClassTransformer> transformers = new ArrayList<>();
+
 		for (JarProcessor jarProcessor : jarProcessors) {
+			final JarProcessor.ClassTransformer transformer = jarProcessor.createClassTransformer();
+
+			if (transformer != null) {
+				transformers.add(transformer);
+				continue;
+			}
+
+			// This processor rewrites the jar by itself, so it must see the output of the processors before it.
+			if (!transformers.isEmpty()) {
+				applyTransformers(file.toPath(), transformers, Map.of());
+				transformers.clear();
+			}
+
 			jarProcessor.process(file);
 		}
 
+		final AtomicBoolean addedHash = new AtomicBoolean();
+
+		applyTransformers(file.toPath(), transformers, Map.of(MANIFEST_PATH, bytes -> {
+			Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
+			manifest.getMainAttributes().putValue(JAR_PROCESSOR_HASH_ATTRIBUTE, getJarProcessorHash());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			manifest.write(out);
+			addedHash.set(true);
+			return out.toByteArray();
+		}));
+
+		Preconditions.checkState(addedHash.get(), "Did not add data to jar manifest in " + file);
+	}
+
+	/**
+	 * Rewrites the jar with a single transformer, for processors that are run by themselves.
+	 */
+	public static void applyTransformer(File file, JarProcessor.ClassTransformer transformer) {
+		applyTransformers(file.toPath(), List.of(transformer), Map.of());
+	}
+
+	/**
+	 * Rewrites the jar once, transforming each targeted class with the visitors of all of the transformers chained in order.
+	 */
+	static void applyTransformers(Path jar, List<JarProcessor.ClassTransformer> transformers, Map<String, ZipUtils.UnsafeUnaryOperator<byte[]>> transforms) {
+		final Map<String, List<JarProcessor.ClassTransformer>> classTransformers = new HashMap<>();
+		final Map<String, byte[]> additions = new LinkedHashMap<>();
+
+		for (JarProcessor.ClassTransformer transformer : transformers) {
+			for (String className : transformer.getTargets()) {
+				classTransformers.computeIfAbsent(className, s -> new ArrayList<>()).add(transformer);
+			}
+
+			additions.putAll(transformer.getAdditionalEntries());
+		}
+
+		final Map<String, ZipUtils.UnsafeUnaryOperator<byte[]>> allTransforms = new HashMap<>(transforms);
+
+		for (Map.Entry<String, List<JarProcessor.ClassTransformer>> entry : classTransformers.entrySet()) {
+			allTransforms.put(entry.getKey() + ".class", input -> {
+				final ClassReader reader = new ClassReader(input);
+				final ClassWriter writer = new ClassWriter(0);
+				final List<JarProcessor.ClassTransformer> chain = entry.getValue();
+				ClassVisitor visitor = writer;
+
+				// Wrap in reverse so that the first processor sees the class as it was read
+				for (int i = chain.size() - 1; i >= 0; i--) {
+					visitor = chain.get(i).createClassVisitor(entry.getKey(), visitor);
+				}
+
+				reader.accept(visitor, 0);
+				return writer.toByteArray();
+			});
+		}
+
 		try {
-			int count = ZipUtils.transform(file.toPath(), Map.of(MANIFEST_PATH, bytes -> {
-				Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
-				manifest.getMainAttributes().putValue(JAR_PROCESSOR_HASH_ATTRIBUTE, getJarProcessorHash());
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				manifest.write(out);
-				return out.toByteArray();
-			}));
-
-			Preconditions.checkState(count > 0, "Did not add data to jar manifest in " + file);
+			ZipUtils.transformParallel(jar, allTransforms, additions);
 		} catch (IOException e) {
-			throw new UncheckedIOException("Could not add data to jar manifest in " + file, e);
+			throw new UncheckedIOException("Failed to process " + jar, e);
 		}
 	}
 
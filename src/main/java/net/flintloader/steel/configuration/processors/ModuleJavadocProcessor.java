@@ -31,12 +31,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
-import com.google.gson.JsonObject;
 import org.gradle.api.Project;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -45,10 +43,9 @@ import org.slf4j.LoggerFactory;
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.api.RemapConfigurationSettings;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
+import net.flintloader.steel.configuration.modules.ModuleMetadata;
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex;
 import net.flintloader.steel.task.GenerateSourcesTask;
-import net.flintloader.steel.util.Constants;
-import net.flintloader.steel.util.ModuleUtils;
-import net.flintloader.steel.util.ZipUtils;
 
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.tree.MappingTree;
@@ -66,20 +63,23 @@ public final class ModuleJavadocProcessor implements JarProcessor, GenerateSourc
 	@Nullable
 	public static ModuleJavadocProcessor create(Project project) {
 		final SteelGradleExtension extension = SteelGradleExtension.get(project);
+		final ModuleMetadataIndex moduleMetadataIndex = ModuleMetadataIndex.get(project);
 		final List<ModuleJavadoc> javadocs = new ArrayList<>();
 
 		for (RemapConfigurationSettings entry : extension.getRemapConfigurations()) {
 			final Set<File> artifacts = entry.getSourceConfiguration().get().resolve();
 
 			for (File artifact : artifacts) {
-				if (!ModuleUtils.isModule(artifact.toPath())) {
+				final ModuleMetadata metadata = moduleMetadataIndex.get(artifact.toPath());
+
+				if (!metadata.isModule()) {
 					continue;
 				}
 
 				final ModuleJavadoc moduleJavadoc;
 
 				try {
-					moduleJavadoc = ModuleJavadoc.fromModuleJar(artifact.toPath());
+					moduleJavadoc = ModuleJavadoc.fromModuleJar(metadata);
 				} catch (IOException e) {
 					throw new UncheckedIOException("Failed to read module jar (%s)".formatted(artifact), e);
 				}
@@ -117,27 +117,25 @@ public final class ModuleJavadocProcessor implements JarProcessor, GenerateSourc
 
 	@Override
 	public void process(File file) {
+		JarProcessorManager.applyTransformer(file, createClassTransformer());
+	}
+
+	@Override
+	public ClassTransformer createClassTransformer() {
 		// No need to actually process anything, we need to be a JarProcessor to ensure that the jar is cached correctly.
+		return ClassTransformer.NONE;
 	}
 
 	public record ModuleJavadoc(String modId, MemoryMappingTree mappingTree) {
 		@Nullable
-		public static ModuleJavadocProcessor.ModuleJavadoc fromModuleJar(Path path) throws IOException {
-			JsonObject jsonObject = ModuleUtils.getFlintModuleJson(path);
-
-			if (jsonObject == null || !jsonObject.has("custom")) {
-				return null;
-			}
-
-			final String modId = jsonObject.get("id").getAsString();
-			final JsonObject custom = jsonObject.getAsJsonObject("custom");
+		public static ModuleJavadocProcessor.ModuleJavadoc fromModuleJar(ModuleMetadata metadata) throws IOException {
+			final byte[] data = metadata.getProvidedJavadoc();
 
-			if (!custom.has(Constants.CustomModJsonKeys.PROVIDED_JAVADOC)) {
+			if (data == null) {
 				return null;
 			}
 
-			final String javaDocPath = custom.getAsJsonPrimitive(Constants.CustomModJsonKeys.PROVIDED_JAVADOC).getAsString();
-			final byte[] data = ZipUtils.unpack(path, javaDocPath);
+			final String modId = metadata.getModJson().get("id").getAsString();
 			final MemoryMappingTree mappings = new MemoryMappingTree();
 
 			try (Reader reader = new InputStreamReader(new ByteArrayInputStream(data))) {
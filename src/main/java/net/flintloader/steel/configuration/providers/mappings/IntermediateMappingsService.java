@@ -50,22 +50,41 @@ import net.flintloader.steel.util.service.SharedService;
 import net.flintloader.steel.util.service.SharedServiceManager;
 
 import net.fabricmc.mappingio.adapter.MappingNsCompleter;
+import net.fabricmc.mappingio.tree.MappingTreeView;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public final class IntermediateMappingsService implements SharedService {
 	private final Path intermediaryTiny;
 	private final Supplier<MemoryMappingTree> memoryMappingTree = Suppliers.memoize(this::createMemoryMappingTree);
+	private final Supplier<MappingTreeView> mappingView = Suppliers.memoize(this::createMappingView);
 
 	private IntermediateMappingsService(Path intermediaryTiny) {
 		this.intermediaryTiny = intermediaryTiny;
 	}
 
-	public static synchronized IntermediateMappingsService getInstance(Project project, MinecraftProvider minecraftProvider) {
+	public static IntermediateMappingsService getInstance(Project project, MinecraftProvider minecraftProvider) {
+		return factory(project, minecraftProvider).get();
+	}
+
+	/**
+	 * Resolves the properties of the intermediate mappings provider on the calling thread, the returned supplier can then be called from any thread.
+	 * The service is created under the per id lock of the {@link SharedServiceManager}, so unrelated services are not blocked.
+	 */
+	public static Supplier<IntermediateMappingsService> factory(Project project, MinecraftProvider minecraftProvider) {
 		final SteelGradleExtension extension = SteelGradleExtension.get(project);
 		final IntermediateMappingsProvider intermediateProvider = extension.getIntermediateMappingsProvider();
+		intermediateProvider.getMinecraftVersion().finalizeValue();
+		intermediateProvider.getDownloader().finalizeValue();
+
+		if (intermediateProvider instanceof IntermediaryMappingsProvider intermediaryProvider) {
+			intermediaryProvider.getIntermediaryUrl().finalizeValue();
+			intermediaryProvider.getRefreshDeps().finalizeValue();
+		}
+
 		final String id = "IntermediateMappingsService:%s:%s".formatted(intermediateProvider.getName(), intermediateProvider.getMinecraftVersion().get());
+		final SharedServiceManager serviceManager = SharedServiceManager.get(project);
 
-		return SharedServiceManager.get(project).getOrCreateService(id, () -> create(intermediateProvider, minecraftProvider));
+		return () -> serviceManager.getOrCreateService(id, () -> create(intermediateProvider, minecraftProvider));
 	}
 
 	@VisibleForTesting
@@ -91,11 +110,7 @@ public final class IntermediateMappingsService implements SharedService {
 		final MemoryMappingTree tree = new MemoryMappingTree();
 
 		try {
-			MappingNsCompleter nsCompleter = new MappingNsCompleter(tree, Collections.singletonMap(MappingsNamespace.NAMED.toString(), MappingsNamespace.INTERMEDIARY.toString()), true);
-
-			try (BufferedReader reader = Files.newBufferedReader(getIntermediaryTiny(), StandardCharsets.UTF_8)) {
-				Tiny2FileReader.read(reader, nsCompleter);
-			}
+			getMappingView().accept(new MappingNsCompleter(tree, Collections.singletonMap(MappingsNamespace.NAMED.toString(), MappingsNamespace.INTERMEDIARY.toString()), true));
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to read intermediary mappings", e);
 		}
@@ -103,10 +118,46 @@ public final class IntermediateMappingsService implements SharedService {
 		return tree;
 	}
 
+	/**
+	 * Creates a view of the snapshot of the intermediate mappings, writing the snapshot first when it is missing.
+	 * Unlike the memory mapping tree, the named namespace is not added when the mappings do not have one.
+	 */
+	private MappingTreeView createMappingView() {
+		MappingSnapshot snapshot = MappingSnapshot.openFor(getIntermediaryTiny());
+
+		if (snapshot == null) {
+			try {
+				final MemoryMappingTree intermediary = new MemoryMappingTree();
+
+				try (BufferedReader reader = Files.newBufferedReader(getIntermediaryTiny(), StandardCharsets.UTF_8)) {
+					Tiny2FileReader.read(reader, intermediary);
+				}
+
+				MappingSnapshot.writeFor(intermediary, getIntermediaryTiny());
+				snapshot = MappingSnapshot.openFor(getIntermediaryTiny());
+
+				if (snapshot == null) {
+					return intermediary;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read intermediary mappings", e);
+			}
+		}
+
+		return new MappingSnapshotTree(snapshot);
+	}
+
 	public MemoryMappingTree getMemoryMappingTree() {
 		return memoryMappingTree.get();
 	}
 
+	/**
+	 * @return a read-only view of the intermediate mappings, shared by their readers that do not need the named namespace to be filled in
+	 */
+	public MappingTreeView getMappingView() {
+		return mappingView.get();
+	}
+
 	public Path getIntermediaryTiny() {
 		return Objects.requireNonNull(intermediaryTiny, "Intermediary mappings have not been setup");
 	}
@@ -0,0 +1,275 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration.providers.mappings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.flintloader.steel.api.mappings.layered.MappingLayer;
+import net.flintloader.steel.configuration.providers.mappings.extras.signatures.SignatureFixesLayerImpl;
+import net.flintloader.steel.configuration.providers.mappings.file.FileMappingsLayer;
+import net.flintloader.steel.configuration.providers.mappings.intermediary.IntermediaryMappingLayer;
+import net.flintloader.steel.configuration.providers.mappings.mojmap.MojangMappingLayer;
+import net.flintloader.steel.configuration.providers.mappings.parchment.ParchmentMappingLayer;
+
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+
+/**
+ * Caches the mappings read from each layer, and the mappings composed from all but the top layer, by a hash of the inputs they were read from.
+ *
+ * <p>A layer is only read again when its inputs change. The composed stack is reused when only the top layer changes, such as when bumping the Parchment version.
+ * Entries that have not been read or written for a while are pruned.
+ * Layers that are not built in cannot be hashed, so they are always read, and nothing composed above them is cached.
+ */
+public final class LayeredMappingsCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LayeredMappingsCache.class);
+	// Bump when the layers or the snapshot format change the cached mappings
+	private static final int CACHE_VERSION = 1;
+	private static final Duration UNUSED_ENTRY_MAX_AGE = Duration.ofDays(30);
+
+	private final Path directory;
+	private final List<String> names = new ArrayList<>();
+	private final List<String> layerKeys = new ArrayList<>();
+	private final List<String> composedKeys = new ArrayList<>();
+	private final boolean refresh;
+
+	/**
+	 * @param intermediaryTiny the file that the intermediary layer reads its mappings from
+	 * @param refresh when true nothing is read from the cache, but it is still written to
+	 */
+	public LayeredMappingsCache(Path directory, List<MappingLayer> layers, Path intermediaryTiny, boolean refresh) throws IOException {
+		this.directory = directory;
+		this.refresh = refresh;
+
+		String composedKey = "";
+
+		for (MappingLayer layer : layers) {
+			final String layerKey = getLayerKey(layer, intermediaryTiny);
+			composedKey = composedKey != null && layerKey != null ? hash(composedKey + layerKey) : null;
+
+			names.add(layer.getClass().getSimpleName());
+			layerKeys.add(layerKey);
+			composedKeys.add(composedKey);
+		}
+	}
+
+	/**
+	 * @return a hash of the files and options that the layer reads its mappings from, or null when the layer is unknown
+	 */
+	@Nullable
+	private static String getLayerKey(MappingLayer layer, Path intermediaryTiny) throws IOException {
+		final Hasher hasher = Hashing.sha256().newHasher()
+				.putInt(CACHE_VERSION)
+				.putString(layer.getClass().getName(), StandardCharsets.UTF_8);
+
+		if (layer instanceof IntermediaryMappingLayer) {
+			putFile(hasher, intermediaryTiny);
+		} else if (layer instanceof MojangMappingLayer mojangLayer) {
+			putFile(hasher, mojangLayer.clientMappings());
+			putFile(hasher, mojangLayer.serverMappings());
+			hasher.putBoolean(mojangLayer.nameSyntheticMembers());
+		} else if (layer instanceof ParchmentMappingLayer parchmentLayer) {
+			putFile(hasher, parchmentLayer.parchmentFile());
+			hasher.putBoolean(parchmentLayer.removePrefix());
+		} else if (layer instanceof FileMappingsLayer fileLayer) {
+			putFile(hasher, fileLayer.path());
+			hasher.putString(fileLayer.mappingPath(), StandardCharsets.UTF_8)
+					.putString(fileLayer.fallbackSourceNamespace(), StandardCharsets.UTF_8)
+					.putString(fileLayer.fallbackTargetNamespace(), StandardCharsets.UTF_8)
+					.putBoolean(fileLayer.enigma())
+					.putString(fileLayer.mergeNamespace(), StandardCharsets.UTF_8);
+		} else if (!(layer instanceof SignatureFixesLayerImpl)) {
+			// The signature fixes layer has no mappings, other layers may read anything
+			return null;
+		}
+
+		return hasher.hash().toString();
+	}
+
+	private static void putFile(Hasher hasher, Path path) throws IOException {
+		if (!Files.isDirectory(path)) {
+			hasher.putBytes(MoreFiles.asByteSource(path).hash(Hashing.sha256()).asBytes());
+			return;
+		}
+
+		// Enigma mappings are a directory of files
+		final List<Path> files;
+
+		try (Stream<Path> stream = Files.walk(path)) {
+			files = stream.filter(Files::isRegularFile).sorted().toList();
+		}
+
+		for (Path file : files) {
+			hasher.putString(path.relativize(file).toString(), StandardCharsets.UTF_8);
+			putFile(hasher, file);
+		}
+	}
+
+	/**
+	 * @return the mappings read from the layer, or null when they are not cached
+	 */
+	@Nullable
+	public MemoryMappingTree readLayer(int layer) {
+		if (layerKeys.get(layer) == null) {
+			return null;
+		}
+
+		final MemoryMappingTree tree = read(getLayerPath(layer));
+		LOGGER.info(":layered mappings {} {}", names.get(layer), tree != null ? "cache hit" : "cache miss");
+		return tree;
+	}
+
+	public void writeLayer(int layer, MemoryMappingTree tree) {
+		if (layerKeys.get(layer) != null) {
+			write(getLayerPath(layer), tree);
+		}
+	}
+
+	/**
+	 * @return the layer that the composed stack up to and including it is cached for, or -1 when none is
+	 */
+	public int getComposedLayer() {
+		final int layer = composedKeys.size() - 2;
+
+		// A stack of a single layer is already cached by the layer itself
+		return layer >= 1 && composedKeys.get(layer) != null ? layer : -1;
+	}
+
+	/**
+	 * @return the mappings composed from the layers up to and including the layer, or null when they are not cached
+	 */
+	@Nullable
+	public MemoryMappingTree readComposed(int layer) {
+		if (composedKeys.get(layer) == null) {
+			return null;
+		}
+
+		final MemoryMappingTree tree = read(getComposedPath(layer));
+
+		if (tree != null) {
+			for (int i = 0; i <= layer; i++) {
+				LOGGER.info(":layered mappings {} cache hit (composed)", names.get(i));
+			}
+		}
+
+		return tree;
+	}
+
+	public void writeComposed(int layer, MemoryMappingTree tree) {
+		if (layer == getComposedLayer()) {
+			write(getComposedPath(layer), tree);
+		}
+	}
+
+	private Path getLayerPath(int layer) {
+		return directory.resolve("layers").resolve(layerKeys.get(layer) + ".snapshot");
+	}
+
+	private Path getComposedPath(int layer) {
+		return directory.resolve("composed").resolve(composedKeys.get(layer) + ".snapshot");
+	}
+
+	@Nullable
+	private MemoryMappingTree read(Path path) {
+		if (refresh || Files.notExists(path)) {
+			return null;
+		}
+
+		try {
+			final MemoryMappingTree tree = new MemoryMappingTree();
+			MappingSnapshot.open(path).accept(tree);
+			// Track the last access for pruning
+			Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+			return tree;
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read cached layered mappings {}", path, e);
+			return null;
+		}
+	}
+
+	private static void write(Path path, MemoryMappingTree tree) {
+		if (tree.getSrcNamespace() == null) {
+			// Layers without any mappings are not worth caching.
+			return;
+		}
+
+		try {
+			MappingSnapshot.write(tree, path, null);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to cache layered mappings {}", path, e);
+		}
+	}
+
+	/**
+	 * Removes the entries that have not been read or written within the max age.
+	 */
+	public void prune() {
+		final Instant cutoff = Instant.now().minus(UNUSED_ENTRY_MAX_AGE);
+		int removed = 0;
+
+		for (String type : List.of("layers", "composed")) {
+			final Path dir = directory.resolve(type);
+
+			if (Files.notExists(dir)) {
+				continue;
+			}
+
+			try (Stream<Path> stream = Files.list(dir)) {
+				for (Path entry : stream.toList()) {
+					if (Files.getLastModifiedTime(entry).toInstant().isBefore(cutoff)) {
+						Files.delete(entry);
+						removed++;
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Failed to prune the layered mappings cache", e);
+			}
+		}
+
+		if (removed > 0) {
+			LOGGER.info("Removed {} unused layered mappings from the cache", removed);
+		}
+	}
+
+	private static String hash(String input) {
+		return Hashing.sha256().hashString(input, StandardCharsets.UTF_8).toString();
+	}
+}
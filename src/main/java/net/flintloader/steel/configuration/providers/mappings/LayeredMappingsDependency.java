@@ -86,7 +86,7 @@ public class LayeredMappingsDependency implements SelfResolvingDependency, FileC
 
 				Files.deleteIfExists(mappingsFile);
 
-				writeMapping(processor, layers, mappingsFile);
+				writeMapping(processor, layers, mappingsDir, mappingsFile);
 				writeSignatureFixes(processor, layers, mappingsFile);
 				writeUnpickData(processor, layers, mappingsFile);
 			} catch (IOException e) {
@@ -97,8 +97,11 @@ public class LayeredMappingsDependency implements SelfResolvingDependency, FileC
 		return Collections.singleton(mappingsFile.toFile());
 	}
 
-	private void writeMapping(LayeredMappingsProcessor processor, List<MappingLayer> layers, Path mappingsFile) throws IOException {
-		MemoryMappingTree mappings = processor.getMappings(layers);
+	private void writeMapping(LayeredMappingsProcessor processor, List<MappingLayer> layers, Path mappingsDir, Path mappingsFile) throws IOException {
+		Path intermediaryTiny = IntermediateMappingsService.getInstance(project, mappingContext.minecraftProvider()).getIntermediaryTiny();
+		var cache = new LayeredMappingsCache(mappingsDir.resolve("cache"), layers, intermediaryTiny, mappingContext.refreshDeps());
+		MemoryMappingTree mappings = processor.getMappings(layers, cache);
+		cache.prune();
 
 		try (Writer writer = new StringWriter()) {
 			Tiny2FileWriter tiny2Writer = new Tiny2FileWriter(writer, false);
@@ -26,13 +26,17 @@
 package net.flintloader.steel.configuration.providers.mappings;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import com.google.common.base.Suppliers;
 import org.jetbrains.annotations.Nullable;
 
 import net.flintloader.steel.api.mappings.layered.MappingContext;
@@ -41,11 +45,22 @@ import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.api.mappings.layered.spec.MappingsSpec;
 import net.flintloader.steel.configuration.providers.mappings.extras.signatures.SignatureFixesLayer;
 import net.flintloader.steel.configuration.providers.mappings.extras.unpick.UnpickLayer;
+import net.flintloader.steel.configuration.providers.mappings.file.FileMappingsLayer;
+import net.flintloader.steel.configuration.providers.mappings.intermediary.IntermediaryMappingLayer;
+import net.flintloader.steel.configuration.providers.mappings.mojmap.MojangMappingLayer;
+import net.flintloader.steel.configuration.providers.mappings.parchment.ParchmentMappingLayer;
 
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public class LayeredMappingsProcessor {
+	// Layers that only read their own files, and so can be read off the calling thread
+	private static final Set<Class<? extends MappingLayer>> CONCURRENT_LAYERS = Set.of(
+			MojangMappingLayer.class,
+			ParchmentMappingLayer.class,
+			FileMappingsLayer.class
+	);
+
 	private final LayeredMappingSpec layeredMappingSpec;
 
 	public LayeredMappingsProcessor(LayeredMappingSpec spec) {
@@ -73,42 +88,131 @@ public class LayeredMappingsProcessor {
 	}
 
 	public MemoryMappingTree getMappings(List<MappingLayer> layers) throws IOException {
-		MemoryMappingTree mappingTree = new MemoryMappingTree();
+		return getMappings(layers, null);
+	}
 
+	/**
+	 * Composes the mappings of the layers, starting from the cached stack of layers when there is one and reading only the layers above it that are not cached.
+	 */
+	public MemoryMappingTree getMappings(List<MappingLayer> layers, @Nullable LayeredMappingsCache cache) throws IOException {
 		for (MappingLayer layer : layers) {
-			// We have to rebuild a new tree to work on when a layer doesnt merge into layered
-			boolean rebuild = layer.getSourceNamespace() != MappingsNamespace.NAMED;
-			MemoryMappingTree workingTree;
+			if (layer instanceof MojangMappingLayer mojangLayer) {
+				mojangLayer.printMappingsLicense();
+			}
+		}
 
-			if (rebuild) {
-				var tempTree = new MemoryMappingTree();
+		MemoryMappingTree mappingTree = null;
+		MappingsNamespace sourceNamespace = null;
+		int start = 0;
 
-				// This can be null on the first layer
-				if (mappingTree.getSrcNamespace() != null) {
-					var sourceNsSwitch = new MappingSourceNsSwitch(tempTree, layer.getSourceNamespace().toString());
-					mappingTree.accept(sourceNsSwitch);
-				}
+		final int composedLayer = cache != null ? cache.getComposedLayer() : -1;
 
-				workingTree = tempTree;
-			} else {
-				workingTree = mappingTree;
+		if (composedLayer >= 0) {
+			final MemoryMappingTree composed = cache.readComposed(composedLayer);
+
+			if (composed != null) {
+				mappingTree = composed;
+				sourceNamespace = MappingsNamespace.of(composed.getSrcNamespace());
+				start = composedLayer + 1;
 			}
+		}
+
+		final List<MemoryMappingTree> layerTrees = readLayers(layers, start, cache);
 
-			try {
-				layer.visit(workingTree);
-			} catch (IOException e) {
-				throw new IOException("Failed to visit: " + layer.getClass(), e);
+		for (int i = start; i < layers.size(); i++) {
+			final MappingsNamespace layerNamespace = layers.get(i).getSourceNamespace();
+			final MemoryMappingTree layerTree = layerTrees.get(i - start);
+
+			if (layerTree.getSrcNamespace() != null && mappingTree == null) {
+				mappingTree = layerTree;
+				sourceNamespace = layerNamespace;
+			} else if (layerTree.getSrcNamespace() != null) {
+				// The tree is only rebuilt when a layer merges into another namespace than the previous one, rather than for every layer that doesnt merge into named
+				if (layerNamespace != sourceNamespace) {
+					mappingTree = switchSourceNamespace(mappingTree, layerNamespace);
+					sourceNamespace = layerNamespace;
+				}
+
+				layerTree.accept(mappingTree);
 			}
 
-			if (rebuild) {
-				mappingTree = new MemoryMappingTree();
-				workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString()));
+			if (i == composedLayer && mappingTree != null) {
+				cache.writeComposed(i, mappingTree);
 			}
 		}
 
+		if (mappingTree == null) {
+			return new MemoryMappingTree();
+		}
+
+		if (sourceNamespace != MappingsNamespace.NAMED) {
+			mappingTree = switchSourceNamespace(mappingTree, MappingsNamespace.NAMED);
+		}
+
 		return mappingTree;
 	}
 
+	/**
+	 * Reads each layer from the start into a tree of its own.
+	 * The built-in layers are read concurrently as they do not depend on each others mappings, other layers are read on the calling thread as they may access the project.
+	 */
+	private static List<MemoryMappingTree> readLayers(List<MappingLayer> layers, int start, @Nullable LayeredMappingsCache cache) throws IOException {
+		final MemoryMappingTree[] layerTrees = new MemoryMappingTree[layers.size() - start];
+		final Map<Integer, MappingLayer> concurrentLayers = new LinkedHashMap<>();
+
+		for (int i = start; i < layers.size(); i++) {
+			final MappingLayer layer = layers.get(i);
+			final MemoryMappingTree cached = cache != null ? cache.readLayer(i) : null;
+
+			if (cached != null) {
+				layerTrees[i - start] = cached;
+			} else if (layer instanceof IntermediaryMappingLayer intermediaryLayer) {
+				// The intermediary tree is resolved through the project, so resolve it here before reading the layer on another thread
+				concurrentLayers.put(i, new IntermediaryMappingLayer(Suppliers.ofInstance(intermediaryLayer.memoryMappingTree().get())));
+			} else if (CONCURRENT_LAYERS.contains(layer.getClass())) {
+				concurrentLayers.put(i, layer);
+			} else {
+				layerTrees[i - start] = readLayer(layer, i, cache);
+			}
+		}
+
+		try {
+			concurrentLayers.entrySet().parallelStream().forEach(entry -> {
+				try {
+					layerTrees[entry.getKey() - start] = readLayer(entry.getValue(), entry.getKey(), cache);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		return List.of(layerTrees);
+	}
+
+	private static MemoryMappingTree readLayer(MappingLayer layer, int index, @Nullable LayeredMappingsCache cache) throws IOException {
+		final MemoryMappingTree layerTree = new MemoryMappingTree();
+
+		try {
+			layer.visit(layerTree);
+		} catch (IOException e) {
+			throw new IOException("Failed to visit: " + layer.getClass(), e);
+		}
+
+		if (cache != null) {
+			cache.writeLayer(index, layerTree);
+		}
+
+		return layerTree;
+	}
+
+	private static MemoryMappingTree switchSourceNamespace(MemoryMappingTree mappingTree, MappingsNamespace namespace) throws IOException {
+		final MemoryMappingTree switched = new MemoryMappingTree();
+		mappingTree.accept(new MappingSourceNsSwitch(switched, namespace.toString()));
+		return switched;
+	}
+
 	@Nullable
 	public Map<String, String> getSignatureFixes(List<MappingLayer> layers) {
 		Map<String, String> signatureFixes = new HashMap<>();
@@ -0,0 +1,776 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration.providers.mappings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.flintloader.steel.util.OperatingSystem;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.tree.MappingTree;
+
+/**
+ * A binary snapshot of a mapping tree, which is memory mapped and read without parsing the tiny file that it was created from.
+ *
+ * <p>Every name, descriptor and comment is held once in a string table, and is referred to by its index from fixed size records.
+ * The classes, fields, methods, args and vars are each stored as an array of records, each class refers to a range of fields and methods,
+ * and each method to a range of args and vars. Names are stored for every namespace, the source namespace being namespace 0.
+ *
+ * <p>A snapshot written next to a mappings file records the size and modification time of that file, so that it is only used while it is up to date.
+ */
+public final class MappingSnapshot {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappingSnapshot.class);
+	private static final int MAGIC = 0x534D4D53; // SMMS
+	private static final int VERSION = 1;
+	// Magic, version, source size and modification time, namespace count and the counts of metadata, classes, fields, methods, args, vars and strings.
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 * 7;
+	private static final int NULL = -1;
+
+	private final ByteBuffer buffer;
+	private final int namespaceCount;
+	private final int metadataCount;
+	private final int classCount;
+	private final int fieldCount;
+	private final int methodCount;
+	private final int argCount;
+	private final int varCount;
+	private final int stringCount;
+
+	private final int namespacesOffset;
+	private final int metadataOffset;
+	private final int classesOffset;
+	private final int fieldsOffset;
+	private final int methodsOffset;
+	private final int argsOffset;
+	private final int varsOffset;
+	private final int stringOffsetsOffset;
+	private final int stringDataOffset;
+
+	// Strings are decoded once when they are first read, racing threads decode the same string so no locking is needed.
+	private final String[] strings;
+	private final List<String> namespaces;
+
+	private MappingSnapshot(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a mapping snapshot");
+		}
+
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported mapping snapshot version " + buffer.getInt(4));
+		}
+
+		namespaceCount = buffer.getInt(24);
+		metadataCount = buffer.getInt(28);
+		classCount = buffer.getInt(32);
+		fieldCount = buffer.getInt(36);
+		methodCount = buffer.getInt(40);
+		argCount = buffer.getInt(44);
+		varCount = buffer.getInt(48);
+		stringCount = buffer.getInt(52);
+
+		namespacesOffset = HEADER_SIZE;
+		metadataOffset = namespacesOffset + namespaceCount * 4;
+		classesOffset = metadataOffset + metadataCount * 2 * 4;
+		fieldsOffset = classesOffset + classCount * classSize(namespaceCount);
+		methodsOffset = fieldsOffset + fieldCount * fieldSize(namespaceCount);
+		argsOffset = methodsOffset + methodCount * methodSize(namespaceCount);
+		varsOffset = argsOffset + argCount * argSize(namespaceCount);
+		stringOffsetsOffset = varsOffset + varCount * varSize(namespaceCount);
+		stringDataOffset = stringOffsetsOffset + (stringCount + 1) * 4;
+
+		if (stringDataOffset > buffer.capacity() || stringDataOffset + buffer.getInt(stringOffsetsOffset + stringCount * 4) != buffer.capacity()) {
+			throw new IOException("Truncated mapping snapshot");
+		}
+
+		strings = new String[stringCount];
+
+		final List<String> namespaces = new ArrayList<>(namespaceCount);
+
+		for (int i = 0; i < namespaceCount; i++) {
+			namespaces.add(string(buffer.getInt(namespacesOffset + i * 4)));
+		}
+
+		this.namespaces = List.copyOf(namespaces);
+	}
+
+	public static MappingSnapshot open(Path path) throws IOException {
+		if (OperatingSystem.CURRENT_OS.equals(OperatingSystem.WINDOWS)) {
+			// A mapped file cannot be replaced on Windows while the snapshot is in use, so it is read onto the heap instead.
+			return new MappingSnapshot(ByteBuffer.wrap(Files.readAllBytes(path)));
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel has been closed, and a newer snapshot is written to a new file and moved over this one.
+			return new MappingSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @return the path of the snapshot of a mappings file, next to it with the same name
+	 */
+	public static Path getPath(Path mappings) {
+		final String name = mappings.getFileName().toString();
+		final int extension = name.lastIndexOf('.');
+		return mappings.resolveSibling((extension > 0 ? name.substring(0, extension) : name) + ".snapshot");
+	}
+
+	/**
+	 * @return the snapshot of the mappings file, or null when there is none or it was created from an older version of the file
+	 */
+	@Nullable
+	public static MappingSnapshot openFor(Path mappings) {
+		if (!isUpToDate(mappings)) {
+			return null;
+		}
+
+		try {
+			return open(getPath(mappings));
+		} catch (IOException e) {
+			LOGGER.warn("Failed to open mapping snapshot of {}", mappings, e);
+			return null;
+		}
+	}
+
+	public static boolean isUpToDate(Path mappings) {
+		final Path path = getPath(mappings);
+
+		if (Files.notExists(path)) {
+			return false;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// Keep reading until the header is full or the file ends.
+			}
+
+			if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				return false;
+			}
+
+			final BasicFileAttributes attributes = Files.readAttributes(mappings, BasicFileAttributes.class);
+			return header.getLong(8) == attributes.size() && header.getLong(16) == attributes.lastModifiedTime().toMillis();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads either a snapshot or any mappings file that mapping-io can read, into the visitor.
+	 */
+	public static void read(Path path, MappingVisitor visitor) throws IOException {
+		if (isSnapshot(path)) {
+			open(path).accept(visitor);
+		} else {
+			MappingReader.read(path, visitor);
+		}
+	}
+
+	private static boolean isSnapshot(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer magic = ByteBuffer.allocate(4);
+
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+				// Keep reading until the magic is read or the file ends.
+			}
+
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the tree next to the mappings file that it was read from, failing to do so is logged as the snapshot is only used to read the mappings faster.
+	 */
+	public static void writeFor(MappingTree tree, Path mappings) {
+		try {
+			write(tree, getPath(mappings), mappings);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write mapping snapshot of {}", mappings, e);
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the tree, the file is replaced atomically so that a partial snapshot is never read.
+	 *
+	 * @param source the mappings file that the tree was read from, or null when it was not read from a file
+	 */
+	public static void write(MappingTree tree, Path output, @Nullable Path source) throws IOException {
+		final Writer writer = new Writer(tree);
+		final Path parent = output.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		final Path temp = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				if (source != null) {
+					final BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+					writer.write(out, attributes.size(), attributes.lastModifiedTime().toMillis());
+				} else {
+					writer.write(out, NULL, NULL);
+				}
+			}
+
+			try {
+				Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @return the namespaces, starting with the source namespace
+	 */
+	public List<String> getNamespaces() {
+		return namespaces;
+	}
+
+	/**
+	 * @return the index of the namespace, 0 being the source namespace, or -1 when there is no such namespace
+	 */
+	public int getNamespaceId(String namespace) {
+		return namespaces.indexOf(namespace);
+	}
+
+	public int getClassCount() {
+		return classCount;
+	}
+
+	@Nullable
+	public String getClassName(int cls, int namespace) {
+		return string(buffer.getInt(classRecord(cls) + namespace * 4));
+	}
+
+	@Nullable
+	public String getClassComment(int cls) {
+		return string(buffer.getInt(classRecord(cls) + namespaceCount * 4));
+	}
+
+	/**
+	 * @return the range of indices of the fields of the class, as the first index and the count
+	 */
+	public int[] getFields(int cls) {
+		final int record = classRecord(cls) + (namespaceCount + 1) * 4;
+		return new int[]{buffer.getInt(record), buffer.getInt(record + 4)};
+	}
+
+	/**
+	 * @return the range of indices of the methods of the class, as the first index and the count
+	 */
+	public int[] getMethods(int cls) {
+		final int record = classRecord(cls) + (namespaceCount + 3) * 4;
+		return new int[]{buffer.getInt(record), buffer.getInt(record + 4)};
+	}
+
+	public int getMetadataCount() {
+		return metadataCount;
+	}
+
+	public String getMetadataKey(int entry) {
+		return string(buffer.getInt(metadataOffset + entry * 8));
+	}
+
+	@Nullable
+	public String getMetadataValue(int entry) {
+		return string(buffer.getInt(metadataOffset + entry * 8 + 4));
+	}
+
+	@Nullable
+	public String getFieldName(int field, int namespace) {
+		return string(buffer.getInt(fieldRecord(field) + namespace * 4));
+	}
+
+	@Nullable
+	public String getFieldSrcDesc(int field) {
+		return string(buffer.getInt(fieldRecord(field) + namespaceCount * 4));
+	}
+
+	@Nullable
+	public String getFieldComment(int field) {
+		return string(buffer.getInt(fieldRecord(field) + (namespaceCount + 1) * 4));
+	}
+
+	@Nullable
+	public String getMethodName(int method, int namespace) {
+		return string(buffer.getInt(methodRecord(method) + namespace * 4));
+	}
+
+	@Nullable
+	public String getMethodSrcDesc(int method) {
+		return string(buffer.getInt(methodRecord(method) + namespaceCount * 4));
+	}
+
+	@Nullable
+	public String getMethodComment(int method) {
+		return string(buffer.getInt(methodRecord(method) + (namespaceCount + 1) * 4));
+	}
+
+	/**
+	 * @return the range of indices of the args of the method, as the first index and the count
+	 */
+	public int[] getArgs(int method) {
+		final int record = methodRecord(method) + (namespaceCount + 2) * 4;
+		return new int[]{buffer.getInt(record), buffer.getInt(record + 4)};
+	}
+
+	/**
+	 * @return the range of indices of the vars of the method, as the first index and the count
+	 */
+	public int[] getVars(int method) {
+		final int record = methodRecord(method) + (namespaceCount + 4) * 4;
+		return new int[]{buffer.getInt(record), buffer.getInt(record + 4)};
+	}
+
+	public int getArgPosition(int arg) {
+		return buffer.getInt(argRecord(arg));
+	}
+
+	public int getArgLvIndex(int arg) {
+		return buffer.getInt(argRecord(arg) + 4);
+	}
+
+	@Nullable
+	public String getArgName(int arg, int namespace) {
+		return string(buffer.getInt(argRecord(arg) + (2 + namespace) * 4));
+	}
+
+	@Nullable
+	public String getArgComment(int arg) {
+		return string(buffer.getInt(argRecord(arg) + (2 + namespaceCount) * 4));
+	}
+
+	/**
+	 * @return the lvt row index, lv index, start op index and end op index of the var
+	 */
+	public int[] getVarIndices(int var) {
+		final int record = varRecord(var);
+		return new int[]{buffer.getInt(record), buffer.getInt(record + 4), buffer.getInt(record + 8), buffer.getInt(record + 12)};
+	}
+
+	@Nullable
+	public String getVarName(int var, int namespace) {
+		return string(buffer.getInt(varRecord(var) + (4 + namespace) * 4));
+	}
+
+	@Nullable
+	public String getVarComment(int var) {
+		return string(buffer.getInt(varRecord(var) + (4 + namespaceCount) * 4));
+	}
+
+	/**
+	 * @return the descriptor with the class names in it replaced, names that are not in the map are left as they are
+	 */
+	@Nullable
+	public static String mapDesc(@Nullable String srcDesc, Map<String, String> classNames) {
+		if (srcDesc == null || classNames.isEmpty()) {
+			return srcDesc;
+		}
+
+		final StringBuilder mapped = new StringBuilder(srcDesc.length());
+		int start = 0;
+		int index;
+
+		while ((index = srcDesc.indexOf('L', start)) >= 0) {
+			final int end = srcDesc.indexOf(';', index);
+			final String name = srcDesc.substring(index + 1, end);
+			mapped.append(srcDesc, start, index + 1).append(classNames.getOrDefault(name, name)).append(';');
+			start = end + 1;
+		}
+
+		return mapped.append(srcDesc, start, srcDesc.length()).toString();
+	}
+
+	/**
+	 * @return the names of the classes in the namespace by their source name, classes without a name in the namespace are left out
+	 */
+	public Map<String, String> getClassNames(int namespace) {
+		final Map<String, String> classNames = new HashMap<>(classCount * 2);
+
+		for (int cls = 0; cls < classCount; cls++) {
+			final String name = getClassName(cls, namespace);
+
+			if (name != null) {
+				classNames.put(getClassName(cls, 0), name);
+			}
+		}
+
+		return classNames;
+	}
+
+	/**
+	 * Visits all of the mappings, as many times as the visitor requires.
+	 */
+	public void accept(MappingVisitor visitor) throws IOException {
+		do {
+			if (visitor.visitHeader()) {
+				visitor.visitNamespaces(namespaces.get(0), namespaces.subList(1, namespaceCount));
+
+				for (int i = 0; i < metadataCount; i++) {
+					visitor.visitMetadata(getMetadataKey(i), getMetadataValue(i));
+				}
+			}
+
+			if (visitor.visitContent()) {
+				for (int cls = 0; cls < classCount; cls++) {
+					acceptClass(visitor, cls);
+				}
+			}
+		} while (!visitor.visitEnd());
+	}
+
+	private void acceptClass(MappingVisitor visitor, int cls) throws IOException {
+		final int record = classRecord(cls);
+
+		if (!visitor.visitClass(string(buffer.getInt(record))) || !acceptElement(visitor, MappedElementKind.CLASS, record, namespaceCount * 4)) {
+			return;
+		}
+
+		final int[] fields = getFields(cls);
+
+		for (int field = fields[0]; field < fields[0] + fields[1]; field++) {
+			final int fieldRecord = fieldRecord(field);
+
+			if (visitor.visitField(string(buffer.getInt(fieldRecord)), string(buffer.getInt(fieldRecord + namespaceCount * 4)))) {
+				acceptElement(visitor, MappedElementKind.FIELD, fieldRecord, (namespaceCount + 1) * 4);
+			}
+		}
+
+		final int[] methods = getMethods(cls);
+
+		for (int method = methods[0]; method < methods[0] + methods[1]; method++) {
+			final int methodRecord = methodRecord(method);
+
+			if (!visitor.visitMethod(string(buffer.getInt(methodRecord)), string(buffer.getInt(methodRecord + namespaceCount * 4)))
+					|| !acceptElement(visitor, MappedElementKind.METHOD, methodRecord, (namespaceCount + 1) * 4)) {
+				continue;
+			}
+
+			final int[] args = getArgs(method);
+
+			for (int arg = args[0]; arg < args[0] + args[1]; arg++) {
+				final int argRecord = argRecord(arg);
+
+				if (visitor.visitMethodArg(buffer.getInt(argRecord), buffer.getInt(argRecord + 4), string(buffer.getInt(argRecord + 8)))) {
+					acceptElement(visitor, MappedElementKind.METHOD_ARG, argRecord + 8, namespaceCount * 4);
+				}
+			}
+
+			final int[] vars = getVars(method);
+
+			for (int var = vars[0]; var < vars[0] + vars[1]; var++) {
+				final int varRecord = varRecord(var);
+				final int[] indices = getVarIndices(var);
+
+				if (visitor.visitMethodVar(indices[0], indices[1], indices[2], indices[3], string(buffer.getInt(varRecord + 16)))) {
+					acceptElement(visitor, MappedElementKind.METHOD_VAR, varRecord + 16, namespaceCount * 4);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visits the destination names and comment of an element.
+	 *
+	 * @param names the offset of the names of the element, starting with its source name
+	 * @param comment the offset of its comment relative to its names
+	 * @return whether the content of the element is to be visited
+	 */
+	private boolean acceptElement(MappingVisitor visitor, MappedElementKind kind, int names, int comment) throws IOException {
+		for (int namespace = 1; namespace < namespaceCount; namespace++) {
+			final String name = string(buffer.getInt(names + namespace * 4));
+
+			if (name != null) {
+				visitor.visitDstName(kind, namespace - 1, name);
+			}
+		}
+
+		if (!visitor.visitElementContent(kind)) {
+			return false;
+		}
+
+		final String commentString = string(buffer.getInt(names + comment));
+
+		if (commentString != null) {
+			visitor.visitComment(kind, commentString);
+		}
+
+		return true;
+	}
+
+	private int classRecord(int cls) {
+		return classesOffset + cls * classSize(namespaceCount);
+	}
+
+	private int fieldRecord(int field) {
+		return fieldsOffset + field * fieldSize(namespaceCount);
+	}
+
+	private int methodRecord(int method) {
+		return methodsOffset + method * methodSize(namespaceCount);
+	}
+
+	private int argRecord(int arg) {
+		return argsOffset + arg * argSize(namespaceCount);
+	}
+
+	private int varRecord(int var) {
+		return varsOffset + var * varSize(namespaceCount);
+	}
+
+	@Nullable
+	private String string(int index) {
+		if (index == NULL) {
+			return null;
+		}
+
+		String string = strings[index];
+
+		if (string == null) {
+			final int start = buffer.getInt(stringOffsetsOffset + index * 4);
+			final int end = buffer.getInt(stringOffsetsOffset + (index + 1) * 4);
+			final byte[] bytes = new byte[end - start];
+			buffer.get(stringDataOffset + start, bytes);
+			string = new String(bytes, StandardCharsets.UTF_8);
+			strings[index] = string;
+		}
+
+		return string;
+	}
+
+	// Names, comment, first field, field count, first method and method count.
+	private static int classSize(int namespaceCount) {
+		return (namespaceCount + 5) * 4;
+	}
+
+	// Names, source descriptor and comment.
+	private static int fieldSize(int namespaceCount) {
+		return (namespaceCount + 2) * 4;
+	}
+
+	// Names, source descriptor, comment, first arg, arg count, first var and var count.
+	private static int methodSize(int namespaceCount) {
+		return (namespaceCount + 6) * 4;
+	}
+
+	// Arg position, lv index, names and comment.
+	private static int argSize(int namespaceCount) {
+		return (namespaceCount + 3) * 4;
+	}
+
+	// Lvt row index, lv index, start op index, end op index, names and comment.
+	private static int varSize(int namespaceCount) {
+		return (namespaceCount + 5) * 4;
+	}
+
+	/**
+	 * Flattens a tree into the records of a snapshot, collecting its strings into the string table.
+	 */
+	private static final class Writer {
+		private final Map<String, Integer> stringIndices = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+		private final int namespaceCount;
+		private final IntList namespaces = new IntList();
+		private final IntList metadata = new IntList();
+		private final IntList classes = new IntList();
+		private final IntList fields = new IntList();
+		private final IntList methods = new IntList();
+		private final IntList args = new IntList();
+		private final IntList vars = new IntList();
+		private int classCount = 0;
+		private int fieldCount = 0;
+		private int methodCount = 0;
+		private int argCount = 0;
+		private int varCount = 0;
+
+		private Writer(MappingTree tree) {
+			namespaceCount = tree.getDstNamespaces().size() + 1;
+			namespaces.add(string(tree.getSrcNamespace()));
+
+			for (String namespace : tree.getDstNamespaces()) {
+				namespaces.add(string(namespace));
+			}
+
+			for (var entry : tree.getMetadata()) {
+				metadata.add(string(entry.getKey()));
+				metadata.add(string(entry.getValue()));
+			}
+
+			for (MappingTree.ClassMapping cls : tree.getClasses()) {
+				addNames(classes, cls);
+				classes.add(string(cls.getComment()));
+				classes.add(fieldCount);
+				classes.add(cls.getFields().size());
+				classes.add(methodCount);
+				classes.add(cls.getMethods().size());
+				classCount++;
+
+				for (MappingTree.FieldMapping field : cls.getFields()) {
+					addNames(fields, field);
+					fields.add(string(field.getSrcDesc()));
+					fields.add(string(field.getComment()));
+					fieldCount++;
+				}
+
+				for (MappingTree.MethodMapping method : cls.getMethods()) {
+					addMethod(method);
+				}
+			}
+		}
+
+		private void addMethod(MappingTree.MethodMapping method) {
+			addNames(methods, method);
+			methods.add(string(method.getSrcDesc()));
+			methods.add(string(method.getComment()));
+			methods.add(argCount);
+			methods.add(method.getArgs().size());
+			methods.add(varCount);
+			methods.add(method.getVars().size());
+			methodCount++;
+
+			for (MappingTree.MethodArgMapping arg : method.getArgs()) {
+				args.add(arg.getArgPosition());
+				args.add(arg.getLvIndex());
+				addNames(args, arg);
+				args.add(string(arg.getComment()));
+				argCount++;
+			}
+
+			for (MappingTree.MethodVarMapping var : method.getVars()) {
+				vars.add(var.getLvtRowIndex());
+				vars.add(var.getLvIndex());
+				vars.add(var.getStartOpIdx());
+				vars.add(var.getEndOpIdx());
+				addNames(vars, var);
+				vars.add(string(var.getComment()));
+				varCount++;
+			}
+		}
+
+		private void addNames(IntList records, MappingTree.ElementMapping element) {
+			records.add(string(element.getSrcName()));
+
+			for (int namespace = 0; namespace < namespaceCount - 1; namespace++) {
+				records.add(string(element.getDstName(namespace)));
+			}
+		}
+
+		private int string(@Nullable String string) {
+			if (string == null) {
+				return NULL;
+			}
+
+			return stringIndices.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+
+		private void write(DataOutputStream out, long sourceSize, long sourceLastModified) throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(sourceSize);
+			out.writeLong(sourceLastModified);
+			out.writeInt(namespaceCount);
+			out.writeInt(metadata.size() / 2);
+			out.writeInt(classCount);
+			out.writeInt(fieldCount);
+			out.writeInt(methodCount);
+			out.writeInt(argCount);
+			out.writeInt(varCount);
+			out.writeInt(strings.size());
+
+			for (IntList section : List.of(namespaces, metadata, classes, fields, methods, args, vars)) {
+				section.write(out);
+			}
+
+			final List<byte[]> encoded = new ArrayList<>(strings.size());
+			int offset = 0;
+
+			for (String string : strings) {
+				final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				encoded.add(bytes);
+				out.writeInt(offset);
+				offset += bytes.length;
+			}
+
+			out.writeInt(offset);
+
+			for (byte[] bytes : encoded) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static final class IntList {
+		private int[] values = new int[1024];
+		private int size = 0;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+
+			values[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			for (int i = 0; i < size; i++) {
+				out.writeInt(values[i]);
+			}
+		}
+	}
+}
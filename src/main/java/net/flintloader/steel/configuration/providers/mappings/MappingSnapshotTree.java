@@ -0,0 +1,667 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration.providers.mappings;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.VisitOrder;
+
+/**
+ * A read-only mapping tree backed by a {@link MappingSnapshot}, so that readers of the mappings share the snapshot rather than each building a tree of their own.
+ *
+ * <p>Elements are created as they are looked up. Classes are found through an index of their names, built once for each namespace that they are looked up by.
+ */
+public final class MappingSnapshotTree implements MappingTreeView {
+	private final MappingSnapshot snapshot;
+	private final List<String> dstNamespaces;
+	private final List<Metadata> metadata;
+	private final ClassList classes;
+	// The index of each class by its name, keyed by snapshot namespace
+	private final Map<Integer, Map<String, Integer>> classIndices = new ConcurrentHashMap<>();
+
+	public MappingSnapshotTree(MappingSnapshot snapshot) {
+		this.snapshot = snapshot;
+		this.dstNamespaces = snapshot.getNamespaces().subList(1, snapshot.getNamespaces().size());
+		this.classes = new ClassList();
+
+		final List<Metadata> metadata = new ArrayList<>(snapshot.getMetadataCount());
+
+		for (int i = 0; i < snapshot.getMetadataCount(); i++) {
+			metadata.add(new Metadata(snapshot.getMetadataKey(i), snapshot.getMetadataValue(i)));
+		}
+
+		this.metadata = List.copyOf(metadata);
+	}
+
+	public MappingSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	@Override
+	public String getSrcNamespace() {
+		return snapshot.getNamespaces().get(0);
+	}
+
+	@Override
+	public List<String> getDstNamespaces() {
+		return dstNamespaces;
+	}
+
+	@Override
+	public List<Metadata> getMetadata() {
+		return metadata;
+	}
+
+	@Override
+	public List<Metadata> getMetadata(String key) {
+		return metadata.stream().filter(entry -> entry.getKey().equals(key)).toList();
+	}
+
+	@Override
+	public List<ClassView> getClasses() {
+		return classes;
+	}
+
+	@Override
+	@Nullable
+	public ClassView getClass(String srcName) {
+		return getClass(srcName, SRC_NAMESPACE_ID);
+	}
+
+	@Override
+	@Nullable
+	public ClassView getClass(String name, int namespace) {
+		final Integer cls = classIndices.computeIfAbsent(namespace + 1, this::indexClasses).get(name);
+		return cls != null ? classes.get(cls) : null;
+	}
+
+	private Map<String, Integer> indexClasses(int namespace) {
+		Objects.checkIndex(namespace, snapshot.getNamespaces().size());
+		final Map<String, Integer> index = new HashMap<>(snapshot.getClassCount() * 2);
+
+		for (int cls = 0; cls < snapshot.getClassCount(); cls++) {
+			final String name = snapshot.getClassName(cls, namespace);
+
+			if (name != null) {
+				index.putIfAbsent(name, cls);
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * Visits the mappings in the order that they were written to the snapshot, without creating the elements.
+	 */
+	@Override
+	public void accept(MappingVisitor visitor) throws IOException {
+		snapshot.accept(visitor);
+	}
+
+	@Override
+	public void accept(MappingVisitor visitor, VisitOrder order) throws IOException {
+		do {
+			if (visitor.visitHeader()) {
+				visitor.visitNamespaces(getSrcNamespace(), dstNamespaces);
+
+				for (Metadata entry : metadata) {
+					visitor.visitMetadata(entry.getKey(), entry.getValue());
+				}
+			}
+
+			if (visitor.visitContent()) {
+				for (ClassView cls : order.sortClasses(classes)) {
+					cls.accept(visitor, order);
+				}
+			}
+		} while (!visitor.visitEnd());
+	}
+
+	private int checkNamespace(int namespace) {
+		return Objects.checkIndex(namespace, dstNamespaces.size()) + 1;
+	}
+
+	/**
+	 * Visits the destination names and comment of an element.
+	 *
+	 * @return whether the content of the element is to be visited
+	 */
+	private boolean acceptElement(MappingVisitor visitor, MappedElementKind kind, ElementMappingView element) throws IOException {
+		for (int namespace = 0; namespace < dstNamespaces.size(); namespace++) {
+			final String name = element.getDstName(namespace);
+
+			if (name != null) {
+				visitor.visitDstName(kind, namespace, name);
+			}
+		}
+
+		if (!visitor.visitElementContent(kind)) {
+			return false;
+		}
+
+		if (element.getComment() != null) {
+			visitor.visitComment(kind, element.getComment());
+		}
+
+		return true;
+	}
+
+	public record Metadata(String key, @Nullable String value) implements MetadataEntryView {
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		@Nullable
+		public String getValue() {
+			return value;
+		}
+	}
+
+	private final class ClassList extends AbstractList<ClassView> {
+		@Override
+		public ClassView get(int index) {
+			return new ClassView(Objects.checkIndex(index, size()));
+		}
+
+		@Override
+		public int size() {
+			return snapshot.getClassCount();
+		}
+	}
+
+	private abstract class Element implements ElementMappingView {
+		protected final int index;
+
+		private Element(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public MappingSnapshotTree getTree() {
+			return MappingSnapshotTree.this;
+		}
+
+		@Override
+		public String getSrcName() {
+			return getSnapshotName(0);
+		}
+
+		@Override
+		@Nullable
+		public String getDstName(int namespace) {
+			return getSnapshotName(checkNamespace(namespace));
+		}
+
+		/**
+		 * @param namespace the namespace in the snapshot, 0 being the source namespace
+		 */
+		@Nullable
+		protected abstract String getSnapshotName(int namespace);
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && obj.getClass() == getClass() && ((Element) obj).index == index && ((Element) obj).getTree() == getTree();
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+
+		@Override
+		public String toString() {
+			return getSrcName();
+		}
+	}
+
+	public final class ClassView extends Element implements ClassMappingView {
+		private ClassView(int index) {
+			super(index);
+		}
+
+		@Override
+		protected String getSnapshotName(int namespace) {
+			return snapshot.getClassName(index, namespace);
+		}
+
+		@Override
+		@Nullable
+		public String getComment() {
+			return snapshot.getClassComment(index);
+		}
+
+		@Override
+		public List<FieldView> getFields() {
+			return range(snapshot.getFields(index), field -> new FieldView(field, index));
+		}
+
+		@Override
+		@Nullable
+		public FieldView getField(String srcName, @Nullable String srcDesc) {
+			return findMember(getFields(), srcName, srcDesc);
+		}
+
+		@Override
+		public List<MethodView> getMethods() {
+			return range(snapshot.getMethods(index), method -> new MethodView(method, index));
+		}
+
+		@Override
+		@Nullable
+		public MethodView getMethod(String srcName, @Nullable String srcDesc) {
+			return findMember(getMethods(), srcName, srcDesc);
+		}
+
+		private void accept(MappingVisitor visitor, VisitOrder order) throws IOException {
+			if (!visitor.visitClass(getSrcName()) || !acceptElement(visitor, MappedElementKind.CLASS, this)) {
+				return;
+			}
+
+			if (order.isMethodsFirst()) {
+				acceptMethods(visitor, order);
+				acceptFields(visitor, order);
+			} else {
+				acceptFields(visitor, order);
+				acceptMethods(visitor, order);
+			}
+		}
+
+		private void acceptFields(MappingVisitor visitor, VisitOrder order) throws IOException {
+			for (FieldView field : order.sortFields(getFields())) {
+				if (visitor.visitField(field.getSrcName(), field.getSrcDesc())) {
+					acceptElement(visitor, MappedElementKind.FIELD, field);
+				}
+			}
+		}
+
+		private void acceptMethods(MappingVisitor visitor, VisitOrder order) throws IOException {
+			for (MethodView method : order.sortMethods(getMethods())) {
+				method.accept(visitor, order);
+			}
+		}
+	}
+
+	private abstract class Member extends Element implements MemberMappingView {
+		private final int owner;
+
+		private Member(int index, int owner) {
+			super(index);
+			this.owner = owner;
+		}
+
+		@Override
+		public ClassView getOwner() {
+			return new ClassView(owner);
+		}
+	}
+
+	public final class FieldView extends Member implements FieldMappingView {
+		private FieldView(int index, int owner) {
+			super(index, owner);
+		}
+
+		@Override
+		protected String getSnapshotName(int namespace) {
+			return snapshot.getFieldName(index, namespace);
+		}
+
+		@Override
+		@Nullable
+		public String getSrcDesc() {
+			return snapshot.getFieldSrcDesc(index);
+		}
+
+		@Override
+		@Nullable
+		public String getComment() {
+			return snapshot.getFieldComment(index);
+		}
+	}
+
+	public final class MethodView extends Member implements MethodMappingView {
+		private MethodView(int index, int owner) {
+			super(index, owner);
+		}
+
+		@Override
+		protected String getSnapshotName(int namespace) {
+			return snapshot.getMethodName(index, namespace);
+		}
+
+		@Override
+		@Nullable
+		public String getSrcDesc() {
+			return snapshot.getMethodSrcDesc(index);
+		}
+
+		@Override
+		@Nullable
+		public String getComment() {
+			return snapshot.getMethodComment(index);
+		}
+
+		@Override
+		public List<ArgView> getArgs() {
+			return range(snapshot.getArgs(index), arg -> new ArgView(arg, this));
+		}
+
+		/**
+		 * Finds an arg the same way as a memory mapping tree, by its position or lv index and then by its source name.
+		 */
+		@Override
+		@Nullable
+		public ArgView getArg(int argPosition, int lvIndex, @Nullable String srcName) {
+			final List<ArgView> args = getArgs();
+
+			if (argPosition >= 0 || lvIndex >= 0) {
+				for (ArgView arg : args) {
+					if ((argPosition >= 0 && arg.getArgPosition() == argPosition || lvIndex >= 0 && arg.getLvIndex() == lvIndex) && namesMatch(srcName, arg)) {
+						return arg;
+					}
+				}
+			}
+
+			if (srcName != null) {
+				for (ArgView arg : args) {
+					if (srcName.equals(arg.getSrcName()) && !(argPosition >= 0 && arg.getArgPosition() >= 0) && !(lvIndex >= 0 && arg.getLvIndex() >= 0)) {
+						return arg;
+					}
+				}
+			}
+
+			return null;
+		}
+
+		@Override
+		public List<VarView> getVars() {
+			return range(snapshot.getVars(index), var -> new VarView(var, this));
+		}
+
+		/**
+		 * Finds a var the same way as a memory mapping tree, by its lvt row index, then by its lv index and op range, and then by its source name.
+		 */
+		@Override
+		@Nullable
+		public VarView getVar(int lvtRowIndex, int lvIndex, int startOpIdx, int endOpIdx, @Nullable String srcName) {
+			final List<VarView> vars = getVars();
+
+			if (lvtRowIndex >= 0) {
+				boolean hasMissing = false;
+
+				for (VarView var : vars) {
+					if (var.getLvtRowIndex() == lvtRowIndex) {
+						return var;
+					}
+
+					hasMissing |= var.getLvtRowIndex() < 0;
+				}
+
+				if (!hasMissing) {
+					return null;
+				}
+			}
+
+			if (lvIndex >= 0) {
+				boolean hasMissing = false;
+				VarView bestMatch = null;
+
+				for (VarView var : vars) {
+					if (lvtRowIndex >= 0 && var.getLvtRowIndex() >= 0 && lvtRowIndex != var.getLvtRowIndex() || !namesMatch(srcName, var)) {
+						continue;
+					}
+
+					if (var.getLvIndex() != lvIndex) {
+						hasMissing |= var.getLvIndex() < 0;
+						continue;
+					}
+
+					if (startOpIdx >= 0 && endOpIdx >= 0 && var.getStartOpIdx() >= 0 && var.getEndOpIdx() >= 0) {
+						if (startOpIdx < var.getEndOpIdx() && endOpIdx > var.getStartOpIdx()) {
+							return var;
+						}
+
+						continue;
+					}
+
+					if (endOpIdx >= 0 && var.getStartOpIdx() >= 0 && endOpIdx <= var.getStartOpIdx() || var.getEndOpIdx() >= 0 && startOpIdx >= 0 && var.getEndOpIdx() <= startOpIdx) {
+						continue;
+					}
+
+					if (startOpIdx < 0 || startOpIdx == var.getStartOpIdx()) {
+						return var;
+					}
+
+					if (bestMatch == null || var.getStartOpIdx() >= 0 && Math.abs(var.getStartOpIdx() - startOpIdx) < Math.abs(bestMatch.getStartOpIdx() - startOpIdx)) {
+						bestMatch = var;
+					}
+				}
+
+				if (!hasMissing || bestMatch != null) {
+					return bestMatch;
+				}
+			}
+
+			if (srcName != null) {
+				for (VarView var : vars) {
+					if (srcName.equals(var.getSrcName()) && !(lvtRowIndex >= 0 && var.getLvtRowIndex() >= 0) && !(lvIndex >= 0 && var.getLvIndex() >= 0)) {
+						return var;
+					}
+				}
+			}
+
+			return null;
+		}
+
+		private void accept(MappingVisitor visitor, VisitOrder order) throws IOException {
+			if (!visitor.visitMethod(getSrcName(), getSrcDesc()) || !acceptElement(visitor, MappedElementKind.METHOD, this)) {
+				return;
+			}
+
+			if (order.isMethodVarsFirst()) {
+				acceptVars(visitor, order);
+				acceptArgs(visitor, order);
+			} else {
+				acceptArgs(visitor, order);
+				acceptVars(visitor, order);
+			}
+		}
+
+		private void acceptArgs(MappingVisitor visitor, VisitOrder order) throws IOException {
+			for (ArgView arg : order.sortMethodArgs(getArgs())) {
+				if (visitor.visitMethodArg(arg.getArgPosition(), arg.getLvIndex(), arg.getSrcName())) {
+					acceptElement(visitor, MappedElementKind.METHOD_ARG, arg);
+				}
+			}
+		}
+
+		private void acceptVars(MappingVisitor visitor, VisitOrder order) throws IOException {
+			for (VarView var : order.sortMethodVars(getVars())) {
+				if (visitor.visitMethodVar(var.getLvtRowIndex(), var.getLvIndex(), var.getStartOpIdx(), var.getEndOpIdx(), var.getSrcName())) {
+					acceptElement(visitor, MappedElementKind.METHOD_VAR, var);
+				}
+			}
+		}
+	}
+
+	public final class ArgView extends Element implements MethodArgMappingView {
+		private final MethodView method;
+
+		private ArgView(int index, MethodView method) {
+			super(index);
+			this.method = method;
+		}
+
+		@Override
+		protected String getSnapshotName(int namespace) {
+			return snapshot.getArgName(index, namespace);
+		}
+
+		@Override
+		@Nullable
+		public String getComment() {
+			return snapshot.getArgComment(index);
+		}
+
+		@Override
+		public MethodView getMethod() {
+			return method;
+		}
+
+		@Override
+		public int getArgPosition() {
+			return snapshot.getArgPosition(index);
+		}
+
+		@Override
+		public int getLvIndex() {
+			return snapshot.getArgLvIndex(index);
+		}
+	}
+
+	public final class VarView extends Element implements MethodVarMappingView {
+		private final MethodView method;
+
+		private VarView(int index, MethodView method) {
+			super(index);
+			this.method = method;
+		}
+
+		@Override
+		protected String getSnapshotName(int namespace) {
+			return snapshot.getVarName(index, namespace);
+		}
+
+		@Override
+		@Nullable
+		public String getComment() {
+			return snapshot.getVarComment(index);
+		}
+
+		@Override
+		public MethodView getMethod() {
+			return method;
+		}
+
+		@Override
+		public int getLvtRowIndex() {
+			return snapshot.getVarIndices(index)[0];
+		}
+
+		@Override
+		public int getLvIndex() {
+			return snapshot.getVarIndices(index)[1];
+		}
+
+		@Override
+		public int getStartOpIdx() {
+			return snapshot.getVarIndices(index)[2];
+		}
+
+		@Override
+		public int getEndOpIdx() {
+			return snapshot.getVarIndices(index)[3];
+		}
+	}
+
+	/**
+	 * @param range the first index and the count, as returned by the snapshot
+	 */
+	private static <T> List<T> range(int[] range, IntFunction<T> factory) {
+		return new AbstractList<>() {
+			@Override
+			public T get(int index) {
+				return factory.apply(range[0] + Objects.checkIndex(index, range[1]));
+			}
+
+			@Override
+			public int size() {
+				return range[1];
+			}
+		};
+	}
+
+	private static boolean namesMatch(@Nullable String srcName, ElementMappingView element) {
+		return srcName == null || element.getSrcName() == null || srcName.equals(element.getSrcName());
+	}
+
+	/**
+	 * Finds a member the same way as a memory mapping tree, preferring an exact match, then a member without a descriptor and then a partial match.
+	 */
+	@Nullable
+	private static <T extends MemberMappingView> T findMember(List<T> members, String srcName, @Nullable String srcDesc) {
+		T exact = null;
+		T withoutDesc = null;
+		T partial = null;
+
+		for (T member : members) {
+			if (!srcName.equals(member.getSrcName())) {
+				continue;
+			}
+
+			final String desc = member.getSrcDesc();
+
+			if (desc == null) {
+				withoutDesc = withoutDesc != null ? withoutDesc : member;
+			} else if (desc.equals(srcDesc)) {
+				exact = exact != null ? exact : member;
+			} else if (partial == null && matchesPartially(desc, srcDesc)) {
+				partial = member;
+			}
+		}
+
+		return exact != null ? exact : withoutDesc != null ? withoutDesc : partial;
+	}
+
+	/**
+	 * @return whether the descriptors match when either one is only partially known, no descriptor or one ending after the args matching any that start with it
+	 */
+	private static boolean matchesPartially(String desc, @Nullable String srcDesc) {
+		if (srcDesc == null) {
+			return true;
+		}
+
+		if (srcDesc.endsWith(")")) {
+			return desc.startsWith(srcDesc);
+		}
+
+		return srcDesc.indexOf(')') >= 0 && srcDesc.startsWith(desc);
+	}
+}
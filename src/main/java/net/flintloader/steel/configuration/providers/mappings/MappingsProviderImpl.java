@@ -39,11 +39,13 @@ import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import com.google.common.base.Suppliers;
 import com.google.gson.JsonObject;
 import org.apache.tools.ant.util.StringUtils;
+import org.cadixdev.lorenz.MappingSet;
 import org.gradle.api.Project;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
@@ -58,20 +60,28 @@ import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider
 import net.flintloader.steel.util.Constants;
 import net.flintloader.steel.util.DeletingFileVisitor;
 import net.flintloader.steel.util.FileSystemUtil;
+import net.flintloader.steel.util.TinyRemapperHelper;
 import net.flintloader.steel.util.ZipUtils;
 import net.flintloader.steel.util.service.SharedService;
 import net.flintloader.steel.util.service.SharedServiceManager;
 
+import net.fabricmc.lorenztiny.TinyMappingsReader;
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.format.MappingFormat;
+import net.fabricmc.mappingio.tree.MappingTreeView;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.stitch.Command;
 import net.fabricmc.stitch.commands.CommandProposeFieldNames;
+import net.fabricmc.tinyremapper.IMappingProvider;
 
 public class MappingsProviderImpl implements MappingsProvider, SharedService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MappingsProviderImpl.class);
 
 	private Supplier<MemoryMappingTree> mappingTree;
+	// The one copy of the mappings that every reader in the build shares, the tree and the lorenz mappings are created from it.
+	private Supplier<MappingSnapshot> snapshot;
+	private Supplier<MappingTreeView> mappingView;
+	private final Map<String, MappingSet> mappingSets = new ConcurrentHashMap<>();
 	public final String mappingsIdentifier;
 
 	private final Path mappingsWorkingDir;
@@ -111,6 +121,49 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 		return Objects.requireNonNull(mappingTree, "Cannot get mappings before they have been read").get();
 	}
 
+	/**
+	 * @return the snapshot of the mappings shared by all of their readers, or null when it could not be written
+	 */
+	@Nullable
+	public MappingSnapshot getSnapshot() {
+		return snapshot != null ? snapshot.get() : null;
+	}
+
+	/**
+	 * @return a read-only view of the mappings backed by the shared snapshot, or the mapping tree when there is no snapshot
+	 */
+	public MappingTreeView getMappingView() {
+		return Objects.requireNonNull(mappingView, "Cannot get mappings before they have been read").get();
+	}
+
+	/**
+	 * Creates a mapping provider between the namespaces, reading the shared snapshot rather than building the mapping tree when there is one.
+	 */
+	public IMappingProvider createMappingProvider(String from, String to, boolean remapLocalVariables) throws IOException {
+		final MappingSnapshot snapshot = getSnapshot();
+
+		if (snapshot != null) {
+			return TinyRemapperHelper.create(snapshot, from, to, remapLocalVariables);
+		}
+
+		return TinyRemapperHelper.create(getMappings(), from, to, remapLocalVariables);
+	}
+
+	/**
+	 * @return the lorenz mappings between the namespaces, created once and shared by all projects using these mappings
+	 */
+	public MappingSet getMappingSet(String from, String to) {
+		return mappingSets.computeIfAbsent(from + ">" + to, key -> {
+			LOGGER.info(":loading {} -> {} source mappings", from, to);
+
+			try {
+				return new TinyMappingsReader(getMappings(), from, to).read();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read source mappings", e);
+			}
+		});
+	}
+
 	private static MappingsProviderImpl create(DependencyInfo dependency, MinecraftProvider minecraftProvider, Supplier<IntermediateMappingsService> intermediaryService) {
 		final String version = dependency.getResolvedVersion();
 		final Path inputJar = dependency.resolveFile().orElseThrow(() -> new RuntimeException("Could not resolve mappings: " + dependency)).toPath();
@@ -156,7 +209,19 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 			ZipUtils.add(tinyMappingsJar, "mappings/mappings.tiny", Files.readAllBytes(tinyMappings));
 		}
 
-		mappingTree = Suppliers.memoize(this::readMappings);
+		if (MappingSnapshot.isUpToDate(tinyMappings)) {
+			mappingTree = Suppliers.memoize(this::readMappings);
+		} else {
+			// Read now so that the snapshot is written before anything else reads the mappings.
+			final MemoryMappingTree tree = readMappings();
+			mappingTree = () -> tree;
+		}
+
+		snapshot = Suppliers.memoize(() -> MappingSnapshot.openFor(tinyMappings));
+		mappingView = Suppliers.memoize(() -> {
+			final MappingSnapshot snapshot = getSnapshot();
+			return snapshot != null ? new MappingSnapshotTree(snapshot) : mappingTree.get();
+		});
 	}
 
 	public void applyToProject(Project project, DependencyInfo dependency) {
@@ -196,6 +261,8 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 			// These are unmerged v2 mappings
 			MappingsMerger.mergeAndSaveMappings(baseTinyMappings, tinyMappings, intermediaryService.get());
 		} else {
+			// Merging v1 mappings requires the jars, which are provided in the background.
+			minecraftProvider.awaitJars();
 			final List<Path> minecraftJars = minecraftProvider.getMinecraftJars();
 
 			if (minecraftJars.size() != 1) {
@@ -209,10 +276,21 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 		}
 	}
 
+	/**
+	 * Reads the mappings from their snapshot, or from the tiny file when the snapshot is missing or out of date, writing the snapshot.
+	 */
 	private MemoryMappingTree readMappings() {
 		try {
 			MemoryMappingTree mappingTree = new MemoryMappingTree();
+			final MappingSnapshot snapshot = getSnapshot();
+
+			if (snapshot != null) {
+				snapshot.accept(mappingTree);
+				return mappingTree;
+			}
+
 			MappingReader.read(tinyMappings, mappingTree);
+			MappingSnapshot.writeFor(mappingTree, tinyMappings);
 			return mappingTree;
 		} catch (IOException e) {
 			throw new UncheckedIOException("Failed to read mappings", e);
@@ -371,5 +449,7 @@ public class MappingsProviderImpl implements MappingsProvider, SharedService {
 	@Override
 	public void close() throws IOException {
 		mappingTree = null;
+		snapshot = null;
+		mappingSets.clear();
 	}
 }
@@ -27,11 +27,13 @@ package net.flintloader.steel.configuration.providers.mappings.mojmap;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import net.fabricmc.mappingio.format.proguard.ProGuardFileReader;
 
@@ -44,6 +46,7 @@ import net.flintloader.steel.configuration.providers.mappings.utils.DstNameFilte
 
 import net.fabricmc.mappingio.MappingVisitor;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public record MojangMappingLayer(Path clientMappings, Path serverMappings, boolean nameSyntheticMembers,
 									Logger logger) implements MappingLayer {
@@ -51,22 +54,42 @@ public record MojangMappingLayer(Path clientMappings, Path serverMappings, boole
 
 	@Override
 	public void visit(MappingVisitor mappingVisitor) throws IOException {
-		printMappingsLicense(clientMappings);
-
 		// Filter out field names matching the pattern
 		DstNameFilterMappingVisitor nameFilter = new DstNameFilterMappingVisitor(mappingVisitor, SYNTHETIC_NAME_PATTERN);
 
 		// Make official the source namespace
 		MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(nameSyntheticMembers() ? mappingVisitor : nameFilter, MappingsNamespace.OFFICIAL.toString());
 
-		try (BufferedReader clientBufferedReader = Files.newBufferedReader(clientMappings, StandardCharsets.UTF_8);
-				BufferedReader serverBufferedReader = Files.newBufferedReader(serverMappings, StandardCharsets.UTF_8)) {
-			ProGuardFileReader.read(clientBufferedReader, MappingsNamespace.NAMED.toString(), MappingsNamespace.OFFICIAL.toString(), nsSwitch);
-			ProGuardFileReader.read(serverBufferedReader, MappingsNamespace.NAMED.toString(), MappingsNamespace.OFFICIAL.toString(), nsSwitch);
+		// The namespace switch needs a tree to read from, so both files are read into trees concurrently and then visited in order.
+		final List<MemoryMappingTree> trees;
+
+		try {
+			trees = Stream.of(clientMappings, serverMappings).parallel().map(MojangMappingLayer::readMappings).toList();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		for (MemoryMappingTree tree : trees) {
+			tree.accept(nsSwitch);
+		}
+	}
+
+	private static MemoryMappingTree readMappings(Path mappings) {
+		final MemoryMappingTree tree = new MemoryMappingTree();
+
+		try (BufferedReader bufferedReader = Files.newBufferedReader(mappings, StandardCharsets.UTF_8)) {
+			ProGuardFileReader.read(bufferedReader, MappingsNamespace.NAMED.toString(), MappingsNamespace.OFFICIAL.toString(), tree);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
+
+		return tree;
 	}
 
-	private void printMappingsLicense(Path clientMappings) {
+	/**
+	 * Prints the license at the top of the client mappings, this is done whenever the mappings are used, even when they are read from the cache.
+	 */
+	public void printMappingsLicense() {
 		try (BufferedReader clientBufferedReader = Files.newBufferedReader(clientMappings, StandardCharsets.UTF_8)) {
 			logger().warn("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
 			logger().warn("Using of the official minecraft mappings is at your own risk!");
@@ -54,10 +54,12 @@ public record MojangMappingsSpec(boolean nameSyntheticMembers) implements Mappin
 		try {
 			context.download(clientDownload.url())
 					.sha1(clientDownload.sha1())
+					.readOnly()
 					.downloadPath(clientMappings);
 
 			context.download(serverDownload.url())
 					.sha1(serverDownload.sha1())
+					.readOnly()
 					.downloadPath(serverMappings);
 		} catch (DownloadException e) {
 			throw new UncheckedIOException("Failed to download mappings", e);
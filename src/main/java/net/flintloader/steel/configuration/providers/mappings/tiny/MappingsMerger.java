@@ -30,86 +30,421 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 import com.google.common.base.Stopwatch;
-
-import net.fabricmc.mappingio.format.tiny.Tiny2FileReader;
-
-import net.fabricmc.mappingio.format.tiny.Tiny2FileWriter;
-
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.configuration.providers.mappings.IntermediateMappingsService;
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
 
-import net.fabricmc.mappingio.adapter.MappingNsCompleter;
-import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
-import net.fabricmc.mappingio.tree.MappingTree;
-import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.format.tiny.Tiny2FileReader;
+import net.fabricmc.mappingio.format.tiny.Tiny2FileWriter;
+import net.fabricmc.mappingio.tree.MappingTreeView;
 
+/**
+ * Merges unmerged v2 mappings (intermediary to named) with the intermediary mappings, into v2 mappings from official to intermediary and named.
+ *
+ * <p>The mappings are streamed from the file into the writer, looking up each element in the intermediary tree, rather than reading them into a tree.
+ */
 public final class MappingsMerger {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MappingsMerger.class);
 
+	private static final String INTERMEDIARY = MappingsNamespace.INTERMEDIARY.toString();
+	private static final String NAMED = MappingsNamespace.NAMED.toString();
+
 	public static void mergeAndSaveMappings(Path from, Path out, IntermediateMappingsService intermediateMappingsService) throws IOException {
 		Stopwatch stopwatch = Stopwatch.createStarted();
 		LOGGER.info(":merging mappings");
 
-		MemoryMappingTree intermediaryTree = new MemoryMappingTree();
-		intermediateMappingsService.getMemoryMappingTree().accept(new MappingSourceNsSwitch(intermediaryTree, MappingsNamespace.INTERMEDIARY.toString()));
+		// The class names are read first, as the names of inner classes depend on their enclosing classes which may come later in the file
+		final ClassNames classNames = new ClassNames();
 
 		try (BufferedReader reader = Files.newBufferedReader(from, StandardCharsets.UTF_8)) {
-			Tiny2FileReader.read(reader, intermediaryTree);
+			Tiny2FileReader.read(reader, classNames);
 		}
 
-		MemoryMappingTree officialTree = new MemoryMappingTree();
-		MappingNsCompleter nsCompleter = new MappingNsCompleter(officialTree, Map.of(MappingsNamespace.OFFICIAL.toString(), MappingsNamespace.INTERMEDIARY.toString()));
-		MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(nsCompleter, MappingsNamespace.OFFICIAL.toString());
-		intermediaryTree.accept(nsSwitch);
+		try (BufferedReader reader = Files.newBufferedReader(from, StandardCharsets.UTF_8);
+				Tiny2FileWriter writer = new Tiny2FileWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8), false)) {
+			Tiny2FileReader.read(reader, new MergingVisitor(intermediateMappingsService.getMappingView(), classNames, writer));
+		}
 
-		inheritMappedNamesOfEnclosingClasses(officialTree);
+		LOGGER.info(":merged mappings in " + stopwatch.stop());
+	}
 
-		try (Tiny2FileWriter writer = new Tiny2FileWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8), false)) {
-			officialTree.accept(writer);
+	private static int getNamedNamespace(String srcNamespace, List<String> dstNamespaces) throws IOException {
+		if (!INTERMEDIARY.equals(srcNamespace) || !dstNamespaces.contains(NAMED)) {
+			throw new IOException("Cannot merge mappings from %s to %s, expected mappings from intermediary to named".formatted(srcNamespace, dstNamespaces));
 		}
 
-		LOGGER.info(":merged mappings in " + stopwatch.stop());
+		return dstNamespaces.indexOf(NAMED);
 	}
 
 	/**
-	 * Searches the mapping tree for inner classes with no mapped name, whose enclosing classes have mapped names.
+	 * Collects the named names of the mapped classes, and resolves the names of inner classes that are not mapped from their closest mapped enclosing class.
 	 * Currently, Yarn does not export mappings for these inner classes.
 	 */
-	private static void inheritMappedNamesOfEnclosingClasses(MemoryMappingTree tree) {
-		int intermediaryIdx = tree.getNamespaceId("intermediary");
-		int namedIdx = tree.getNamespaceId("named");
-
-		// The tree does not have an index by intermediary names by default
-		tree.setIndexByDstNames(true);
-
-		for (MappingTree.ClassMapping classEntry : tree.getClasses()) {
-			String intermediaryName = classEntry.getDstName(intermediaryIdx);
-			String namedName = classEntry.getDstName(namedIdx);
-
-			if (intermediaryName.equals(namedName) && intermediaryName.contains("$")) {
-				String[] path = intermediaryName.split(Pattern.quote("$"));
-				int parts = path.length;
-
-				for (int i = parts - 2; i >= 0; i--) {
-					String currentPath = String.join("$", Arrays.copyOfRange(path, 0, i + 1));
-					String namedParentClass = tree.mapClassName(currentPath, intermediaryIdx, namedIdx);
-
-					if (!namedParentClass.equals(currentPath)) {
-						classEntry.setDstName(namedParentClass
-										+ "$" + String.join("$", Arrays.copyOfRange(path, i + 1, path.length)),
-								namedIdx);
-						break;
-					}
+	private static final class ClassNames implements MappingVisitor {
+		// Intermediary to named, only for the classes with a named name of their own
+		private final Map<String, String> mapped = new HashMap<>();
+		private final Map<String, String> resolved = new HashMap<>();
+		private int namedNs;
+		private String currentClass;
+
+		String getNamed(String intermediaryName) {
+			String named = mapped.get(intermediaryName);
+
+			if (named == null) {
+				named = resolved.get(intermediaryName);
+			}
+
+			if (named != null) {
+				return named;
+			}
+
+			final int separator = intermediaryName.lastIndexOf('$');
+
+			if (separator <= 0) {
+				named = intermediaryName;
+			} else {
+				named = getNamed(intermediaryName.substring(0, separator)) + intermediaryName.substring(separator);
+			}
+
+			resolved.put(intermediaryName, named);
+			return named;
+		}
+
+		@Override
+		public void visitNamespaces(String srcNamespace, List<String> dstNamespaces) throws IOException {
+			namedNs = getNamedNamespace(srcNamespace, dstNamespaces);
+		}
+
+		@Override
+		public boolean visitClass(String srcName) {
+			currentClass = srcName;
+			return true;
+		}
+
+		@Override
+		public boolean visitField(String srcName, @Nullable String srcDesc) {
+			return false;
+		}
+
+		@Override
+		public boolean visitMethod(String srcName, @Nullable String srcDesc) {
+			return false;
+		}
+
+		@Override
+		public boolean visitMethodArg(int argPosition, int lvIndex, @Nullable String srcName) {
+			return false;
+		}
+
+		@Override
+		public boolean visitMethodVar(int lvtRowIndex, int lvIndex, int startOpIdx, int endOpIdx, @Nullable String srcName) {
+			return false;
+		}
+
+		@Override
+		public void visitDstName(MappedElementKind targetKind, int namespace, String name) {
+			if (targetKind == MappedElementKind.CLASS && namespace == namedNs && name != null && !name.equals(currentClass)) {
+				mapped.put(currentClass, name);
+			}
+		}
+
+		@Override
+		public boolean visitElementContent(MappedElementKind targetKind) {
+			return false;
+		}
+
+		@Override
+		public void visitComment(MappedElementKind targetKind, String comment) {
+		}
+	}
+
+	/**
+	 * Rewrites the elements of the mappings to be keyed by their official names, with their intermediary and named names as the destination names.
+	 *
+	 * <p>An element is written once its names are known, when its content is visited. The elements of the intermediary mappings that are not in the mappings are written with their intermediary name as their named name,
+	 * those of a class at the end of the class and the classes at the end of the mappings.
+	 */
+	private static final class MergingVisitor implements MappingVisitor {
+		private final MappingTreeView intermediaryTree;
+		private final int intermediaryNs;
+		private final int intermediaryNamedNs;
+		private final ClassNames classNames;
+		private final MappingVisitor next;
+
+		private final Map<String, MappingTreeView.ClassMappingView> classes = new LinkedHashMap<>();
+		// Intermediary to official, to map the descriptors of the mappings
+		private final Map<String, String> officialClassNames = new HashMap<>();
+		private final Set<String> visitedClasses = new HashSet<>();
+		private int namedNs;
+
+		@Nullable
+		private MappingTreeView.ClassMappingView currentClass;
+		private final Map<String, MappingTreeView.FieldMappingView> unvisitedFields = new LinkedHashMap<>();
+		private final Map<String, MappingTreeView.MethodMappingView> unvisitedMethods = new LinkedHashMap<>();
+
+		// The element being visited, until its content is visited
+		private String srcName;
+		@Nullable
+		private String srcDesc;
+		@Nullable
+		private String intermediaryName;
+		@Nullable
+		private String namedName;
+		@Nullable
+		private MappingTreeView.ElementMappingView intermediaryElement;
+		private int argPosition;
+		private int lvIndex;
+		private int lvtRowIndex;
+		private int startOpIdx;
+		private int endOpIdx;
+
+		private MergingVisitor(MappingTreeView intermediaryTree, ClassNames classNames, MappingVisitor next) {
+			this.intermediaryTree = intermediaryTree;
+			this.intermediaryNs = intermediaryTree.getNamespaceId(INTERMEDIARY);
+			this.intermediaryNamedNs = intermediaryTree.getNamespaceId(NAMED);
+			this.classNames = classNames;
+			this.next = next;
+
+			for (MappingTreeView.ClassMappingView classMapping : intermediaryTree.getClasses()) {
+				final String name = getName(classMapping, intermediaryNs);
+				classes.put(name, classMapping);
+				officialClassNames.put(name, classMapping.getSrcName());
+			}
+		}
+
+		@Override
+		public boolean visitHeader() throws IOException {
+			return next.visitHeader();
+		}
+
+		@Override
+		public void visitNamespaces(String srcNamespace, List<String> dstNamespaces) throws IOException {
+			namedNs = getNamedNamespace(srcNamespace, dstNamespaces);
+			next.visitNamespaces(MappingsNamespace.OFFICIAL.toString(), List.of(INTERMEDIARY, NAMED));
+
+			final List<String> dropped = dstNamespaces.stream().filter(namespace -> !namespace.equals(NAMED)).toList();
+
+			if (!dropped.isEmpty()) {
+				LOGGER.warn("The {} namespaces of the mappings are not merged, only the {} namespace is kept", dropped, NAMED);
+			}
+
+			for (MappingTreeView.MetadataEntryView entry : intermediaryTree.getMetadata()) {
+				next.visitMetadata(entry.getKey(), entry.getValue());
+			}
+		}
+
+		@Override
+		public void visitMetadata(String key, @Nullable String value) throws IOException {
+			for (MappingTreeView.MetadataEntryView entry : intermediaryTree.getMetadata()) {
+				if (entry.getKey().equals(key)) {
+					return;
 				}
 			}
+
+			next.visitMetadata(key, value);
+		}
+
+		@Override
+		public boolean visitContent() throws IOException {
+			return next.visitContent();
+		}
+
+		@Override
+		public boolean visitClass(String srcName) throws IOException {
+			endClass();
+
+			currentClass = classes.get(srcName);
+			visitedClasses.add(srcName);
+
+			if (currentClass != null) {
+				for (MappingTreeView.FieldMappingView field : currentClass.getFields()) {
+					unvisitedFields.put(getName(field, intermediaryNs) + field.getSrcDesc(), field);
+				}
+
+				for (MappingTreeView.MethodMappingView method : currentClass.getMethods()) {
+					unvisitedMethods.put(getName(method, intermediaryNs) + method.getSrcDesc(), method);
+				}
+			}
+
+			startElement(srcName, null, currentClass);
+			return true;
+		}
+
+		@Override
+		public boolean visitField(String srcName, @Nullable String srcDesc) {
+			final String officialDesc = MappingSnapshot.mapDesc(srcDesc, officialClassNames);
+			startElement(srcName, officialDesc, unvisitedFields.remove(srcName + officialDesc));
+			return true;
+		}
+
+		@Override
+		public boolean visitMethod(String srcName, @Nullable String srcDesc) {
+			final String officialDesc = MappingSnapshot.mapDesc(srcDesc, officialClassNames);
+			startElement(srcName, officialDesc, unvisitedMethods.remove(srcName + officialDesc));
+			return true;
+		}
+
+		@Override
+		public boolean visitMethodArg(int argPosition, int lvIndex, @Nullable String srcName) {
+			startElement(srcName, null, null);
+			this.argPosition = argPosition;
+			this.lvIndex = lvIndex;
+			return true;
+		}
+
+		@Override
+		public boolean visitMethodVar(int lvtRowIndex, int lvIndex, int startOpIdx, int endOpIdx, @Nullable String srcName) {
+			startElement(srcName, null, null);
+			this.lvtRowIndex = lvtRowIndex;
+			this.lvIndex = lvIndex;
+			this.startOpIdx = startOpIdx;
+			this.endOpIdx = endOpIdx;
+			return true;
+		}
+
+		private void startElement(@Nullable String srcName, @Nullable String srcDesc, @Nullable MappingTreeView.ElementMappingView intermediaryElement) {
+			this.srcName = srcName;
+			this.srcDesc = srcDesc;
+			this.intermediaryElement = intermediaryElement;
+			this.namedName = null;
+		}
+
+		@Override
+		public void visitDstName(MappedElementKind targetKind, int namespace, @Nullable String name) {
+			if (namespace == namedNs) {
+				namedName = name;
+			}
+		}
+
+		@Override
+		public boolean visitElementContent(MappedElementKind targetKind) throws IOException {
+			// Elements not in the intermediary mappings are given their intermediary name as their official name
+			final String officialName = intermediaryElement != null ? intermediaryElement.getSrcName() : srcName;
+
+			final boolean visit = switch (targetKind) {
+			case CLASS -> next.visitClass(officialName);
+			case FIELD -> next.visitField(officialName, srcDesc);
+			case METHOD -> next.visitMethod(officialName, srcDesc);
+			case METHOD_ARG -> next.visitMethodArg(argPosition, lvIndex, srcName);
+			case METHOD_VAR -> next.visitMethodVar(lvtRowIndex, lvIndex, startOpIdx, endOpIdx, srcName);
+			};
+
+			if (!visit) {
+				return false;
+			}
+
+			final String named;
+
+			if (targetKind == MappedElementKind.CLASS) {
+				named = classNames.getNamed(srcName);
+			} else if (namedName != null) {
+				named = namedName;
+			} else {
+				named = intermediaryElement != null ? getName(intermediaryElement, intermediaryNamedNs, srcName) : srcName;
+			}
+
+			next.visitDstName(targetKind, 0, srcName);
+			next.visitDstName(targetKind, 1, named);
+			return next.visitElementContent(targetKind);
+		}
+
+		@Override
+		public void visitComment(MappedElementKind targetKind, String comment) throws IOException {
+			next.visitComment(targetKind, comment);
+		}
+
+		@Override
+		public boolean visitEnd() throws IOException {
+			endClass();
+
+			for (Map.Entry<String, MappingTreeView.ClassMappingView> entry : classes.entrySet()) {
+				if (visitedClasses.contains(entry.getKey())) {
+					continue;
+				}
+
+				final MappingTreeView.ClassMappingView classMapping = entry.getValue();
+
+				if (visitIntermediaryElement(MappedElementKind.CLASS, classMapping, classNames.getNamed(entry.getKey()))) {
+					visitIntermediaryMembers(classMapping.getFields(), classMapping.getMethods());
+				}
+			}
+
+			return next.visitEnd();
+		}
+
+		/**
+		 * Writes the members of the class that were not in the mappings.
+		 */
+		private void endClass() throws IOException {
+			if (currentClass != null) {
+				visitIntermediaryMembers(unvisitedFields.values(), unvisitedMethods.values());
+			}
+
+			currentClass = null;
+			unvisitedFields.clear();
+			unvisitedMethods.clear();
+		}
+
+		private void visitIntermediaryMembers(Collection<? extends MappingTreeView.FieldMappingView> fields, Collection<? extends MappingTreeView.MethodMappingView> methods) throws IOException {
+			for (MappingTreeView.FieldMappingView field : fields) {
+				if (next.visitField(field.getSrcName(), field.getSrcDesc())) {
+					visitIntermediaryElement(MappedElementKind.FIELD, field, getName(field, intermediaryNamedNs, getName(field, intermediaryNs)));
+				}
+			}
+
+			for (MappingTreeView.MethodMappingView method : methods) {
+				if (next.visitMethod(method.getSrcName(), method.getSrcDesc())) {
+					visitIntermediaryElement(MappedElementKind.METHOD, method, getName(method, intermediaryNamedNs, getName(method, intermediaryNs)));
+				}
+			}
+		}
+
+		/**
+		 * Writes the names and comment of an element of the intermediary mappings, classes are also visited.
+		 *
+		 * @return whether the content of the element should be visited
+		 */
+		private boolean visitIntermediaryElement(MappedElementKind kind, MappingTreeView.ElementMappingView element, String named) throws IOException {
+			if (kind == MappedElementKind.CLASS && !next.visitClass(element.getSrcName())) {
+				return false;
+			}
+
+			next.visitDstName(kind, 0, getName(element, intermediaryNs));
+			next.visitDstName(kind, 1, named);
+
+			if (!next.visitElementContent(kind)) {
+				return false;
+			}
+
+			if (element.getComment() != null) {
+				next.visitComment(kind, element.getComment());
+			}
+
+			return true;
+		}
+
+		private static String getName(MappingTreeView.ElementMappingView element, int namespace) {
+			return getName(element, namespace, element.getSrcName());
+		}
+
+		private static String getName(MappingTreeView.ElementMappingView element, int namespace, String fallback) {
+			final String name = namespace >= 0 ? element.getDstName(namespace) : null;
+			return name != null ? name : fallback;
 		}
 	}
 }
@@ -31,9 +31,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
+import java.util.zip.Deflater;
 
 import org.gradle.api.Project;
 
+import net.flintloader.steel.api.CacheJarType;
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+import net.flintloader.steel.util.zip.ZipRewriter;
+
 import net.fabricmc.stitch.merge.JarMerger;
 
 public final class MergedMinecraftProvider extends MinecraftProvider {
@@ -55,9 +60,7 @@ public final class MergedMinecraftProvider extends MinecraftProvider {
 	}
 
 	@Override
-	public void provide() throws Exception {
-		super.provide();
-
+	protected void processJars() throws Exception {
 		if (!getVersionInfo().isVersionOrNewer("2012-07-25T22:00:00+00:00" /* 1.3 release date */)) {
 			throw new UnsupportedOperationException("Minecraft versions 1.2.5 and older cannot be merged. Please use `steel { server/clientOnlyMinecraftJar() }`");
 		}
@@ -92,6 +95,20 @@ public final class MergedMinecraftProvider extends MinecraftProvider {
 			jarMerger.enableSyntheticParamsOffset();
 			jarMerger.merge();
 		}
+
+		// Stitch always deflates the merged jar, so it only needs writing again when it is to be stored.
+		if (getExtension().getCacheJarCompressionLevel(CacheJarType.MERGED) == Deflater.NO_COMPRESSION) {
+			storeMergedJar();
+		}
+	}
+
+	private void storeMergedJar() throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(minecraftMergedJar)) {
+			rewriter.setCompressionLevel(Deflater.NO_COMPRESSION);
+			rewriter.commit();
+		} catch (UnsupportedZipException e) {
+			getLogger().info("Keeping the compression of {} as it cannot be rewritten", minecraftMergedJar, e);
+		}
 	}
 
 	public Path getMergedJar() {
@@ -28,20 +28,22 @@ package net.flintloader.steel.configuration.providers.minecraft;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
-import java.util.stream.Stream;
 
 import com.google.common.collect.Sets;
+import org.jetbrains.annotations.Nullable;
 
 import net.flintloader.steel.configuration.modules.JarSplitter;
-import net.flintloader.steel.util.FileSystemUtil;
+import net.flintloader.steel.util.zip.RawZipEntry;
+import net.flintloader.steel.util.zip.RawZipFile;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public class MinecraftJarSplitter implements AutoCloseable {
 	private final Path clientInputJar;
@@ -50,6 +52,8 @@ public class MinecraftJarSplitter implements AutoCloseable {
 	private EntryData entryData;
 	private Set<String> sharedEntries = new HashSet<>();
 	private Set<String> forcedClientEntries = new HashSet<>();
+	@Nullable
+	private Integer compressionLevel = null;
 
 	public MinecraftJarSplitter(Path clientInputJar, Path serverInputJar) {
 		this.clientInputJar = Objects.requireNonNull(clientInputJar);
@@ -60,15 +64,20 @@ public class MinecraftJarSplitter implements AutoCloseable {
 		Objects.requireNonNull(clientOnlyOutputJar);
 		Objects.requireNonNull(commonOutputJar);
 
-		if (entryData == null) {
-			entryData = new EntryData(getJarEntries(clientInputJar), getJarEntries(serverInputJar));
-		}
+		try (RawZipFile clientInput = RawZipFile.open(clientInputJar);
+				RawZipFile serverInput = RawZipFile.open(serverInputJar)) {
+			if (entryData == null) {
+				entryData = new EntryData(getJarEntries(clientInput), getJarEntries(serverInput));
+			}
 
-		// Not something we expect, will require 3 jars, server, client and common.
-		assert entryData.serverOnlyEntries.isEmpty();
+			// Not something we expect, will require 3 jars, server, client and common.
+			assert entryData.serverOnlyEntries.isEmpty();
 
-		copyEntriesToJar(entryData.commonEntries, serverInputJar, commonOutputJar, "common");
-		copyEntriesToJar(entryData.clientOnlyEntries, clientInputJar, clientOnlyOutputJar, "client");
+			try (ZipRewriter commonOutput = createOutputJar(entryData.commonEntries, serverInput, commonOutputJar, "common");
+					ZipRewriter clientOutput = createOutputJar(entryData.clientOnlyEntries, clientInput, clientOnlyOutputJar, "client")) {
+				ZipRewriter.commitAll(List.of(commonOutput, clientOutput));
+			}
+		}
 	}
 
 	public void sharedEntry(String path) {
@@ -79,65 +88,57 @@ public class MinecraftJarSplitter implements AutoCloseable {
 		this.forcedClientEntries.add(path);
 	}
 
-	private Set<String> getJarEntries(Path input) throws IOException {
-		Set<String> entries = Sets.newHashSet();
-
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(input);
-				Stream<Path> walk = Files.walk(fs.get().getPath("/"))) {
-			Iterator<Path> iterator = walk.iterator();
-
-			while (iterator.hasNext()) {
-				Path fsPath = iterator.next();
-
-				if (!Files.isRegularFile(fsPath)) {
-					continue;
-				}
-
-				String entryPath = fs.get().getPath("/").relativize(fsPath).toString();
+	/**
+	 * Sets the level that the output jars are written with, by default the entries are copied with the compression of the input.
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
 
-				if (entryPath.startsWith("META-INF/")) {
-					continue;
-				}
+	private Set<String> getJarEntries(RawZipFile input) {
+		Set<String> entries = Sets.newHashSet();
 
-				entries.add(entryPath);
+		for (RawZipEntry entry : input.getEntries()) {
+			if (entry.isDirectory() || entry.name().startsWith("META-INF/")) {
+				continue;
 			}
+
+			entries.add(entry.name());
 		}
 
 		return entries;
 	}
 
-	private void copyEntriesToJar(Set<String> entries, Path inputJar, Path outputJar, String env) throws IOException {
-		Files.deleteIfExists(outputJar);
-
-		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar);
-				FileSystemUtil.Delegate outputFs = FileSystemUtil.getJarFileSystem(outputJar, true)) {
-			for (String entry : entries) {
-				Path inputPath = inputFs.get().getPath(entry);
-				Path outputPath = outputFs.get().getPath(entry);
-
-				assert Files.isRegularFile(inputPath);
-
-				Path outputPathParent = outputPath.getParent();
+	/**
+	 * Prepares an output jar containing the given entries, which are copied from the input as they are stored when it is committed.
+	 */
+	private ZipRewriter createOutputJar(Set<String> entries, RawZipFile input, Path outputJar, String env) throws IOException {
+		for (String entry : entries) {
+			if (input.getEntry(entry) == null) {
+				throw new NoSuchFileException(entry);
+			}
+		}
 
-				if (outputPathParent != null) {
-					Files.createDirectories(outputPathParent);
-				}
+		Files.deleteIfExists(outputJar);
 
-				Files.copy(inputPath, outputPath, StandardCopyOption.COPY_ATTRIBUTES);
-			}
+		final ZipRewriter output = ZipRewriter.open(input, outputJar);
+		output.retainAll(entries::contains);
+		output.put("META-INF/MANIFEST.MF", createManifest(env));
 
-			writeManifest(outputFs, env);
+		if (compressionLevel != null) {
+			output.setCompressionLevel(compressionLevel);
 		}
+
+		return output;
 	}
 
-	private void writeManifest(FileSystemUtil.Delegate outputFs, String env) throws IOException {
+	private byte[] createManifest(String env) throws IOException {
 		final Manifest manifest = new Manifest();
 		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
 		manifest.getMainAttributes().putValue(JarSplitter.MANIFEST_SPLIT_ENV_NAME_KEY, env);
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		manifest.write(out);
-		Files.createDirectories(outputFs.get().getPath("META-INF"));
-		Files.write(outputFs.get().getPath("META-INF/MANIFEST.MF"), out.toByteArray());
+		return out.toByteArray();
 	}
 
 	@Override
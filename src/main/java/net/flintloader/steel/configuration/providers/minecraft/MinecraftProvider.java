@@ -29,8 +29,10 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.common.base.Preconditions;
 import org.gradle.api.Project;
@@ -40,15 +42,20 @@ import org.jetbrains.annotations.Nullable;
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.SteelGradlePlugin;
 import net.flintloader.steel.configuration.DependencyInfo;
+import net.flintloader.steel.configuration.SetupStages;
 import net.flintloader.steel.configuration.providers.BundleMetadata;
 import net.flintloader.steel.util.Constants;
 import net.flintloader.steel.util.MirrorUtil;
 import net.flintloader.steel.util.download.DownloadBuilder;
 import net.flintloader.steel.util.download.DownloadExecutor;
+import net.flintloader.steel.util.download.DownloadPriority;
 import net.flintloader.steel.util.download.GradleDownloadProgressListener;
 import net.flintloader.steel.util.gradle.ProgressGroup;
 
 public abstract class MinecraftProvider {
+	// The client and server jars are large enough to benefit from being downloaded in parallel byte ranges.
+	private static final int JAR_DOWNLOAD_SEGMENTS = 4;
+
 	private String minecraftVersion;
 
 	private MinecraftVersionMeta versionInfo;
@@ -65,6 +72,7 @@ public abstract class MinecraftProvider {
 	private BundleMetadata serverBundleMetadata;
 	private File versionManifestJson;
 	private File experimentalVersionsJson;
+	private CompletableFuture<Void> jarsFuture;
 
 	private final Project project;
 
@@ -80,23 +88,60 @@ public abstract class MinecraftProvider {
 		return true;
 	}
 
-	public void provide() throws Exception {
-		final DependencyInfo dependency = DependencyInfo.create(getProject(), Constants.Configurations.MINECRAFT);
-		minecraftVersion = dependency.getDependency().getVersion();
+	/**
+	 * Reads the version manifest, and then starts downloading and processing the jars in the background.
+	 * Use {@link #awaitJars()} before accessing the jars, and {@link #provideLibraries()} once the rest of the setup is ready for them.
+	 */
+	public void provide(SetupStages stages) throws Exception {
+		stages.run("minecraft manifest", () -> {
+			final DependencyInfo dependency = DependencyInfo.create(getProject(), Constants.Configurations.MINECRAFT);
+			minecraftVersion = dependency.getDependency().getVersion();
 
-		initFiles();
+			initFiles();
 
-		downloadMcJson();
+			downloadMcJson();
 
-		try (FileReader reader = new FileReader(minecraftJson)) {
-			versionInfo = SteelGradlePlugin.OBJECT_MAPPER.readValue(reader, MinecraftVersionMeta.class);
-		}
+			try (FileReader reader = new FileReader(minecraftJson)) {
+				versionInfo = SteelGradlePlugin.OBJECT_MAPPER.readValue(reader, MinecraftVersionMeta.class);
+			}
+		});
 
-		downloadJars();
+		// Processing the jars reads the compression levels, resolve them here rather than on the background thread.
+		getExtension().getCacheJarCompression().finalizeValue();
 
-		if (provideServer()) {
-			serverBundleMetadata = BundleMetadata.fromJar(minecraftServerJar.toPath());
+		jarsFuture = stages.runAsync("minecraft jars", () -> {
+			stages.run("download minecraft jars", this::downloadJars);
+
+			if (provideServer()) {
+				serverBundleMetadata = BundleMetadata.fromJar(minecraftServerJar.toPath());
+			}
+
+			stages.run("process minecraft jars", this::processJars);
+		});
+	}
+
+	/**
+	 * Called in the background once the jars have been downloaded, to produce the jars returned by {@link #getMinecraftJars()}.
+	 */
+	protected void processJars() throws Exception {
+	}
+
+	/**
+	 * Waits for the jars to be downloaded and processed.
+	 */
+	public void awaitJars() throws IOException {
+		try {
+			SetupStages.await(Objects.requireNonNull(jarsFuture, "Minecraft jars are not being provided"));
+		} catch (IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to provide minecraft jars", e);
 		}
+	}
+
+	public void provideLibraries() throws Exception {
+		// The libraries depend on the server bundle metadata.
+		awaitJars();
 
 		libraryProvider = new MinecraftLibraryProvider(this, project);
 		libraryProvider.provide();
@@ -154,7 +199,7 @@ public abstract class MinecraftProvider {
 		final DownloadBuilder download = getExtension().download(version.url);
 
 		if (version.sha1 != null) {
-			download.sha1(version.sha1);
+			download.sha1(version.sha1).readOnly();
 		} else {
 			download.defaultCache();
 		}
@@ -188,6 +233,10 @@ public abstract class MinecraftProvider {
 				final MinecraftVersionMeta.Download client = versionInfo.download("client");
 				getExtension().download(client.url())
 						.sha1(client.sha1())
+						.readOnly()
+						.segments(JAR_DOWNLOAD_SEGMENTS)
+						.size(client.size())
+						.priority(DownloadPriority.HIGH)
 						.progress(new GradleDownloadProgressListener("Minecraft client", progressGroup::createProgressLogger))
 						.downloadPathAsync(minecraftClientJar.toPath(), executor);
 			}
@@ -196,6 +245,10 @@ public abstract class MinecraftProvider {
 				final MinecraftVersionMeta.Download server = versionInfo.download("server");
 				getExtension().download(server.url())
 						.sha1(server.sha1())
+						.readOnly()
+						.segments(JAR_DOWNLOAD_SEGMENTS)
+						.size(server.size())
+						.priority(DownloadPriority.HIGH)
 						.progress(new GradleDownloadProgressListener("Minecraft server", progressGroup::createProgressLogger))
 						.downloadPathAsync(minecraftServerJar.toPath(), executor);
 			}
@@ -251,6 +304,24 @@ public abstract class MinecraftProvider {
 		return minecraftServerJar;
 	}
 
+	/**
+	 * @return the files downloaded by this provider that exist
+	 */
+	public List<File> getDownloadedFiles() {
+		final List<File> files = new ArrayList<>(List.of(versionManifestJson, experimentalVersionsJson, minecraftJson));
+
+		if (provideClient()) {
+			files.add(minecraftClientJar);
+		}
+
+		if (provideServer()) {
+			files.add(minecraftServerJar);
+		}
+
+		files.removeIf(file -> !file.exists());
+		return files;
+	}
+
 	public String minecraftVersion() {
 		return minecraftVersion;
 	}
@@ -25,13 +25,23 @@
 
 package net.flintloader.steel.configuration.providers.minecraft;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
 
 import org.gradle.api.Project;
 
+import net.flintloader.steel.api.CacheJarType;
+import net.flintloader.steel.configuration.modules.JarSplitter;
 import net.flintloader.steel.configuration.providers.BundleMetadata;
+import net.flintloader.steel.task.AbstractRemapJarTask;
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 import net.fabricmc.tinyremapper.NonClassCopyMode;
 import net.fabricmc.tinyremapper.OutputConsumerPath;
@@ -68,9 +78,7 @@ public final class SingleJarMinecraftProvider extends MinecraftProvider {
 	}
 
 	@Override
-	public void provide() throws Exception {
-		super.provide();
-
+	protected void processJars() throws Exception {
 		boolean requiresRefresh = getExtension().refreshDeps() || Files.notExists(minecraftEnvOnlyJar);
 
 		if (!requiresRefresh) {
@@ -79,26 +87,49 @@ public final class SingleJarMinecraftProvider extends MinecraftProvider {
 
 		final Path inputJar = environment.getInputJar(this);
 
-		TinyRemapper remapper = null;
-
 		try {
-			remapper = TinyRemapper.newRemapper().build();
-
 			Files.deleteIfExists(minecraftEnvOnlyJar);
-
-			// Pass through tiny remapper to fix the meta-inf
-			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(minecraftEnvOnlyJar).build()) {
-				outputConsumer.addNonClassFiles(inputJar, NonClassCopyMode.FIX_META_INF, remapper);
-				remapper.readInputs(inputJar);
-				remapper.apply(outputConsumer);
-			}
+			writeEnvOnlyJar(inputJar);
 		} catch (Exception e) {
 			Files.deleteIfExists(minecraftEnvOnlyJar);
 			throw new RuntimeException("Failed to process %s only jar".formatted(environment.name()), e);
-		} finally {
-			if (remapper != null) {
-				remapper.finish();
+		}
+	}
+
+	/**
+	 * Copies the input jar without its signature, written with the compression level configured for split jars.
+	 */
+	private void writeEnvOnlyJar(Path inputJar) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(inputJar, minecraftEnvOnlyJar)) {
+			rewriter.removeIf(JarSplitter::isSignatureData);
+
+			if (rewriter.contains(AbstractRemapJarTask.MANIFEST_PATH)) {
+				final Manifest manifest = new Manifest(new ByteArrayInputStream(rewriter.read(AbstractRemapJarTask.MANIFEST_PATH)));
+				JarSplitter.stripSignatureData(manifest);
+				manifest.getMainAttributes().remove(Attributes.Name.SIGNATURE_VERSION);
+
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				manifest.write(out);
+				rewriter.put(AbstractRemapJarTask.MANIFEST_PATH, out.toByteArray());
 			}
+
+			rewriter.setCompressionLevel(getExtension().getCacheJarCompressionLevel(CacheJarType.SPLIT));
+			rewriter.commit();
+		} catch (UnsupportedZipException e) {
+			Files.deleteIfExists(minecraftEnvOnlyJar);
+			fixMetaInf(inputJar);
+		}
+	}
+
+	private void fixMetaInf(Path inputJar) throws IOException {
+		TinyRemapper remapper = TinyRemapper.newRemapper().build();
+
+		try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(minecraftEnvOnlyJar).build()) {
+			outputConsumer.addNonClassFiles(inputJar, NonClassCopyMode.FIX_META_INF, remapper);
+			remapper.readInputs(inputJar);
+			remapper.apply(outputConsumer);
+		} finally {
+			remapper.finish();
 		}
 	}
 
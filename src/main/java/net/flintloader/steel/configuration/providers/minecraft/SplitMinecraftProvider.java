@@ -31,6 +31,7 @@ import java.util.List;
 
 import org.gradle.api.Project;
 
+import net.flintloader.steel.api.CacheJarType;
 import net.flintloader.steel.configuration.providers.BundleMetadata;
 
 public final class SplitMinecraftProvider extends MinecraftProvider {
@@ -55,9 +56,7 @@ public final class SplitMinecraftProvider extends MinecraftProvider {
 	}
 
 	@Override
-	public void provide() throws Exception {
-		super.provide();
-
+	protected void processJars() throws Exception {
 		boolean requiresRefresh = getExtension().refreshDeps() || Files.notExists(minecraftClientOnlyJar) || Files.notExists(minecraftCommonJar);
 
 		if (!requiresRefresh) {
@@ -80,6 +79,7 @@ public final class SplitMinecraftProvider extends MinecraftProvider {
 			jarSplitter.sharedEntry("version.json");
 			jarSplitter.sharedEntry("assets/.mcassetsroot");
 			jarSplitter.sharedEntry("assets/minecraft/lang/en_us.json");
+			jarSplitter.setCompressionLevel(getExtension().getCacheJarCompressionLevel(CacheJarType.SPLIT));
 
 			jarSplitter.split(minecraftClientOnlyJar, minecraftCommonJar);
 		} catch (Exception e) {
@@ -0,0 +1,179 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.configuration.providers.minecraft.assets;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A record of the asset objects that have been downloaded and verified for an asset index, along with their size and modification time.
+ *
+ * <p>This allows an up-to-date asset directory to be checked with a single read and a stat per object,
+ * rather than a full download check (lock, hash attribute, etc) per object.
+ */
+public final class VerifiedAssets {
+	private static final Logger LOGGER = LoggerFactory.getLogger(VerifiedAssets.class);
+	private static final int MAGIC = 0x53414D46; // SAMF
+	private static final int VERSION = 2;
+
+	private final Path file;
+	private final String indexHash;
+	private final Map<String, Stat> entries;
+	// When the objects were last recorded as used in the content store
+	private long usedAt;
+	private boolean dirty = false;
+
+	private VerifiedAssets(Path file, String indexHash, Map<String, Stat> entries, long usedAt) {
+		this.file = file;
+		this.indexHash = indexHash;
+		this.entries = entries;
+		this.usedAt = usedAt;
+	}
+
+	public static VerifiedAssets create(Path file, String indexHash) {
+		return new VerifiedAssets(file, indexHash, new HashMap<>(), 0);
+	}
+
+	/**
+	 * Reads the manifest, returning an empty one if it is missing, unreadable or for a different asset index.
+	 */
+	public static VerifiedAssets read(Path file, String indexHash) {
+		if (Files.notExists(file)) {
+			return create(file, indexHash);
+		}
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(indexHash)) {
+				return create(file, indexHash);
+			}
+
+			final long usedAt = in.readLong();
+			final int count = in.readInt();
+			final Map<String, Stat> entries = new HashMap<>(count * 2);
+
+			for (int i = 0; i < count; i++) {
+				entries.put(in.readUTF(), new Stat(in.readLong(), in.readLong()));
+			}
+
+			return new VerifiedAssets(file, indexHash, entries, usedAt);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read verified assets manifest {}, all assets will be checked", file, e);
+			return create(file, indexHash);
+		}
+	}
+
+	/**
+	 * @return true when the object was previously verified, and its size and modification time have not changed since
+	 */
+	public boolean isVerified(Path path, long expectedSize) {
+		final Stat verified = entries.get(path.toString());
+
+		if (verified == null || verified.size() != expectedSize) {
+			return false;
+		}
+
+		try {
+			return verified.equals(Stat.of(path));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public void markVerified(Path path) throws IOException {
+		final Stat stat;
+
+		try {
+			stat = Stat.of(path);
+		} catch (NoSuchFileException e) {
+			entries.remove(path.toString());
+			return;
+		}
+
+		if (!stat.equals(entries.put(path.toString(), stat))) {
+			dirty = true;
+		}
+	}
+
+	/**
+	 * @return true when the verified objects have not been recorded as used in the content store within the given duration
+	 */
+	public boolean isUseOlderThan(Duration duration) {
+		return Instant.ofEpochMilli(usedAt).plus(duration).isBefore(Instant.now());
+	}
+
+	public void markUsed() {
+		usedAt = System.currentTimeMillis();
+		dirty = true;
+	}
+
+	public void write() throws IOException {
+		if (!dirty) {
+			return;
+		}
+
+		final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.createDirectories(file.getParent());
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(indexHash);
+			out.writeLong(usedAt);
+			out.writeInt(entries.size());
+
+			for (Map.Entry<String, Stat> entry : entries.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().size());
+				out.writeLong(entry.getValue().lastModified());
+			}
+		}
+
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		dirty = false;
+	}
+
+	private record Stat(long size, long lastModified) {
+		static Stat of(Path path) throws IOException {
+			final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return new Stat(attributes.size(), attributes.lastModifiedTime().toMillis());
+		}
+	}
+}
@@ -31,16 +31,22 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.gradle.api.Project;
 
 import net.flintloader.steel.SteelGradleExtension;
+import net.flintloader.steel.api.CacheJarType;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.configuration.providers.mappings.MappingsProviderImpl;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftSourceSets;
 import net.flintloader.steel.configuration.providers.minecraft.SignatureFixerApplyVisitor;
 import net.flintloader.steel.util.TinyRemapperHelper;
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
@@ -138,8 +144,7 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 			configureRemapper(remappedJars, builder);
 		});
 
-		try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(remappedJars.outputJar()).build()) {
-			outputConsumer.addNonClassFiles(remappedJars.inputJar());
+		try {
 			remapper.readClassPath(TinyRemapperHelper.getMinecraftDependencies(project));
 
 			for (Path path : remappedJars.remapClasspath()) {
@@ -147,7 +152,13 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 			}
 
 			remapper.readInputs(remappedJars.inputJar());
-			remapper.apply(outputConsumer);
+
+			// The remapper outputs the classes from multiple threads
+			final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+			remapper.apply(classes::put);
+
+			final CacheJarType cacheJarType = getTargetNamespace() == MappingsNamespace.INTERMEDIARY ? CacheJarType.INTERMEDIARY : CacheJarType.NAMED;
+			writeRemappedJar(remappedJars, new TreeMap<>(classes), extension.getCacheJarCompressionLevel(cacheJarType));
 		} catch (Exception e) {
 			throw new RuntimeException("Failed to remap JAR " + remappedJars.inputJar() + " with mappings from " + mappingsProvider.tinyMappings, e);
 		} finally {
@@ -155,6 +166,29 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 		}
 	}
 
+	/**
+	 * Writes the remapped classes along with the non class files of the input, which are copied without being recompressed.
+	 * The classes are compressed in parallel, and the entries are sorted with constant times so that the output is reproducible.
+	 */
+	private static void writeRemappedJar(RemappedJars remappedJars, SortedMap<String, byte[]> classes, int compressionLevel) throws IOException {
+		try (ZipRewriter output = ZipRewriter.open(remappedJars.inputJar(), remappedJars.outputJar())) {
+			output.removeIf(name -> name.endsWith(".class"));
+			classes.forEach((name, bytes) -> output.put(name + ".class", bytes));
+
+			output.setReproducibleFileOrder(true);
+			output.setPreserveFileTimestamps(false);
+			output.setCompressionLevel(compressionLevel);
+			output.commit();
+		} catch (UnsupportedZipException e) {
+			Files.deleteIfExists(remappedJars.outputJar());
+
+			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(remappedJars.outputJar()).build()) {
+				outputConsumer.addNonClassFiles(remappedJars.inputJar());
+				classes.forEach(outputConsumer);
+			}
+		}
+	}
+
 	protected void configureRemapper(RemappedJars remappedJars, TinyRemapper.Builder tinyRemapperBuilder) {
 	}
 
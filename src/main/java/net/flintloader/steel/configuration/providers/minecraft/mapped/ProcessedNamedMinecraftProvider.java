@@ -33,12 +33,15 @@ import java.nio.file.StandardCopyOption;
 import java.util.List;
 
 import net.flintloader.steel.SteelGradleExtension;
+import net.flintloader.steel.api.CacheJarType;
 import net.flintloader.steel.configuration.processors.JarProcessorManager;
 import net.flintloader.steel.configuration.providers.minecraft.MergedMinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftSourceSets;
 import net.flintloader.steel.configuration.providers.minecraft.SingleJarMinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.SplitMinecraftProvider;
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvider, P extends NamedMinecraftProvider<M>> extends NamedMinecraftProvider<M> {
 	private final P parentMinecraftProvider;
@@ -80,7 +83,7 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 				final Path outputJar = getProcessedPath(inputJar);
 				deleteSimilarJars(outputJar);
 
-				Files.copy(inputJar, outputJar, StandardCopyOption.REPLACE_EXISTING);
+				copyCacheJar(inputJar, outputJar);
 				jarProcessorManager.process(outputJar.toFile());
 			}
 		}
@@ -99,6 +102,18 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 		}
 	}
 
+	/**
+	 * Copies the named jar with the compression level configured for processed jars, entries already compressed that way are copied as they are.
+	 */
+	private void copyCacheJar(Path inputJar, Path outputJar) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(inputJar, outputJar)) {
+			rewriter.setCompressionLevel(extension.getCacheJarCompressionLevel(CacheJarType.PROCESSED));
+			rewriter.commit();
+		} catch (UnsupportedZipException e) {
+			Files.copy(inputJar, outputJar, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	private void deleteSimilarJars(Path jar) throws IOException {
 		Files.deleteIfExists(jar);
 
@@ -25,9 +25,7 @@
 
 package net.flintloader.steel.decompilers.cfr;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,8 +45,8 @@ import org.benf.cfr.reader.util.output.DelegatingDumper;
 import org.benf.cfr.reader.util.output.Dumper;
 
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
 
-import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -66,10 +64,10 @@ public class CFRObfuscationMapping extends NullMapping {
 	}
 
 	private static MappingTree readMappings(Path input) {
-		try (BufferedReader reader = Files.newBufferedReader(input)) {
+		try {
 			MemoryMappingTree mappingTree = new MemoryMappingTree();
 			MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString());
-			MappingReader.read(reader, nsSwitch);
+			MappingSnapshot.read(input, nsSwitch);
 
 			return mappingTree;
 		} catch (IOException e) {
@@ -28,15 +28,12 @@ package net.flintloader.steel.decompilers.cfr;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
 
 import com.google.common.base.Charsets;
 import org.benf.cfr.reader.api.OutputSinkFactory;
@@ -45,17 +42,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.flintloader.steel.util.IOStringConsumer;
+import net.flintloader.steel.util.zip.ParallelZipWriter;
 
 public class CFRSinkFactory implements OutputSinkFactory {
 	private static final Logger ERROR_LOGGER = LoggerFactory.getLogger(CFRSinkFactory.class);
 
-	private final JarOutputStream outputStream;
+	private final ParallelZipWriter outputWriter;
 	private final IOStringConsumer logger;
 	private final Set<String> addedDirectories = new HashSet<>();
 	private final Map<String, Map<Integer, Integer>> lineMap = new TreeMap<>();
 
-	public CFRSinkFactory(JarOutputStream outputStream, IOStringConsumer logger) {
-		this.outputStream = outputStream;
+	public CFRSinkFactory(ParallelZipWriter outputWriter, IOStringConsumer logger) {
+		this.outputWriter = outputWriter;
 		this.logger = logger;
 	}
 
@@ -120,27 +118,17 @@ public class CFRSinkFactory implements OutputSinkFactory {
 			pathPart += path[i] + "/";
 
 			if (addedDirectories.add(pathPart)) {
-				JarEntry entry = new JarEntry(pathPart);
-				entry.setTime(new Date().getTime());
-
 				try {
-					outputStream.putNextEntry(entry);
-					outputStream.closeEntry();
+					outputWriter.writeDirectory(pathPart);
 				} catch (IOException e) {
 					throw new RuntimeException(e);
 				}
 			}
 		}
 
-		JarEntry entry = new JarEntry(filename);
-		entry.setTime(new Date().getTime());
-		entry.setSize(data.length);
-
 		try {
 			logger.accept("Writing: " + filename);
-			outputStream.putNextEntry(entry);
-			outputStream.write(data);
-			outputStream.closeEntry();
+			outputWriter.write(filename, data);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
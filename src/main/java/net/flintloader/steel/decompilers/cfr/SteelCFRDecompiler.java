@@ -25,6 +25,7 @@
 
 package net.flintloader.steel.decompilers.cfr;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.io.Writer;
@@ -35,7 +36,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.jar.Attributes;
-import java.util.jar.JarOutputStream;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import org.benf.cfr.reader.Driver;
@@ -48,6 +49,7 @@ import org.benf.cfr.reader.util.output.SinkDumperFactory;
 
 import net.flintloader.steel.api.decompilers.DecompilationMetadata;
 import net.flintloader.steel.api.decompilers.SteelDecompiler;
+import net.flintloader.steel.util.zip.ParallelZipWriter;
 
 public final class SteelCFRDecompiler implements SteelDecompiler {
 	private static final Map<String, String> DECOMPILE_OPTIONS = Map.of(
@@ -83,8 +85,14 @@ public final class SteelCFRDecompiler implements SteelDecompiler {
 
 		Map<String, Map<Integer, Integer>> lineMap;
 
-		try (JarOutputStream outputStream = new JarOutputStream(Files.newOutputStream(sourcesDestination), manifest)) {
-			CFRSinkFactory cfrSinkFactory = new CFRSinkFactory(outputStream, metaData.logger());
+		// Sources are compressed in parallel, while still being written in the order they are decompiled.
+		try (ParallelZipWriter outputWriter = new ParallelZipWriter(sourcesDestination)) {
+			ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+			manifest.write(manifestBytes);
+			outputWriter.writeDirectory("META-INF/");
+			outputWriter.write(JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+
+			CFRSinkFactory cfrSinkFactory = new CFRSinkFactory(outputWriter, metaData.logger());
 			SinkDumperFactory dumperFactory = new SinkDumperFactory(cfrSinkFactory, options);
 
 			Driver.doJar(state, path, AnalysisType.JAR, dumperFactory);
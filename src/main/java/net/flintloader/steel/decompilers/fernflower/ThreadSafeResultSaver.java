@@ -25,27 +25,23 @@
 
 package net.flintloader.steel.decompilers.fernflower;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.function.Supplier;
-import java.util.jar.JarOutputStream;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import org.jetbrains.java.decompiler.main.DecompilerContext;
 import org.jetbrains.java.decompiler.main.extern.IResultSaver;
 
+import net.flintloader.steel.util.zip.ParallelZipWriter;
+
 import net.fabricmc.fernflower.api.IFabricResultSaver;
 
 /**
@@ -55,8 +51,7 @@ public class ThreadSafeResultSaver implements IResultSaver, IFabricResultSaver {
 	private final Supplier<File> output;
 	private final Supplier<File> lineMapFile;
 
-	public Map<String, ZipOutputStream> outputStreams = new HashMap<>();
-	public Map<String, ExecutorService> saveExecutors = new HashMap<>();
+	public Map<String, ParallelZipWriter> outputWriters = new HashMap<>();
 	public PrintWriter lineMapWriter;
 
 	public ThreadSafeResultSaver(Supplier<File> output, Supplier<File> lineMapFile) {
@@ -70,10 +65,17 @@ public class ThreadSafeResultSaver implements IResultSaver, IFabricResultSaver {
 		File file = output.get();
 
 		try {
-			FileOutputStream fos = new FileOutputStream(file);
-			ZipOutputStream zos = manifest == null ? new ZipOutputStream(fos) : new JarOutputStream(fos, manifest);
-			outputStreams.put(key, zos);
-			saveExecutors.put(key, Executors.newSingleThreadExecutor());
+			// Entries are compressed in parallel, while still being written in the order they are saved.
+			ParallelZipWriter writer = new ParallelZipWriter(file.toPath());
+
+			if (manifest != null) {
+				ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+				manifest.write(manifestBytes);
+				writer.writeDirectory("META-INF/");
+				writer.write(JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+			}
+
+			outputWriters.put(key, writer);
 		} catch (IOException e) {
 			throw new RuntimeException("Unable to create archive: " + file, e);
 		}
@@ -95,61 +97,42 @@ public class ThreadSafeResultSaver implements IResultSaver, IFabricResultSaver {
 	@Override
 	public void saveClassEntry(String path, String archiveName, String qualifiedName, String entryName, String content, int[] mapping) {
 		String key = path + "/" + archiveName;
-		ExecutorService executor = saveExecutors.get(key);
-		executor.submit(() -> {
-			ZipOutputStream zos = outputStreams.get(key);
-
-			try {
-				zos.putNextEntry(new ZipEntry(entryName));
+		ParallelZipWriter writer = outputWriters.get(key);
 
-				if (content != null) {
-					zos.write(content.getBytes(StandardCharsets.UTF_8));
-				}
-			} catch (IOException e) {
-				DecompilerContext.getLogger().writeMessage("Cannot write entry " + entryName, e);
-			}
+		try {
+			writer.write(entryName, content != null ? content.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+		} catch (IOException e) {
+			DecompilerContext.getLogger().writeMessage("Cannot write entry " + entryName, e);
+		}
 
-			if (mapping != null && lineMapWriter != null) {
-				int maxLine = 0;
-				int maxLineDest = 0;
-				StringBuilder builder = new StringBuilder();
+		if (mapping != null && lineMapWriter != null) {
+			int maxLine = 0;
+			int maxLineDest = 0;
+			StringBuilder builder = new StringBuilder();
 
-				for (int i = 0; i < mapping.length; i += 2) {
-					maxLine = Math.max(maxLine, mapping[i]);
-					maxLineDest = Math.max(maxLineDest, mapping[i + 1]);
-					builder.append("\t").append(mapping[i]).append("\t").append(mapping[i + 1]).append("\n");
-				}
+			for (int i = 0; i < mapping.length; i += 2) {
+				maxLine = Math.max(maxLine, mapping[i]);
+				maxLineDest = Math.max(maxLineDest, mapping[i + 1]);
+				builder.append("\t").append(mapping[i]).append("\t").append(mapping[i + 1]).append("\n");
+			}
 
+			synchronized (lineMapWriter) {
 				lineMapWriter.println(qualifiedName + "\t" + maxLine + "\t" + maxLineDest);
 				lineMapWriter.println(builder.toString());
 			}
-		});
+		}
 	}
 
 	@Override
 	public void closeArchive(String path, String archiveName) {
 		String key = path + "/" + archiveName;
-		ExecutorService executor = saveExecutors.get(key);
-		Future<?> closeFuture = executor.submit(() -> {
-			ZipOutputStream zos = outputStreams.get(key);
-
-			try {
-				zos.close();
-			} catch (IOException e) {
-				throw new RuntimeException("Unable to close zip. " + key, e);
-			}
-		});
-		executor.shutdown();
 
 		try {
-			closeFuture.get();
-		} catch (InterruptedException | ExecutionException e) {
-			throw new RuntimeException(e);
+			outputWriters.remove(key).close();
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to close zip. " + key, e);
 		}
 
-		outputStreams.remove(key);
-		saveExecutors.remove(key);
-
 		if (lineMapWriter != null) {
 			lineMapWriter.flush();
 			lineMapWriter.close();
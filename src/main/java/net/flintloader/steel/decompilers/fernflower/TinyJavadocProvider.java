@@ -25,10 +25,8 @@
 
 package net.flintloader.steel.decompilers.fernflower;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,9 +37,9 @@ import org.jetbrains.java.decompiler.struct.StructRecordComponent;
 import org.objectweb.asm.Opcodes;
 
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
 
 import net.fabricmc.fernflower.api.IFabricJavadocProvider;
-import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
@@ -168,10 +166,10 @@ public class TinyJavadocProvider implements IFabricJavadocProvider {
 	}
 
 	private static MappingTree readMappings(File input) {
-		try (BufferedReader reader = Files.newBufferedReader(input.toPath())) {
+		try {
 			MemoryMappingTree mappingTree = new MemoryMappingTree();
 			MappingSourceNsSwitch nsSwitch = new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString());
-			MappingReader.read(reader, nsSwitch);
+			MappingSnapshot.read(input.toPath(), nsSwitch);
 
 			return mappingTree;
 		} catch (IOException e) {
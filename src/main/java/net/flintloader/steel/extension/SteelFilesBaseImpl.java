@@ -74,6 +74,11 @@ public abstract class SteelFilesBaseImpl implements SteelFiles {
 		return createFile(getRootProjectPersistentCache(), "remapped_modules");
 	}
 
+	@Override
+	public File getOfflineLibraries() {
+		return createFile(getUserCache(), "offline_libraries");
+	}
+
 	@Override
 	public File getNativesDirectory(Project project) {
 		return createFile(getRootProjectPersistentCache(), "natives/" + SteelGradleExtension.get(project).getMinecraftProvider().minecraftVersion());
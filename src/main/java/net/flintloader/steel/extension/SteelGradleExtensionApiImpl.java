@@ -35,11 +35,13 @@ import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.tasks.SourceSet;
 
 import net.flintloader.steel.SteelGradleExtension;
+import net.flintloader.steel.api.CacheJarType;
 import net.flintloader.steel.api.InterfaceInjectionExtensionAPI;
 import net.flintloader.steel.api.MixinExtensionAPI;
 import net.flintloader.steel.api.ModuleSettings;
@@ -78,6 +80,7 @@ public abstract class SteelGradleExtensionApiImpl implements SteelGradleExtensio
 	private final Property<Boolean> splitModDependencies;
 	private final Property<MinecraftJarConfiguration> minecraftJarConfiguration;
 	private final Property<Boolean> splitEnvironmentalSourceSet;
+	private final MapProperty<CacheJarType, Integer> cacheJarCompression;
 	private final InterfaceInjectionExtensionAPI interfaceInjectionExtension;
 
 	private final ModuleVersionParser versionParser;
@@ -135,6 +138,9 @@ public abstract class SteelGradleExtensionApiImpl implements SteelGradleExtensio
 		this.splitEnvironmentalSourceSet = project.getObjects().property(Boolean.class).convention(false);
 		this.splitEnvironmentalSourceSet.finalizeValueOnRead();
 
+		this.cacheJarCompression = project.getObjects().mapProperty(CacheJarType.class, Integer.class).empty();
+		this.cacheJarCompression.finalizeValueOnRead();
+
 		// Add main source set by default
 		interfaceInjection(interfaceInjection -> {
 			final SourceSet main = SourceSetHelper.getMainSourceSet(project);
@@ -299,6 +305,11 @@ public abstract class SteelGradleExtensionApiImpl implements SteelGradleExtensio
 		return splitModDependencies;
 	}
 
+	@Override
+	public MapProperty<CacheJarType, Integer> getCacheJarCompression() {
+		return cacheJarCompression;
+	}
+
 	@Override
 	public void splitEnvironmentSourceSets() {
 		splitEnvironmentalSourceSet.set(true);
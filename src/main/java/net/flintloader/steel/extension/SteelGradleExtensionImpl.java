@@ -50,8 +50,10 @@ import net.flintloader.steel.configuration.providers.mappings.MappingsProviderIm
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.mapped.IntermediaryMinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.mapped.NamedMinecraftProvider;
+import net.flintloader.steel.util.download.ContentStore;
 import net.flintloader.steel.util.download.Download;
 import net.flintloader.steel.util.download.DownloadBuilder;
+import net.flintloader.steel.util.download.HttpClientService;
 
 public class SteelGradleExtensionImpl extends SteelGradleExtensionApiImpl implements SteelGradleExtension {
 	private final Project project;
@@ -71,6 +73,7 @@ public class SteelGradleExtensionImpl extends SteelGradleExtensionApiImpl implem
 	private IntermediaryMinecraftProvider<?> intermediaryMinecraftProvider;
 	private InstallerData installerData;
 	private boolean refreshDeps;
+	private final boolean offline;
 
 	public SteelGradleExtensionImpl(Project project, SteelFiles files) {
 		super(project, files);
@@ -90,6 +93,8 @@ public class SteelGradleExtensionImpl extends SteelGradleExtensionApiImpl implem
 		});
 
 		refreshDeps = project.getGradle().getStartParameter().isRefreshDependencies() || Boolean.getBoolean("steel.refresh");
+		// Read once, as downloads may be created from background threads.
+		offline = project.getGradle().getStartParameter().isOffline();
 
 		if (refreshDeps) {
 			project.getLogger().lifecycle("Refresh dependencies is in use, steel will be significantly slower.");
@@ -176,6 +181,7 @@ public class SteelGradleExtensionImpl extends SteelGradleExtensionApiImpl implem
 	}
 
 	@Override
+	@Deprecated
 	public MappingSet getOrCreateSrcMappingCache(int id, Supplier<MappingSet> factory) {
 		return srcMappingCache[id] != null ? srcMappingCache[id] : (srcMappingCache[id] = factory.get());
 	}
@@ -229,7 +235,10 @@ public class SteelGradleExtensionImpl extends SteelGradleExtensionApiImpl implem
 			throw new RuntimeException("Failed to create downloader for: " + e);
 		}
 
-		if (project.getGradle().getStartParameter().isOffline()) {
+		builder.httpClient(HttpClientService.get(project));
+		builder.contentStore(ContentStore.get(project));
+
+		if (offline) {
 			builder.offline();
 		}
 
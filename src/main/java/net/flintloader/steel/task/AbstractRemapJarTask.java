@@ -59,8 +59,8 @@ import org.gradle.workers.WorkerExecutor;
 
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.task.service.JarManifestService;
-import net.flintloader.steel.util.ZipReprocessorUtil;
 import net.flintloader.steel.util.ZipUtils;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public abstract class AbstractRemapJarTask extends Jar {
 	public static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
@@ -167,8 +167,8 @@ public abstract class AbstractRemapJarTask extends Jar {
 			outputFile = getParameters().getOutputFile().getAsFile().get().toPath();
 		}
 
-		protected void modifyJarManifest() throws IOException {
-			int count = ZipUtils.transform(outputFile, Map.of(MANIFEST_PATH, bytes -> {
+		protected void modifyJarManifest(ZipRewriter output) throws IOException {
+			int count = ZipUtils.transform(output, Map.of(MANIFEST_PATH, bytes -> {
 				var manifest = new Manifest(new ByteArrayInputStream(bytes));
 
 				getParameters().getJarManifestService().get().apply(manifest, getParameters().getManifestAttributes().get());
@@ -182,13 +182,13 @@ public abstract class AbstractRemapJarTask extends Jar {
 			Preconditions.checkState(count > 0, "Did not transform any jar manifest");
 		}
 
-		protected void rewriteJar() throws IOException {
-			final boolean isReproducibleFileOrder = getParameters().getArchiveReproducibleFileOrder().get();
-			final boolean isPreserveFileTimestamps = getParameters().getArchivePreserveFileTimestamps().get();
-
-			if (isReproducibleFileOrder || !isPreserveFileTimestamps) {
-				ZipReprocessorUtil.reprocessZip(outputFile.toFile(), isReproducibleFileOrder, isPreserveFileTimestamps);
-			}
+		/**
+		 * Writes the output jar with all of the changes, sorted and with constant timestamps when the task is configured to.
+		 */
+		protected void writeJar(ZipRewriter output) throws IOException {
+			output.setReproducibleFileOrder(getParameters().getArchiveReproducibleFileOrder().get());
+			output.setPreserveFileTimestamps(getParameters().getArchivePreserveFileTimestamps().get());
+			output.commit();
 		}
 	}
 
@@ -27,7 +27,11 @@ package net.flintloader.steel.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import javax.inject.Inject;
@@ -37,6 +41,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.internal.logging.progress.ProgressLogger;
 
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.SteelGradlePlugin;
@@ -44,8 +49,11 @@ import net.flintloader.steel.configuration.ide.RunConfigSettings;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftVersionMeta;
 import net.flintloader.steel.configuration.providers.minecraft.assets.AssetIndex;
+import net.flintloader.steel.configuration.providers.minecraft.assets.VerifiedAssets;
 import net.flintloader.steel.util.MirrorUtil;
+import net.flintloader.steel.util.download.ContentStore;
 import net.flintloader.steel.util.download.DownloadExecutor;
+import net.flintloader.steel.util.download.DownloadPriority;
 import net.flintloader.steel.util.download.GradleDownloadProgressListener;
 import net.flintloader.steel.util.gradle.ProgressGroup;
 
@@ -72,7 +80,7 @@ public abstract class DownloadAssetsTask extends AbstractSteelTask {
 
 		getAssetsDirectory().set(assetsDir);
 		getAssetsHash().set(versionInfo.assetIndex().sha1());
-		getDownloadThreads().convention(Runtime.getRuntime().availableProcessors());
+		getDownloadThreads().convention(DownloadExecutor.DEFAULT_THREADS);
 		getMinecraftVersion().set(versionInfo.id());
 		getMinecraftVersion().finalizeValue();
 
@@ -92,20 +100,93 @@ public abstract class DownloadAssetsTask extends AbstractSteelTask {
 	@TaskAction
 	public void downloadAssets() throws IOException {
 		final AssetIndex assetIndex = getAssetIndex();
+		final VerifiedAssets verifiedAssets = getVerifiedAssets();
+		final List<AssetIndex.Object> pending = new ArrayList<>();
+		final List<String> verified = new ArrayList<>();
+
+		for (AssetIndex.Object object : assetIndex.getObjects()) {
+			if (verifiedAssets.isVerified(getAssetsPath(object, assetIndex), object.size())) {
+				verified.add("sha1:" + object.hash());
+			} else {
+				pending.add(object);
+			}
+		}
+
+		// The up to date objects are not materialized, so mark their blobs as used to keep them from being garbage collected.
+		if (!verified.isEmpty() && verifiedAssets.isUseOlderThan(Duration.ofDays(1))) {
+			ContentStore.get(getProject()).markUsed(verified);
+			verifiedAssets.markUsed();
+		}
+
+		if (pending.isEmpty()) {
+			verifiedAssets.write();
+			getProject().getLogger().info("All {} assets are up to date", assetIndex.objects().size());
+			return;
+		}
+
+		try (ProgressGroup progressGroup = new ProgressGroup(getProject(), "Download Assets")) {
+			final ProgressLogger statusLogger = progressGroup.createProgressLogger("Download queue");
+
+			final String resourcesBase = MirrorUtil.getResourcesBase(getProject());
+			final List<String> mirrors = MirrorUtil.getResourcesMirrors(getProject());
+			final Duration hedgeDelay = MirrorUtil.getHedgeDelay(getProject());
+
+			try (DownloadExecutor executor = new DownloadExecutor(getDownloadThreads().get(), status -> statusLogger.progress(status.toString()))) {
+				for (AssetIndex.Object object : pending) {
+					final String sha1 = object.hash();
+					final String path = sha1.substring(0, 2) + "/" + sha1;
+
+					getExtension()
+							.download(resourcesBase + path)
+							.sha1(sha1)
+							.readOnly()
+							.hedge(mirrors.stream().map(mirror -> mirror + path).toList(), hedgeDelay)
+							.priority(DownloadPriority.LOW)
+							.progress(new GradleDownloadProgressListener(object.name(), progressGroup::createProgressLogger))
+							.downloadPathAsync(getAssetsPath(object, assetIndex), executor);
+				}
+			} finally {
+				statusLogger.completed();
+			}
+		}
+
+		// Only reached when every download succeeded.
+		for (AssetIndex.Object object : pending) {
+			verifiedAssets.markVerified(getAssetsPath(object, assetIndex));
+		}
+
+		verifiedAssets.write();
+	}
+
+	/**
+	 * @return the asset index and the asset objects that have been downloaded
+	 */
+	public List<Path> getDownloadedFiles() throws IOException {
+		final AssetIndex assetIndex = getAssetIndex();
+		final List<Path> files = new ArrayList<>();
+		files.add(getAssetIndexFile().toPath());
 
-		try (ProgressGroup progressGroup = new ProgressGroup(getProject(), "Download Assets");
-				DownloadExecutor executor = new DownloadExecutor(getDownloadThreads().get())) {
-			for (AssetIndex.Object object : assetIndex.getObjects()) {
-				final String sha1 = object.hash();
-				final String url = MirrorUtil.getResourcesBase(getProject()) + sha1.substring(0, 2) + "/" + sha1;
-
-				getExtension()
-						.download(url)
-						.sha1(sha1)
-						.progress(new GradleDownloadProgressListener(object.name(), progressGroup::createProgressLogger))
-						.downloadPathAsync(getAssetsPath(object, assetIndex), executor);
+		for (AssetIndex.Object object : assetIndex.getObjects()) {
+			final Path path = getAssetsPath(object, assetIndex);
+
+			if (Files.exists(path)) {
+				files.add(path);
 			}
 		}
+
+		return files;
+	}
+
+	private VerifiedAssets getVerifiedAssets() {
+		final String assetsHash = getAssetsHash().get();
+		final Path manifest = new File(getAssetsDirectory().get().getAsFile(), "indexes" + File.separator + assetsHash + ".verified").toPath();
+
+		if (getExtension().refreshDeps()) {
+			// Check every object again
+			return VerifiedAssets.create(manifest, assetsHash);
+		}
+
+		return VerifiedAssets.read(manifest, assetsHash);
 	}
 
 	private MinecraftVersionMeta.AssetIndex getAssetIndexMeta() {
@@ -115,17 +196,21 @@ public abstract class DownloadAssetsTask extends AbstractSteelTask {
 
 	private AssetIndex getAssetIndex() throws IOException {
 		final SteelGradleExtension extension = getExtension();
-		final MinecraftProvider minecraftProvider = extension.getMinecraftProvider();
 		final MinecraftVersionMeta.AssetIndex assetIndex = getAssetIndexMeta();
-		final File indexFile = new File(getAssetsDirectory().get().getAsFile(), "indexes" + File.separator + assetIndex.flintId(minecraftProvider.minecraftVersion()) + ".json");
 
 		final String json = extension.download(assetIndex.url())
 				.sha1(assetIndex.sha1())
-				.downloadString(indexFile.toPath());
+				.readOnly()
+				.downloadString(getAssetIndexFile().toPath());
 
 		return SteelGradlePlugin.OBJECT_MAPPER.readValue(json, AssetIndex.class);
 	}
 
+	private File getAssetIndexFile() {
+		final MinecraftProvider minecraftProvider = getExtension().getMinecraftProvider();
+		return new File(getAssetsDirectory().get().getAsFile(), "indexes" + File.separator + getAssetIndexMeta().flintId(minecraftProvider.minecraftVersion()) + ".json");
+	}
+
 	private Path getAssetsPath(AssetIndex.Object object, AssetIndex index) {
 		if (index.mapToResources() || index.virtual()) {
 			return new File(getLegacyResourcesDirectory().get().getAsFile(), object.path()).toPath();
@@ -0,0 +1,117 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import net.flintloader.steel.configuration.providers.mappings.IntermediateMappingsService;
+import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider;
+import net.flintloader.steel.util.Constants;
+import net.flintloader.steel.util.download.CacheBundle;
+
+/**
+ * Packs the files downloaded to setup this project into a bundle, which can be imported using the {@code steel_cache_bundle} property
+ * to allow a machine with a cold cache to build offline.
+ */
+public abstract class ExportCacheBundleTask extends AbstractSteelTask {
+	private static final List<String> LIBRARY_CONFIGURATIONS = List.of(
+			Constants.Configurations.MINECRAFT_DEPENDENCIES,
+			Constants.Configurations.MINECRAFT_RUNTIME_DEPENDENCIES,
+			Constants.Configurations.MINECRAFT_NATIVES,
+			Constants.Configurations.MAPPINGS
+	);
+
+	@OutputFile
+	public abstract RegularFileProperty getBundleFile();
+
+	@Inject
+	public ExportCacheBundleTask() {
+		getBundleFile().convention(getProject().getLayout().getBuildDirectory().file("steel-cache-bundle.zip"));
+		getOutputs().upToDateWhen(task -> false);
+	}
+
+	@TaskAction
+	public void exportBundle() throws IOException {
+		final Path userCache = getExtension().getFiles().getUserCache().toPath();
+		final MinecraftProvider minecraftProvider = getExtension().getMinecraftProvider();
+		final Map<String, Path> files = new LinkedHashMap<>();
+
+		for (File file : minecraftProvider.getDownloadedFiles()) {
+			addCacheFile(files, userCache, file.toPath());
+		}
+
+		addCacheFile(files, userCache, IntermediateMappingsService.getInstance(getProject(), minecraftProvider).getIntermediaryTiny());
+
+		for (DownloadAssetsTask task : getProject().getTasks().withType(DownloadAssetsTask.class)) {
+			for (Path path : task.getDownloadedFiles()) {
+				addCacheFile(files, userCache, path);
+			}
+		}
+
+		for (String name : LIBRARY_CONFIGURATIONS) {
+			final Configuration configuration = getProject().getConfigurations().findByName(name);
+
+			if (configuration == null) {
+				continue;
+			}
+
+			for (ResolvedArtifact artifact : configuration.getResolvedConfiguration().getResolvedArtifacts()) {
+				files.put(CacheBundle.LIBRARIES_PREFIX + getMavenPath(artifact), artifact.getFile().toPath());
+			}
+		}
+
+		CacheBundle.write(getBundleFile().get().getAsFile().toPath(), files);
+		getProject().getLogger().lifecycle("Exported {} files to {}", files.size(), getBundleFile().get().getAsFile());
+	}
+
+	private static void addCacheFile(Map<String, Path> files, Path userCache, Path path) {
+		// Files outside of the user cache (such as pre 1.6 resources) are specific to a project.
+		if (path.startsWith(userCache)) {
+			files.put(CacheBundle.CACHE_PREFIX + userCache.relativize(path).toString().replace(File.separatorChar, '/'), path);
+		}
+	}
+
+	private static String getMavenPath(ResolvedArtifact artifact) {
+		final ModuleVersionIdentifier id = artifact.getModuleVersion().getId();
+		final String classifier = artifact.getClassifier() != null ? "-" + artifact.getClassifier() : "";
+
+		return "%s/%s/%s/%s-%s%s.%s".formatted(id.getGroup().replace('.', '/'), id.getName(), id.getVersion(), id.getName(), id.getVersion(), classifier, artifact.getExtension());
+	}
+}
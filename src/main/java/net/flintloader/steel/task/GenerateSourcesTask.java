@@ -27,12 +27,9 @@ package net.flintloader.steel.task;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
 import java.io.UncheckedIOException;
-import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -46,8 +43,6 @@ import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
-import net.fabricmc.mappingio.format.tiny.Tiny2FileWriter;
-
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
@@ -70,6 +65,7 @@ import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.configuration.accesswidener.TransitiveAccessWidenerMappingsProcessor;
 import net.flintloader.steel.configuration.ifaceinject.InterfaceInjectionProcessor;
 import net.flintloader.steel.configuration.processors.ModuleJavadocProcessor;
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
 import net.flintloader.steel.decompilers.LineNumberRemapper;
 import net.flintloader.steel.util.Constants;
 import net.flintloader.steel.util.FileSystemUtil;
@@ -81,7 +77,6 @@ import net.flintloader.steel.util.gradle.WorkerDaemonClientsManagerHelper;
 import net.flintloader.steel.util.ipc.IPCClient;
 import net.flintloader.steel.util.ipc.IPCServer;
 
-import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
@@ -320,13 +315,17 @@ public abstract class GenerateSourcesTask extends AbstractSteelTask {
 		return new File(path.substring(0, path.length() - 4) + suffix);
 	}
 
+	/**
+	 * @return the mappings for the decompiler to read javadoc from, the snapshot of the mappings when it is up to date and they have not been transformed
+	 */
 	private Path getMappings() {
-		Path inputMappings = getExtension().getMappingsProvider().tinyMappings;
+		Path tinyMappings = getExtension().getMappingsProvider().tinyMappings;
+		Path inputMappings = MappingSnapshot.isUpToDate(tinyMappings) ? MappingSnapshot.getPath(tinyMappings) : tinyMappings;
 
 		MemoryMappingTree mappingTree = new MemoryMappingTree();
 
-		try (Reader reader = Files.newBufferedReader(inputMappings, StandardCharsets.UTF_8)) {
-			MappingReader.read(reader, new MappingSourceNsSwitch(mappingTree, MappingsNamespace.INTERMEDIARY.toString()));
+		try {
+			MappingSnapshot.read(inputMappings, new MappingSourceNsSwitch(mappingTree, MappingsNamespace.INTERMEDIARY.toString()));
 		} catch (IOException e) {
 			throw new RuntimeException("Failed to read mappings", e);
 		}
@@ -366,14 +365,8 @@ public abstract class GenerateSourcesTask extends AbstractSteelTask {
 		final Path outputMappings;
 
 		try {
-			outputMappings = Files.createTempFile("steel-transitive-mappings", ".tiny");
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to create temp file", e);
-		}
-
-		try (Writer writer = Files.newBufferedWriter(outputMappings, StandardCharsets.UTF_8)) {
-			Tiny2FileWriter tiny2Writer = new Tiny2FileWriter(writer, false);
-			mappingTree.accept(new MappingSourceNsSwitch(tiny2Writer, MappingsNamespace.NAMED.toString()));
+			outputMappings = Files.createTempFile("steel-transitive-mappings", ".snapshot");
+			MappingSnapshot.write(mappingTree, outputMappings, null);
 		} catch (IOException e) {
 			throw new RuntimeException("Failed to write mappings", e);
 		}
@@ -28,14 +28,17 @@ package net.flintloader.steel.task;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -60,21 +63,21 @@ import net.flintloader.steel.build.MixinRefmapHelper;
 import net.flintloader.steel.build.nesting.IncludedJarFactory;
 import net.flintloader.steel.build.nesting.JarNester;
 import net.flintloader.steel.configuration.accesswidener.AccessWidenerFile;
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftSourceSets;
 import net.flintloader.steel.extension.MixinExtension;
 import net.flintloader.steel.task.service.TinyRemapperService;
 import net.flintloader.steel.util.Constants;
 import net.flintloader.steel.util.ExceptionUtil;
 import net.flintloader.steel.util.ModuleUtils;
-import net.flintloader.steel.util.Pair;
 import net.flintloader.steel.util.SidedClassVisitor;
 import net.flintloader.steel.util.ZipUtils;
 import net.flintloader.steel.util.service.UnsafeWorkQueueHelper;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 import net.fabricmc.accesswidener.AccessWidenerReader;
 import net.fabricmc.accesswidener.AccessWidenerRemapper;
 import net.fabricmc.accesswidener.AccessWidenerWriter;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public abstract class RemapJarTask extends AbstractRemapJarTask {
@@ -122,6 +125,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 		submitWork(RemapAction.class, params -> {
 			if (getAddNestedDependencies().get()) {
 				params.getNestedJars().from(getNestedJars());
+				params.getModuleMetadataIndexUuid().set(UnsafeWorkQueueHelper.create(getProject(), ModuleMetadataIndex.get(getProject())));
 			}
 
 			params.getTinyRemapperBuildServiceUuid().set(UnsafeWorkQueueHelper.create(getProject(), tinyRemapperService.get()));
@@ -179,6 +183,8 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 		ListProperty<RefmapData> getMixinData();
 
 		Property<String> getTinyRemapperBuildServiceUuid();
+
+		Property<String> getModuleMetadataIndexUuid();
 	}
 
 	public abstract static class RemapAction extends AbstractRemapAction<RemapParams> {
@@ -198,17 +204,20 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 
 				tinyRemapper = tinyRemapperService.getTinyRemapperForRemapping();
 
-				remap();
+				// Every step edits the output in memory, so that the jar is only written once.
+				try (ZipRewriter output = ZipRewriter.open(inputFile, outputFile)) {
+					remap(output);
 
-				if (getParameters().getClientOnlyEntries().isPresent()) {
-					markClientOnlyClasses();
-				}
+					if (getParameters().getClientOnlyEntries().isPresent()) {
+						markClientOnlyClasses(output);
+					}
 
-				remapAccessWidener();
-				addRefmaps();
-				addNestedJars();
-				modifyJarManifest();
-				rewriteJar();
+					remapAccessWidener(output);
+					addRefmaps(output);
+					addNestedJars(output);
+					modifyJarManifest(output);
+					writeJar(output);
+				}
 
 				LOGGER.debug("Finished remapping {}", inputFile);
 			} catch (Exception e) {
@@ -222,23 +231,28 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			}
 		}
 
-		private void remap() throws IOException {
-			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(outputFile).build()) {
-				outputConsumer.addNonClassFiles(inputFile);
-				tinyRemapper.apply(outputConsumer, tinyRemapperService.getOrCreateTag(inputFile));
-			}
+		private void remap(ZipRewriter output) {
+			// The remapper outputs the classes from multiple threads
+			final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+			tinyRemapper.apply((name, bytes) -> classes.put(name + ".class", bytes), tinyRemapperService.getOrCreateTag(inputFile));
+
+			// Non class files are kept from the input as they are
+			output.removeIf(name -> name.endsWith(".class"));
+			// Sorted, as the order the classes are output in is not deterministic
+			new TreeMap<>(classes).forEach(output::put);
 		}
 
-		private void markClientOnlyClasses() throws IOException {
-			final Stream<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> tranformers = getParameters().getClientOnlyEntries().get().stream()
-					.map(s -> new Pair<>(s,
-							(ZipUtils.AsmClassOperator) classVisitor -> SidedClassVisitor.CLIENT.insertApplyVisitor(null, classVisitor)
+		private void markClientOnlyClasses(ZipRewriter output) throws IOException {
+			final Map<String, ZipUtils.UnsafeUnaryOperator<byte[]>> tranformers = getParameters().getClientOnlyEntries().get().stream()
+					.collect(Collectors.toMap(s -> s,
+							s -> (ZipUtils.AsmClassOperator) classVisitor -> SidedClassVisitor.CLIENT.insertApplyVisitor(null, classVisitor),
+							(a, b) -> a
 					));
 
-			ZipUtils.transform(outputFile, tranformers);
+			ZipUtils.transform(output, tranformers);
 		}
 
-		private void remapAccessWidener() throws IOException {
+		private void remapAccessWidener(ZipRewriter output) throws IOException {
 			final AccessWidenerFile accessWidenerFile = AccessWidenerFile.fromModuleJar(inputFile);
 
 			if (accessWidenerFile == null) {
@@ -248,7 +262,11 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			byte[] remapped = remapAccessWidener(accessWidenerFile.content());
 
 			// Finally, replace the output with the remaped aw
-			ZipUtils.replace(outputFile, accessWidenerFile.path(), remapped);
+			if (!output.contains(accessWidenerFile.path())) {
+				throw new NoSuchFileException(accessWidenerFile.path());
+			}
+
+			output.put(accessWidenerFile.path(), remapped);
 		}
 
 		private byte[] remapAccessWidener(byte[] input) {
@@ -267,7 +285,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			return writer.write();
 		}
 
-		private void addNestedJars() {
+		private void addNestedJars(ZipRewriter output) throws IOException {
 			FileCollection nestedJars = getParameters().getNestedJars();
 
 			if (nestedJars.isEmpty()) {
@@ -275,16 +293,17 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 				return;
 			}
 
-			JarNester.nestJars(nestedJars.getFiles(), outputFile.toFile(), LOGGER);
+			final ModuleMetadataIndex index = UnsafeWorkQueueHelper.get(getParameters().getModuleMetadataIndexUuid(), ModuleMetadataIndex.class);
+			JarNester.nestJars(nestedJars.getFiles(), output, outputFile.getFileName().toString(), index, LOGGER);
 		}
 
-		private void addRefmaps() throws IOException {
+		private void addRefmaps(ZipRewriter output) throws IOException {
 			if (getParameters().getUseMixinExtension().get()) {
 				return;
 			}
 
 			for (RemapParams.RefmapData refmapData : getParameters().getMixinData().get()) {
-				int transformed = ZipUtils.transformJson(JsonObject.class, outputFile, refmapData.mixinConfigs().stream().collect(Collectors.toMap(s -> s, s -> json -> {
+				int transformed = ZipUtils.transformJson(JsonObject.class, output, refmapData.mixinConfigs().stream().collect(Collectors.toMap(s -> s, s -> json -> {
 					if (!json.has("refmap")) {
 						LOGGER.error("Adding REFMAP to {} with name {}", outputFile.getFileName(), refmapData.refmapName);
 						json.addProperty("refmap", refmapData.refmapName());
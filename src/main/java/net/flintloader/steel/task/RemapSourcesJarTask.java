@@ -41,6 +41,7 @@ import org.slf4j.LoggerFactory;
 import net.flintloader.steel.configuration.providers.minecraft.MinecraftSourceSets;
 import net.flintloader.steel.task.service.SourceRemapperService;
 import net.flintloader.steel.util.service.UnsafeWorkQueueHelper;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public abstract class RemapSourcesJarTask extends AbstractRemapJarTask {
 	@Inject
@@ -84,10 +85,11 @@ public abstract class RemapSourcesJarTask extends AbstractRemapJarTask {
 		@Override
 		public void execute() {
 			try {
-				sourceRemapperService.remapSourcesJar(inputFile, outputFile);
-
-				modifyJarManifest();
-				rewriteJar();
+				try (ZipRewriter output = ZipRewriter.open(inputFile, outputFile)) {
+					sourceRemapperService.remapSourcesJar(inputFile, output);
+					modifyJarManifest(output);
+					writeJar(output);
+				}
 			} catch (Exception e) {
 				try {
 					Files.deleteIfExists(outputFile);
@@ -85,6 +85,10 @@ public final class SteelTasks {
 
 		tasks.named("check").configure(task -> task.dependsOn(validateAccessWidener));
 
+		tasks.register("verifyContentStore", VerifyContentStoreTask.class, t -> {
+			t.setDescription("Re-checks the hash of every file in the shared download store, removing any that are corrupt.");
+		});
+
 		registerIDETasks(tasks);
 		registerRunTasks(tasks, project);
 
@@ -171,6 +175,11 @@ public final class SteelTasks {
 			});
 		}
 
+		tasks.register("exportCacheBundle", ExportCacheBundleTask.class, t -> {
+			t.setDescription("Packs the files downloaded for this project into a bundle, that can be imported to build offline.");
+			t.dependsOn(tasks.named("downloadAssets"));
+		});
+
 		tasks.register("configureClientLaunch", task -> {
 			task.dependsOn(tasks.named("downloadAssets"));
 			task.dependsOn(tasks.named("configureLaunch"));
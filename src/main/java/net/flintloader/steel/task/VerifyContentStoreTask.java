@@ -0,0 +1,52 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.flintloader.steel.task;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.gradle.api.tasks.TaskAction;
+
+import net.flintloader.steel.util.download.ContentStore;
+
+/**
+ * Re-computes the hash of every file in the content store, removing any that have been corrupted so that they are downloaded again.
+ */
+public abstract class VerifyContentStoreTask extends AbstractSteelTask {
+	@Inject
+	public VerifyContentStoreTask() {
+		getOutputs().upToDateWhen(task -> false);
+	}
+
+	@TaskAction
+	public void verify() throws IOException {
+		final ContentStore contentStore = ContentStore.get(getProject());
+		final int corrupt = contentStore.verify();
+		getProject().getLogger().lifecycle("Removed {} corrupt files from the content store at {}", corrupt, contentStore.getRoot());
+	}
+}
@@ -29,14 +29,18 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
 
+import org.cadixdev.lorenz.MappingSet;
 import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
 
 import net.flintloader.steel.SteelGradleExtension;
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
 import net.flintloader.steel.configuration.providers.mappings.MappingsProviderImpl;
 import net.flintloader.steel.util.TinyRemapperHelper;
 import net.flintloader.steel.util.service.SharedService;
 import net.flintloader.steel.util.service.SharedServiceManager;
 
+import net.fabricmc.lorenztiny.TinyMappingsReader;
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.tinyremapper.IMappingProvider;
@@ -58,13 +62,22 @@ public final class MappingsService implements SharedService {
 		final MappingsProviderImpl mappingsProvider = SteelGradleExtension.get(project).getMappingsProvider();
 
 		final String name = mappingsProvider.getBuildServiceName("mappingsProvider", from, to);
-		return MappingsService.create(project, name, mappingsProvider.tinyMappings, from, to, false);
+		final Options options = new Options(mappingsProvider.tinyMappings, from, to, false);
+		return SharedServiceManager.get(project).getOrCreateService(name + options.hashCode(), () -> new MappingsService(options, mappingsProvider));
 	}
 
 	private final Options options;
+	// Reads the project's mappings from the provider, which already holds them, rather than reading another copy.
+	@Nullable
+	private final MappingsProviderImpl mappingsProvider;
 
 	public MappingsService(Options options) {
+		this(options, null);
+	}
+
+	private MappingsService(Options options, @Nullable MappingsProviderImpl mappingsProvider) {
 		this.options = options;
+		this.mappingsProvider = mappingsProvider;
 	}
 
 	private IMappingProvider mappingProvider = null;
@@ -73,12 +86,16 @@ public final class MappingsService implements SharedService {
 	public synchronized IMappingProvider getMappingsProvider() {
 		if (mappingProvider == null) {
 			try {
-				mappingProvider = TinyRemapperHelper.create(
-						options.mappingsFile(),
-						options.from(),
-						options.to(),
-						options.remapLocals()
-				);
+				if (mappingsProvider != null) {
+					mappingProvider = mappingsProvider.createMappingProvider(options.from(), options.to(), options.remapLocals());
+				} else {
+					mappingProvider = TinyRemapperHelper.create(
+							options.mappingsFile(),
+							options.from(),
+							options.to(),
+							options.remapLocals()
+					);
+				}
 			} catch (IOException e) {
 				throw new UncheckedIOException("Failed to read mappings from: " + options.mappingsFile(), e);
 			}
@@ -88,11 +105,25 @@ public final class MappingsService implements SharedService {
 	}
 
 	public synchronized MemoryMappingTree getMemoryMappingTree() {
+		if (mappingsProvider != null) {
+			try {
+				return mappingsProvider.getMappings();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read mappings from: " + options.mappingsFile(), e);
+			}
+		}
+
 		if (memoryMappingTree == null) {
 			memoryMappingTree = new MemoryMappingTree();
 
 			try {
-				MappingReader.read(options.mappingsFile(), memoryMappingTree);
+				final MappingSnapshot snapshot = MappingSnapshot.openFor(options.mappingsFile());
+
+				if (snapshot != null) {
+					snapshot.accept(memoryMappingTree);
+				} else {
+					MappingReader.read(options.mappingsFile(), memoryMappingTree);
+				}
 			} catch (IOException e) {
 				throw new UncheckedIOException("Failed to read mappings from: " + options.mappingsFile(), e);
 			}
@@ -101,6 +132,17 @@ public final class MappingsService implements SharedService {
 		return memoryMappingTree;
 	}
 
+	/**
+	 * @return the lorenz mappings from the source namespace to the destination namespace
+	 */
+	public MappingSet getMappingSet() throws IOException {
+		if (mappingsProvider != null) {
+			return mappingsProvider.getMappingSet(options.from(), options.to());
+		}
+
+		return new TinyMappingsReader(getMemoryMappingTree(), options.from(), options.to()).read();
+	}
+
 	public String getFromNamespace() {
 		return options.from();
 	}
@@ -28,7 +28,6 @@ package net.flintloader.steel.task.service;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.function.Supplier;
 
@@ -44,14 +43,11 @@ import org.slf4j.LoggerFactory;
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.task.RemapSourcesJarTask;
 import net.flintloader.steel.util.Constants;
-import net.flintloader.steel.util.DeletingFileVisitor;
-import net.flintloader.steel.util.FileSystemUtil;
 import net.flintloader.steel.util.SourceRemapper;
-import net.flintloader.steel.util.ZipUtils;
 import net.flintloader.steel.util.service.SharedService;
 import net.flintloader.steel.util.service.SharedServiceManager;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
-import net.fabricmc.lorenztiny.TinyMappingsReader;
 
 public final class SourceRemapperService implements SharedService {
 	public static synchronized SourceRemapperService create(RemapSourcesJarTask task) {
@@ -79,35 +75,11 @@ public final class SourceRemapperService implements SharedService {
 		this.classpath = classpath;
 	}
 
-	public void remapSourcesJar(Path source, Path destination) throws IOException {
-		if (source.equals(destination)) {
-			throw new UnsupportedOperationException("Cannot remap in place");
-		}
-
-		Path srcPath = source;
-		boolean isSrcTmp = false;
-
-		// Create a temp directory with all of the sources
-		if (!Files.isDirectory(source)) {
-			isSrcTmp = true;
-			srcPath = Files.createTempDirectory("flint-steel-src");
-			ZipUtils.unpackAll(source, srcPath);
-		}
-
-		if (!Files.isDirectory(destination) && Files.exists(destination)) {
-			Files.delete(destination);
-		}
-
-		try (FileSystemUtil.Delegate dstFs = Files.isDirectory(destination) ? null : FileSystemUtil.getJarFileSystem(destination, true)) {
-			Path dstPath = dstFs != null ? dstFs.get().getPath("/") : destination;
-
-			doRemap(srcPath, dstPath, source);
-			SourceRemapper.copyNonJavaFiles(srcPath, dstPath, LOGGER, source);
-		} finally {
-			if (isSrcTmp) {
-				Files.walkFileTree(srcPath, new DeletingFileVisitor());
-			}
-		}
+	/**
+	 * Remaps the sources jar into a rewriter, see {@link SourceRemapper#remapSources}.
+	 */
+	public void remapSourcesJar(Path source, ZipRewriter output) throws IOException {
+		SourceRemapper.remapSources(source, output, (srcPath, dstPath) -> doRemap(srcPath, dstPath, source));
 	}
 
 	private synchronized void doRemap(Path srcPath, Path dstPath, Path source) {
@@ -119,7 +91,7 @@ public final class SourceRemapperService implements SharedService {
 	}
 
 	private MappingSet getMappings() throws IOException {
-		return new TinyMappingsReader(mappingsService.getMemoryMappingTree(), mappingsService.getFromNamespace(), mappingsService.getToNamespace()).read();
+		return mappingsService.getMappingSet();
 	}
 
 	private Mercury createMercury() {
@@ -83,6 +83,24 @@ public final class AttributeHelper {
 		}
 	}
 
+	public static void deleteAttribute(Path path, String key) throws IOException {
+		Files.deleteIfExists(getFallbackPath(path, key));
+
+		if (!exists(path)) {
+			return;
+		}
+
+		try {
+			final UserDefinedFileAttributeView attributeView = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+
+			if (attributeView.list().contains(key)) {
+				attributeView.delete(key);
+			}
+		} catch (FileSystemException ignored) {
+			// File system does not support attributes, only the fallback file needs removing.
+		}
+	}
+
 	private static Path getFallbackPath(Path path, String key) {
 		return path.resolveSibling(path.getFileName() + "." + key + ".att");
 	}
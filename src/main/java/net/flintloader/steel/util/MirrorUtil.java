@@ -25,9 +25,15 @@
 
 package net.flintloader.steel.util;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
 import org.gradle.api.plugins.ExtensionAware;
 
 public class MirrorUtil {
+	private static final Duration DEFAULT_HEDGE_DELAY = Duration.ofMillis(500);
+
 	public static String getLibrariesBase(ExtensionAware aware) {
 		if (aware.getExtensions().getExtraProperties().has("steel_libraries_base")) {
 			return String.valueOf(aware.getExtensions().getExtraProperties().get("steel_libraries_base"));
@@ -44,6 +50,31 @@ public class MirrorUtil {
 		return Constants.RESOURCES_BASE;
 	}
 
+	/**
+	 * Additional resource bases, separated by commas, that are raced against the resources base when it is slow to respond.
+	 */
+	public static List<String> getResourcesMirrors(ExtensionAware aware) {
+		if (aware.getExtensions().getExtraProperties().has("steel_resources_mirrors")) {
+			return Arrays.stream(String.valueOf(aware.getExtensions().getExtraProperties().get("steel_resources_mirrors")).split(","))
+					.map(String::trim)
+					.filter(s -> !s.isEmpty())
+					.toList();
+		}
+
+		return List.of();
+	}
+
+	/**
+	 * How long to wait for a response before also sending the request to a mirror, in milliseconds.
+	 */
+	public static Duration getHedgeDelay(ExtensionAware aware) {
+		if (aware.getExtensions().getExtraProperties().has("steel_hedge_delay")) {
+			return Duration.ofMillis(Long.parseLong(String.valueOf(aware.getExtensions().getExtraProperties().get("steel_hedge_delay"))));
+		}
+
+		return DEFAULT_HEDGE_DELAY;
+	}
+
 	public static String getVersionManifests(ExtensionAware aware) {
 		if (aware.getExtensions().getExtraProperties().has("steel_version_manifests")) {
 			return String.valueOf(aware.getExtensions().getExtraProperties().get("steel_version_manifests"));
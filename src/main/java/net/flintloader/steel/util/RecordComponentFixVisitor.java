@@ -31,16 +31,16 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.RecordComponentVisitor;
 
-import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.mappingio.tree.MappingTreeView;
 
 public class RecordComponentFixVisitor extends ClassVisitor {
-	private final MemoryMappingTree mappings;
+	private final MappingTreeView mappings;
 	private final int intermediaryNsId;
 
 	private String owner;
 	private boolean hasExistingComponents = false;
 
-	public RecordComponentFixVisitor(ClassVisitor classVisitor, MemoryMappingTree mappings, int intermediaryNsId) {
+	public RecordComponentFixVisitor(ClassVisitor classVisitor, MappingTreeView mappings, int intermediaryNsId) {
 		super(Constants.ASM_VERSION, classVisitor);
 		this.mappings = mappings;
 		this.intermediaryNsId = intermediaryNsId;
@@ -30,9 +30,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.cadixdev.lorenz.MappingSet;
 import org.cadixdev.mercury.Mercury;
@@ -41,15 +44,14 @@ import org.gradle.api.Project;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
-import org.slf4j.Logger;
 
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.api.RemapConfigurationSettings;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
 import net.flintloader.steel.configuration.providers.mappings.MappingsProviderImpl;
-
-import net.fabricmc.lorenztiny.TinyMappingsReader;
-import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.flintloader.steel.util.zip.RawZipEntry;
+import net.flintloader.steel.util.zip.RawZipFile;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public class SourceRemapper {
 	private final Project project;
@@ -67,8 +69,7 @@ public class SourceRemapper {
 		remapTasks.add((logger) -> {
 			try {
 				logger.progress("remapping sources - " + source.getName());
-				remapSourcesInner(source, destination);
-				ZipReprocessorUtil.reprocessZip(destination, reproducibleFileOrder, preserveFileTimestamps);
+				remapSourcesInner(source, destination, reproducibleFileOrder, preserveFileTimestamps);
 
 				// Set the remapped sources creation date to match the sources if we're likely succeeded in making it
 				destination.setLastModified(source.lastModified());
@@ -100,57 +101,23 @@ public class SourceRemapper {
 		System.gc();
 	}
 
-	private void remapSourcesInner(File source, File destination) throws Exception {
+	private void remapSourcesInner(File source, File destination, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
 		project.getLogger().info(":remapping source jar");
 		Mercury mercury = getMercuryInstance();
 
-		if (source.equals(destination)) {
-			if (source.isDirectory()) {
-				throw new RuntimeException("Directories must differ!");
-			}
-
-			source = new File(destination.getAbsolutePath().substring(0, destination.getAbsolutePath().lastIndexOf('.')) + "-dev.jar");
-
-			try {
-				com.google.common.io.Files.move(destination, source);
-			} catch (IOException e) {
-				throw new RuntimeException("Could not rename " + destination.getName() + "!", e);
-			}
-		}
-
-		Path srcPath = source.toPath();
-		boolean isSrcTmp = false;
-
-		if (!source.isDirectory()) {
-			// create tmp directory
-			isSrcTmp = true;
-			srcPath = Files.createTempDirectory("flint-steel-src");
-			ZipUtils.unpackAll(source.toPath(), srcPath);
-		}
-
-		if (!destination.isDirectory() && destination.exists()) {
-			if (!destination.delete()) {
-				throw new RuntimeException("Could not delete " + destination.getName() + "!");
-			}
-		}
-
-		FileSystemUtil.Delegate dstFs = destination.isDirectory() ? null : FileSystemUtil.getJarFileSystem(destination, true);
-		Path dstPath = dstFs != null ? dstFs.get().getPath("/") : destination.toPath();
-
-		try {
-			mercury.rewrite(srcPath, dstPath);
-		} catch (Exception e) {
-			project.getLogger().warn("Could not remap " + source.getName() + " fully!", e);
-		}
-
-		copyNonJavaFiles(srcPath, dstPath, project.getLogger(), source.toPath());
-
-		if (dstFs != null) {
-			dstFs.close();
-		}
+		// The jar can be remapped in place, as the rewriter only replaces it once it has been written.
+		try (ZipRewriter output = source.equals(destination) ? ZipRewriter.open(source.toPath()) : ZipRewriter.open(source.toPath(), destination.toPath())) {
+			remapSources(source.toPath(), output, (srcPath, dstPath) -> {
+				try {
+					mercury.rewrite(srcPath, dstPath);
+				} catch (Exception e) {
+					project.getLogger().warn("Could not remap " + source.getName() + " fully!", e);
+				}
+			});
 
-		if (isSrcTmp) {
-			Files.walkFileTree(srcPath, new DeletingFileVisitor());
+			output.setReproducibleFileOrder(reproducibleFileOrder);
+			output.setPreserveFileTimestamps(preserveFileTimestamps);
+			output.commit();
 		}
 	}
 
@@ -162,15 +129,7 @@ public class SourceRemapper {
 		SteelGradleExtension extension = SteelGradleExtension.get(project);
 		MappingsProviderImpl mappingsProvider = extension.getMappingsProvider();
 
-		MappingSet mappings = extension.getOrCreateSrcMappingCache(toNamed ? 1 : 0, () -> {
-			try {
-				MemoryMappingTree m = mappingsProvider.getMappings();
-				project.getLogger().info(":loading " + (toNamed ? "intermediary -> named" : "named -> intermediary") + " source mappings");
-				return new TinyMappingsReader(m, toNamed ? MappingsNamespace.INTERMEDIARY.toString() : MappingsNamespace.NAMED.toString(), toNamed ? MappingsNamespace.NAMED.toString() : MappingsNamespace.INTERMEDIARY.toString()).read();
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
-		});
+		MappingSet mappings = mappingsProvider.getMappingSet(toNamed ? MappingsNamespace.INTERMEDIARY.toString() : MappingsNamespace.NAMED.toString(), toNamed ? MappingsNamespace.NAMED.toString() : MappingsNamespace.INTERMEDIARY.toString());
 
 		Mercury mercury = extension.getOrCreateSrcMercuryCache(toNamed ? 1 : 0, () -> {
 			Mercury m = createMercuryWithClassPath(project, toNamed);
@@ -208,18 +167,65 @@ public class SourceRemapper {
 		return mercury;
 	}
 
-	public static void copyNonJavaFiles(Path from, Path to, Logger logger, Path source) throws IOException {
-		Files.walk(from).forEach(path -> {
-			Path targetPath = to.resolve(from.relativize(path).toString());
+	/**
+	 * Remaps the java files of a sources jar into a rewriter, the other entries are copied from the jar unchanged when it is committed.
+	 * Mercury can only read sources from the file system, so just the java files are extracted to a temporary directory to be remapped from.
+	 *
+	 * @param remap remaps the sources in the first directory into the second
+	 */
+	public static void remapSources(Path source, ZipRewriter output, BiConsumer<Path, Path> remap) throws IOException {
+		final Path srcPath = Files.createTempDirectory("flint-steel-src");
+		final Path dstPath = Files.createTempDirectory("flint-steel-remapped-src");
 
-			if (!isJavaFile(path) && !Files.exists(targetPath)) {
-				try {
-					Files.copy(path, targetPath);
-				} catch (IOException e) {
-					logger.warn("Could not copy non-java sources '" + source + "' fully!", e);
+		try {
+			final List<String> javaFiles = new ArrayList<>();
+
+			try (RawZipFile zip = RawZipFile.open(source)) {
+				for (RawZipEntry entry : zip.getEntries()) {
+					if (entry.isDirectory() || !isJavaFile(entry.name())) {
+						continue;
+					}
+
+					final Path path = resolveEntry(srcPath, entry.name());
+					Files.createDirectories(path.getParent());
+					Files.write(path, zip.read(entry));
+					javaFiles.add(entry.name());
 				}
 			}
-		});
+
+			remap.accept(srcPath, dstPath);
+
+			final Set<String> remappedFiles = new HashSet<>();
+
+			// Mercury may write a unit to a different path than it was read from, such as when its package has been renamed
+			try (Stream<Path> stream = Files.walk(dstPath)) {
+				for (Path remapped : stream.filter(Files::isRegularFile).toList()) {
+					final String name = dstPath.relativize(remapped).toString().replace(File.separatorChar, '/');
+					output.put(name, Files.readAllBytes(remapped));
+					remappedFiles.add(name);
+				}
+			}
+
+			for (String name : javaFiles) {
+				if (!remappedFiles.contains(name)) {
+					// Moved to another path, or not written when mercury failed part way through.
+					output.remove(name);
+				}
+			}
+		} finally {
+			Files.walkFileTree(srcPath, new DeletingFileVisitor());
+			Files.walkFileTree(dstPath, new DeletingFileVisitor());
+		}
+	}
+
+	private static Path resolveEntry(Path directory, String name) throws IOException {
+		final Path path = directory.resolve(name).normalize();
+
+		if (!path.startsWith(directory)) {
+			throw new IOException("Entry %s is outside of the zip".formatted(name));
+		}
+
+		return path;
 	}
 
 	public static Mercury createMercuryWithClassPath(Project project, boolean toNamed) {
@@ -256,9 +262,8 @@ public class SourceRemapper {
 		return m;
 	}
 
-	private static boolean isJavaFile(Path path) {
-		String name = path.getFileName().toString();
+	private static boolean isJavaFile(String name) {
 		// ".java" is not a valid java file
-		return name.endsWith(".java") && name.length() != 5;
+		return name.endsWith(".java") && !name.endsWith("/.java") && !name.equals(".java");
 	}
 }
@@ -37,9 +37,12 @@ import org.gradle.api.Project;
 
 import net.flintloader.steel.SteelGradleExtension;
 import net.flintloader.steel.api.mappings.layered.MappingsNamespace;
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot;
+import net.flintloader.steel.configuration.providers.mappings.MappingsProviderImpl;
 
 import net.fabricmc.mappingio.MappingReader;
 import net.fabricmc.mappingio.tree.MappingTree;
+import net.fabricmc.mappingio.tree.MappingTreeView;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import net.fabricmc.tinyremapper.IMappingProvider;
 import net.fabricmc.tinyremapper.TinyRemapper;
@@ -68,16 +71,18 @@ public final class TinyRemapperHelper {
 
 	public static TinyRemapper getTinyRemapper(Project project, String fromM, String toM, boolean fixRecords, Consumer<TinyRemapper.Builder> builderConsumer) throws IOException {
 		SteelGradleExtension extension = SteelGradleExtension.get(project);
-		MemoryMappingTree mappingTree = extension.getMappingsProvider().getMappings();
+		MappingsProviderImpl mappingsProvider = extension.getMappingsProvider();
+		// The mappings are only looked up to fix records, the view and the remapper's mappings both read the shared snapshot.
+		MappingTreeView mappingTree = fixRecords ? mappingsProvider.getMappingView() : null;
 
 		if (fixRecords && !mappingTree.getSrcNamespace().equals(fromM)) {
 			throw new IllegalStateException("Mappings src namespace must match remap src namespace");
 		}
 
-		int intermediaryNsId = mappingTree.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString());
+		int intermediaryNsId = fixRecords ? mappingTree.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString()) : -1;
 
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper()
-				.withMappings(create(mappingTree, fromM, toM, true))
+				.withMappings(mappingsProvider.createMappingProvider(fromM, toM, true))
 				.withMappings(out -> JSR_TO_JETBRAINS.forEach(out::acceptClass))
 				.renameInvalidLocals(true)
 				.rebuildSourceFilenames(true)
@@ -104,7 +109,16 @@ public final class TinyRemapperHelper {
 		return new IMappingProvider.Member(className, memberName, descriptor);
 	}
 
+	/**
+	 * Creates a mapping provider from a mappings file, read from its snapshot without building a mapping tree when it has an up to date one.
+	 */
 	public static IMappingProvider create(Path mappings, String from, String to, boolean remapLocalVariables) throws IOException {
+		final MappingSnapshot snapshot = MappingSnapshot.openFor(mappings);
+
+		if (snapshot != null) {
+			return create(snapshot, from, to, remapLocalVariables);
+		}
+
 		MemoryMappingTree mappingTree = new MemoryMappingTree();
 		MappingReader.read(mappings, mappingTree);
 		return create(mappingTree, from, to, remapLocalVariables);
@@ -155,4 +169,69 @@ public final class TinyRemapperHelper {
 			}
 		};
 	}
+
+	/**
+	 * Creates a mapping provider that reads the mappings straight from a snapshot.
+	 * Descriptors are only stored in the source namespace, they are mapped to the from namespace when it is not the source.
+	 */
+	public static IMappingProvider create(MappingSnapshot mappings, String from, String to, boolean remapLocalVariables) {
+		final int fromId = mappings.getNamespaceId(from);
+		final int toId = mappings.getNamespaceId(to);
+
+		if (fromId < 0 || toId < 0) {
+			throw new IllegalArgumentException("Mappings do not have the namespace %s, they have %s".formatted(fromId < 0 ? from : to, mappings.getNamespaces()));
+		}
+
+		return (acceptor) -> {
+			final Map<String, String> fromClassNames = fromId == 0 ? Map.of() : mappings.getClassNames(fromId);
+
+			for (int cls = 0; cls < mappings.getClassCount(); cls++) {
+				String className = mappings.getClassName(cls, fromId);
+				String dstName = mappings.getClassName(cls, toId);
+
+				if (dstName == null) {
+					// Unsure if this is correct, should be better than crashing tho.
+					dstName = className;
+				}
+
+				acceptor.acceptClass(className, dstName);
+
+				final int[] fields = mappings.getFields(cls);
+
+				for (int field = fields[0]; field < fields[0] + fields[1]; field++) {
+					final String desc = MappingSnapshot.mapDesc(mappings.getFieldSrcDesc(field), fromClassNames);
+					acceptor.acceptField(memberOf(className, mappings.getFieldName(field, fromId), desc), mappings.getFieldName(field, toId));
+				}
+
+				final int[] methods = mappings.getMethods(cls);
+
+				for (int method = methods[0]; method < methods[0] + methods[1]; method++) {
+					final String desc = MappingSnapshot.mapDesc(mappings.getMethodSrcDesc(method), fromClassNames);
+					IMappingProvider.Member methodIdentifier = memberOf(className, mappings.getMethodName(method, fromId), desc);
+					acceptor.acceptMethod(methodIdentifier, mappings.getMethodName(method, toId));
+
+					if (remapLocalVariables) {
+						final int[] args = mappings.getArgs(method);
+
+						for (int arg = args[0]; arg < args[0] + args[1]; arg++) {
+							String name = mappings.getArgName(arg, toId);
+
+							if (name == null) {
+								continue;
+							}
+
+							acceptor.acceptMethodArg(methodIdentifier, mappings.getArgLvIndex(arg), name);
+						}
+
+						final int[] vars = mappings.getVars(method);
+
+						for (int var = vars[0]; var < vars[0] + vars[1]; var++) {
+							final int[] indices = mappings.getVarIndices(var);
+							acceptor.acceptMethodVar(methodIdentifier, indices[1], indices[2], indices[0], mappings.getVarName(var, toId));
+						}
+					}
+				}
+			}
+		};
+	}
 }
@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.attribute.FileTime;
 import java.util.Calendar;
 import java.util.Comparator;
@@ -38,6 +39,9 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+import net.flintloader.steel.util.zip.ZipRewriter;
+
 public class ZipReprocessorUtil {
 	/**
 	 * See {@link org.gradle.api.internal.file.archive.ZipCopyAction} about this.
@@ -46,11 +50,28 @@ public class ZipReprocessorUtil {
 
 	private ZipReprocessorUtil() { }
 
+	/**
+	 * Sorts the entries and replaces their timestamps as configured. Entries are copied without being inflated, and written to a temporary file which then replaces the original.
+	 */
 	public static void reprocessZip(File file, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
 		if (!reproducibleFileOrder && preserveFileTimestamps) {
 			return;
 		}
 
+		if (!file.isFile()) {
+			throw new NoSuchFileException(file.toString());
+		}
+
+		try (ZipRewriter rewriter = ZipRewriter.open(file.toPath())) {
+			rewriter.setReproducibleFileOrder(reproducibleFileOrder);
+			rewriter.setPreserveFileTimestamps(preserveFileTimestamps);
+			rewriter.commit();
+		} catch (UnsupportedZipException e) {
+			reprocessZipWithStreams(file, reproducibleFileOrder, preserveFileTimestamps);
+		}
+	}
+
+	private static void reprocessZipWithStreams(File file, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
 		try (ZipFile zipFile = new ZipFile(file)) {
 			ZipEntry[] entries;
 
@@ -36,11 +36,17 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -50,6 +56,11 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import net.flintloader.steel.SteelGradlePlugin;
+import net.flintloader.steel.util.zip.ParallelZipWriter;
+import net.flintloader.steel.util.zip.RawZipEntry;
+import net.flintloader.steel.util.zip.RawZipWriter;
+import net.flintloader.steel.util.zip.UnsupportedZipException;
+import net.flintloader.steel.util.zip.ZipRewriter;
 
 public class ZipUtils {
 	public static boolean isZip(Path zip) throws IOException {
@@ -122,36 +133,72 @@ public class ZipUtils {
 		}
 	}
 
+	/**
+	 * Parses the entry as it is read from the zip, without first reading the whole of it into memory.
+	 */
 	public static <T> T unpackJackson(Path zip, String path, Class<T> clazz) throws IOException {
-		final byte[] bytes = unpack(zip, path);
-		return SteelGradlePlugin.OBJECT_MAPPER.readValue(new String(bytes, StandardCharsets.UTF_8), clazz);
+		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
+			return fs.fromInputStream(inputStream -> SteelGradlePlugin.OBJECT_MAPPER.readValue(inputStream, clazz), path);
+		}
 	}
 
+	/**
+	 * Packs the files in a directory into a new zip, sorted by name and compressed in parallel.
+	 */
 	public static void pack(Path from, Path zip) throws IOException {
 		Files.deleteIfExists(zip);
 
 		if (!Files.isDirectory(from)) throw new IllegalArgumentException(from + " is not a directory!");
 
-		int count = 0;
+		final List<Path> files;
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true);
-				Stream<Path> walk = Files.walk(from)) {
-			Iterator<Path> iterator = walk.iterator();
+		try (Stream<Path> walk = Files.walk(from)) {
+			files = walk.filter(Files::isRegularFile).sorted().toList();
+		}
 
-			while (iterator.hasNext()) {
-				Path fromPath = iterator.next();
-				if (!Files.isRegularFile(fromPath)) continue;
+		if (files.isEmpty()) {
+			throw new IOException("Noting packed into %s from %s".formatted(zip, from));
+		}
+
+		try {
+			packWithWriter(from, zip, files);
+		} catch (UnsupportedZipException e) {
+			Files.deleteIfExists(zip);
+			packWithFileSystem(from, zip, files);
+		}
+	}
+
+	private static void packWithWriter(Path from, Path zip, List<Path> files) throws IOException {
+		final Set<String> directories = new HashSet<>();
+
+		try (ParallelZipWriter writer = new ParallelZipWriter(zip)) {
+			for (Path file : files) {
+				final String name = from.relativize(file).toString().replace('\\', '/');
+
+				for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+					final String directory = name.substring(0, i + 1);
+
+					if (directories.add(directory)) {
+						writer.writeDirectory(directory);
+					}
+				}
+
+				final LocalDateTime lastModified = LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+				final int[] dosDateTime = RawZipWriter.toDosDateTime(lastModified);
+				writer.write(RawZipEntry.create(name, RawZipEntry.DEFLATED, dosDateTime[0], dosDateTime[1]), Files.readAllBytes(file));
+			}
+		}
+	}
+
+	private static void packWithFileSystem(Path from, Path zip, List<Path> files) throws IOException {
+		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
+			for (Path fromPath : files) {
 				Path fsPath = fs.get().getPath(from.relativize(fromPath).toString());
 				Path fsPathParent = fsPath.getParent();
 				if (fsPathParent != null) Files.createDirectories(fsPathParent);
 				Files.copy(fromPath, fsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
-				count++;
 			}
 		}
-
-		if (count == 0) {
-			throw new IOException("Noting packed into %s from %s".formatted(zip, from));
-		}
 	}
 
 	public static void add(Path zip, String path, String str) throws IOException {
@@ -163,6 +210,18 @@ public class ZipUtils {
 	}
 
 	public static void add(Path zip, Iterable<Pair<String, byte[]>> files) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
+			for (Pair<String, byte[]> pair : files) {
+				rewriter.put(pair.left(), pair.right());
+			}
+
+			rewriter.commit();
+		} catch (UnsupportedZipException e) {
+			addWithFileSystem(zip, files);
+		}
+	}
+
+	private static void addWithFileSystem(Path zip, Iterable<Pair<String, byte[]>> files) throws IOException {
 		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
 			for (Pair<String, byte[]> pair : files) {
 				Path fsPath = fs.get().getPath(pair.left());
@@ -174,6 +233,19 @@ public class ZipUtils {
 	}
 
 	public static void replace(Path zip, String path, byte[] bytes) throws IOException {
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
+			if (!rewriter.contains(path)) {
+				throw new NoSuchFileException(path);
+			}
+
+			rewriter.put(path, bytes);
+			rewriter.commit();
+		} catch (UnsupportedZipException e) {
+			replaceWithFileSystem(zip, path, bytes);
+		}
+	}
+
+	private static void replaceWithFileSystem(Path zip, String path, byte[] bytes) throws IOException {
 		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
 			Path fsPath = fs.get().getPath(path);
 
@@ -219,6 +291,18 @@ public class ZipUtils {
 	}
 
 	public static <T> int transformMapped(Path zip, Map<String, UnsafeUnaryOperator<T>> transforms, Function<byte[], T> deserializer, Function<T, byte[]> serializer) throws IOException {
+		return transform(zip, mapTransforms(transforms, deserializer, serializer));
+	}
+
+	/**
+	 * Applies the transforms to the entries of a zip that is being rewritten, the changes are written when it is committed.
+	 */
+	public static <T> int transformJson(Class<T> typeOfT, ZipRewriter rewriter, Map<String, UnsafeUnaryOperator<T>> transforms) throws IOException {
+		return transform(rewriter, mapTransforms(transforms, bytes -> SteelGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes)), typeOfT),
+				s -> SteelGradlePlugin.GSON.toJson(s, typeOfT).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static <T> Map<String, UnsafeUnaryOperator<byte[]>> mapTransforms(Map<String, UnsafeUnaryOperator<T>> transforms, Function<byte[], T> deserializer, Function<T, byte[]> serializer) {
 		Map<String, UnsafeUnaryOperator<byte[]>> newTransforms = new HashMap<>();
 
 		for (Map.Entry<String, UnsafeUnaryOperator<T>> entry : transforms.entrySet()) {
@@ -229,10 +313,92 @@ public class ZipUtils {
 			}
 		}
 
-		return transform(zip, newTransforms);
+		return newTransforms;
 	}
 
 	public static int transform(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms) throws IOException {
+		if (Files.notExists(zip)) {
+			throw new NoSuchFileException(zip.toString());
+		}
+
+		// The results are kept, so that the transforms that have already run are not run again when falling back to the zip file system.
+		final Map<String, byte[]> transformed = new HashMap<>();
+
+		// All the transforms are applied in memory, and then written in a single pass that copies the untouched entries as they are.
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
+			transform(rewriter, transforms, transformed);
+			rewriter.commit();
+			return transformed.size();
+		} catch (UnsupportedZipException e) {
+			return transformWithFileSystem(zip, transforms, transformed);
+		}
+	}
+
+	/**
+	 * Applies the transforms to the entries of a zip that is being rewritten, the changes are written when it is committed.
+	 */
+	public static int transform(ZipRewriter rewriter, Map<String, UnsafeUnaryOperator<byte[]>> transforms) throws IOException {
+		final Map<String, byte[]> transformed = new HashMap<>();
+		transform(rewriter, transforms, transformed);
+		return transformed.size();
+	}
+
+	private static void transform(ZipRewriter rewriter, Map<String, UnsafeUnaryOperator<byte[]>> transforms, Map<String, byte[]> transformed) throws IOException {
+		for (Map.Entry<String, UnsafeUnaryOperator<byte[]>> entry : transforms.entrySet()) {
+			if (rewriter.contains(entry.getKey()) && entry.getValue() != null) {
+				final byte[] bytes = entry.getValue().apply(rewriter.read(entry.getKey()));
+				transformed.put(entry.getKey(), bytes);
+				rewriter.put(entry.getKey(), bytes);
+			}
+		}
+	}
+
+	/**
+	 * Applies the transforms in parallel and adds the given entries, writing the zip in a single pass.
+	 *
+	 * @return the number of entries that were transformed
+	 */
+	public static int transformParallel(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms, Map<String, byte[]> additions) throws IOException {
+		if (Files.notExists(zip)) {
+			throw new NoSuchFileException(zip.toString());
+		}
+
+		final Map<String, byte[]> transformed = new ConcurrentHashMap<>();
+
+		try (ZipRewriter rewriter = ZipRewriter.open(zip)) {
+			try {
+				transforms.entrySet().parallelStream()
+						.filter(entry -> entry.getValue() != null && rewriter.contains(entry.getKey()))
+						.forEach(entry -> {
+							try {
+								transformed.put(entry.getKey(), entry.getValue().apply(rewriter.read(entry.getKey())));
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			transformed.forEach(rewriter::put);
+
+			for (Map.Entry<String, byte[]> entry : additions.entrySet()) {
+				rewriter.put(entry.getKey(), entry.getValue());
+			}
+
+			rewriter.commit();
+			return transformed.size();
+		} catch (UnsupportedZipException e) {
+			final int count = transformWithFileSystem(zip, transforms, transformed);
+			addWithFileSystem(zip, additions.entrySet().stream().map(entry -> new Pair<>(entry.getKey(), entry.getValue())).toList());
+			return count;
+		}
+	}
+
+	/**
+	 * Writes the already transformed entries as they are, only running the transforms of the entries that were not transformed before the zip was found to be unsupported.
+	 */
+	private static int transformWithFileSystem(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms, Map<String, byte[]> transformed) throws IOException {
 		int replacedCount = 0;
 
 		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
@@ -240,7 +406,8 @@ public class ZipUtils {
 				Path fsPath = fs.get().getPath(entry.getKey());
 
 				if (Files.exists(fsPath) && entry.getValue() != null) {
-					Files.write(fsPath, entry.getValue().apply(Files.readAllBytes(fsPath)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+					final byte[] bytes = transformed.containsKey(entry.getKey()) ? transformed.get(entry.getKey()) : entry.getValue().apply(Files.readAllBytes(fsPath));
+					Files.write(fsPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
 					replacedCount++;
 				}
 			}
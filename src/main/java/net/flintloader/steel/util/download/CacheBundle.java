@@ -0,0 +1,247 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.download;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.flintloader.steel.util.AttributeHelper;
+import net.flintloader.steel.util.Checksum;
+
+/**
+ * A zip of previously downloaded files along with their hashes, used to warm up the caches of machines without network access.
+ *
+ * <p>Entries under {@code cache/} are extracted to the user cache, entries under {@code libraries/} are extracted to a local maven repository.
+ * The hash of every file is verified as it is extracted, and stored in the same file attribute as {@link Download} uses,
+ * so that the files are considered up-to-date when building offline.
+ */
+public final class CacheBundle {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CacheBundle.class);
+	private static final String HASHES = "steel-bundle.sha1";
+	private static final String IMPORTED_BUNDLES = "imported_bundles.txt";
+	public static final String CACHE_PREFIX = "cache/";
+	public static final String LIBRARIES_PREFIX = "libraries/";
+
+	private CacheBundle() {
+	}
+
+	/**
+	 * Writes the given files to the bundle, keyed by their entry name. Hashes are computed in parallel.
+	 */
+	public static void write(Path bundle, Map<String, Path> files) throws IOException {
+		final Map<String, String> hashes = new LinkedHashMap<>();
+
+		try {
+			files.entrySet().parallelStream()
+					.map(entry -> Map.entry(entry.getKey(), hash(entry.getValue())))
+					.toList()
+					.forEach(entry -> hashes.put(entry.getKey(), entry.getValue()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		Files.createDirectories(bundle.getParent());
+
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(bundle))) {
+			zip.putNextEntry(new ZipEntry(HASHES));
+
+			for (Map.Entry<String, String> entry : hashes.entrySet()) {
+				zip.write("%s %s\n".formatted(entry.getValue(), entry.getKey()).getBytes(StandardCharsets.UTF_8));
+			}
+
+			zip.closeEntry();
+
+			for (Map.Entry<String, Path> entry : files.entrySet()) {
+				zip.putNextEntry(new ZipEntry(entry.getKey()));
+				Files.copy(entry.getValue(), zip);
+				zip.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * Extracts the bundle, unless it has already been imported.
+	 *
+	 * @return the number of files that were extracted
+	 */
+	public static int importBundle(Path bundle, Path userCache, Path librariesDir) throws IOException {
+		final Path importedBundles = userCache.resolve(IMPORTED_BUNDLES);
+		final String key = "%s %d %d".formatted(bundle.toAbsolutePath(), Files.size(bundle), Files.getLastModifiedTime(bundle).toMillis());
+
+		if (Files.exists(importedBundles) && Files.readAllLines(importedBundles, StandardCharsets.UTF_8).contains(key)) {
+			return 0;
+		}
+
+		final int extracted;
+
+		try (ZipFile zipFile = new ZipFile(bundle.toFile())) {
+			final Map<String, String> hashes = readHashes(zipFile);
+
+			extracted = (int) hashes.entrySet().parallelStream()
+					.filter(entry -> extract(zipFile, entry.getKey(), entry.getValue(), userCache, librariesDir))
+					.count();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		LOGGER.info("Imported {} files from cache bundle {}", extracted, bundle);
+		Files.writeString(importedBundles, key + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		return extracted;
+	}
+
+	private static Map<String, String> readHashes(ZipFile zipFile) throws IOException {
+		final ZipEntry entry = zipFile.getEntry(HASHES);
+
+		if (entry == null) {
+			throw new IOException("%s is not a cache bundle".formatted(zipFile.getName()));
+		}
+
+		final Map<String, String> hashes = new LinkedHashMap<>();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				final int split = line.indexOf(' ');
+
+				if (split > 0) {
+					hashes.put(line.substring(split + 1), line.substring(0, split));
+				}
+			}
+		}
+
+		return hashes;
+	}
+
+	/**
+	 * @return true if the file was extracted, false if it was already present with the same hash
+	 */
+	private static boolean extract(ZipFile zipFile, String name, String expectedHash, Path userCache, Path librariesDir) {
+		final Path output = resolve(name, userCache, librariesDir);
+
+		try {
+			if (Files.exists(output) && expectedHash.equalsIgnoreCase(AttributeHelper.readAttribute(output, ContentStore.HASH_ATTRIBUTE).orElse(""))) {
+				return false;
+			}
+
+			final ZipEntry entry = zipFile.getEntry(name);
+
+			if (entry == null) {
+				throw new IOException("Cache bundle is missing %s".formatted(name));
+			}
+
+			final MessageDigest digest = createDigest(expectedHash);
+			Files.createDirectories(output.getParent());
+			// A unique name, as another build may be importing the same file at the same time
+			final Path temp = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".import");
+
+			try {
+				try (InputStream inputStream = new DigestInputStream(zipFile.getInputStream(entry), digest);
+						OutputStream outputStream = Files.newOutputStream(temp)) {
+					inputStream.transferTo(outputStream);
+				}
+
+				final String hash = "sha1:" + Checksum.toHex(digest.digest());
+
+				if (!hash.equalsIgnoreCase(expectedHash)) {
+					throw new IOException("Cache bundle entry %s has hash %s, expected %s".formatted(name, hash, expectedHash));
+				}
+
+				Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+
+			AttributeHelper.writeAttribute(output, ContentStore.HASH_ATTRIBUTE, expectedHash);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Path resolve(String name, Path userCache, Path librariesDir) {
+		final Path root;
+		final String path;
+
+		if (name.startsWith(CACHE_PREFIX)) {
+			root = userCache;
+			path = name.substring(CACHE_PREFIX.length());
+		} else if (name.startsWith(LIBRARIES_PREFIX)) {
+			root = librariesDir;
+			path = name.substring(LIBRARIES_PREFIX.length());
+		} else {
+			throw new UncheckedIOException(new IOException("Unexpected cache bundle entry %s".formatted(name)));
+		}
+
+		final Path output = root.resolve(path).normalize();
+
+		if (!output.startsWith(root.normalize())) {
+			throw new UncheckedIOException(new IOException("Cache bundle entry %s is outside of its directory".formatted(name)));
+		}
+
+		return output;
+	}
+
+	private static String hash(Path path) {
+		try {
+			return "sha1:" + ContentStore.computeHash(path, "sha1");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static MessageDigest createDigest(String hash) throws IOException {
+		if (!hash.startsWith("sha1:")) {
+			throw new IOException("Unsupported hash %s".formatted(hash));
+		}
+
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.gradle.api.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.flintloader.steel.SteelGradleExtension;
+import net.flintloader.steel.util.AttributeHelper;
+import net.flintloader.steel.util.Checksum;
+import net.flintloader.steel.util.service.SharedService;
+import net.flintloader.steel.util.service.SharedServiceManager;
+
+/**
+ * A content addressed store holding a single copy of every hash pinned download that is never written to in place, shared between all Minecraft versions.
+ *
+ * <p>Blobs are stored as {@code <algorithm>/<first 2 chars of hash>/<hash>} and hard linked to the path they were requested at,
+ * falling back to a copy when the file system does not support hard links between the two paths.
+ * The last time a blob was used is tracked in a {@code <hash>.used} file next to it, as touching the blob would also touch every linked file.
+ *
+ * <p>Unused blobs are removed when the build finishes at most once a week, the blobs are only re-hashed by the {@code verifyContentStore} task.
+ */
+public final class ContentStore implements SharedService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContentStore.class);
+	static final String HASH_ATTRIBUTE = "SteelHash";
+	private static final String LAST_GC_FILE = ".last-gc";
+	private static final Duration GC_INTERVAL = Duration.ofDays(7);
+	private static final Duration UNUSED_BLOB_MAX_AGE = Duration.ofDays(30);
+	private static final Duration USED_RESOLUTION = Duration.ofDays(1);
+
+	private final Path root;
+
+	public ContentStore(Path root) {
+		this.root = root;
+	}
+
+	public static synchronized ContentStore get(Project project) {
+		final Path root = SteelGradleExtension.get(project).getFiles().getUserCache().toPath().resolve("content-store");
+		return SharedServiceManager.get(project).getOrCreateService("ContentStore:" + root, () -> new ContentStore(root));
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * @param expectedHash the hash in the form {@code algorithm:hex}, as used by {@link DownloadBuilder}
+	 * @return the path that the blob with the given hash is stored at
+	 */
+	public Path getBlobPath(String expectedHash) {
+		final int i = expectedHash.indexOf(':');
+		final String algorithm = expectedHash.substring(0, i);
+		final String hash = expectedHash.substring(i + 1).toLowerCase(Locale.ROOT);
+		return root.resolve(algorithm).resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	/**
+	 * Ensures that the target contains the file with the given hash, downloading it into the store first if it is not already there.
+	 * The target must never be written to in place, as that would also change the blob.
+	 */
+	void materialize(String expectedHash, Path target, BlobDownloader downloader) throws DownloadException {
+		final Path blob = getBlobPath(expectedHash);
+
+		try {
+			if (!exists(blob) && exists(target) && hasHash(target, expectedHash)) {
+				// Adopt a file that was downloaded before it was stored, or after the blob was garbage collected.
+				linkOrCopy(target, blob, expectedHash);
+			}
+
+			DownloadCoalescer.run(blob, expectedHash, () -> downloader.download(blob));
+			markUsed(blob);
+
+			// A copied target is identified by its hash attribute, a linked one also by being the same file
+			if (exists(target) && (hasHash(target, expectedHash) || Files.isSameFile(target, blob))) {
+				return;
+			}
+
+			linkOrCopy(blob, target, expectedHash);
+		} catch (IOException e) {
+			throw new DownloadException("Failed to materialize (%s) from the content store".formatted(target), e);
+		}
+	}
+
+	private static void linkOrCopy(Path source, Path target, String expectedHash) throws IOException {
+		Files.createDirectories(target.getParent());
+		final Path temp = target.resolveSibling(target.getFileName() + ".link");
+		Files.deleteIfExists(temp);
+
+		try {
+			Files.createLink(temp, source);
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		if (!hasHash(target, expectedHash)) {
+			AttributeHelper.writeAttribute(target, HASH_ATTRIBUTE, expectedHash);
+		}
+	}
+
+	/**
+	 * Records that the blobs with the given hashes are still used, for files that were found to be up to date without being materialized.
+	 */
+	public void markUsed(Collection<String> expectedHashes) throws IOException {
+		for (String expectedHash : expectedHashes) {
+			final Path blob = getBlobPath(expectedHash);
+
+			if (exists(blob)) {
+				markUsed(blob);
+			}
+		}
+	}
+
+	/**
+	 * Records that the blob has been used, at most once a day so that warm builds do not write to the store.
+	 */
+	private static void markUsed(Path blob) throws IOException {
+		final Path used = getUsedPath(blob);
+		final FileTime now = FileTime.from(Instant.now());
+
+		if (!exists(used)) {
+			Files.createFile(used);
+		} else if (Files.getLastModifiedTime(used).toInstant().plus(USED_RESOLUTION).isAfter(now.toInstant())) {
+			return;
+		}
+
+		Files.setLastModifiedTime(used, now);
+	}
+
+	private static Instant getLastUsed(Path blob) throws IOException {
+		final Instant modified = Files.getLastModifiedTime(blob).toInstant();
+		final Path used = getUsedPath(blob);
+
+		if (!exists(used)) {
+			return modified;
+		}
+
+		final Instant lastUsed = Files.getLastModifiedTime(used).toInstant();
+		return lastUsed.isAfter(modified) ? lastUsed : modified;
+	}
+
+	private static Path getUsedPath(Path blob) {
+		return blob.resolveSibling(blob.getFileName() + ".used");
+	}
+
+	private static boolean hasHash(Path path, String expectedHash) throws IOException {
+		return expectedHash.equalsIgnoreCase(AttributeHelper.readAttribute(path, HASH_ATTRIBUTE).orElse(""));
+	}
+
+	/**
+	 * Re-computes the hash of every blob in the store, removing any that do not match their name.
+	 *
+	 * @return the number of corrupt blobs that were removed
+	 */
+	public int verify() throws IOException {
+		int corrupt = 0;
+
+		for (Path blob : listBlobs()) {
+			final String algorithm = root.relativize(blob).getName(0).toString();
+
+			if (!computeHash(blob, algorithm).equalsIgnoreCase(blob.getFileName().toString())) {
+				LOGGER.warn("Removing corrupt blob {} from the content store", blob);
+				Files.delete(blob);
+				Files.deleteIfExists(getUsedPath(blob));
+				corrupt++;
+			}
+		}
+
+		return corrupt;
+	}
+
+	/**
+	 * Removes blobs that have not been used within the max age.
+	 * A blob that is still linked to is restored from the materialized file when next required.
+	 *
+	 * @return the number of blobs that were removed
+	 */
+	public int gc(Duration maxAge) throws IOException {
+		final Instant cutoff = Instant.now().minus(maxAge);
+		int removed = 0;
+
+		for (Path blob : listBlobs()) {
+			if (getLastUsed(blob).isAfter(cutoff)) {
+				continue;
+			}
+
+			Files.delete(blob);
+			Files.deleteIfExists(getUsedPath(blob));
+			AttributeHelper.deleteAttribute(blob, HASH_ATTRIBUTE);
+			removed++;
+		}
+
+		return removed;
+	}
+
+	private List<Path> listBlobs() throws IOException {
+		if (!exists(root)) {
+			return List.of();
+		}
+
+		try (Stream<Path> stream = Files.walk(root)) {
+			return stream.filter(path -> root.relativize(path).getNameCount() == 3)
+					.filter(path -> !path.getFileName().toString().contains("."))
+					.filter(Files::isRegularFile)
+					.toList();
+		}
+	}
+
+	static String computeHash(Path path, String algorithm) throws IOException {
+		final MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(switch (algorithm) {
+			case "sha1" -> "SHA-1";
+			default -> throw new UnsupportedOperationException("Unsupported hash algorithm (%s)".formatted(algorithm));
+			});
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+			inputStream.transferTo(OutputStream.nullOutputStream());
+		}
+
+		return Checksum.toHex(digest.digest());
+	}
+
+	@Override
+	public void close() throws IOException {
+		final Path lastGc = root.resolve(LAST_GC_FILE);
+
+		if (!exists(root) || (exists(lastGc) && Files.getLastModifiedTime(lastGc).toInstant().plus(GC_INTERVAL).isAfter(Instant.now()))) {
+			return;
+		}
+
+		try {
+			final int removed = gc(UNUSED_BLOB_MAX_AGE);
+			LOGGER.info("Removed {} unused files from the content store", removed);
+			Files.writeString(lastGc, Instant.now().toString());
+			Files.setLastModifiedTime(lastGc, FileTime.from(Instant.now()));
+		} catch (IOException | UncheckedIOException e) {
+			LOGGER.warn("Failed to garbage collect the content store", e);
+		}
+	}
+
+	// A faster exists check
+	private static boolean exists(Path path) {
+		return path.getFileSystem() == FileSystems.getDefault() ? path.toFile().exists() : Files.exists(path);
+	}
+
+	@FunctionalInterface
+	interface BlobDownloader {
+		void download(Path blob) throws DownloadException;
+	}
+}
@@ -30,27 +30,48 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
-import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,7 +80,12 @@ import net.flintloader.steel.util.Checksum;
 
 public class Download {
 	private static final String E_TAG = "ETag";
+	private static final String SEGMENTS = "SteelSegments";
 	private static final Logger LOGGER = LoggerFactory.getLogger(Download.class);
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+	// Files smaller than this are not worth splitting into segments.
+	private static final long MIN_SEGMENTED_SIZE = 8 * 1024 * 1024;
 
 	public static DownloadBuilder create(String url) throws URISyntaxException {
 		return DownloadBuilder.create(url);
@@ -72,8 +98,14 @@ public class Download {
 	private final boolean offline;
 	private final Duration maxAge;
 	private final DownloadProgressListener progressListener;
-
-	Download(URI url, String expectedHash, boolean useEtag, boolean forceDownload, boolean offline, Duration maxAge, DownloadProgressListener progressListener) {
+	private final HttpClientService httpClientService;
+	private final int segments;
+	private final long expectedSize;
+	private final List<URI> mirrors;
+	@Nullable
+	private final Duration hedgeDelay;
+
+	Download(URI url, String expectedHash, boolean useEtag, boolean forceDownload, boolean offline, Duration maxAge, DownloadProgressListener progressListener, HttpClientService httpClientService, int segments, long expectedSize, List<URI> mirrors, @Nullable Duration hedgeDelay) {
 		this.url = url;
 		this.expectedHash = expectedHash;
 		this.useEtag = useEtag;
@@ -81,29 +113,32 @@ public class Download {
 		this.offline = offline;
 		this.maxAge = maxAge;
 		this.progressListener = progressListener;
+		this.httpClientService = httpClientService != null ? httpClientService : HttpClientService.getFallback();
+		this.segments = segments;
+		this.expectedSize = expectedSize;
+		this.mirrors = mirrors;
+		this.hedgeDelay = hedgeDelay;
 	}
 
-	private HttpClient getHttpClient() throws DownloadException {
+	private HttpClientService getHttpClient() throws DownloadException {
 		if (offline) {
 			throw error("Unable to download %s in offline mode", this.url);
 		}
 
-		return HttpClient.newBuilder()
-				.followRedirects(HttpClient.Redirect.ALWAYS)
-				.proxy(ProxySelector.getDefault())
-				.build();
+		return httpClientService;
 	}
 
-	private HttpRequest getRequest() {
-		return HttpRequest.newBuilder(url)
-				.GET()
-				.build();
+	private HttpClientService.HostPermit acquirePermit() throws DownloadException {
+		try {
+			return httpClientService.acquire(url);
+		} catch (InterruptedException e) {
+			throw error(e, "Interrupted while waiting to download (%s)", url);
+		}
 	}
 
-	private HttpRequest getETagRequest(String etag) {
+	private HttpRequest getRequest() {
 		return HttpRequest.newBuilder(url)
 				.GET()
-				.header("If-None-Match", etag)
 				.build();
 	}
 
@@ -117,19 +152,138 @@ public class Download {
 		}
 	}
 
-	String downloadString() throws DownloadException {
-		final HttpResponse<InputStream> response = send(getRequest(), HttpResponse.BodyHandlers.ofInputStream());
-		final int statusCode = response.statusCode();
-		final boolean successful = statusCode >= 200 && statusCode < 300;
+	/**
+	 * Sends the request to the url, and to the mirror that has been responding the fastest if the url has not started responding within the hedge delay.
+	 * Whichever successfully responds first is used, this is safe as the hash of the downloaded file is verified regardless of where it came from.
+	 *
+	 * @param heldPermits receives the mirror's permit when its response is used, to be closed once the body has been read
+	 */
+	private HttpResponse<InputStream> sendHedged(List<HttpClientService.HostPermit> heldPermits) throws DownloadException {
+		final HttpClientService client = getHttpClient();
+		// Mirrors that have not been used yet are assumed to respond within the delay.
+		final URI mirror = mirrors.stream()
+				.min(Comparator.comparing(uri -> Objects.requireNonNullElse(client.getLatency(uri), hedgeDelay)))
+				.orElseThrow();
+		final Duration urlLatency = client.getLatency(url);
+		// Don't wait on a host that is already known to be slower than the budget.
+		final Duration delay = urlLatency != null && urlLatency.compareTo(hedgeDelay) > 0 ? Duration.ZERO : hedgeDelay;
 
-		if (!successful) {
-			throw error("HTTP request to (%s) returned unsuccessful status (%d)", url, statusCode);
+		progressListener.onStart();
+
+		final CompletableFuture<HttpResponse<InputStream>> primary = client.sendAsync(HttpRequest.newBuilder(url).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+
+		try {
+			return primary.get(delay.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// Not responded yet, hedge.
+		} catch (ExecutionException e) {
+			throw error(e.getCause(), "Failed to download (%s)", url);
+		} catch (InterruptedException e) {
+			closeWhenComplete(primary, null);
+			throw error(e, "Interrupted while downloading (%s)", url);
 		}
 
-		try (InputStream inputStream = decodeOutput(response)) {
-			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-		} catch (IOException e) {
-			throw error(e, "Failed to decode download output");
+		final HttpClientService.HostPermit permit = client.tryAcquire(mirror);
+
+		if (permit == null) {
+			// The mirror is busy enough already.
+			return await(primary);
+		}
+
+		LOGGER.debug("Hedging download of {} with {}", url, mirror);
+
+		final CompletableFuture<HttpResponse<InputStream>> hedge = client.sendAsync(HttpRequest.newBuilder(mirror).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+		boolean mirrorWon = false;
+
+		try {
+			final CompletableFuture<HttpResponse<InputStream>> winner = new CompletableFuture<>();
+			final AtomicInteger remaining = new AtomicInteger(2);
+
+			for (CompletableFuture<HttpResponse<InputStream>> candidate : List.of(primary, hedge)) {
+				candidate.whenComplete((response, throwable) -> {
+					if (throwable == null && isSuccessful(response)) {
+						winner.complete(response);
+					}
+
+					if (remaining.decrementAndGet() == 0) {
+						// Neither was successful.
+						winner.complete(null);
+					}
+				});
+			}
+
+			HttpResponse<InputStream> response = null;
+
+			try {
+				response = await(winner);
+
+				if (response == null) {
+					// Report the outcome of the url rather than the mirror.
+					response = await(primary);
+				}
+
+				mirrorWon = hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response;
+				return response;
+			} finally {
+				closeWhenComplete(primary, response);
+				closeWhenComplete(hedge, response);
+			}
+		} finally {
+			if (mirrorWon) {
+				heldPermits.add(permit);
+			} else {
+				// The request to the mirror may still be in flight, its response is closed as soon as it arrives.
+				hedge.whenComplete((response, throwable) -> permit.close());
+			}
+		}
+	}
+
+	/**
+	 * Closes the body of a response once it arrives, unless it is the response being used.
+	 */
+	private static void closeWhenComplete(CompletableFuture<HttpResponse<InputStream>> future, @Nullable HttpResponse<InputStream> used) {
+		future.thenAccept(response -> {
+			if (response == used) {
+				return;
+			}
+
+			try {
+				response.body().close();
+			} catch (IOException e) {
+				// Ignored
+			}
+		});
+	}
+
+	private <T> T await(CompletableFuture<T> future) throws DownloadException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw error(e.getCause(), "Failed to download (%s)", url);
+		} catch (InterruptedException e) {
+			throw error(e, "Interrupted while downloading (%s)", url);
+		}
+	}
+
+	private static boolean isSuccessful(HttpResponse<?> response) {
+		return response.statusCode() >= 200 && response.statusCode() < 300;
+	}
+
+	String downloadString() throws DownloadException {
+		try (HttpClientService.HostPermit ignored = acquirePermit()) {
+			final HttpResponse<InputStream> response = send(getRequest(), HttpResponse.BodyHandlers.ofInputStream());
+			final int statusCode = response.statusCode();
+			final boolean successful = statusCode >= 200 && statusCode < 300;
+
+			if (!successful) {
+				throw error("HTTP request to (%s) returned unsuccessful status (%d)", url, statusCode);
+			}
+
+			try (InputStream inputStream = decodeOutput(response)) {
+				return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw error(e, "Failed to decode download output");
+			}
 		} finally {
 			progressListener.onEnd();
 		}
@@ -143,99 +297,495 @@ public class Download {
 			return;
 		}
 
-		try {
-			doDownload(output);
+		// Permits taken while downloading, such as for a mirror that a hedged request was answered by, held until the body has been read.
+		final List<HttpClientService.HostPermit> heldPermits = new ArrayList<>(1);
+
+		try (HttpClientService.HostPermit ignored = acquirePermit()) {
+			doDownload(output, heldPermits);
 		} catch (Throwable throwable) {
+			// The .part file is intentionally kept, allowing the next attempt to resume from where this one stopped.
 			tryCleanup(output);
 			throw error(throwable, "Failed to download (%s) to (%s)", url, output);
 		} finally {
+			heldPermits.forEach(HttpClientService.HostPermit::close);
 			progressListener.onEnd();
 		}
 	}
 
-	private void doDownload(Path output) throws DownloadException {
+	private void doDownload(Path output, List<HttpClientService.HostPermit> heldPermits) throws DownloadException {
 		Optional<String> eTag = Optional.empty();
 
 		if (!forceDownload && useEtag && exists(output)) {
 			eTag = readEtag(output);
 		}
 
+		final Path partFile = getPartFile(output);
+		// A partial file written in segments has gaps, so can only be resumed in segments.
+		final List<Segment> resumedSegments = readSegments(partFile);
+		final long resumeFrom = resumedSegments == null ? getResumePosition(partFile) : 0;
+
 		try {
 			Files.createDirectories(output.getParent());
-			Files.deleteIfExists(output);
 		} catch (IOException e) {
 			throw error(e, "Failed to prepare path for download");
 		}
 
-		final HttpRequest httpRequest = eTag
-				.map(this::getETagRequest)
-				.orElseGet(this::getRequest);
+		if (resumedSegments != null || (resumeFrom == 0 && segments > 1 && eTag.isEmpty())) {
+			final String segmentedETag = tryDownloadSegmented(partFile, resumedSegments);
+
+			if (segmentedETag != null) {
+				if (expectedHash != null && !isHashValid(partFile)) {
+					tryCleanup(partFile);
+					throw error("Failed to download (%s) with expected hash: %s", url, expectedHash);
+				}
+
+				complete(partFile, output, segmentedETag);
+				return;
+			}
+		}
+
+		final HttpResponse<InputStream> response;
+
+		// Conditional and range requests are not hedged, as the mirrors are unlikely to agree on etags.
+		if (hedgeDelay != null && !mirrors.isEmpty() && expectedHash != null && resumeFrom == 0 && eTag.isEmpty()) {
+			response = sendHedged(heldPermits);
+		} else {
+			HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(url).GET();
+			eTag.ifPresent(value -> requestBuilder.header("If-None-Match", value));
 
-		// Create a .lock file, this allows us to re-download if the download was forcefully aborted part way through.
-		createLock(output);
-		HttpResponse<InputStream> response = send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
-		getAndResetLock(output);
+			if (resumeFrom > 0) {
+				// If-Range ensures that the server sends the whole file again if it has changed since the partial download.
+				requestBuilder.header("Range", "bytes=%d-".formatted(resumeFrom));
+				requestBuilder.header("If-Range", readEtag(partFile).orElseThrow());
+			}
+
+			response = send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+		}
 
 		final int statusCode = response.statusCode();
-		boolean success = statusCode == HttpURLConnection.HTTP_NOT_MODIFIED || (statusCode >= 200 && statusCode < 300);
 
 		if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
 			// Success, etag matched.
+			tryCleanup(partFile);
 			return;
 		}
 
-		if (success) {
-			final long length = Long.parseLong(response.headers().firstValue("Content-Length").orElse("-1"));
-			AtomicLong totalBytes = new AtomicLong(0);
+		final boolean resumed = statusCode == HttpURLConnection.HTTP_PARTIAL && resumeFrom > 0 && isContentRangeFrom(response, resumeFrom);
 
-			try (OutputStream outputStream = Files.newOutputStream(output)) {
-				copyWithCallback(decodeOutput(response), outputStream, value -> {
-					if (length < 0) {
-						return;
-					}
+		if (statusCode == HTTP_RANGE_NOT_SATISFIABLE || (statusCode == HttpURLConnection.HTTP_PARTIAL && !resumed)) {
+			// The partial download does not line up with the file on the server, start again on the next attempt.
+			tryCleanup(partFile);
+			throw error("Unable to resume download of (%s) from byte %d, returned status (%d)", url, resumeFrom, statusCode);
+		}
 
-					progressListener.onProgress(totalBytes.addAndGet(value), length);
-				});
-			} catch (IOException e) {
-				tryCleanup(output);
-				throw error(e, "Failed to decode and write download output");
-			}
-		} else {
-			tryCleanup(output);
+		if (statusCode < 200 || statusCode >= 300) {
 			throw error("HTTP request to (%s) returned unsuccessful status (%d)", url, statusCode);
 		}
 
-		if (useEtag) {
-			final HttpHeaders headers = response.headers();
-			final String responseETag = headers.firstValue(E_TAG.toLowerCase(Locale.ROOT)).orElse(null);
+		if (resumed) {
+			LOGGER.info("Resuming download of {} from byte {}", url, resumeFrom);
+		}
+
+		final String responseETag = getStrongETag(response);
+		final long startPosition = resumed ? resumeFrom : 0;
+
+		// The hash is computed as the bytes are written, so the file never has to be read back.
+		// When resuming only the bytes already on disk have to be read to seed the digest.
+		final MessageDigest digest = expectedHash != null ? createDigest() : null;
+
+		if (digest != null && resumed) {
+			updateDigest(digest, partFile);
+		}
 
+		try {
 			if (responseETag != null) {
-				writeEtag(output, responseETag);
+				// Store the etag with the partial file, this is what allows the download to be resumed if it gets interrupted.
+				Files.write(partFile, new byte[0], resumed ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				writeEtag(partFile, responseETag);
+			} else {
+				AttributeHelper.deleteAttribute(partFile, E_TAG);
 			}
+		} catch (IOException e) {
+			throw error(e, "Failed to prepare (%s) for download", partFile);
 		}
 
-		if (expectedHash != null) {
-			// Ensure we downloaded the expected hash.
-			if (!isHashValid(output)) {
-				String downloadedHash;
+		final long contentLength = Long.parseLong(response.headers().firstValue("Content-Length").orElse("-1"));
+		final long length = contentLength < 0 ? -1 : contentLength + startPosition;
+		AtomicLong totalBytes = new AtomicLong(startPosition);
 
-				try {
-					downloadedHash = Checksum.sha1Hex(output);
-					Files.deleteIfExists(output);
-				} catch (IOException e) {
-					downloadedHash = "unknown hash";
+		final OpenOption[] openOptions = resumed
+				? new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND}
+				: new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING};
+
+		try (OutputStream fileStream = Files.newOutputStream(partFile, openOptions);
+				OutputStream outputStream = digest != null ? new DigestOutputStream(fileStream, digest) : fileStream) {
+			copyWithCallback(decodeOutput(response), outputStream, value -> {
+				if (length < 0) {
+					return;
 				}
 
+				progressListener.onProgress(totalBytes.addAndGet(value), length);
+			});
+		} catch (IOException e) {
+			if (responseETag == null) {
+				// Cannot be resumed without an etag to validate the partial file against.
+				tryCleanup(partFile);
+			}
+
+			throw error(e, "Failed to decode and write download output");
+		}
+
+		if (digest != null) {
+			// Ensure we downloaded the expected hash.
+			final String downloadedHash = Checksum.toHex(digest.digest());
+
+			if (!downloadedHash.equalsIgnoreCase(getExpectedHashValue())) {
+				tryCleanup(partFile);
 				throw error("Failed to download (%s) with expected hash: %s got %s", url, expectedHash, downloadedHash);
 			}
+		}
 
+		complete(partFile, output, responseETag);
+	}
+
+	private void complete(Path partFile, Path output, String responseETag) throws DownloadException {
+		try {
+			AttributeHelper.deleteAttribute(partFile, E_TAG);
+			Files.move(partFile, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			tryCleanup(partFile);
+			throw error(e, "Failed to move downloaded file into place (%s)", output);
+		}
+
+		if (useEtag && responseETag != null) {
+			writeEtag(output, responseETag);
+		}
+
+		if (expectedHash != null) {
 			// Write the hash to the file attribute, saves a lot of time trying to re-compute the hash when re-visiting this file.
 			writeHash(output, expectedHash);
 		}
 	}
 
+	/**
+	 * @return the number of bytes that can be resumed from, or 0 when the partial file is missing or cannot be validated.
+	 */
+	private long getResumePosition(Path partFile) {
+		if (!exists(partFile)) {
+			return 0;
+		}
+
+		try {
+			final long size = Files.size(partFile);
+
+			if (size > 0 && readEtag(partFile).isPresent()) {
+				return size;
+			}
+
+			AttributeHelper.deleteAttribute(partFile, E_TAG);
+			Files.delete(partFile);
+		} catch (IOException e) {
+			tryCleanup(partFile);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Downloads the file as a number of byte ranges in parallel, each written directly to its position in the partial file.
+	 * The etag and the progress of each segment are stored with the partial file, so that a failed download resumes the unfinished segments.
+	 *
+	 * @param resumed the segments of an earlier attempt read from the partial file, or null to start a new download
+	 * @return the etag of the downloaded file, or null if the server does not support it and the download should be done in one request.
+	 */
+	@Nullable
+	private String tryDownloadSegmented(Path partFile, @Nullable List<Segment> resumed) throws DownloadException {
+		if (resumed == null && expectedSize >= 0 && expectedSize < MIN_SEGMENTED_SIZE) {
+			return null;
+		}
+
+		// Each extra segment needs its own request permit, never wait on them as this download is already holding one.
+		final List<HttpClientService.HostPermit> permits = new ArrayList<>();
+
+		for (int i = 1; i < segments; i++) {
+			HttpClientService.HostPermit permit = httpClientService.tryAcquire(url);
+
+			if (permit == null) {
+				break;
+			}
+
+			permits.add(permit);
+		}
+
+		try {
+			if (resumed != null) {
+				final String eTag = readEtag(partFile).orElseThrow();
+				LOGGER.info("Resuming segmented download of {}", url);
+				downloadSegments(partFile, eTag, resumed, null, permits.size());
+				return eTag;
+			}
+
+			if (permits.isEmpty()) {
+				return null;
+			}
+
+			if (expectedSize >= 0) {
+				// The size is already known, so the etag is taken from the response to the first segment rather than a HEAD request.
+				final List<Segment> segmentList = Segment.split(expectedSize, permits.size() + 1);
+				final HttpResponse<InputStream> first = sendSegment(segmentList.get(0), null);
+				final String eTag = getStrongETag(first);
+
+				if (eTag == null || !isSegmentResponse(first, segmentList.get(0)) || !isContentLength(first, expectedSize)) {
+					closeQuietly(first);
+					return null;
+				}
+
+				downloadSegments(partFile, eTag, segmentList, first, permits.size());
+				return eTag;
+			}
+
+			final HttpResponse<Void> head;
+
+			try {
+				head = getHttpClient().send(HttpRequest.newBuilder(url).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+			} catch (IOException | InterruptedException e) {
+				throw error(e, "Failed to download (%s)", url);
+			}
+
+			final HttpHeaders headers = head.headers();
+			final long length = headers.firstValueAsLong("Content-Length").orElse(-1);
+			final String eTag = getStrongETag(head);
+
+			if (head.statusCode() != HttpURLConnection.HTTP_OK
+					|| eTag == null
+					|| length < MIN_SEGMENTED_SIZE
+					|| !headers.firstValue("Accept-Ranges").orElse("").equalsIgnoreCase("bytes")
+					|| headers.firstValue("Content-Encoding").isPresent()) {
+				return null;
+			}
+
+			downloadSegments(partFile, eTag, Segment.split(length, permits.size() + 1), null, permits.size());
+			return eTag;
+		} finally {
+			permits.forEach(HttpClientService.HostPermit::close);
+		}
+	}
+
+	/**
+	 * The calling thread and up to the given number of extra workers on the {@link HttpClientService}'s shared executor take the unfinished segments in turn.
+	 * Every worker has finished before the file is closed, the progress of each segment is then stored with the partial file when the download failed.
+	 *
+	 * @param first the response to the request for the first segment when it has already been sent, or null
+	 */
+	private void downloadSegments(Path partFile, String eTag, List<Segment> segmentList, @Nullable HttpResponse<InputStream> first, int extraWorkers) throws DownloadException {
+		final long length = segmentList.get(segmentList.size() - 1).end() + 1;
+		final AtomicLong totalBytes = new AtomicLong(segmentList.stream().mapToLong(Segment::written).sum());
+		final IntConsumer progress = value -> {
+			synchronized (progressListener) {
+				progressListener.onProgress(totalBytes.addAndGet(value), length);
+			}
+		};
+
+		final Queue<Segment> pending = new ConcurrentLinkedQueue<>();
+		segmentList.stream().filter(segment -> !segment.isComplete()).forEach(pending::add);
+
+		if (first != null) {
+			pending.remove(segmentList.get(0));
+		}
+
+		final OpenOption[] openOptions = first != null || totalBytes.get() == 0
+				? new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING}
+				: new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE};
+		final List<DownloadException> failures = new ArrayList<>();
+		SegmentWriter writer = null;
+
+		progressListener.onStart();
+
+		try (FileChannel channel = FileChannel.open(partFile, openOptions)) {
+			writeEtag(partFile, eTag);
+			writeSegments(partFile, segmentList);
+
+			writer = new SegmentWriter(channel, eTag, pending, progress);
+			final SegmentWriter segmentWriter = writer;
+			final List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+			for (int i = 0; i < Math.min(extraWorkers, pending.size()); i++) {
+				workers.add(CompletableFuture.runAsync(() -> {
+					try {
+						segmentWriter.writePending();
+					} catch (DownloadException e) {
+						throw new CompletionException(e);
+					}
+				}, httpClientService.getSegmentExecutor()));
+			}
+
+			try {
+				if (first != null) {
+					writer.write(segmentList.get(0), first);
+				}
+
+				writer.writePending();
+			} catch (DownloadException e) {
+				failures.add(e);
+			}
+
+			for (CompletableFuture<Void> worker : workers) {
+				try {
+					worker.join();
+				} catch (CompletionException e) {
+					failures.add(e.getCause() instanceof DownloadException cause ? cause : error(e.getCause()));
+				}
+			}
+		} catch (IOException e) {
+			if (writer == null && first != null) {
+				closeQuietly(first);
+			}
+
+			failures.add(e instanceof DownloadException downloadException ? downloadException : error(e, "Failed to write (%s)", partFile));
+		}
+
+		if (failures.isEmpty()) {
+			deleteSegments(partFile);
+			return;
+		}
+
+		if (writer != null && !writer.stale) {
+			try {
+				writeSegments(partFile, segmentList);
+			} catch (DownloadException e) {
+				failures.add(e);
+				cleanupSegmented(partFile);
+			}
+		} else {
+			// The file has changed on the server, or the progress could not be stored, so the segments cannot be resumed.
+			cleanupSegmented(partFile);
+		}
+
+		final DownloadException exception = error("Failed to download (%s) in %d segments", url, segmentList.size());
+		failures.forEach(exception::addSuppressed);
+		throw exception;
+	}
+
+	/**
+	 * Requests the unwritten bytes of the segment, only if the file still matches the given etag.
+	 */
+	private HttpResponse<InputStream> sendSegment(Segment segment, @Nullable String eTag) throws DownloadException {
+		final HttpRequest.Builder request = HttpRequest.newBuilder(url)
+				.GET()
+				.header("Range", "bytes=%d-%d".formatted(segment.position(), segment.end()));
+
+		if (eTag != null) {
+			request.header("If-Range", eTag);
+		}
+
+		try {
+			return getHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+		} catch (IOException | InterruptedException e) {
+			throw error(e, "Failed to download (%s) bytes %d-%d", url, segment.position(), segment.end());
+		}
+	}
+
+	private boolean isSegmentResponse(HttpResponse<?> response, Segment segment) {
+		return response.statusCode() == HttpURLConnection.HTTP_PARTIAL
+				&& isContentRangeFrom(response, segment.position())
+				&& response.headers().firstValue("Content-Encoding").isEmpty();
+	}
+
+	private static boolean isContentLength(HttpResponse<?> response, long length) {
+		// Content-Range: bytes <start>-<end>/<size>
+		return response.headers().firstValue("Content-Range").orElse("").endsWith("/" + length);
+	}
+
+	private static void closeQuietly(HttpResponse<InputStream> response) {
+		try {
+			response.body().close();
+		} catch (IOException ignored) {
+			// ignored
+		}
+	}
+
+	/**
+	 * @return the segments of an earlier segmented download of the partial file, or null when there are none to resume
+	 */
+	@Nullable
+	private List<Segment> readSegments(Path partFile) {
+		if (!exists(partFile)) {
+			return null;
+		}
+
+		try {
+			final Optional<String> value = AttributeHelper.readAttribute(partFile, SEGMENTS);
+
+			if (value.isEmpty()) {
+				return null;
+			}
+
+			final List<Segment> segmentList = Segment.parse(value.get());
+
+			if (segmentList != null && readEtag(partFile).isPresent() && Files.size(partFile) == segmentList.get(segmentList.size() - 1).end() + 1) {
+				return segmentList;
+			}
+		} catch (IOException e) {
+			// Start again
+		}
+
+		cleanupSegmented(partFile);
+		return null;
+	}
+
+	private void writeSegments(Path partFile, List<Segment> segmentList) throws DownloadException {
+		try {
+			AttributeHelper.writeAttribute(partFile, SEGMENTS, Segment.format(segmentList));
+		} catch (IOException e) {
+			throw error(e, "Failed to write segment progress to (%s)", partFile);
+		}
+	}
+
+	private void deleteSegments(Path partFile) {
+		try {
+			AttributeHelper.deleteAttribute(partFile, SEGMENTS);
+		} catch (IOException ignored) {
+			// ignored
+		}
+	}
+
+	private void cleanupSegmented(Path partFile) {
+		deleteSegments(partFile);
+		tryCleanup(partFile);
+	}
+
+	private static boolean isContentRangeFrom(HttpResponse<?> response, long start) {
+		// Content-Range: bytes <start>-<end>/<size>
+		final String contentRange = response.headers().firstValue("Content-Range").orElse("");
+		return contentRange.startsWith("bytes " + start + "-");
+	}
+
+	@Nullable
+	private static String getStrongETag(HttpResponse<?> response) {
+		final String eTag = response.headers().firstValue(E_TAG).orElse(null);
+
+		if (eTag == null || eTag.startsWith("W/")) {
+			// Weak etags cannot be used with If-Range.
+			return null;
+		}
+
+		return eTag;
+	}
+
+	private static void updateDigest(MessageDigest digest, Path path) throws DownloadException {
+		try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+
+			//noinspection StatementWithEmptyBody
+			while (inputStream.read(buffer) != -1) {
+			}
+		} catch (IOException e) {
+			throw new DownloadException("Failed to read " + path, e);
+		}
+	}
+
 	private void copyWithCallback(InputStream is, OutputStream os, IntConsumer consumer) throws IOException {
-		byte[] buffer = new byte[1024];
+		byte[] buffer = new byte[BUFFER_SIZE];
 		int length;
 
 		while ((length = is.read(buffer)) > 0) {
@@ -256,6 +806,7 @@ public class Download {
 
 	private boolean requiresDownload(Path output) throws DownloadException {
 		if (getAndResetLock(output)) {
+			// Lock files are no longer created as downloads are written to a .part file, but may have been left behind by an older version.
 			LOGGER.warn("Forcing downloading {} as existing lock file was found. This may happen if the gradle build was forcefully canceled.", output);
 			return true;
 		}
@@ -303,20 +854,32 @@ public class Download {
 	}
 
 	private boolean isHashValid(Path path) {
-		int i = expectedHash.indexOf(':');
-		String algorithm = expectedHash.substring(0, i);
-		String hash = expectedHash.substring(i + 1);
+		final MessageDigest digest = createDigest();
 
 		try {
-			String computedHash = switch (algorithm) {
-			case "sha1" -> Checksum.sha1Hex(path);
-			default -> throw error("Unsupported hash algorithm (%s)", algorithm);
-			};
-
-			return computedHash.equalsIgnoreCase(hash);
-		} catch (IOException e) {
+			updateDigest(digest, path);
+		} catch (DownloadException e) {
 			throw new UncheckedIOException(e);
 		}
+
+		return Checksum.toHex(digest.digest()).equalsIgnoreCase(getExpectedHashValue());
+	}
+
+	private MessageDigest createDigest() {
+		final String algorithm = expectedHash.substring(0, expectedHash.indexOf(':'));
+
+		try {
+			return switch (algorithm) {
+			case "sha1" -> MessageDigest.getInstance("SHA-1");
+			default -> throw new UnsupportedOperationException("Unsupported hash algorithm (%s)".formatted(algorithm));
+			};
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String getExpectedHashValue() {
+		return expectedHash.substring(expectedHash.indexOf(':') + 1);
 	}
 
 	private boolean isOutdated(Path path) throws DownloadException {
@@ -379,6 +942,10 @@ public class Download {
 		return basicView.readAttributes().lastModifiedTime();
 	}
 
+	private Path getPartFile(Path output) {
+		return output.resolveSibling(output.getFileName() + ".part");
+	}
+
 	private Path getLockFile(Path output) {
 		return output.resolveSibling(output.getFileName() + ".lock");
 	}
@@ -398,16 +965,6 @@ public class Download {
 		return exists;
 	}
 
-	private void createLock(Path output) throws DownloadException {
-		final Path lock = getLockFile(output);
-
-		try {
-			Files.createFile(lock);
-		} catch (IOException e) {
-			throw error(e, "Failed to acquire lock on %s", lock);
-		}
-	}
-
 	private DownloadException error(String message, Object... args) {
 		return new DownloadException(String.format(Locale.ENGLISH, message, args));
 	}
@@ -419,4 +976,157 @@ public class Download {
 	private DownloadException error(Throwable throwable, String message, Object... args) {
 		return new DownloadException(message.formatted(args), throwable);
 	}
+
+	/**
+	 * Writes the segments of one download, shared by all of its workers.
+	 * Once any segment fails the other workers stop at their next read, leaving their progress to be stored.
+	 */
+	private final class SegmentWriter {
+		private final FileChannel channel;
+		private final String eTag;
+		private final Queue<Segment> pending;
+		private final IntConsumer progress;
+		private volatile boolean failed = false;
+		private volatile boolean stale = false;
+
+		private SegmentWriter(FileChannel channel, String eTag, Queue<Segment> pending, IntConsumer progress) {
+			this.channel = channel;
+			this.eTag = eTag;
+			this.pending = pending;
+			this.progress = progress;
+		}
+
+		void writePending() throws DownloadException {
+			Segment segment;
+
+			while (!failed && (segment = pending.poll()) != null) {
+				write(segment, sendSegment(segment, eTag));
+			}
+		}
+
+		void write(Segment segment, HttpResponse<InputStream> response) throws DownloadException {
+			try {
+				doWrite(segment, response);
+			} catch (DownloadException e) {
+				failed = true;
+				throw e;
+			}
+		}
+
+		private void doWrite(Segment segment, HttpResponse<InputStream> response) throws DownloadException {
+			final long start = segment.position();
+
+			try (InputStream inputStream = response.body()) {
+				if (!isSegmentResponse(response, segment)) {
+					final int status = response.statusCode();
+					// The whole file is sent when it has changed since the etag was stored, server errors can be retried.
+					stale = (status >= 200 && status < 300) || status == HTTP_RANGE_NOT_SATISFIABLE;
+					throw error("Unexpected response to range request for (%s), returned status (%d)", url, status);
+				}
+
+				final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+				int length;
+
+				while (!failed && (length = inputStream.read(buffer.array())) > 0) {
+					if (segment.position() + length > segment.end() + 1) {
+						stale = true;
+						throw error("Range request for (%s) returned more data than requested", url);
+					}
+
+					buffer.limit(length).position(0);
+
+					while (buffer.hasRemaining()) {
+						segment.advance(channel.write(buffer, segment.position()));
+					}
+
+					buffer.clear();
+					progress.accept(length);
+				}
+
+				if (!segment.isComplete() && !failed) {
+					throw error("Range request for (%s) ended early at byte %d, expected %d", url, segment.position(), segment.end() + 1);
+				}
+			} catch (IOException e) {
+				throw error(e, "Failed to write bytes %d-%d of (%s)", start, segment.end(), url);
+			}
+		}
+	}
+
+	/**
+	 * A byte range of a segmented download, and the number of its bytes that have been written to the partial file.
+	 * Stored with the partial file as {@code <start>-<end>+<written>}, separated by {@code ;}.
+	 */
+	private static final class Segment {
+		private final long start;
+		private final long end;
+		private volatile long written;
+
+		private Segment(long start, long end, long written) {
+			this.start = start;
+			this.end = end;
+			this.written = written;
+		}
+
+		static List<Segment> split(long length, int count) {
+			final long size = (length + count - 1) / count;
+			final List<Segment> segmentList = new ArrayList<>();
+
+			for (long start = 0; start < length; start += size) {
+				segmentList.add(new Segment(start, Math.min(start + size, length) - 1, 0));
+			}
+
+			return segmentList;
+		}
+
+		@Nullable
+		static List<Segment> parse(String value) {
+			final List<Segment> segmentList = new ArrayList<>();
+			long next = 0;
+
+			try {
+				for (String part : value.split(";")) {
+					final int dash = part.indexOf('-');
+					final int plus = part.indexOf('+');
+					final Segment segment = new Segment(Long.parseLong(part.substring(0, dash)), Long.parseLong(part.substring(dash + 1, plus)), Long.parseLong(part.substring(plus + 1)));
+
+					if (segment.start != next || segment.end < segment.start || segment.written < 0 || segment.written > segment.end - segment.start + 1) {
+						return null;
+					}
+
+					segmentList.add(segment);
+					next = segment.end + 1;
+				}
+			} catch (RuntimeException e) {
+				return null;
+			}
+
+			return segmentList.isEmpty() ? null : segmentList;
+		}
+
+		static String format(List<Segment> segmentList) {
+			return segmentList.stream()
+					.map(segment -> "%d-%d+%d".formatted(segment.start, segment.end, segment.written))
+					.collect(Collectors.joining(";"));
+		}
+
+		long end() {
+			return end;
+		}
+
+		long written() {
+			return written;
+		}
+
+		long position() {
+			return start + written;
+		}
+
+		boolean isComplete() {
+			return position() > end;
+		}
+
+		void advance(long bytes) {
+			written += bytes;
+		}
+	}
 }
@@ -32,11 +32,14 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
 
 @SuppressWarnings("UnusedReturnValue")
 public class DownloadBuilder {
 	private static final Duration ONE_DAY = Duration.ofDays(1);
+	private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(500);
 
 	private final URI url;
 	private String expectedHash = null;
@@ -46,6 +49,14 @@ public class DownloadBuilder {
 	private Duration maxAge = Duration.ZERO;
 	private DownloadProgressListener progressListener = DownloadProgressListener.NONE;
 	private int maxRetries = 3;
+	private HttpClientService httpClientService = null;
+	private int segments = 1;
+	private long size = -1;
+	private DownloadPriority priority = DownloadPriority.NORMAL;
+	private ContentStore contentStore = null;
+	private boolean readOnly = false;
+	private List<URI> mirrors = List.of();
+	private Duration hedgeDelay = null;
 
 	private DownloadBuilder(URI url) {
 		this.url = url;
@@ -90,24 +101,77 @@ public class DownloadBuilder {
 		return this;
 	}
 
+	public DownloadBuilder httpClient(HttpClientService httpClientService) {
+		this.httpClientService = httpClientService;
+		return this;
+	}
+
+	/**
+	 * Allows large files to be downloaded as a number of byte ranges in parallel, when supported by the server.
+	 */
+	public DownloadBuilder segments(int segments) {
+		this.segments = segments;
+		return this;
+	}
+
+	/**
+	 * The size of the file when it is already known, such as from a manifest, saving a HEAD request before a segmented download.
+	 */
+	public DownloadBuilder size(long size) {
+		this.size = size;
+		return this;
+	}
+
+	public DownloadBuilder priority(DownloadPriority priority) {
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * Hash pinned downloads marked as {@link #readOnly()} are stored once in the given store, and linked to the requested path.
+	 */
+	public DownloadBuilder contentStore(ContentStore contentStore) {
+		this.contentStore = contentStore;
+		return this;
+	}
+
+	/**
+	 * Marks the downloaded file as never being written to in place, allowing it to be hard linked to the content store.
+	 * Other downloads are not stored, as a copy of the blob would take twice the space.
+	 */
+	public DownloadBuilder readOnly() {
+		this.readOnly = true;
+		return this;
+	}
+
+	/**
+	 * Sends the request to one of the given mirrors as well, when the url has not started responding within the given delay.
+	 * Only used for downloads with an expected hash, the mirrors must serve the same file at the given urls.
+	 */
+	public DownloadBuilder hedge(List<String> mirrorUrls, Duration delay) {
+		this.mirrors = mirrorUrls.stream().map(URI::create).toList();
+		this.hedgeDelay = delay;
+		return this;
+	}
+
 	public DownloadBuilder defaultCache() {
 		etag(true);
 		return maxAge(ONE_DAY);
 	}
 
 	private Download build() {
-		return new Download(this.url, this.expectedHash, this.useEtag, this.forceDownload, this.offline, maxAge, progressListener);
+		return new Download(this.url, this.expectedHash, this.useEtag, this.forceDownload, this.offline, maxAge, progressListener, httpClientService, segments, size, mirrors, hedgeDelay);
 	}
 
 	public void downloadPathAsync(Path path, DownloadExecutor executor) {
-		executor.runAsync(() -> downloadPath(path));
+		executor.runAsync(path, expectedHash, priority, () -> downloadPath(path));
 	}
 
 	public void downloadPath(Path path) throws DownloadException {
-		withRetries(() -> {
-			build().downloadPath(path);
+		DownloadCoalescer.run(path, expectedHash, () -> withRetries(() -> {
+			download(path);
 			return null;
-		});
+		}));
 	}
 
 	public String downloadString() throws DownloadException {
@@ -116,7 +180,7 @@ public class DownloadBuilder {
 
 	public String downloadString(Path cache) throws DownloadException {
 		return withRetries(() -> {
-			build().downloadPath(cache);
+			DownloadCoalescer.run(cache, expectedHash, () -> download(cache));
 
 			try {
 				return Files.readString(cache, StandardCharsets.UTF_8);
@@ -132,6 +196,16 @@ public class DownloadBuilder {
 		});
 	}
 
+	private void download(Path path) throws DownloadException {
+		// When offline an existing file is used as is, as it may not yet be in the store.
+		if (contentStore != null && readOnly && expectedHash != null && !(offline && Files.exists(path))) {
+			contentStore.materialize(expectedHash, path, blob -> build().downloadPath(blob));
+			return;
+		}
+
+		build().downloadPath(path);
+	}
+
 	private <T> T withRetries(DownloadSupplier<T> supplier) throws DownloadException {
 		for (int i = 1; i <= maxRetries; i++) {
 			try {
@@ -140,12 +214,26 @@ public class DownloadBuilder {
 				if (i == maxRetries) {
 					throw new DownloadException(String.format(Locale.ENGLISH, "Failed download after %d attempts", maxRetries), e);
 				}
+
+				backoff(i);
 			}
 		}
 
 		throw new IllegalStateException();
 	}
 
+	private static void backoff(int attempt) throws DownloadException {
+		// Exponential backoff with jitter, so many failing downloads don't all retry at the same moment.
+		final long delay = RETRY_BASE_DELAY.toMillis() * (1L << Math.min(attempt - 1, 6));
+
+		try {
+			Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DownloadException("Interrupted while waiting to retry download", e);
+		}
+	}
+
 	@FunctionalInterface
 	private interface DownloadSupplier<T> {
 		T get() throws DownloadException;
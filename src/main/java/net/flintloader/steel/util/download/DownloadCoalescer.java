@@ -0,0 +1,100 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.download;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Ensures that only a single download to any given path happens at once, across all projects in the daemon.
+ *
+ * <p>When a download to the same path with the same expected hash is already running the caller waits for it and shares its result.
+ * Downloads to the same path with a different (or no) expected hash wait for the running download, and then run as normal.
+ */
+final class DownloadCoalescer {
+	private static final Map<Path, InFlight> IN_FLIGHT = new ConcurrentHashMap<>();
+
+	private DownloadCoalescer() {
+	}
+
+	static void run(Path output, @Nullable String expectedHash, DownloadExecutor.DownloadRunner runner) throws DownloadException {
+		final Path key = output.toAbsolutePath().normalize();
+
+		while (true) {
+			final InFlight inFlight = new InFlight(expectedHash, new CompletableFuture<>());
+			final InFlight existing = IN_FLIGHT.putIfAbsent(key, inFlight);
+
+			if (existing == null) {
+				try {
+					runner.run();
+					inFlight.future().complete(null);
+				} catch (DownloadException | RuntimeException e) {
+					inFlight.future().completeExceptionally(e);
+					throw e;
+				} finally {
+					IN_FLIGHT.remove(key, inFlight);
+				}
+
+				return;
+			}
+
+			final Throwable failure = await(existing, output);
+
+			if (expectedHash != null && Objects.equals(expectedHash, existing.expectedHash())) {
+				if (failure != null) {
+					throw new DownloadException("Failed to download to (%s)".formatted(output), failure);
+				}
+
+				// The same content has just been downloaded to this path.
+				return;
+			}
+
+			// A different download to the same path has finished, try again to become the one downloading.
+		}
+	}
+
+	@Nullable
+	private static Throwable await(InFlight inFlight, Path output) throws DownloadException {
+		try {
+			inFlight.future().get();
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DownloadException("Interrupted while waiting for download to (%s)".formatted(output), e);
+		}
+	}
+
+	private record InFlight(@Nullable String expectedHash, CompletableFuture<Void> future) {
+	}
+}
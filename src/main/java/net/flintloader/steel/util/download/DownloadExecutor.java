@@ -25,36 +25,110 @@
 
 package net.flintloader.steel.util.download;
 
-import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs downloads in parallel, higher {@link DownloadPriority} downloads are always started before lower priority ones.
+ *
+ * <p>The workers are platform threads, as Steel targets Java 17. Downloads are blocking I/O, so virtual threads are used instead when Gradle runs on Java 21 or later.
+ * Once a download has failed (after its retries) no further queued downloads are started, downloads that are already running are left to finish.
+ */
 public class DownloadExecutor implements AutoCloseable {
-	private final ExecutorService executorService;
+	public static final int DEFAULT_THREADS = 16;
+	private static final long STATUS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+	private final ThreadPoolExecutor executorService;
 	private final List<DownloadException> downloadExceptions = Collections.synchronizedList(new ArrayList<>());
+	private final Set<ScheduledDownload> scheduled = ConcurrentHashMap.newKeySet();
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong lastStatus = new AtomicLong();
+	private final long startTime = System.nanoTime();
+	@Nullable
+	private final Consumer<Status> statusListener;
 
 	public DownloadExecutor(int threads) {
-		executorService = Executors.newFixedThreadPool(threads);
+		this(threads, null);
+	}
+
+	public DownloadExecutor(int threads, @Nullable Consumer<Status> statusListener) {
+		this.statusListener = statusListener;
+		executorService = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), createThreadFactory("steel-download-"));
+		executorService.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs the download unless a download of the same content to the same path has already been submitted to this executor.
+	 */
+	void runAsync(Path output, @Nullable String expectedHash, DownloadPriority priority, DownloadRunner downloadRunner) {
+		if (expectedHash != null && !scheduled.add(new ScheduledDownload(output.toAbsolutePath().normalize(), expectedHash))) {
+			// Many assets share the same hash, and so the same path.
+			return;
+		}
+
+		runAsync(priority, downloadRunner);
 	}
 
-	void runAsync(DownloadRunner downloadRunner) {
+	void runAsync(DownloadPriority priority, DownloadRunner downloadRunner) {
 		if (!downloadExceptions.isEmpty()) {
 			return;
 		}
 
-		executorService.execute(() -> {
+		executorService.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), () -> {
+			if (!downloadExceptions.isEmpty()) {
+				// Another download has already failed, the batch will fail so don't start any more.
+				return;
+			}
+
+			running.incrementAndGet();
+
 			try {
 				downloadRunner.run();
+				completed.incrementAndGet();
 			} catch (DownloadException e) {
-				executorService.shutdownNow();
 				downloadExceptions.add(e);
-				throw new UncheckedIOException(e);
+			} finally {
+				running.decrementAndGet();
+				reportStatus(false);
 			}
-		});
+		}));
+	}
+
+	public Status getStatus() {
+		final double seconds = (System.nanoTime() - startTime) / 1_000_000_000D;
+		final long completed = this.completed.get();
+		return new Status(executorService.getQueue().size(), running.get(), completed, seconds > 0 ? completed / seconds : 0);
+	}
+
+	private void reportStatus(boolean force) {
+		if (statusListener == null) {
+			return;
+		}
+
+		final long now = System.nanoTime();
+		final long last = lastStatus.get();
+
+		if (force || (now - last >= STATUS_INTERVAL_NANOS && lastStatus.compareAndSet(last, now))) {
+			statusListener.accept(getStatus());
+		}
 	}
 
 	@Override
@@ -64,9 +138,12 @@ public class DownloadExecutor implements AutoCloseable {
 		try {
 			executorService.awaitTermination(1, TimeUnit.DAYS);
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
 		}
 
+		reportStatus(true);
+
 		if (!downloadExceptions.isEmpty()) {
 			DownloadException downloadException = new DownloadException("Failed to download");
 
@@ -78,6 +155,50 @@ public class DownloadExecutor implements AutoCloseable {
 		}
 	}
 
+	static ThreadFactory createThreadFactory(String name) {
+		try {
+			// Thread.ofVirtual().name(name, 0).factory(), only available on Java 21 and later.
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Object builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual"))).invoke();
+			builder = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class, long.class)).invoke(builder, name, 0L);
+			return (ThreadFactory) lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class)).invoke(builder);
+		} catch (Throwable ignored) {
+			// Fallback to platform threads.
+		}
+
+		final AtomicInteger count = new AtomicInteger();
+
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	public record Status(int queued, int running, long completed, double downloadsPerSecond) {
+		@Override
+		public String toString() {
+			return String.format(Locale.ENGLISH, "%d queued, %d running, %d done (%.1f/s)", queued, running, completed, downloadsPerSecond);
+		}
+	}
+
+	private record PrioritizedTask(DownloadPriority priority, long sequence, Runnable runnable) implements Runnable, Comparable<PrioritizedTask> {
+		@Override
+		public void run() {
+			runnable.run();
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask o) {
+			final int compare = priority.compareTo(o.priority);
+			return compare != 0 ? compare : Long.compare(sequence, o.sequence);
+		}
+	}
+
+	private record ScheduledDownload(Path output, String expectedHash) {
+	}
+
 	@FunctionalInterface
 	public interface DownloadRunner {
 		void run() throws DownloadException;
@@ -0,0 +1,268 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.download;
+
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.flintloader.steel.util.service.SharedService;
+import net.flintloader.steel.util.service.SharedServiceManager;
+
+/**
+ * A single long-lived {@link HttpClient} shared by every {@link Download} in a build.
+ *
+ * <p>Requests are sent over HTTP/2 when the server supports it, allowing them to be multiplexed over a single connection per host.
+ * The number of requests in flight to any one host, and in total, is limited. Requests over the limit wait for a permit to become free.
+ */
+public final class HttpClientService implements SharedService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientService.class);
+	private static final int MAX_REQUESTS_PER_HOST = 16;
+	private static final int MAX_REQUESTS = 64;
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+	private static HttpClientService fallback;
+
+	private final HttpClient httpClient;
+	private final int maxRequestsPerHost;
+	private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+	// Limits the number of requests in flight across all hosts.
+	private final Semaphore requestPermits = new Semaphore(MAX_REQUESTS, true);
+	// Runs the extra segments of segmented downloads, idle threads are removed after a minute.
+	private final ExecutorService segmentExecutor = Executors.newCachedThreadPool(DownloadExecutor.createThreadFactory("steel-download-segment-"));
+
+	private HttpClientService(int maxRequestsPerHost) {
+		this.maxRequestsPerHost = maxRequestsPerHost;
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.ALWAYS)
+				.proxy(ProxySelector.getDefault())
+				.connectTimeout(CONNECT_TIMEOUT)
+				.build();
+	}
+
+	public static HttpClientService get(Project project) {
+		return get(SharedServiceManager.get(project));
+	}
+
+	public static HttpClientService get(SharedServiceManager sharedServiceManager) {
+		return sharedServiceManager.getOrCreateService("HttpClientService", () -> new HttpClientService(MAX_REQUESTS_PER_HOST));
+	}
+
+	/**
+	 * Used when a {@link Download} has been created without a build, this instance lives for the lifetime of the daemon.
+	 */
+	static synchronized HttpClientService getFallback() {
+		if (fallback == null) {
+			fallback = new HttpClientService(MAX_REQUESTS_PER_HOST);
+		}
+
+		return fallback;
+	}
+
+	/**
+	 * Waits for a free request slot for the host of the given uri, the returned permit must be closed once the response body has been fully read.
+	 */
+	HostPermit acquire(URI uri) throws InterruptedException {
+		final HostStats stats = getHostStats(uri);
+		// Always take the host permit first, so requests waiting on a busy host don't hold up requests to other hosts.
+		stats.permits.acquire();
+
+		try {
+			requestPermits.acquire();
+		} catch (InterruptedException e) {
+			stats.permits.release();
+			throw e;
+		}
+
+		return stats.onAcquired(maxRequestsPerHost, requestPermits);
+	}
+
+	/**
+	 * Takes a free request slot for the host of the given uri without waiting, returns null if there are none available.
+	 */
+	@Nullable
+	HostPermit tryAcquire(URI uri) {
+		final HostStats stats = getHostStats(uri);
+
+		if (!stats.permits.tryAcquire()) {
+			return null;
+		}
+
+		if (!requestPermits.tryAcquire()) {
+			stats.permits.release();
+			return null;
+		}
+
+		return stats.onAcquired(maxRequestsPerHost, requestPermits);
+	}
+
+	ExecutorService getSegmentExecutor() {
+		return segmentExecutor;
+	}
+
+	<T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		final long start = System.nanoTime();
+		final HttpResponse<T> response = httpClient.send(request, bodyHandler);
+		getHostStats(request.uri()).record(response.version(), System.nanoTime() - start);
+		return response;
+	}
+
+	<T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+		final long start = System.nanoTime();
+
+		return httpClient.sendAsync(request, bodyHandler).thenApply(response -> {
+			getHostStats(request.uri()).record(response.version(), System.nanoTime() - start);
+			return response;
+		});
+	}
+
+	/**
+	 * @return the average time taken for the host of the given uri to start responding, or null when no requests have been made to it yet.
+	 */
+	@Nullable
+	Duration getLatency(URI uri) {
+		final long latency = getHostStats(uri).latencyNanos.get();
+		return latency > 0 ? Duration.ofNanos(latency) : null;
+	}
+
+	private HostStats getHostStats(URI uri) {
+		final String host = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+		return hosts.computeIfAbsent(host, h -> new HostStats(new Semaphore(maxRequestsPerHost, true)));
+	}
+
+	public Stats getStats() {
+		long requests = 0;
+		long http2Requests = 0;
+		long estimatedReusedConnections = 0;
+
+		for (HostStats stats : hosts.values()) {
+			final long total = stats.requests.get();
+			final long http2 = stats.http2Requests.get();
+
+			requests += total;
+			http2Requests += http2;
+
+			// All HTTP/2 requests to a host after the first are multiplexed over the already open connection.
+			// HttpClient does not expose its HTTP/1.1 pool, at most one connection is opened per concurrent request so the peak is used as an estimate.
+			if (total > 0) {
+				estimatedReusedConnections += total - Math.min(total, http2 > 0 ? 1 : stats.peakInFlight.get());
+			}
+		}
+
+		return new Stats(hosts.size(), requests, http2Requests, estimatedReusedConnections);
+	}
+
+	@Override
+	public void close() {
+		segmentExecutor.shutdown();
+
+		final Stats stats = getStats();
+
+		if (stats.requests() > 0) {
+			LOGGER.info("HTTP client: {}", stats);
+		}
+
+		if (LOGGER.isDebugEnabled()) {
+			hosts.forEach((host, hostStats) -> LOGGER.debug("Average latency of {}: {}ms", host, hostStats.latencyNanos.get() / 1_000_000));
+		}
+	}
+
+	@FunctionalInterface
+	interface HostPermit extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	/**
+	 * The connection reuse is estimated from the requests made, as the client does not expose its connection pool.
+	 */
+	public record Stats(int hosts, long requests, long http2Requests, long estimatedReusedConnections) {
+		public double estimatedReuseRatio() {
+			return requests == 0 ? 0 : (double) estimatedReusedConnections / requests;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ENGLISH, "%d requests to %d hosts (%d over HTTP/2), an estimated %d reused a connection (%.1f%%)",
+					requests, hosts, http2Requests, estimatedReusedConnections, estimatedReuseRatio() * 100);
+		}
+	}
+
+	private record HostStats(Semaphore permits, AtomicLong requests, AtomicLong http2Requests, AtomicInteger peakInFlight, AtomicLong latencyNanos) {
+		HostStats(Semaphore permits) {
+			this(permits, new AtomicLong(), new AtomicLong(), new AtomicInteger(), new AtomicLong());
+		}
+
+		HostPermit onAcquired(int maxRequests, Semaphore requestPermits) {
+			peakInFlight.accumulateAndGet(maxRequests - permits.availablePermits(), Math::max);
+
+			// A permit may be closed more than once, the permits are only released the first time.
+			final AtomicBoolean released = new AtomicBoolean();
+
+			return () -> {
+				if (released.compareAndSet(false, true)) {
+					permits.release();
+					requestPermits.release();
+				}
+			};
+		}
+
+		void record(HttpClient.Version version, long latency) {
+			requests.incrementAndGet();
+
+			if (version == HttpClient.Version.HTTP_2) {
+				http2Requests.incrementAndGet();
+			}
+
+			recordLatency(latency);
+		}
+
+		void recordLatency(long latency) {
+			// Exponentially weighted moving average, so that the latency follows a host that gets slower or faster.
+			latencyNanos.accumulateAndGet(Math.max(latency, 1), (average, sample) -> average == 0 ? sample : (average * 3 + sample) / 4);
+		}
+	}
+}
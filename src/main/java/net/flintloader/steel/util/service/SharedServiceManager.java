@@ -35,16 +35,21 @@ import java.util.function.Supplier;
 import org.gradle.BuildResult;
 import org.gradle.api.Project;
 import org.gradle.api.invocation.Gradle;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A simple manager for {@link SharedService} to be used across gradle (sub) projects.
  * This is a basic replacement for gradle's build service api.
  */
 public final class SharedServiceManager {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedServiceManager.class);
 	private static final Map<Gradle, SharedServiceManager> SERVICE_FACTORY_MAP = new ConcurrentHashMap<>();
 	private final Gradle gradle;
 
 	private final Map<String, SharedService> sharedServiceMap = new ConcurrentHashMap<>();
+	private final Map<String, Object> creationLocks = new ConcurrentHashMap<>();
 
 	private boolean shutdown = false;
 
@@ -62,33 +67,69 @@ public final class SharedServiceManager {
 	}
 
 	public <S extends SharedService> S getOrCreateService(String id, Supplier<S> function) {
-		synchronized (sharedServiceMap) {
-			if (shutdown) {
-				throw new UnsupportedOperationException("Cannot get or create service has the manager has been shutdown.");
-			}
+		S sharedService = getService(id);
 
-			//noinspection unchecked
-			S sharedService = (S) sharedServiceMap.get(id);
+		if (sharedService != null) {
+			return sharedService;
+		}
+
+		// Lock per service id, so that creating one service (that may take a while) does not block other threads from getting or creating unrelated services.
+		synchronized (creationLocks.computeIfAbsent(id, s -> new Object())) {
+			sharedService = getService(id);
 
 			if (sharedService == null) {
 				sharedService = function.get();
-				sharedServiceMap.put(id, sharedService);
+
+				synchronized (sharedServiceMap) {
+					if (shutdown) {
+						// The build finished while the service was being created, it would never be closed.
+						closeQuietly(sharedService);
+						throw new UnsupportedOperationException("Cannot create service as the manager has been shutdown.");
+					}
+
+					sharedServiceMap.put(id, sharedService);
+				}
 			}
 
 			return sharedService;
 		}
 	}
 
+	@Nullable
+	private <S extends SharedService> S getService(String id) {
+		synchronized (sharedServiceMap) {
+			if (shutdown) {
+				throw new UnsupportedOperationException("Cannot get or create service has the manager has been shutdown.");
+			}
+
+			//noinspection unchecked
+			return (S) sharedServiceMap.get(id);
+		}
+	}
+
+	private static void closeQuietly(SharedService sharedService) {
+		try {
+			sharedService.close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close shared service", e);
+		}
+	}
+
 	private void onFinish(BuildResult buildResult) {
+		final List<SharedService> sharedServices;
+
+		// No more services can be added once shutdown is set, so the copy holds every service that has to be closed.
 		synchronized (sharedServiceMap) {
 			shutdown = true;
+			sharedServices = List.copyOf(sharedServiceMap.values());
+			sharedServiceMap.clear();
 		}
 
 		SERVICE_FACTORY_MAP.remove(gradle);
 
 		final List<IOException> exceptionList = new ArrayList<>();
 
-		for (SharedService sharedService : sharedServiceMap.values()) {
+		for (SharedService sharedService : sharedServices) {
 			try {
 				sharedService.close();
 			} catch (IOException e) {
@@ -96,8 +137,6 @@ public final class SharedServiceManager {
 			}
 		}
 
-		sharedServiceMap.clear();
-
 		if (!exceptionList.isEmpty()) {
 			// Done to try and close all the services.
 			RuntimeException exception = new RuntimeException("Failed to close all shared services");
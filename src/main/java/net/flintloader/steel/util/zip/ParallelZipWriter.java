@@ -0,0 +1,248 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+
+/**
+ * A {@link RawZipWriter} that compresses the entries on a worker pool, while still writing them to the archive in the order that they were added.
+ *
+ * <p>Each entry is compressed on its own, so the output is the same as a {@link RawZipWriter} would write no matter how many threads are used.
+ * An entry that has not been picked up by the pool when it is next to be written is compressed by the thread that is writing.
+ */
+public final class ParallelZipWriter implements Closeable {
+	// Limits the amount of uncompressed data held in memory waiting to be written.
+	private static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
+	private final RawZipWriter writer;
+	private final Executor executor;
+	private final Deque<PendingWrite> pending = new ArrayDeque<>();
+	private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private boolean writing = false;
+	private long pendingBytes = 0;
+
+	public ParallelZipWriter(Path path) throws IOException {
+		this(path, ForkJoinPool.commonPool());
+	}
+
+	public ParallelZipWriter(Path path, Executor executor) throws IOException {
+		this.writer = new RawZipWriter(path);
+		this.executor = executor;
+	}
+
+	public synchronized void setComment(byte[] comment) {
+		writer.setComment(comment);
+	}
+
+	/**
+	 * Sets the level that deflated entries are compressed with, this must be set before any entry is written.
+	 */
+	public synchronized void setLevel(int level) {
+		if (writing) {
+			throw new IllegalStateException("Cannot change the compression level after entries have been written");
+		}
+
+		this.level = level;
+	}
+
+	/**
+	 * @see RawZipWriter#copy(RawZipFile, RawZipEntry)
+	 */
+	public synchronized void copy(RawZipFile source, RawZipEntry entry) throws IOException {
+		add(new PendingWrite(null, 0, () -> writer.copy(source, entry)));
+	}
+
+	/**
+	 * @see RawZipWriter#copy(RawZipFile, RawZipEntry, RawZipEntry)
+	 */
+	public synchronized void copy(RawZipFile source, RawZipEntry entry, RawZipEntry header) throws IOException {
+		add(new PendingWrite(null, 0, () -> writer.copy(source, entry, header)));
+	}
+
+	/**
+	 * @see RawZipWriter#copyVerbatim(RawZipFile, List, long, long)
+	 */
+	public synchronized void copyVerbatim(RawZipFile source, List<RawZipEntry> entries, long start, long end) throws IOException {
+		// The entries are copied, as the write may happen after the caller has reused the list.
+		final List<RawZipEntry> copied = List.copyOf(entries);
+		add(new PendingWrite(null, 0, () -> writer.copyVerbatim(source, copied, start, end)));
+	}
+
+	/**
+	 * Queues an entry to be compressed on the worker pool, using the method, time and attributes of the given entry.
+	 * The data must not be modified after it has been passed to the writer.
+	 */
+	public synchronized void write(RawZipEntry entry, byte[] data) throws IOException {
+		final Compression compression = new Compression(entry.method(), data);
+		executor.execute(compression);
+
+		add(new PendingWrite(compression, data.length, () -> {
+			final Compressed compressed = compression.get();
+			writer.writeCompressed(entry, compressed.crc(), data.length, compressed.data());
+		}));
+	}
+
+	/**
+	 * @see RawZipWriter#writeStored(RawZipEntry, Path)
+	 */
+	public synchronized void writeStored(RawZipEntry entry, Path file) throws IOException {
+		add(new PendingWrite(null, 0, () -> writer.writeStored(entry, file)));
+	}
+
+	public void write(String name, byte[] data) throws IOException {
+		write(RawZipWriter.createEntry(name), data);
+	}
+
+	public void writeDirectory(String name) throws IOException {
+		write(name.endsWith("/") ? name : name + "/", new byte[0]);
+	}
+
+	private void add(PendingWrite write) throws IOException {
+		writing = true;
+		pending.addLast(write);
+		pendingBytes += write.size();
+
+		// Write everything that is ready, and wait for the rest when too much is waiting.
+		while (!pending.isEmpty() && (pending.peekFirst().isReady() || pendingBytes > MAX_PENDING_BYTES)) {
+			writeNext();
+		}
+	}
+
+	private void writeNext() throws IOException {
+		final PendingWrite write = pending.removeFirst();
+		pendingBytes -= write.size();
+
+		try {
+			write.action().run();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try (writer) {
+			while (!pending.isEmpty()) {
+				writeNext();
+			}
+		} finally {
+			Deflater deflater;
+
+			while ((deflater = deflaters.poll()) != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	private record PendingWrite(Compression compression, long size, WriteAction action) {
+		boolean isReady() {
+			return compression == null || compression.isDone();
+		}
+	}
+
+	@FunctionalInterface
+	private interface WriteAction {
+		void run() throws IOException;
+	}
+
+	private record Compressed(long crc, byte[] data) {
+	}
+
+	/**
+	 * Compresses the data of a single entry, either on the worker pool or on the thread that needs the result first.
+	 */
+	private final class Compression implements Runnable {
+		private final int method;
+		private final byte[] data;
+		private final AtomicBoolean started = new AtomicBoolean();
+		private final CompletableFuture<Compressed> result = new CompletableFuture<>();
+
+		Compression(int method, byte[] data) {
+			this.method = method;
+			this.data = data;
+		}
+
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true)) {
+				return;
+			}
+
+			try {
+				result.complete(new Compressed(RawZipWriter.crc(data), method == RawZipEntry.STORED ? data : deflate()));
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
+			}
+		}
+
+		private byte[] deflate() {
+			Deflater deflater = deflaters.poll();
+
+			if (deflater == null) {
+				deflater = new Deflater(level, true);
+			}
+
+			try {
+				return RawZipWriter.deflate(deflater, data);
+			} finally {
+				deflaters.add(deflater);
+			}
+		}
+
+		boolean isDone() {
+			return result.isDone();
+		}
+
+		Compressed get() {
+			run();
+
+			try {
+				return result.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException runtimeException) {
+					throw runtimeException;
+				}
+
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.zip;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An entry as stored in the central directory of a zip file.
+ *
+ * @param name the name as it is stored in the archive, decoded as UTF-8
+ * @param localHeaderOffset the offset of the local file header in the archive the entry was read from
+ */
+public record RawZipEntry(
+		String name,
+		byte[] rawName,
+		int versionMadeBy,
+		int versionNeeded,
+		int flags,
+		int method,
+		int dosTime,
+		int dosDate,
+		long crc,
+		long compressedSize,
+		long size,
+		byte[] extra,
+		byte[] comment,
+		int internalAttributes,
+		long externalAttributes,
+		long localHeaderOffset
+) {
+	public static final int STORED = 0;
+	public static final int DEFLATED = 8;
+
+	static final int FLAG_ENCRYPTED = 1;
+	static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	static final int FLAG_UTF8 = 1 << 11;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * Creates an entry for data that has not yet been written, the sizes, crc and offset are filled in by {@link RawZipWriter}.
+	 */
+	public static RawZipEntry create(String name, int method, int dosTime, int dosDate) {
+		return new RawZipEntry(name, name.getBytes(StandardCharsets.UTF_8), 20, 20, FLAG_UTF8, method, dosTime, dosDate, 0, 0, 0, EMPTY, EMPTY, 0, 0, 0);
+	}
+
+	public boolean isDirectory() {
+		return name.endsWith("/");
+	}
+
+	RawZipEntry withData(int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+		return new RawZipEntry(name, rawName, versionMadeBy, versionNeeded, flags & ~FLAG_DATA_DESCRIPTOR, method, dosTime, dosDate, crc, compressedSize, size, extra, comment, internalAttributes, externalAttributes, localHeaderOffset);
+	}
+
+	/**
+	 * @return this entry to be written with another compression method, the sizes and crc are filled in by {@link RawZipWriter}
+	 */
+	RawZipEntry withMethod(int method) {
+		return withData(method, crc, compressedSize, size, localHeaderOffset);
+	}
+
+	RawZipEntry withLocalHeaderOffset(long localHeaderOffset) {
+		return withData(method, crc, compressedSize, size, localHeaderOffset);
+	}
+
+	/**
+	 * @return this entry with the given time, and without any extra fields as they may hold more precise timestamps
+	 */
+	public RawZipEntry withTime(int dosTime, int dosDate) {
+		return new RawZipEntry(name, rawName, versionMadeBy, versionNeeded, flags, method, dosTime, dosDate, crc, compressedSize, size, EMPTY, comment, internalAttributes, externalAttributes, localHeaderOffset);
+	}
+
+	/**
+	 * @return this entry moved to another offset, with its local header and data (including any data descriptor) unchanged
+	 */
+	RawZipEntry moveTo(long localHeaderOffset) {
+		return new RawZipEntry(name, rawName, versionMadeBy, versionNeeded, flags, method, dosTime, dosDate, crc, compressedSize, size, extra, comment, internalAttributes, externalAttributes, localHeaderOffset);
+	}
+}
@@ -0,0 +1,407 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads a zip file through its central directory, allowing entries to be read or copied to a {@link RawZipWriter} as their compressed bytes.
+ *
+ * <p>Unlike zipfs this does not read or inflate any entry until it is asked for, and unlike {@link java.util.zip.ZipFile} it gives access to the raw compressed data.
+ * ZIP64 and encrypted archives are not supported, and throw {@link UnsupportedZipException}.
+ */
+public final class RawZipFile implements Closeable {
+	static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+	static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	private static final int WINDOW_SIZE = 1024 * 1024;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final Window window;
+	private final List<RawZipEntry> entries;
+	private final Map<String, RawZipEntry> entriesByName;
+	private final byte[] comment;
+	private final long centralDirectoryOffset;
+
+	private RawZipFile(Path path, FileChannel channel, List<RawZipEntry> entries, byte[] comment, long centralDirectoryOffset) {
+		this.path = path;
+		this.channel = channel;
+		this.window = new Window(channel);
+		this.entries = Collections.unmodifiableList(entries);
+		this.entriesByName = new HashMap<>(entries.size() * 2);
+		this.comment = comment;
+		this.centralDirectoryOffset = centralDirectoryOffset;
+
+		for (RawZipEntry entry : entries) {
+			entriesByName.putIfAbsent(entry.name(), entry);
+		}
+	}
+
+	public static RawZipFile open(Path path) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			return read(path, channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static RawZipFile read(Path path, FileChannel channel) throws IOException {
+		final long size = channel.size();
+
+		if (size < END_OF_CENTRAL_DIRECTORY_SIZE) {
+			throw new ZipException("%s is not a zip file".formatted(path));
+		}
+
+		// The end of central directory record is followed by a comment of up to 64KiB.
+		final int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+		final ByteBuffer tail = readFully(channel, size - tailSize, tailSize);
+		int eocd = -1;
+
+		for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE && i + END_OF_CENTRAL_DIRECTORY_SIZE + (tail.getShort(i + 20) & 0xFFFF) <= tailSize) {
+				eocd = i;
+				break;
+			}
+		}
+
+		if (eocd < 0) {
+			throw new ZipException("%s is not a zip file, could not find the end of the central directory".formatted(path));
+		}
+
+		if (eocd >= 20 && tail.getInt(eocd - 20) == ZIP64_LOCATOR_SIGNATURE) {
+			throw new UnsupportedZipException("%s is a ZIP64 archive".formatted(path));
+		}
+
+		final int entryCount = tail.getShort(eocd + 10) & 0xFFFF;
+		final long centralDirectorySize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+		final long centralDirectoryOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+		final byte[] comment = new byte[tail.getShort(eocd + 20) & 0xFFFF];
+		tail.get(eocd + END_OF_CENTRAL_DIRECTORY_SIZE, comment);
+
+		if (centralDirectoryOffset + centralDirectorySize > size - tailSize + eocd) {
+			throw new ZipException("%s has an invalid central directory".formatted(path));
+		}
+
+		final ByteBuffer centralDirectory = readFully(channel, centralDirectoryOffset, (int) centralDirectorySize);
+		final List<RawZipEntry> entries = new ArrayList<>(entryCount);
+
+		while (centralDirectory.remaining() >= CENTRAL_HEADER_SIZE) {
+			final int start = centralDirectory.position();
+
+			if (centralDirectory.getInt(start) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("%s has an invalid central directory entry at %d".formatted(path, centralDirectoryOffset + start));
+			}
+
+			final int flags = centralDirectory.getShort(start + 8) & 0xFFFF;
+
+			if ((flags & RawZipEntry.FLAG_ENCRYPTED) != 0) {
+				throw new UnsupportedZipException("%s contains encrypted entries".formatted(path));
+			}
+
+			final byte[] rawName = new byte[centralDirectory.getShort(start + 28) & 0xFFFF];
+			final byte[] extra = new byte[centralDirectory.getShort(start + 30) & 0xFFFF];
+			final byte[] entryComment = new byte[centralDirectory.getShort(start + 32) & 0xFFFF];
+			centralDirectory.position(start + CENTRAL_HEADER_SIZE);
+			centralDirectory.get(rawName).get(extra).get(entryComment);
+
+			entries.add(new RawZipEntry(
+					new String(rawName, StandardCharsets.UTF_8),
+					rawName,
+					centralDirectory.getShort(start + 4) & 0xFFFF,
+					centralDirectory.getShort(start + 6) & 0xFFFF,
+					flags,
+					centralDirectory.getShort(start + 10) & 0xFFFF,
+					centralDirectory.getShort(start + 12) & 0xFFFF,
+					centralDirectory.getShort(start + 14) & 0xFFFF,
+					centralDirectory.getInt(start + 16) & 0xFFFFFFFFL,
+					centralDirectory.getInt(start + 20) & 0xFFFFFFFFL,
+					centralDirectory.getInt(start + 24) & 0xFFFFFFFFL,
+					extra,
+					entryComment,
+					centralDirectory.getShort(start + 36) & 0xFFFF,
+					centralDirectory.getInt(start + 38) & 0xFFFFFFFFL,
+					centralDirectory.getInt(start + 42) & 0xFFFFFFFFL
+			));
+		}
+
+		return new RawZipFile(path, channel, entries, comment, centralDirectoryOffset);
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the entries in the order that they appear in the central directory
+	 */
+	public List<RawZipEntry> getEntries() {
+		return entries;
+	}
+
+	@Nullable
+	public RawZipEntry getEntry(String name) {
+		return entriesByName.get(name);
+	}
+
+	public byte[] getComment() {
+		return comment;
+	}
+
+	/**
+	 * @return the offset of the central directory, which immediately follows the last entry
+	 */
+	public long getCentralDirectoryOffset() {
+		return centralDirectoryOffset;
+	}
+
+	/**
+	 * Reads and inflates the contents of the given entry, verifying its crc.
+	 */
+	public byte[] read(RawZipEntry entry) throws IOException {
+		if (entry.size() > Integer.MAX_VALUE - 8) {
+			throw new ZipException("%s is too large to read into memory".formatted(entry.name()));
+		}
+
+		final byte[] data = switch (entry.method()) {
+		case RawZipEntry.STORED -> readRaw(entry);
+		case RawZipEntry.DEFLATED -> inflate(entry, readRaw(entry));
+		default -> throw new UnsupportedZipException("%s uses unsupported compression method %d".formatted(entry.name(), entry.method()));
+		};
+
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+
+		if (crc.getValue() != entry.crc()) {
+			throw new ZipException("%s in %s has an invalid crc".formatted(entry.name(), path));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Reads the data of the given entry as it is stored in the archive, without inflating it.
+	 */
+	public byte[] readRaw(RawZipEntry entry) throws IOException {
+		final byte[] bytes = new byte[Math.toIntExact(entry.compressedSize())];
+
+		synchronized (window) {
+			final long dataOffset = readLocalHeader(entry).dataOffset();
+			int offset = 0;
+
+			while (offset < bytes.length) {
+				final ByteBuffer buffer = window.read(dataOffset + offset, Math.min(bytes.length - offset, WINDOW_SIZE));
+				final int length = buffer.remaining();
+				buffer.get(bytes, offset, length);
+				offset += length;
+			}
+		}
+
+		return bytes;
+	}
+
+	LocalHeader readLocalHeader(RawZipEntry entry) throws IOException {
+		synchronized (window) {
+			final ByteBuffer header = window.read(entry.localHeaderOffset(), LOCAL_HEADER_SIZE);
+
+			if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+				throw new ZipException("%s in %s has an invalid local header".formatted(entry.name(), path));
+			}
+
+			final int nameLength = header.getShort(26) & 0xFFFF;
+			final int extraLength = header.getShort(28) & 0xFFFF;
+			final byte[] extra = new byte[extraLength];
+
+			if (extraLength > 0) {
+				window.read(entry.localHeaderOffset() + LOCAL_HEADER_SIZE + nameLength, extraLength).get(extra);
+			}
+
+			return new LocalHeader(entry.localHeaderOffset() + LOCAL_HEADER_SIZE + nameLength + extraLength, extra);
+		}
+	}
+
+	/**
+	 * Passes the raw data of the given entry to the consumer, in chunks.
+	 */
+	void copyRaw(RawZipEntry entry, long dataOffset, ChunkConsumer consumer) throws IOException {
+		synchronized (window) {
+			long remaining = entry.compressedSize();
+			long position = dataOffset;
+
+			while (remaining > 0) {
+				final ByteBuffer buffer = window.read(position, (int) Math.min(remaining, WINDOW_SIZE));
+				final int length = buffer.remaining();
+				consumer.accept(buffer);
+				position += length;
+				remaining -= length;
+			}
+		}
+	}
+
+	/**
+	 * Copies a region of the file to the target, letting the OS avoid copying the data through the JVM where it can.
+	 */
+	void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		while (count > 0) {
+			final long transferred = channel.transferTo(position, count, target);
+
+			if (transferred <= 0) {
+				throw new ZipException("Unexpected end of %s".formatted(path));
+			}
+
+			position += transferred;
+			count -= transferred;
+		}
+	}
+
+	@FunctionalInterface
+	interface ChunkConsumer {
+		void accept(ByteBuffer buffer) throws IOException;
+	}
+
+	/**
+	 * @param dataOffset the offset of the data of the entry in the archive, immediately after its local header
+	 * @param extra the extra field of the local header, this can differ from the extra field in the central directory
+	 */
+	record LocalHeader(long dataOffset, byte[] extra) {
+	}
+
+	/**
+	 * Caches a region of the file, the entries of a zip file are usually read in order so this saves a read for each local header.
+	 */
+	private static final class Window {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(WINDOW_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private long start = 0;
+		private int length = 0;
+
+		private Window(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * @return a buffer containing up to the requested number of bytes from the position, only valid until the next read
+		 */
+		ByteBuffer read(long position, int requested) throws IOException {
+			if (position < start || position + requested > start + length) {
+				fill(position, requested);
+			}
+
+			final int offset = (int) (position - start);
+			return buffer.duplicate().position(offset).limit(offset + Math.min(requested, length - offset)).slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		private void fill(long position, int requested) throws IOException {
+			buffer.clear();
+			start = position;
+			length = 0;
+
+			while (length < Math.min(requested, WINDOW_SIZE)) {
+				final int read = channel.read(buffer, position + length);
+
+				if (read < 0) {
+					throw new ZipException("Unexpected end of zip file");
+				}
+
+				length += read;
+			}
+		}
+	}
+
+	private static byte[] inflate(RawZipEntry entry, byte[] compressed) throws ZipException {
+		final Inflater inflater = new Inflater(true);
+
+		try {
+			inflater.setInput(compressed);
+			final byte[] data = new byte[(int) entry.size()];
+			int offset = 0;
+
+			while (offset < data.length) {
+				final int inflated = inflater.inflate(data, offset, data.length - offset);
+
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				offset += inflated;
+			}
+
+			if (offset != data.length) {
+				throw new ZipException("%s inflated to %d bytes, expected %d".formatted(entry.name(), offset, data.length));
+			}
+
+			return data;
+		} catch (DataFormatException e) {
+			throw new ZipException("Failed to inflate %s: %s".formatted(entry.name(), e.getMessage()));
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new ZipException("Unexpected end of zip file");
+			}
+		}
+
+		return buffer.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a zip file, either from uncompressed data or by copying the compressed bytes of an entry from a {@link RawZipFile} without inflating them.
+ *
+ * <p>Entries are written with their sizes and crc in the local header, the central directory is written when the writer is closed.
+ */
+public final class RawZipWriter implements Closeable {
+	private static final int MAX_ENTRIES = 0xFFFF;
+	private static final long MAX_OFFSET = 0xFFFFFFFFL;
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private final FileChannel channel;
+	private final List<RawZipEntry> centralDirectory = new ArrayList<>();
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	// Large enough for any header, as names, extra fields and comments are each limited to 64KiB.
+	private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private byte[] comment = new byte[0];
+	private long position = 0;
+
+	public RawZipWriter(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	public void setComment(byte[] comment) {
+		this.comment = comment;
+	}
+
+	public void setLevel(int level) {
+		deflater.setLevel(level);
+	}
+
+	/**
+	 * Copies an entry as it is stored in the source archive, without inflating and deflating it again.
+	 */
+	public void copy(RawZipFile source, RawZipEntry entry) throws IOException {
+		final RawZipFile.LocalHeader localHeader = source.readLocalHeader(entry);
+		final RawZipEntry written = entry.withLocalHeaderOffset(position);
+
+		writeLocalHeader(written, localHeader.extra());
+		source.copyRaw(entry, localHeader.dataOffset(), this::writeFully);
+		centralDirectory.add(written);
+	}
+
+	/**
+	 * Copies the compressed data of an entry in the source archive, written with the time and attributes of {@code header} in place of its own.
+	 */
+	public void copy(RawZipFile source, RawZipEntry entry, RawZipEntry header) throws IOException {
+		if (header.method() != entry.method() || header.crc() != entry.crc() || header.compressedSize() != entry.compressedSize()) {
+			throw new IllegalArgumentException("Header of %s does not match its data".formatted(entry.name()));
+		}
+
+		final RawZipFile.LocalHeader localHeader = source.readLocalHeader(entry);
+		final RawZipEntry written = header.withLocalHeaderOffset(position);
+
+		writeLocalHeader(written, written.extra());
+		source.copyRaw(entry, localHeader.dataOffset(), this::writeFully);
+		centralDirectory.add(written);
+	}
+
+	/**
+	 * Copies a region of the source archive containing the given entries exactly as it is, their local headers and data are not read.
+	 *
+	 * @param start the offset of the first entry's local header
+	 * @param end the offset immediately after the last entry's data
+	 */
+	public void copyVerbatim(RawZipFile source, List<RawZipEntry> entries, long start, long end) throws IOException {
+		flush();
+		source.transferTo(start, end - start, channel);
+
+		for (RawZipEntry entry : entries) {
+			centralDirectory.add(entry.moveTo(position + entry.localHeaderOffset() - start));
+		}
+
+		position += end - start;
+	}
+
+	/**
+	 * Writes an entry from its uncompressed data, using the method, time and attributes of the given entry.
+	 */
+	public void write(RawZipEntry entry, byte[] data) throws IOException {
+		writeCompressed(entry, crc(data), data.length, entry.method() == RawZipEntry.STORED ? data : deflate(deflater, data));
+	}
+
+	public void write(String name, byte[] data) throws IOException {
+		write(createEntry(name), data);
+	}
+
+	public void writeDirectory(String name) throws IOException {
+		write(name.endsWith("/") ? name : name + "/", new byte[0]);
+	}
+
+	/**
+	 * Writes an entry stored uncompressed from the contents of a file, which is streamed into the archive rather than read into memory.
+	 */
+	public void writeStored(RawZipEntry entry, Path file) throws IOException {
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = source.size();
+			final RawZipEntry written = entry.withData(RawZipEntry.STORED, crc(source, size), size, size, position);
+
+			writeLocalHeader(written, new byte[0]);
+			flush();
+
+			for (long transferred = 0; transferred < size; ) {
+				transferred += source.transferTo(transferred, size - transferred, channel);
+			}
+
+			position += size;
+			centralDirectory.add(written);
+		}
+	}
+
+	/**
+	 * Writes an entry from data that has already been compressed with the method of the given entry.
+	 */
+	void writeCompressed(RawZipEntry entry, long crc, long size, byte[] compressed) throws IOException {
+		final RawZipEntry written = entry.withData(entry.method(), crc, compressed.length, size, position);
+
+		writeLocalHeader(written, new byte[0]);
+		writeFully(ByteBuffer.wrap(compressed));
+		centralDirectory.add(written);
+	}
+
+	/**
+	 * @return an entry with the current time, stored when it is a directory and deflated otherwise
+	 */
+	static RawZipEntry createEntry(String name) {
+		final int[] dosDateTime = toDosDateTime(LocalDateTime.now());
+		return RawZipEntry.create(name, name.endsWith("/") ? RawZipEntry.STORED : RawZipEntry.DEFLATED, dosDateTime[0], dosDateTime[1]);
+	}
+
+	static long crc(byte[] data) {
+		final CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	private static long crc(FileChannel source, long size) throws IOException {
+		final CRC32 crc = new CRC32();
+		final ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(size, BUFFER_SIZE));
+
+		for (long position = 0; position < size; ) {
+			final int read = source.read(buffer.clear(), position);
+
+			if (read < 0) {
+				throw new EOFException("Unexpected end of file");
+			}
+
+			crc.update(buffer.flip());
+			position += read;
+		}
+
+		return crc.getValue();
+	}
+
+	static byte[] deflate(Deflater deflater, byte[] data) {
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+
+		byte[] buffer = new byte[Math.max(64, data.length / 2)];
+		int length = 0;
+
+		while (!deflater.finished()) {
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+
+			length += deflater.deflate(buffer, length, buffer.length - length);
+		}
+
+		return Arrays.copyOf(buffer, length);
+	}
+
+	private void writeLocalHeader(RawZipEntry entry, byte[] extra) throws IOException {
+		if (entry.localHeaderOffset() > MAX_OFFSET || entry.compressedSize() > MAX_OFFSET || entry.size() > MAX_OFFSET) {
+			throw new UnsupportedZipException("Writing %s would require ZIP64".formatted(entry.name()));
+		}
+
+		final ByteBuffer header = reserve(RawZipFile.LOCAL_HEADER_SIZE + entry.rawName().length + extra.length);
+		header.putInt(RawZipFile.LOCAL_HEADER_SIGNATURE)
+				.putShort((short) entry.versionNeeded())
+				.putShort((short) entry.flags())
+				.putShort((short) entry.method())
+				.putShort((short) entry.dosTime())
+				.putShort((short) entry.dosDate())
+				.putInt((int) entry.crc())
+				.putInt((int) entry.compressedSize())
+				.putInt((int) entry.size())
+				.putShort((short) entry.rawName().length)
+				.putShort((short) extra.length)
+				.put(entry.rawName())
+				.put(extra);
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		if (centralDirectory.size() > MAX_ENTRIES) {
+			throw new UnsupportedZipException("Writing %d entries would require ZIP64".formatted(centralDirectory.size()));
+		}
+
+		final long offset = position;
+
+		for (RawZipEntry entry : centralDirectory) {
+			final ByteBuffer header = reserve(RawZipFile.CENTRAL_HEADER_SIZE + entry.rawName().length + entry.extra().length + entry.comment().length);
+			header.putInt(RawZipFile.CENTRAL_HEADER_SIGNATURE)
+					.putShort((short) entry.versionMadeBy())
+					.putShort((short) entry.versionNeeded())
+					.putShort((short) entry.flags())
+					.putShort((short) entry.method())
+					.putShort((short) entry.dosTime())
+					.putShort((short) entry.dosDate())
+					.putInt((int) entry.crc())
+					.putInt((int) entry.compressedSize())
+					.putInt((int) entry.size())
+					.putShort((short) entry.rawName().length)
+					.putShort((short) entry.extra().length)
+					.putShort((short) entry.comment().length)
+					.putShort((short) 0) // Disk number
+					.putShort((short) entry.internalAttributes())
+					.putInt((int) entry.externalAttributes())
+					.putInt((int) entry.localHeaderOffset())
+					.put(entry.rawName())
+					.put(entry.extra())
+					.put(entry.comment());
+		}
+
+		if (position > MAX_OFFSET) {
+			throw new UnsupportedZipException("Writing a central directory at %d would require ZIP64".formatted(offset));
+		}
+
+		final long centralDirectorySize = position - offset;
+		final ByteBuffer end = reserve(RawZipFile.END_OF_CENTRAL_DIRECTORY_SIZE + comment.length);
+		end.putInt(RawZipFile.END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+				.putShort((short) 0) // Disk number
+				.putShort((short) 0) // Disk with the central directory
+				.putShort((short) centralDirectory.size())
+				.putShort((short) centralDirectory.size())
+				.putInt((int) centralDirectorySize)
+				.putInt((int) offset)
+				.putShort((short) comment.length)
+				.put(comment);
+	}
+
+	/**
+	 * @return the output buffer, with at least the given number of bytes remaining, to put a record of exactly that size into
+	 */
+	private ByteBuffer reserve(int length) throws IOException {
+		if (output.remaining() < length) {
+			flush();
+		}
+
+		position += length;
+		return output;
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		position += buffer.remaining();
+
+		if (buffer.remaining() > output.remaining()) {
+			flush();
+
+			if (buffer.remaining() > output.capacity()) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+
+				return;
+			}
+		}
+
+		output.put(buffer);
+	}
+
+	private void flush() throws IOException {
+		output.flip();
+
+		while (output.hasRemaining()) {
+			channel.write(output);
+		}
+
+		output.clear();
+	}
+
+	/**
+	 * @return the MS-DOS time and date, as used by zip files
+	 */
+	public static int[] toDosDateTime(LocalDateTime time) {
+		if (time.getYear() < 1980) {
+			return new int[]{0, (1 << 5) | 1};
+		}
+
+		final int dosTime = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+		final int dosDate = ((time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+		return new int[]{dosTime, dosDate};
+	}
+
+	@Override
+	public void close() throws IOException {
+		try (channel) {
+			writeCentralDirectory();
+			flush();
+		} finally {
+			deflater.end();
+		}
+	}
+}
@@ -0,0 +1,532 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.util.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Applies a set of edits to a zip file in a single pass.
+ *
+ * <p>Edits are collected in memory (other than entries put from a file), and written by {@link #commit()} to a new file which then replaces the original.
+ * Entries that have not been edited are copied as their compressed bytes, so only the edited entries have to be inflated and deflated,
+ * which is done in parallel by a {@link ParallelZipWriter}.
+ */
+public final class ZipRewriter implements Closeable {
+	// See org.gradle.api.internal.file.archive.ZipCopyAction, the same time is used so that the output matches gradle's reproducible archives.
+	private static final int[] CONSTANT_TIME_FOR_ZIP_ENTRIES = RawZipWriter.toDosDateTime(LocalDateTime.of(1980, 2, 1, 0, 0));
+
+	private final Path zip;
+	@Nullable
+	private final RawZipFile input;
+	// Both replaced and added entries, in the order they were put.
+	private final Map<String, Change> changes = new LinkedHashMap<>();
+	private final Set<String> removals = new HashSet<>();
+	private final boolean ownsInput;
+	private boolean reproducibleFileOrder = false;
+	private boolean preserveFileTimestamps = true;
+	private boolean recompress = false;
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	private ZipRewriter(Path zip, @Nullable RawZipFile input, boolean ownsInput) {
+		this.zip = zip;
+		this.input = input;
+		this.ownsInput = ownsInput;
+	}
+
+	/**
+	 * Opens a zip file to be rewritten, the file will be created if it does not exist.
+	 */
+	public static ZipRewriter open(Path zip) throws IOException {
+		return new ZipRewriter(zip, Files.exists(zip) ? RawZipFile.open(zip) : null, true);
+	}
+
+	/**
+	 * Opens a zip file to be written to another path with the edits applied, the input is left unchanged.
+	 */
+	public static ZipRewriter open(Path input, Path output) throws IOException {
+		return new ZipRewriter(output, RawZipFile.open(input), true);
+	}
+
+	/**
+	 * Opens an already open zip file to be written to another path, the input is not closed with the rewriter.
+	 * Multiple rewriters may share the same input, and be committed concurrently.
+	 */
+	public static ZipRewriter open(RawZipFile input, Path output) {
+		if (input.getPath().equals(output)) {
+			throw new IllegalArgumentException("Cannot rewrite a shared zip file in place");
+		}
+
+		return new ZipRewriter(output, input, false);
+	}
+
+	/**
+	 * Commits all of the rewriters concurrently.
+	 */
+	public static void commitAll(List<ZipRewriter> rewriters) throws IOException {
+		try {
+			rewriters.parallelStream().forEach(rewriter -> {
+				try {
+					rewriter.commit();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * When enabled the entries are written sorted by name, rather than in the order of the input followed by any new entries.
+	 */
+	public void setReproducibleFileOrder(boolean reproducibleFileOrder) {
+		this.reproducibleFileOrder = reproducibleFileOrder;
+	}
+
+	/**
+	 * When disabled all entries are written with a constant time, and without any extra fields.
+	 */
+	public void setPreserveFileTimestamps(boolean preserveFileTimestamps) {
+		this.preserveFileTimestamps = preserveFileTimestamps;
+	}
+
+	/**
+	 * Sets the level that all entries are written with, {@link Deflater#NO_COMPRESSION} stores them uncompressed.
+	 *
+	 * <p>Entries that are stored when they should be deflated, or deflated when they should be stored, are recompressed.
+	 * Entries that are already deflated are copied as they are, whatever level they were compressed with.
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.recompress = true;
+		this.compressionLevel = compressionLevel;
+	}
+
+	public boolean contains(String name) {
+		name = normalize(name);
+
+		if (changes.containsKey(name)) {
+			return true;
+		}
+
+		return !removals.contains(name) && input != null && input.getEntry(name) != null;
+	}
+
+	public byte[] read(String name) throws IOException {
+		name = normalize(name);
+		final Change changed = changes.get(name);
+
+		if (changed != null) {
+			return changed.read();
+		}
+
+		final RawZipEntry entry = input != null && !removals.contains(name) ? input.getEntry(name) : null;
+
+		if (entry == null) {
+			throw new NoSuchFileException(name);
+		}
+
+		return input.read(entry);
+	}
+
+	/**
+	 * Adds an entry, or replaces it if it already exists.
+	 */
+	public void put(String name, byte[] data) {
+		name = normalize(name);
+		removals.remove(name);
+		changes.put(name, new Change(data, null));
+	}
+
+	/**
+	 * Adds an entry from a file, or replaces it if it already exists.
+	 * The file is streamed into the zip when it is committed, and is stored uncompressed as it is expected to be compressed already, such as a jar.
+	 */
+	public void putFile(String name, Path file) {
+		name = normalize(name);
+		removals.remove(name);
+		changes.put(name, new Change(null, file));
+	}
+
+	public void remove(String name) {
+		name = normalize(name);
+		changes.remove(name);
+		removals.add(name);
+	}
+
+	/**
+	 * Removes all of the entries of the input matching the predicate, entries that have been put are kept.
+	 */
+	public void removeIf(Predicate<String> predicate) {
+		if (input == null) {
+			return;
+		}
+
+		for (RawZipEntry entry : input.getEntries()) {
+			if (!changes.containsKey(entry.name()) && predicate.test(entry.name())) {
+				removals.add(entry.name());
+			}
+		}
+	}
+
+	/**
+	 * Removes all of the files of the input that do not match the predicate, along with the directories that would be left empty.
+	 */
+	public void retainAll(Predicate<String> predicate) {
+		if (input == null) {
+			return;
+		}
+
+		final Set<String> directories = new HashSet<>();
+
+		for (RawZipEntry entry : input.getEntries()) {
+			if (!entry.isDirectory() && !removals.contains(entry.name()) && predicate.test(entry.name())) {
+				addParentDirectories(entry.name(), directories);
+			}
+		}
+
+		for (String name : changes.keySet()) {
+			addParentDirectories(name, directories);
+		}
+
+		removeIf(name -> name.endsWith("/") ? !directories.contains(name) : !predicate.test(name));
+	}
+
+	public boolean hasChanges() {
+		return !changes.isEmpty() || !removals.isEmpty();
+	}
+
+	/**
+	 * Writes the zip file with all of the edits applied.
+	 * Does nothing when there are none and the zip would be written back to where it was read from unchanged.
+	 */
+	public void commit() throws IOException {
+		final boolean inPlace = input == null || input.getPath().equals(zip);
+
+		if (!hasChanges() && inPlace && !reproducibleFileOrder && preserveFileTimestamps && !requiresRecompression()) {
+			return;
+		}
+
+		final Path parent = zip.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		final Path temp = Files.createTempFile(parent, zip.getFileName().toString(), ".tmp");
+
+		try {
+			write(temp);
+
+			if (input != null && ownsInput) {
+				// Must be closed before the file can be replaced on windows.
+				input.close();
+			}
+
+			try {
+				Files.move(temp, zip, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, zip, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		changes.clear();
+		removals.clear();
+	}
+
+	private void write(Path output) throws IOException {
+		final Set<String> written = new HashSet<>();
+
+		try (ParallelZipWriter writer = new ParallelZipWriter(output)) {
+			if (recompress && compressionLevel != Deflater.NO_COMPRESSION) {
+				writer.setLevel(compressionLevel);
+			}
+
+			if (input != null) {
+				writer.setComment(input.getComment());
+			}
+
+			if (reproducibleFileOrder || !preserveFileTimestamps) {
+				writeNormalized(writer);
+				return;
+			}
+
+			if (input != null) {
+				copyInput(input, writer, written);
+			}
+
+			// Directories that exist, either as an entry or implied by the entries in them.
+			final Set<String> directories = new HashSet<>();
+
+			for (String name : written) {
+				if (name.endsWith("/")) {
+					directories.add(name);
+				}
+
+				addParentDirectories(name, directories);
+			}
+
+			for (Map.Entry<String, Change> entry : changes.entrySet()) {
+				if (written.contains(entry.getKey())) {
+					continue;
+				}
+
+				for (String directory : getMissingParentDirectories(entry.getKey(), directories)) {
+					writer.write(createEntry(directory), new byte[0]);
+				}
+
+				written.add(entry.getKey());
+				writeChange(writer, createEntry(entry.getKey()), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Writes every entry one by one, so that they can be sorted and have their times replaced.
+	 * Entries that have not been edited are still copied as their compressed bytes.
+	 */
+	private void writeNormalized(ParallelZipWriter writer) throws IOException {
+		final Map<String, RawZipEntry> inputEntries = new LinkedHashMap<>();
+
+		if (input != null) {
+			for (RawZipEntry entry : input.getEntries()) {
+				if (!removals.contains(entry.name())) {
+					inputEntries.putIfAbsent(entry.name(), entry);
+				}
+			}
+		}
+
+		final Set<String> directories = new HashSet<>();
+		final List<String> names = new ArrayList<>(inputEntries.keySet());
+
+		for (String name : names) {
+			if (name.endsWith("/")) {
+				directories.add(name);
+			}
+
+			addParentDirectories(name, directories);
+		}
+
+		for (String name : changes.keySet()) {
+			if (!inputEntries.containsKey(name)) {
+				names.addAll(getMissingParentDirectories(name, directories));
+				names.add(name);
+			}
+		}
+
+		if (reproducibleFileOrder) {
+			names.sort(null);
+		}
+
+		for (String name : names) {
+			final RawZipEntry entry = inputEntries.get(name);
+			final Change changed = changes.get(name);
+
+			if (entry == null) {
+				writeChange(writer, createEntry(name), changed != null ? changed : new Change(new byte[0], null));
+			} else if (changed != null) {
+				writeChange(writer, normalizeTime(entry), changed);
+			} else if (requiresRecompression(entry)) {
+				writer.write(normalizeTime(withCompression(entry)), input.read(entry));
+			} else if (preserveFileTimestamps) {
+				writer.copy(input, entry);
+			} else {
+				writer.copy(input, entry, normalizeTime(entry));
+			}
+		}
+	}
+
+	private void writeChange(ParallelZipWriter writer, RawZipEntry entry, Change change) throws IOException {
+		if (change.file() != null) {
+			writer.writeStored(entry, change.file());
+		} else {
+			writer.write(withCompression(entry), change.data());
+		}
+	}
+
+	/**
+	 * @return the entry with the compression method that it is to be written with
+	 */
+	private RawZipEntry withCompression(RawZipEntry entry) {
+		if (!recompress || entry.isDirectory()) {
+			return entry;
+		}
+
+		return entry.withMethod(compressionLevel == Deflater.NO_COMPRESSION ? RawZipEntry.STORED : RawZipEntry.DEFLATED);
+	}
+
+	private boolean requiresRecompression(RawZipEntry entry) {
+		return withCompression(entry).method() != entry.method();
+	}
+
+	private boolean requiresRecompression() {
+		return recompress && input != null && input.getEntries().stream().anyMatch(this::requiresRecompression);
+	}
+
+	/**
+	 * Entries that are not in the input have no time to preserve, they are given the constant time so that the output does not depend on when it was written.
+	 */
+	private static RawZipEntry createEntry(String name) {
+		return RawZipEntry.create(name, name.endsWith("/") ? RawZipEntry.STORED : RawZipEntry.DEFLATED, CONSTANT_TIME_FOR_ZIP_ENTRIES[0], CONSTANT_TIME_FOR_ZIP_ENTRIES[1]);
+	}
+
+	private RawZipEntry normalizeTime(RawZipEntry entry) {
+		return preserveFileTimestamps ? entry : entry.withTime(CONSTANT_TIME_FOR_ZIP_ENTRIES[0], CONSTANT_TIME_FOR_ZIP_ENTRIES[1]);
+	}
+
+	/**
+	 * Writes the entries of the input, runs of unchanged entries that are next to each other are copied as a single region.
+	 */
+	private void copyInput(RawZipFile input, ParallelZipWriter writer, Set<String> written) throws IOException {
+		final Map<RawZipEntry, Long> ends = getEntryEnds(input);
+		final List<RawZipEntry> run = new ArrayList<>();
+		long runStart = 0;
+		long runEnd = 0;
+
+		for (RawZipEntry entry : input.getEntries()) {
+			final boolean write = !removals.contains(entry.name()) && written.add(entry.name());
+			final Change changed = write ? changes.get(entry.name()) : null;
+			final boolean recompressed = write && changed == null && requiresRecompression(entry);
+
+			if (write && changed == null && !recompressed && (run.isEmpty() || runEnd == entry.localHeaderOffset())) {
+				if (run.isEmpty()) {
+					runStart = entry.localHeaderOffset();
+				}
+
+				run.add(entry);
+				runEnd = ends.get(entry);
+				continue;
+			}
+
+			if (!run.isEmpty()) {
+				writer.copyVerbatim(input, run, runStart, runEnd);
+				run.clear();
+			}
+
+			if (!write) {
+				continue;
+			}
+
+			if (changed != null) {
+				// Keep the time and attributes of the entry being replaced.
+				writeChange(writer, entry, changed);
+			} else if (recompressed) {
+				writer.write(withCompression(entry), input.read(entry));
+			} else {
+				run.add(entry);
+				runStart = entry.localHeaderOffset();
+				runEnd = ends.get(entry);
+			}
+		}
+
+		if (!run.isEmpty()) {
+			writer.copyVerbatim(input, run, runStart, runEnd);
+		}
+	}
+
+	/**
+	 * @return the offset that each entry ends at, being the start of the entry that follows it in the file or the central directory
+	 */
+	private static Map<RawZipEntry, Long> getEntryEnds(RawZipFile input) {
+		final List<RawZipEntry> sorted = new ArrayList<>(input.getEntries());
+		sorted.sort(Comparator.comparingLong(RawZipEntry::localHeaderOffset));
+
+		final Map<RawZipEntry, Long> ends = new IdentityHashMap<>(sorted.size());
+
+		for (int i = 0; i < sorted.size(); i++) {
+			ends.put(sorted.get(i), i + 1 < sorted.size() ? sorted.get(i + 1).localHeaderOffset() : input.getCentralDirectoryOffset());
+		}
+
+		return ends;
+	}
+
+	/**
+	 * @return the parents of the entry that are not yet in the set of directories, outermost first, these are added to the set
+	 */
+	private static List<String> getMissingParentDirectories(String name, Set<String> directories) {
+		final List<String> missing = new ArrayList<>();
+		int index = name.indexOf('/');
+
+		while (index > 0 && index < name.length() - 1) {
+			final String directory = name.substring(0, index + 1);
+
+			if (directories.add(directory)) {
+				missing.add(directory);
+			}
+
+			index = name.indexOf('/', index + 1);
+		}
+
+		return missing;
+	}
+
+	private static void addParentDirectories(String name, Set<String> directories) {
+		int index = name.lastIndexOf('/', name.length() - 2);
+
+		// Walk up until a directory that has already been added is found, as its parents will have been added with it.
+		while (index > 0 && directories.add(name.substring(0, index + 1))) {
+			index = name.lastIndexOf('/', index - 1);
+		}
+	}
+
+	private static String normalize(String name) {
+		// Paths from zipfs are absolute, entry names are not.
+		return name.startsWith("/") ? name.substring(1) : name;
+	}
+
+	/**
+	 * An added or replaced entry, either held in memory or read from a file when it is written.
+	 */
+	private record Change(@Nullable byte[] data, @Nullable Path file) {
+		byte[] read() throws IOException {
+			return data != null ? data : Files.readAllBytes(file);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (input != null && ownsInput) {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.flintloader.steel.test.benchmark
+
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryPoolMXBean
+import java.lang.management.MemoryType
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.security.MessageDigest
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+
+/**
+ * Shared helpers for the benchmarks, these are run with: gradlew benchmark -Pbenchmark=<class name>
+ *
+ * <p>The benchmarks run outside of gradle, so the inputs are downloaded directly rather than with {@link net.flintloader.steel.util.download.Download}.
+ */
+class BenchmarkUtil {
+	static final String MINECRAFT_VERSION = System.getProperty("steel.benchmark.minecraft", "1.19.2")
+	static final Path CACHE = Paths.get(System.getProperty("steel.benchmark.cache", "build/benchmark"))
+
+	private static final String VERSION_MANIFEST = "https://piston-meta.mojang.com/mc/game/version_manifest_v2.json"
+	private static final String FABRIC_MAVEN = "https://maven.fabricmc.net/"
+
+	static final int WARMUP = Integer.getInteger("steel.benchmark.warmup", 3)
+	static final int ITERATIONS = Integer.getInteger("steel.benchmark.iterations", 10)
+
+	/**
+	 * Downloads the client jar of the Minecraft version, or uses the jar given with -Dsteel.benchmark.jar.
+	 */
+	static Path minecraftJar() {
+		def jar = System.getProperty("steel.benchmark.jar")
+
+		if (jar != null) {
+			return Paths.get(jar)
+		}
+
+		def output = CACHE.resolve("minecraft-${MINECRAFT_VERSION}-client.jar")
+
+		if (Files.notExists(output)) {
+			def manifest = readJson(VERSION_MANIFEST)
+			def version = manifest.getAsJsonArray("versions")*.asJsonObject.find { it.get("id").asString == MINECRAFT_VERSION }
+
+			if (version == null) {
+				throw new IllegalArgumentException("Unknown Minecraft version: " + MINECRAFT_VERSION)
+			}
+
+			def client = readJson(version.get("url").asString).getAsJsonObject("downloads").getAsJsonObject("client")
+			download(client.get("url").asString, client.get("sha1").asString, output)
+		}
+
+		return output
+	}
+
+	/**
+	 * Downloads an artifact from the fabric maven.
+	 */
+	static Path fabricMaven(String group, String name, String version, String classifier) {
+		def fileName = "${name}-${version}-${classifier}.jar"
+		def output = CACHE.resolve(fileName)
+
+		if (Files.notExists(output)) {
+			download(FABRIC_MAVEN + "${group.replace('.', '/')}/${name}/${version}/${fileName}", null, output)
+		}
+
+		return output
+	}
+
+	private static JsonObject readJson(String url) {
+		return JsonParser.parseString(new URL(url).text).asJsonObject
+	}
+
+	private static void download(String url, String sha1, Path output) {
+		println("Downloading (${url})")
+		def bytes = new URL(url).bytes
+
+		if (sha1 != null && sha1(bytes) != sha1) {
+			throw new IllegalStateException("Hash of (${url}) does not match ${sha1}")
+		}
+
+		Files.createDirectories(output.parent)
+		Files.write(output, bytes)
+	}
+
+	static String sha1(byte[] bytes) {
+		return MessageDigest.getInstance("SHA-1").digest(bytes).encodeHex().toString()
+	}
+
+	/**
+	 * Runs the action for the warm up and then the measured iterations, returns the time taken by each measured iteration in milliseconds.
+	 */
+	static List<Double> time(Closure action) {
+		return time({ }, action)
+	}
+
+	/**
+	 * Runs the setup before each iteration of the action, the setup is not included in the time taken.
+	 */
+	static List<Double> time(Closure setup, Closure action) {
+		WARMUP.times {
+			setup()
+			action()
+		}
+
+		return (1..ITERATIONS).collect {
+			setup()
+			long start = System.nanoTime()
+			action()
+			return (System.nanoTime() - start) / 1_000_000d
+		}
+	}
+
+	/**
+	 * Runs the action once, returns how much the peak heap usage was above the heap in use before the action in bytes.
+	 *
+	 * <p>This is the sum of the peaks of each heap pool, so can overestimate when the pools peaked at different times.
+	 */
+	static long peakHeap(Closure action) {
+		def pools = ManagementFactory.memoryPoolMXBeans.findAll { it.type == MemoryType.HEAP }
+
+		System.gc()
+		long before = pools.sum { MemoryPoolMXBean pool -> pool.usage.used } as long
+		pools*.resetPeakUsage()
+
+		action()
+
+		long peak = pools.sum { MemoryPoolMXBean pool -> pool.peakUsage.used } as long
+		return peak - before
+	}
+
+	static String summary(List<Double> times) {
+		def sorted = times.toSorted()
+		return String.format("min %.1fms, median %.1fms, max %.1fms", sorted.first(), sorted[sorted.size().intdiv(2)], sorted.last())
+	}
+
+	/**
+	 * Reads the name and content of every file in the zip.
+	 */
+	static Map<String, byte[]> readZip(Path zip) {
+		def entries = new TreeMap<String, byte[]>()
+
+		new ZipFile(zip.toFile()).withCloseable { zipFile ->
+			zipFile.entries().findAll { !it.directory }.each { ZipEntry entry ->
+				entries[entry.name] = zipFile.getInputStream(entry).bytes
+			}
+		}
+
+		return entries
+	}
+
+	static boolean sameContent(Map<String, byte[]> a, Map<String, byte[]> b) {
+		return a.keySet() == b.keySet() && a.every { name, bytes -> Arrays.equals(bytes, b[name]) }
+	}
+
+	static String mib(long bytes) {
+		return String.format("%.1fMiB", bytes / (1024 * 1024d))
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.flintloader.steel.test.benchmark
+
+import java.nio.file.Files
+import java.util.zip.Deflater
+
+import net.flintloader.steel.util.zip.ZipRewriter
+
+/**
+ * Measures writing and reading a Minecraft jar at each compression level that the cache jars can be configured with.
+ *
+ * <p>The classes are written the same way as the remapped Minecraft jars, from memory along with the other files copied from the input jar.
+ * A different jar can be used with -Dsteel.benchmark.jar.
+ */
+class CacheJarCompressionBenchmark {
+	static final List<Integer> LEVELS = [Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, 6]
+
+	static void main(String[] args) {
+		def jar = BenchmarkUtil.minecraftJar()
+		def classes = BenchmarkUtil.readZip(jar).findAll { it.key.endsWith(".class") }
+
+		println("${jar.fileName}: ${classes.size()} classes, ${BenchmarkUtil.mib(classes.values().sum { it.length } as long)} uncompressed")
+		println("${BenchmarkUtil.ITERATIONS} iterations after ${BenchmarkUtil.WARMUP} warm up, ${Runtime.runtime.availableProcessors()} processors")
+
+		for (int level : LEVELS) {
+			def output = BenchmarkUtil.CACHE.resolve("cache-jar-${level}.jar")
+
+			def writeTimes = BenchmarkUtil.time({ Files.deleteIfExists(output) }) {
+				ZipRewriter.open(jar, output).withCloseable { rewriter ->
+					rewriter.removeIf { it.endsWith(".class") }
+					classes.each { name, bytes -> rewriter.put(name, bytes) }
+
+					rewriter.setReproducibleFileOrder(true)
+					rewriter.setPreserveFileTimestamps(false)
+					rewriter.setCompressionLevel(level)
+					rewriter.commit()
+				}
+			}
+
+			def readTimes = BenchmarkUtil.time {
+				BenchmarkUtil.readZip(output)
+			}
+
+			println(level == Deflater.NO_COMPRESSION ? "STORED" : "level ${level}")
+			println("  write:    ${BenchmarkUtil.summary(writeTimes)}")
+			println("  read all: ${BenchmarkUtil.summary(readTimes)}")
+			println("  size:     ${BenchmarkUtil.mib(Files.size(output))}")
+		}
+	}
+}
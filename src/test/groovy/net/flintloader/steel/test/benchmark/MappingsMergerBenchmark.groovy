@@ -0,0 +1,150 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.flintloader.steel.test.benchmark
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+import net.fabricmc.mappingio.MappingReader
+import net.fabricmc.mappingio.tree.MappingTree
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+import org.mockito.Mockito
+
+import net.flintloader.steel.api.mappings.intermediate.IntermediateMappingsProvider
+import net.flintloader.steel.configuration.providers.mappings.IntermediateMappingsService
+import net.flintloader.steel.configuration.providers.mappings.tiny.MappingsMerger
+import net.flintloader.steel.configuration.providers.minecraft.MinecraftProvider
+
+/**
+ * Compares the output, merge time and peak heap of {@link MappingsMerger} and {@link LegacyMappingsMerger} on the Yarn v2 and intermediary mappings.
+ *
+ * <p>The Yarn version can be set with -Dsteel.benchmark.yarn, it must match the Minecraft version.
+ */
+class MappingsMergerBenchmark {
+	static final String YARN_VERSION = System.getProperty("steel.benchmark.yarn", "1.19.2+build.28")
+
+	static void main(String[] args) {
+		def yarn = extractMappings(BenchmarkUtil.fabricMaven("net.fabricmc", "yarn", YARN_VERSION, "v2"))
+		def intermediary = extractMappings(BenchmarkUtil.fabricMaven("net.fabricmc", "intermediary", BenchmarkUtil.MINECRAFT_VERSION, "v2"))
+
+		def intermediaryService = createIntermediaryService(intermediary)
+		// Read the intermediary tree up front, it is shared by the whole build and so not part of the merge
+		def intermediaryTree = intermediaryService.getMemoryMappingTree()
+
+		def legacyOutput = BenchmarkUtil.CACHE.resolve("merged-legacy.tiny")
+		def streamedOutput = BenchmarkUtil.CACHE.resolve("merged-streamed.tiny")
+
+		Closure legacy = { LegacyMappingsMerger.mergeAndSaveMappings(yarn, legacyOutput, intermediaryTree) }
+		Closure streamed = { MappingsMerger.mergeAndSaveMappings(yarn, streamedOutput, intermediaryService) }
+
+		def legacyTimes = BenchmarkUtil.time(legacy)
+		def streamedTimes = BenchmarkUtil.time(streamed)
+		def legacyHeap = BenchmarkUtil.peakHeap(legacy)
+		def streamedHeap = BenchmarkUtil.peakHeap(streamed)
+
+		println("Yarn ${YARN_VERSION}, ${BenchmarkUtil.ITERATIONS} iterations after ${BenchmarkUtil.WARMUP} warm up")
+		println("legacy:   ${BenchmarkUtil.summary(legacyTimes)}, peak heap ${BenchmarkUtil.mib(legacyHeap)}")
+		println("streamed: ${BenchmarkUtil.summary(streamedTimes)}, peak heap ${BenchmarkUtil.mib(streamedHeap)}")
+
+		def differences = compare(readLines(legacyOutput), readLines(streamedOutput))
+
+		if (!differences.isEmpty()) {
+			differences.take(50).each { println(it) }
+			throw new IllegalStateException("The merged mappings differ in ${differences.size()} lines")
+		}
+
+		println("The merged mappings match")
+	}
+
+	private static Path extractMappings(Path jar) {
+		def output = jar.resolveSibling(jar.fileName.toString().replace(".jar", ".tiny"))
+
+		if (Files.notExists(output)) {
+			FileSystems.newFileSystem(jar).withCloseable { fs ->
+				Files.copy(fs.getPath("mappings/mappings.tiny"), output, StandardCopyOption.REPLACE_EXISTING)
+			}
+		}
+
+		return output
+	}
+
+	static IntermediateMappingsService createIntermediaryService(Path intermediary) {
+		def provider = Mockito.mock(IntermediateMappingsProvider)
+		Mockito.when(provider.getName()).thenReturn("intermediary-v2")
+
+		def minecraftProvider = Mockito.mock(MinecraftProvider)
+		Mockito.when(minecraftProvider.file("intermediary-v2.tiny")).thenReturn(intermediary.toFile())
+
+		return IntermediateMappingsService.create(provider, minecraftProvider)
+	}
+
+	/**
+	 * Flattens the mappings into one line per element, so that they can be compared regardless of the order they were written in.
+	 */
+	static Set<String> readLines(Path mappings) {
+		def tree = new MemoryMappingTree()
+		MappingReader.read(mappings, tree)
+
+		def lines = new TreeSet<String>()
+		def namespaces = ([tree.getSrcNamespace()] + tree.getDstNamespaces()).join(",")
+		lines.add("namespaces\t${namespaces}".toString())
+
+		for (MappingTree.ClassMapping cls : tree.getClasses()) {
+			def clsKey = "${cls.srcName}"
+			lines.add("c\t${clsKey}\t${names(tree, cls)}\t${cls.comment}".toString())
+
+			for (MappingTree.FieldMapping field : cls.getFields()) {
+				lines.add("f\t${clsKey}\t${field.srcName}${field.srcDesc}\t${names(tree, field)}\t${field.comment}".toString())
+			}
+
+			for (MappingTree.MethodMapping method : cls.getMethods()) {
+				def methodKey = "${clsKey}\t${method.srcName}${method.srcDesc}"
+				lines.add("m\t${methodKey}\t${names(tree, method)}\t${method.comment}".toString())
+
+				for (MappingTree.MethodArgMapping arg : method.getArgs()) {
+					lines.add("p\t${methodKey}\t${arg.argPosition}\t${arg.lvIndex}\t${names(tree, arg)}\t${arg.comment}".toString())
+				}
+
+				for (MappingTree.MethodVarMapping var : method.getVars()) {
+					lines.add("v\t${methodKey}\t${var.lvIndex}\t${var.lvtRowIndex}\t${var.startOpIdx}\t${names(tree, var)}\t${var.comment}".toString())
+				}
+			}
+		}
+
+		return lines
+	}
+
+	private static String names(MappingTree tree, MappingTree.ElementMapping element) {
+		return (0..<tree.getDstNamespaces().size()).collect { element.getDstName(it) }.join("\t")
+	}
+
+	static List<String> compare(Set<String> legacy, Set<String> streamed) {
+		return (legacy - streamed).collect { "- " + it } + (streamed - legacy).collect { "+ " + it }
+	}
+}
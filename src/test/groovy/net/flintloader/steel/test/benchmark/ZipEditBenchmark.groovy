@@ -0,0 +1,96 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.flintloader.steel.test.benchmark
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+import net.flintloader.steel.util.ZipUtils
+
+/**
+ * Compares replacing one file and adding another to a Minecraft jar with {@link ZipUtils} against the zip file system it used before.
+ *
+ * <p>A different jar can be used with -Dsteel.benchmark.jar.
+ */
+class ZipEditBenchmark {
+	static final String ADDED = "META-INF/steel-benchmark.txt"
+
+	static void main(String[] args) {
+		def jar = BenchmarkUtil.minecraftJar()
+		def original = BenchmarkUtil.readZip(jar)
+		// Prefer a file that steel would edit, but any will do for a jar without one
+		def replaced = ["META-INF/MANIFEST.MF", "version.json"].find { original.containsKey(it) } ?: original.keySet().first()
+		def replacement = (new String(original[replaced], StandardCharsets.UTF_8) + "\nSteel-Benchmark: true\n").getBytes(StandardCharsets.UTF_8)
+		def added = "Added by the benchmark".getBytes(StandardCharsets.UTF_8)
+
+		def zipFsOutput = BenchmarkUtil.CACHE.resolve("zip-edit-zipfs.jar")
+		def rawOutput = BenchmarkUtil.CACHE.resolve("zip-edit-raw.jar")
+
+		def zipFsTimes = BenchmarkUtil.time({ Files.copy(jar, zipFsOutput, StandardCopyOption.REPLACE_EXISTING) }) {
+			replaceWithFileSystem(zipFsOutput, replaced, replacement)
+			addWithFileSystem(zipFsOutput, ADDED, added)
+		}
+
+		def rawTimes = BenchmarkUtil.time({ Files.copy(jar, rawOutput, StandardCopyOption.REPLACE_EXISTING) }) {
+			ZipUtils.replace(rawOutput, replaced, replacement)
+			ZipUtils.add(rawOutput, ADDED, added)
+		}
+
+		println("${jar.fileName}: ${BenchmarkUtil.mib(Files.size(jar))}, ${original.size()} files, replacing ${replaced} and adding ${ADDED}")
+		println("${BenchmarkUtil.ITERATIONS} iterations after ${BenchmarkUtil.WARMUP} warm up")
+		println("zipfs: ${BenchmarkUtil.summary(zipFsTimes)}")
+		println("raw:   ${BenchmarkUtil.summary(rawTimes)}")
+
+		def expected = new TreeMap<>(original)
+		expected[replaced] = replacement
+		expected[ADDED] = added
+
+		if (!BenchmarkUtil.sameContent(BenchmarkUtil.readZip(zipFsOutput), expected) || !BenchmarkUtil.sameContent(BenchmarkUtil.readZip(rawOutput), expected)) {
+			throw new IllegalStateException("The edited jars do not have the expected content")
+		}
+
+		println("The edited jars have the same content")
+	}
+
+	// The zip file system code that ZipUtils used before, and still falls back to for zips that cannot be read raw
+	private static void replaceWithFileSystem(Path zip, String path, byte[] bytes) {
+		FileSystems.newFileSystem(zip).withCloseable { fs ->
+			Files.write(fs.getPath(path), bytes)
+		}
+	}
+
+	private static void addWithFileSystem(Path zip, String path, byte[] bytes) {
+		FileSystems.newFileSystem(zip).withCloseable { fs ->
+			def fsPath = fs.getPath(path)
+			Files.createDirectories(fsPath.parent)
+			Files.write(fsPath, bytes)
+		}
+	}
+}
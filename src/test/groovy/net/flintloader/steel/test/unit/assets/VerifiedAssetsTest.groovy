@@ -0,0 +1,140 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.assets
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.configuration.providers.minecraft.assets.VerifiedAssets
+
+class VerifiedAssetsTest extends Specification {
+	static final String INDEX_HASH = "0123456789abcdef0123456789abcdef01234567"
+
+	@TempDir
+	Path tempDir
+
+	def "Round trip: verified objects are read back"() {
+		setup:
+		def manifest = tempDir.resolve("verified.bin")
+		def first = object("first", 100)
+		def second = object("second", 200)
+		def assets = VerifiedAssets.create(manifest, INDEX_HASH)
+
+		when:
+		assets.markVerified(first)
+		assets.markVerified(second)
+		assets.markUsed()
+		assets.write()
+		def read = VerifiedAssets.read(manifest, INDEX_HASH)
+
+		then:
+		read.isVerified(first, 100)
+		read.isVerified(second, 200)
+		!read.isUseOlderThan(Duration.ofDays(1))
+		Files.notExists(manifest.resolveSibling("verified.bin.tmp"))
+	}
+
+	def "Stale: objects that changed since they were verified are checked again"() {
+		setup:
+		def manifest = tempDir.resolve("verified.bin")
+		def resized = object("resized", 100)
+		def touched = object("touched", 100)
+		def deleted = object("deleted", 100)
+		def assets = VerifiedAssets.create(manifest, INDEX_HASH)
+		[resized, touched, deleted].each { assets.markVerified(it) }
+		assets.write()
+
+		when:
+		Files.write(resized, new byte[50])
+		Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() - 10_000))
+		Files.delete(deleted)
+		def read = VerifiedAssets.read(manifest, INDEX_HASH)
+
+		then:
+		!read.isVerified(resized, 100)
+		!read.isVerified(resized, 50)
+		!read.isVerified(touched, 100)
+		!read.isVerified(deleted, 100)
+		// The size in the asset index no longer matches the verified object
+		!read.isVerified(object("expected", 100), 200)
+	}
+
+	def "Read: a manifest for another asset index is ignored"() {
+		setup:
+		def manifest = tempDir.resolve("verified.bin")
+		def file = object("file", 100)
+		def assets = VerifiedAssets.create(manifest, INDEX_HASH)
+		assets.markVerified(file)
+		assets.write()
+
+		when:
+		def read = VerifiedAssets.read(manifest, "another")
+
+		then:
+		!read.isVerified(file, 100)
+		read.isUseOlderThan(Duration.ofDays(1))
+	}
+
+	def "Read: a corrupted manifest is treated as empty"() {
+		setup:
+		def manifest = tempDir.resolve("verified.bin")
+		def file = object("file", 100)
+		def assets = VerifiedAssets.create(manifest, INDEX_HASH)
+		assets.markVerified(file)
+		assets.write()
+		def bytes = Files.readAllBytes(manifest)
+		Files.write(manifest, Arrays.copyOf(bytes, bytes.length - 4))
+
+		when:
+		def read = VerifiedAssets.read(manifest, INDEX_HASH)
+
+		then:
+		!read.isVerified(file, 100)
+	}
+
+	def "Write: nothing is written when nothing was verified"() {
+		setup:
+		def manifest = tempDir.resolve("verified.bin")
+
+		when:
+		VerifiedAssets.read(manifest, INDEX_HASH).write()
+
+		then:
+		Files.notExists(manifest)
+	}
+
+	private Path object(String name, int size) {
+		def path = tempDir.resolve("objects").resolve(name)
+		Files.createDirectories(path.parent)
+		Files.write(path, new byte[size])
+		return path
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.download
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.security.MessageDigest
+import java.time.Duration
+import java.time.Instant
+import java.util.concurrent.atomic.AtomicInteger
+
+import io.javalin.Javalin
+import io.javalin.http.Context
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.util.download.ContentStore
+import net.flintloader.steel.util.download.Download
+
+class ContentStoreTest extends Specification {
+	static final String PATH = "http://localhost:9487"
+
+	@Shared
+	Javalin server = Javalin.create().start(9487)
+
+	AtomicInteger requests = new AtomicInteger()
+
+	@TempDir
+	Path tempDir
+
+	def cleanupSpec() {
+		server.stop()
+	}
+
+	def "Store: a blob is downloaded once and linked to every path it is requested at"() {
+		setup:
+		def content = randomBytes(10_000)
+		serve("/linked", content)
+		def store = new ContentStore(tempDir.resolve("store"))
+		def first = tempDir.resolve("first/file.bin")
+		def second = tempDir.resolve("second/file.bin")
+
+		when:
+		download("/linked", content, store, first)
+		download("/linked", content, store, second)
+
+		then:
+		requests.get() == 1
+		Files.readAllBytes(first) == content
+		Files.readAllBytes(second) == content
+		Files.isSameFile(first, store.getBlobPath("sha1:" + sha1(content)))
+		Files.isSameFile(second, store.getBlobPath("sha1:" + sha1(content)))
+	}
+
+	def "Verify: a corrupt blob is removed and downloaded again"() {
+		setup:
+		def content = randomBytes(10_000)
+		serve("/corrupt", content)
+		def store = new ContentStore(tempDir.resolve("store"))
+		def blob = store.getBlobPath("sha1:" + sha1(content))
+		Files.createDirectories(blob.parent)
+		Files.write(blob, randomBytes(100))
+		def output = tempDir.resolve("file.bin")
+
+		when:
+		def corrupt = store.verify()
+
+		then:
+		corrupt == 1
+		Files.notExists(blob)
+
+		when:
+		download("/corrupt", content, store, output)
+
+		then:
+		requests.get() == 1
+		Files.readAllBytes(output) == content
+		store.verify() == 0
+	}
+
+	def "GC: unused blobs are removed, and restored from a linked file without downloading it again"() {
+		setup:
+		def unused = randomBytes(10_000)
+		def used = randomBytes(20_000)
+		serve("/unused", unused)
+		serve("/used", used)
+		def store = new ContentStore(tempDir.resolve("store"))
+		def unusedOutput = tempDir.resolve("unused.bin")
+		download("/unused", unused, store, unusedOutput)
+		download("/used", used, store, tempDir.resolve("used.bin"))
+
+		def blob = store.getBlobPath("sha1:" + sha1(unused))
+		def stale = FileTime.from(Instant.now() - Duration.ofDays(60))
+		Files.setLastModifiedTime(blob, stale)
+		Files.setLastModifiedTime(blob.resolveSibling(blob.fileName.toString() + ".used"), stale)
+
+		when:
+		def removed = store.gc(Duration.ofDays(30))
+
+		then:
+		removed == 1
+		Files.notExists(blob)
+		Files.exists(store.getBlobPath("sha1:" + sha1(used)))
+		Files.readAllBytes(unusedOutput) == unused
+
+		when:
+		download("/unused", unused, store, unusedOutput)
+
+		then:
+		requests.get() == 2
+		Files.isSameFile(unusedOutput, blob)
+	}
+
+	private static void download(String path, byte[] content, ContentStore store, Path output) {
+		Download.create("$PATH$path").sha1(sha1(content)).contentStore(store).readOnly().downloadPath(output)
+	}
+
+	private void serve(String path, byte[] content) {
+		server.get(path) { Context ctx ->
+			requests.incrementAndGet()
+			ctx.result(content)
+		}
+	}
+
+	private static byte[] randomBytes(int length) {
+		def bytes = new byte[length]
+		new Random(length).nextBytes(bytes)
+		return bytes
+	}
+
+	private static String sha1(byte[] bytes) {
+		return MessageDigest.getInstance("SHA-1").digest(bytes).encodeHex().toString()
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package net.flintloader.steel.test.unit.download
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.security.MessageDigest
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+import io.javalin.Javalin
+import io.javalin.http.Context
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.util.download.Download
+import net.flintloader.steel.util.download.DownloadException
+
+class DownloadHedgeTest extends Specification {
+	// The mirror uses a different host, as request slots and latencies are tracked per host
+	static final String PRIMARY = "http://localhost:9485"
+	static final String MIRROR = "http://127.0.0.1:9486"
+
+	@Shared
+	Javalin primary = Javalin.create().start(9485)
+	@Shared
+	Javalin mirror = Javalin.create().start(9486)
+
+	AtomicInteger primaryRequests = new AtomicInteger()
+	AtomicInteger mirrorRequests = new AtomicInteger()
+
+	@TempDir
+	Path tempDir
+
+	def cleanupSpec() {
+		primary.stop()
+		mirror.stop()
+	}
+
+	def "Hedge: the mirror wins when the url is slow to respond"() {
+		setup:
+		def content = randomBytes(10_000)
+		serve(primary, "/win", content, primaryRequests, 3000)
+		serve(mirror, "/win", content, mirrorRequests, 0)
+		def output = tempDir.resolve("win.bin")
+
+		when:
+		def start = System.nanoTime()
+		Download.create("$PRIMARY/win").sha1(sha1(content)).hedge([MIRROR + "/win"], Duration.ofMillis(200)).downloadPath(output)
+		def elapsed = Duration.ofNanos(System.nanoTime() - start)
+
+		then:
+		primaryRequests.get() == 1
+		mirrorRequests.get() == 1
+		// Did not wait for the url to respond
+		elapsed < Duration.ofMillis(2000)
+		Files.readAllBytes(output) == content
+	}
+
+	def "Hedge: the url wins when it responds before the mirror"() {
+		setup:
+		def content = randomBytes(10_000)
+		serve(primary, "/lose", content, primaryRequests, 500)
+		serve(mirror, "/lose", content, mirrorRequests, 3000)
+		def output = tempDir.resolve("lose.bin")
+
+		when:
+		def start = System.nanoTime()
+		Download.create("$PRIMARY/lose").sha1(sha1(content)).hedge([MIRROR + "/lose"], Duration.ofMillis(100)).downloadPath(output)
+		def elapsed = Duration.ofNanos(System.nanoTime() - start)
+
+		then:
+		primaryRequests.get() == 1
+		mirrorRequests.get() == 1
+		// Did not wait for the mirror to respond
+		elapsed < Duration.ofMillis(2000)
+		Files.readAllBytes(output) == content
+	}
+
+	def "Hedge: fails when both the url and the mirror fail"() {
+		setup:
+		def content = randomBytes(10_000)
+		serve(primary, "/fail", null, primaryRequests, 300)
+		serve(mirror, "/fail", null, mirrorRequests, 0)
+		def output = tempDir.resolve("fail.bin")
+
+		when:
+		Download.create("$PRIMARY/fail").sha1(sha1(content)).hedge([MIRROR + "/fail"], Duration.ofMillis(100)).maxRetries(1).downloadPath(output)
+
+		then:
+		thrown DownloadException
+		primaryRequests.get() == 1
+		mirrorRequests.get() == 1
+		Files.notExists(output)
+	}
+
+	/**
+	 * Serves the content after the given delay, or responds with a server error when the content is null.
+	 */
+	private static void serve(Javalin server, String path, byte[] content, AtomicInteger requests, long delayMillis) {
+		server.get(path) { Context ctx ->
+			requests.incrementAndGet()
+			Thread.sleep(delayMillis)
+
+			if (content == null) {
+				ctx.status(500)
+				return
+			}
+
+			ctx.result(content)
+		}
+	}
+
+	private static byte[] randomBytes(int length) {
+		def bytes = new byte[length]
+		new Random(length).nextBytes(bytes)
+		return bytes
+	}
+
+	private static String sha1(byte[] bytes) {
+		return MessageDigest.getInstance("SHA-1").digest(bytes).encodeHex().toString()
+	}
+}
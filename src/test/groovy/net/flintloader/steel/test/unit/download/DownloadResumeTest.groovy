@@ -0,0 +1,274 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.download
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.security.MessageDigest
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+import io.javalin.Javalin
+import io.javalin.http.Context
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.util.AttributeHelper
+import net.flintloader.steel.util.download.Download
+import net.flintloader.steel.util.download.DownloadException
+
+class DownloadResumeTest extends Specification {
+	static final String PATH = "http://localhost:9484"
+
+	@Shared
+	Javalin server = Javalin.create().start(9484)
+
+	// The Range header of every GET request, or an empty string when it was not a range request
+	List<String> ranges = new CopyOnWriteArrayList<>()
+	AtomicInteger requests = new AtomicInteger()
+	AtomicInteger heads = new AtomicInteger()
+
+	@TempDir
+	Path tempDir
+
+	def cleanupSpec() {
+		server.stop()
+	}
+
+	def "Resume: continues from the end of the .part file"() {
+		setup:
+		def content = randomBytes(100_000)
+		serve("/resume", content, '"v1"')
+		def output = tempDir.resolve("resume.bin")
+		writePart(output, Arrays.copyOf(content, 40_000), '"v1"')
+
+		when:
+		Download.create("$PATH/resume").sha1(sha1(content)).downloadPath(output)
+
+		then:
+		ranges == ["bytes=40000-"]
+		Files.readAllBytes(output) == content
+		Files.notExists(partFile(output))
+	}
+
+	def "Resume: starts again from 0 when the etag no longer matches"() {
+		setup:
+		def content = randomBytes(100_000)
+		serve("/changed", content, '"v2"')
+		def output = tempDir.resolve("changed.bin")
+		writePart(output, randomBytes(40_000), '"v1"')
+
+		when:
+		Download.create("$PATH/changed").sha1(sha1(content)).downloadPath(output)
+
+		then:
+		// The server ignores the range as the If-Range etag does not match, and sends the whole file
+		ranges == ["bytes=40000-"]
+		Files.readAllBytes(output) == content
+	}
+
+	def "Resume: a 416 response removes the .part file"() {
+		setup:
+		def content = randomBytes(10_000)
+		serve("/unsatisfiable", content, '"v1"')
+		def output = tempDir.resolve("unsatisfiable.bin")
+		writePart(output, randomBytes(20_000), '"v1"')
+
+		when:
+		Download.create("$PATH/unsatisfiable").sha1(sha1(content)).maxRetries(1).downloadPath(output)
+
+		then:
+		thrown DownloadException
+		Files.notExists(partFile(output))
+		Files.notExists(output)
+
+		when:
+		Download.create("$PATH/unsatisfiable").sha1(sha1(content)).maxRetries(1).downloadPath(output)
+
+		then:
+		ranges == ["bytes=20000-", ""]
+		Files.readAllBytes(output) == content
+	}
+
+	def "Segmented: downloads the file as byte ranges"() {
+		setup:
+		def content = randomBytes(9 * 1024 * 1024)
+		serve("/segmented", content, '"v1"')
+		def output = tempDir.resolve("segmented.bin")
+
+		when:
+		Download.create("$PATH/segmented").sha1(sha1(content)).segments(4).downloadPath(output)
+
+		then:
+		heads.get() == 1
+		ranges.size() == 4
+		ranges.every { it.startsWith("bytes=") }
+		Files.readAllBytes(output) == content
+		Files.notExists(partFile(output))
+	}
+
+	def "Segmented: a known size skips the HEAD request"() {
+		setup:
+		def content = randomBytes(9 * 1024 * 1024)
+		serve("/segmented-size", content, '"v1"')
+		def output = tempDir.resolve("segmented-size.bin")
+
+		when:
+		Download.create("$PATH/segmented-size").sha1(sha1(content)).segments(4).size(content.length).downloadPath(output)
+
+		then:
+		heads.get() == 0
+		ranges.size() == 4
+		ranges[0] == "bytes=0-${2359295}"
+		Files.readAllBytes(output) == content
+		Files.notExists(partFile(output))
+	}
+
+	def "Segmented: a failed segment is resumed by the next download"() {
+		setup:
+		def content = randomBytes(9 * 1024 * 1024)
+		serve("/segmented-fail", content, '"v1"', 2)
+		def output = tempDir.resolve("segmented-fail.bin")
+
+		when:
+		Download.create("$PATH/segmented-fail").sha1(sha1(content)).segments(4).maxRetries(1).downloadPath(output)
+
+		then:
+		thrown DownloadException
+		Files.notExists(output)
+		Files.exists(partFile(output))
+		AttributeHelper.readAttribute(partFile(output), "SteelSegments").isPresent()
+
+		when:
+		ranges.clear()
+		Download.create("$PATH/segmented-fail").sha1(sha1(content)).segments(4).maxRetries(1).downloadPath(output)
+
+		then:
+		// Only the segment that failed is downloaded again
+		ranges.size() == 1
+		requestedBytes(ranges) == content.length / 4
+		Files.readAllBytes(output) == content
+		Files.notExists(partFile(output))
+	}
+
+	def "Segmented: starts again when the file has changed since the failed download"() {
+		setup:
+		def content = randomBytes(9 * 1024 * 1024)
+		def half = content.length / 2 as int
+		serve("/segmented-changed", content, '"v2"')
+		def output = tempDir.resolve("segmented-changed.bin")
+		writePart(output, randomBytes(content.length), '"v1"')
+		AttributeHelper.writeAttribute(partFile(output), "SteelSegments", "0-${half - 1}+$half;$half-${content.length - 1}+0")
+
+		when:
+		Download.create("$PATH/segmented-changed").sha1(sha1(content)).segments(2).downloadPath(output)
+
+		then:
+		// The server sends the whole file as the If-Range etag does not match, failing the first attempt
+		ranges[0] == "bytes=$half-${content.length - 1}"
+		heads.get() == 1
+		Files.readAllBytes(output) == content
+		Files.notExists(partFile(output))
+	}
+
+	/**
+	 * Serves the content with support for HEAD and single byte range requests, validated against the etag with If-Range.
+	 *
+	 * @param failingSegment the index of a range request to respond to with a server error once the others have been served, or -1
+	 */
+	private void serve(String path, byte[] content, String eTag, int failingSegment = -1) {
+		server.head(path) { Context ctx ->
+			heads.incrementAndGet()
+			ctx.header("ETag", eTag)
+			ctx.header("Accept-Ranges", "bytes")
+			ctx.header("Content-Length", String.valueOf(content.length))
+		}
+
+		server.get(path) { Context ctx ->
+			final String range = ctx.header("Range")
+			final String ifRange = ctx.header("If-Range")
+			final int index = requests.getAndIncrement()
+			ranges.add(range ?: "")
+
+			ctx.header("ETag", eTag)
+			ctx.header("Accept-Ranges", "bytes")
+
+			if (index == failingSegment) {
+				Thread.sleep(1000)
+				ctx.status(500)
+				return
+			}
+
+			if (range == null || (ifRange != null && ifRange != eTag)) {
+				ctx.result(content)
+				return
+			}
+
+			def matcher = range =~ /bytes=(\d+)-(\d*)/
+			matcher.find()
+			final int start = matcher.group(1) as int
+			final int end = matcher.group(2) ? matcher.group(2) as int : content.length - 1
+
+			if (start >= content.length) {
+				ctx.status(416)
+				ctx.header("Content-Range", "bytes */$content.length")
+				return
+			}
+
+			ctx.status(206)
+			ctx.header("Content-Range", "bytes $start-$end/$content.length")
+			ctx.result(Arrays.copyOfRange(content, start, end + 1))
+		}
+	}
+
+	private static void writePart(Path output, byte[] bytes, String eTag) {
+		Files.write(partFile(output), bytes)
+		AttributeHelper.writeAttribute(partFile(output), "ETag", eTag)
+	}
+
+	private static long requestedBytes(List<String> ranges) {
+		return ranges.sum { String range ->
+			def matcher = range =~ /bytes=(\d+)-(\d+)/
+			matcher.find()
+			(matcher.group(2) as long) - (matcher.group(1) as long) + 1
+		} as long
+	}
+
+	private static Path partFile(Path output) {
+		return output.resolveSibling(output.getFileName().toString() + ".part")
+	}
+
+	private static byte[] randomBytes(int length) {
+		def bytes = new byte[length]
+		new Random(length).nextBytes(bytes)
+		return bytes
+	}
+
+	private static String sha1(byte[] bytes) {
+		return MessageDigest.getInstance("SHA-1").digest(bytes).encodeHex().toString()
+	}
+}
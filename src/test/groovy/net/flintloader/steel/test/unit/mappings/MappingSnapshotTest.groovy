@@ -0,0 +1,182 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.mappings
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+import net.fabricmc.mappingio.MappingReader
+import net.fabricmc.mappingio.format.tiny.Tiny2FileWriter
+import net.fabricmc.mappingio.tree.MappingTreeView
+import net.fabricmc.mappingio.tree.MemoryMappingTree
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshot
+import net.flintloader.steel.configuration.providers.mappings.MappingSnapshotTree
+
+class MappingSnapshotTest extends Specification {
+	static final String MAPPINGS = [
+			"tiny\t2\t0\tofficial\tintermediary\tnamed",
+			"\tsome-key\tsome-value",
+			"c\ta\tnet/minecraft/class_1\tcom/example/Foo",
+			"\tc\tA class comment.",
+			"\tf\tLa;\ta\tfield_1\tself",
+			"\t\tc\tA field comment.",
+			"\tm\t(La;I)La;\ta\tmethod_1\tapply",
+			"\t\tc\tA method comment.",
+			"\t\tp\t1\t\targ_1\tother",
+			"\t\t\tc\tAn arg comment.",
+			"\t\tp\t2\t\targ_2\tcount",
+			"\t\tv\t3\t5\t2\t\tlocal_1\tlocal",
+			"\tm\t()V\tb\tmethod_2\trun",
+			"c\ta\$a\tnet/minecraft/class_1\$class_2\tcom/example/Foo\$Inner",
+			"\tm\t()V\tb\tmethod_3\trun",
+			"c\tb\tnet/minecraft/class_3\t",
+	].join("\n") + "\n"
+
+	@TempDir
+	Path tempDir
+
+	def "Round trip: the snapshot visits the same mappings as the tree it was written from"() {
+		setup:
+		def mappings = write("mappings.tiny", MAPPINGS)
+		def tree = read(mappings)
+
+		when:
+		MappingSnapshot.writeFor(tree, mappings)
+		def snapshot = MappingSnapshot.openFor(mappings)
+
+		then:
+		MappingSnapshot.isUpToDate(mappings)
+		snapshot.getNamespaces() == ["official", "intermediary", "named"]
+		tiny(snapshot.&accept) == tiny(tree.&accept)
+		tiny(new MappingSnapshotTree(snapshot).&accept) == tiny(tree.&accept)
+		// The snapshot can be read in place of the mappings file
+		tiny { visitor -> MappingSnapshot.read(MappingSnapshot.getPath(mappings), visitor) } == tiny(tree.&accept)
+	}
+
+	def "Round trip: lookups on the snapshot view match the tree"() {
+		setup:
+		def mappings = write("mappings.tiny", MAPPINGS)
+		def tree = read(mappings)
+		MappingSnapshot.writeFor(tree, mappings)
+		MappingTreeView view = new MappingSnapshotTree(MappingSnapshot.openFor(mappings))
+
+		expect:
+		view.getMetadata("some-key")*.value == tree.getMetadata("some-key")*.value
+		view.mapClassName(name, view.getNamespaceId(from), view.getNamespaceId(to)) == tree.mapClassName(name, tree.getNamespaceId(from), tree.getNamespaceId(to))
+		view.getClass(name, view.getNamespaceId(from))?.getComment() == tree.getClass(name, tree.getNamespaceId(from))?.getComment()
+
+		where:
+		name                             | from           | to
+		"a"                              | "official"     | "named"
+		"net/minecraft/class_1\$class_2" | "intermediary" | "official"
+		"com/example/Foo"                | "named"        | "intermediary"
+		"net/minecraft/class_3"          | "intermediary" | "named"
+		"missing"                        | "official"     | "named"
+	}
+
+	def "Round trip: member lookups on the snapshot view match the tree"() {
+		setup:
+		def mappings = write("mappings.tiny", MAPPINGS)
+		def tree = read(mappings)
+		MappingSnapshot.writeFor(tree, mappings)
+		MappingTreeView view = new MappingSnapshotTree(MappingSnapshot.openFor(mappings))
+
+		expect:
+		names(view.getMethod(owner, name, desc, view.getNamespaceId(namespace))) == names(tree.getMethod(owner, name, desc, tree.getNamespaceId(namespace)))
+		names(view.getField(owner, name, desc, view.getNamespaceId(namespace))) == names(tree.getField(owner, name, desc, tree.getNamespaceId(namespace)))
+
+		where:
+		owner                   | name       | desc                                                | namespace
+		"a"                     | "a"        | "(La;I)La;"                                         | "official"
+		"a"                     | "a"        | "La;"                                               | "official"
+		"net/minecraft/class_1" | "method_1" | "(Lnet/minecraft/class_1;I)Lnet/minecraft/class_1;" | "intermediary"
+		"com/example/Foo"       | "apply"    | null                                                | "named"
+		"com/example/Foo"       | "self"     | null                                                | "named"
+		"com/example/Foo"       | "run"      | "()V"                                               | "named"
+		"a"                     | "missing"  | null                                                | "official"
+	}
+
+	def "Stale: a snapshot of an older version of the mappings is not used"() {
+		setup:
+		def mappings = write("mappings.tiny", MAPPINGS)
+		MappingSnapshot.writeFor(read(mappings), mappings)
+
+		when:
+		Files.writeString(mappings, MAPPINGS.replace("com/example/Foo", "com/example/Bar"))
+		Files.setLastModifiedTime(mappings, FileTime.fromMillis(Files.getLastModifiedTime(mappings).toMillis() + 10_000))
+
+		then:
+		!MappingSnapshot.isUpToDate(mappings)
+		MappingSnapshot.openFor(mappings) == null
+	}
+
+	def "Read: a truncated snapshot is rejected"() {
+		setup:
+		def mappings = write("mappings.tiny", MAPPINGS)
+		MappingSnapshot.writeFor(read(mappings), mappings)
+		def path = MappingSnapshot.getPath(mappings)
+		def bytes = Files.readAllBytes(path)
+		Files.write(path, Arrays.copyOf(bytes, bytes.length - 10))
+
+		when:
+		def snapshot = MappingSnapshot.openFor(mappings)
+
+		then:
+		snapshot == null
+
+		when:
+		MappingSnapshot.open(path)
+
+		then:
+		thrown(IOException)
+	}
+
+	private Path write(String name, String content) {
+		def path = tempDir.resolve(name)
+		Files.writeString(path, content)
+		return path
+	}
+
+	private static MemoryMappingTree read(Path mappings) {
+		def tree = new MemoryMappingTree()
+		MappingReader.read(mappings, tree)
+		return tree
+	}
+
+	private static String tiny(Closure accept) {
+		def writer = new StringWriter()
+		new Tiny2FileWriter(writer, false).withCloseable { accept(it) }
+		return writer.toString()
+	}
+
+	private static List<String> names(MappingTreeView.ElementMappingView element) {
+		return element == null ? null : [element.getSrcName()] + (0..<element.getTree().getDstNamespaces().size()).collect { element.getDstName(it) }
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.mappings
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.configuration.providers.mappings.tiny.MappingsMerger
+import net.flintloader.steel.test.benchmark.LegacyMappingsMerger
+import net.flintloader.steel.test.benchmark.MappingsMergerBenchmark
+
+class MappingsMergerTest extends Specification {
+	static final String INTERMEDIARY = tiny(
+			"tiny\t2\t0\tofficial\tintermediary",
+			"c\ta\tnet/minecraft/class_1",
+			"\tf\tLa;\ta\tfield_1",
+			"\tf\tI\tb\tfield_2",
+			"\tm\t(La;)V\ta\tmethod_1",
+			"\tm\t()V\tb\tmethod_2",
+			"c\ta\$a\tnet/minecraft/class_1\$class_2",
+			"c\ta\$a\$a\tnet/minecraft/class_1\$class_2\$class_3",
+			"c\ta\$b\tnet/minecraft/class_1\$class_6",
+			"c\tb\tnet/minecraft/class_4",
+			"\tf\tLa;\ta\tfield_3",
+	)
+
+	@TempDir
+	Path tempDir
+
+	def "Merge: matches the tree based merger"() {
+		setup:
+		def yarn = write("yarn.tiny", tiny(
+				"tiny\t2\t0\tintermediary\tnamed",
+				"c\tnet/minecraft/class_1\tcom/example/Foo",
+				"\tc\tA class comment.",
+				"\tf\tLnet/minecraft/class_1;\tfield_1\tself",
+				"\t\tc\tA field comment.",
+				"\tm\t(Lnet/minecraft/class_1;)V\tmethod_1\taccept",
+				"\t\tp\t1\t\tother",
+				"c\tnet/minecraft/class_1\$class_2\tnet/minecraft/class_1\$class_2",
+				"c\tnet/minecraft/class_1\$class_2\$class_3\tnet/minecraft/class_1\$class_2\$class_3",
+				"c\tnet/minecraft/class_5\tcom/example/Unobfuscated",
+		))
+		def service = MappingsMergerBenchmark.createIntermediaryService(write("intermediary.tiny", INTERMEDIARY))
+		def streamed = tempDir.resolve("streamed.tiny")
+		def legacy = tempDir.resolve("legacy.tiny")
+
+		when:
+		MappingsMerger.mergeAndSaveMappings(yarn, streamed, service)
+		LegacyMappingsMerger.mergeAndSaveMappings(yarn, legacy, service.getMemoryMappingTree())
+		def lines = MappingsMergerBenchmark.readLines(streamed)
+
+		then:
+		MappingsMergerBenchmark.compare(MappingsMergerBenchmark.readLines(legacy), lines) == []
+		// Keyed by the official names, with the descriptors mapped to official names
+		lines.contains("c\ta\tnet/minecraft/class_1\tcom/example/Foo\tA class comment.")
+		lines.contains("f\ta\taLa;\tfield_1\tself\tA field comment.")
+		lines.contains("p\ta\ta(La;)V\t-1\t1\tnull\tother\tnull")
+		// Inner classes without a name of their own inherit the name of their enclosing class
+		lines.contains("c\ta\$a\$a\tnet/minecraft/class_1\$class_2\$class_3\tcom/example/Foo\$class_2\$class_3\tnull")
+		// Elements missing from the mappings keep their intermediary name
+		lines.contains("c\ta\$b\tnet/minecraft/class_1\$class_6\tcom/example/Foo\$class_6\tnull")
+		lines.contains("f\ta\tbI\tfield_2\tfield_2\tnull")
+		lines.contains("m\ta\tb()V\tmethod_2\tmethod_2\tnull")
+		lines.contains("f\tb\taLa;\tfield_3\tfield_3\tnull")
+		// Elements missing from the intermediary mappings use their intermediary name as their official name
+		lines.contains("c\tnet/minecraft/class_5\tnet/minecraft/class_5\tcom/example/Unobfuscated\tnull")
+	}
+
+	def "Merge: only keeps the named namespace"() {
+		setup:
+		def yarn = write("yarn.tiny", tiny(
+				"tiny\t2\t0\tintermediary\tnamed\textra",
+				"c\tnet/minecraft/class_1\tcom/example/Foo\tcom/example/Extra",
+		))
+		def service = MappingsMergerBenchmark.createIntermediaryService(write("intermediary.tiny", INTERMEDIARY))
+		def streamed = tempDir.resolve("streamed.tiny")
+
+		when:
+		MappingsMerger.mergeAndSaveMappings(yarn, streamed, service)
+		def lines = MappingsMergerBenchmark.readLines(streamed)
+
+		then:
+		lines.contains("namespaces\tofficial,intermediary,named")
+		lines.contains("c\ta\tnet/minecraft/class_1\tcom/example/Foo\tnull")
+	}
+
+	def "Merge: rejects mappings that are not from intermediary"() {
+		setup:
+		def yarn = write("yarn.tiny", tiny(
+				"tiny\t2\t0\tofficial\tnamed",
+				"c\ta\tcom/example/Foo",
+		))
+		def service = MappingsMergerBenchmark.createIntermediaryService(write("intermediary.tiny", INTERMEDIARY))
+
+		when:
+		MappingsMerger.mergeAndSaveMappings(yarn, tempDir.resolve("streamed.tiny"), service)
+
+		then:
+		thrown(IOException)
+	}
+
+	private Path write(String name, String content) {
+		def path = tempDir.resolve(name)
+		Files.writeString(path, content)
+		return path
+	}
+
+	private static String tiny(String... lines) {
+		return lines.join("\n") + "\n"
+	}
+}
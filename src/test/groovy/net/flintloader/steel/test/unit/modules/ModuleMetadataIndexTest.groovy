@@ -0,0 +1,145 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.modules
+
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.configuration.modules.ModuleMetadataIndex
+
+class ModuleMetadataIndexTest extends Specification {
+	static final String MOD_JSON = '{"id": "test", "accessWidener": "test.accesswidener", "custom": {"steel:provided_javadoc": "javadoc.tiny"}}'
+	static final String ACCESS_WIDENER = "accessWidener\tv2\tnamed\ntransitive-accessible\tclass\tnet/example/Test\n"
+
+	@TempDir
+	Path tempDir
+
+	def "Round trip: indexed jars are not opened again"() {
+		setup:
+		def indexFile = tempDir.resolve("index.bin")
+		def module = writeJar("module.jar", ["flintmodule.json": MOD_JSON, "test.accesswidener": ACCESS_WIDENER, "javadoc.tiny": "javadoc"])
+		def library = writeJar("library.jar", ["Library.class": "class"])
+		def index = ModuleMetadataIndex.read(indexFile)
+		index.get(module)
+		index.get(library)
+		index.close()
+
+		when:
+		// Same size and modification time, but no longer a jar that could be read
+		replaceKeepingStat(module)
+		replaceKeepingStat(library)
+		def read = ModuleMetadataIndex.read(indexFile)
+		def metadata = read.get(module)
+
+		then:
+		metadata.isModule()
+		metadata.getModJson().get("id").getAsString() == "test"
+		metadata.getAccessWidenerFile().content() == ACCESS_WIDENER.bytes
+		metadata.transitiveAccessWidener()
+		metadata.getProvidedJavadoc() == "javadoc".bytes
+		!read.isModule(library)
+	}
+
+	def "Round trip: a declared file missing from the jar is still missing"() {
+		setup:
+		def indexFile = tempDir.resolve("index.bin")
+		def module = writeJar("module.jar", ["flintmodule.json": MOD_JSON])
+		def index = ModuleMetadataIndex.read(indexFile)
+		index.get(module)
+		index.close()
+
+		when:
+		ModuleMetadataIndex.read(indexFile).get(module).getAccessWidenerFile()
+
+		then:
+		thrown(NoSuchFileException)
+	}
+
+	def "Stale: a jar that changed since it was indexed is read again"() {
+		setup:
+		def indexFile = tempDir.resolve("index.bin")
+		def jar = writeJar("module.jar", ["flintmodule.json": MOD_JSON, "test.accesswidener": ACCESS_WIDENER])
+		def index = ModuleMetadataIndex.read(indexFile)
+		index.get(jar)
+		index.close()
+
+		when:
+		writeJar("module.jar", ["flintmodule.json": '{"id": "changed"}'])
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10_000))
+		def metadata = ModuleMetadataIndex.read(indexFile).get(jar)
+
+		then:
+		metadata.getModJson().get("id").getAsString() == "changed"
+		metadata.getAccessWidenerFile() == null
+	}
+
+	def "Read: a corrupted index is read as empty"() {
+		setup:
+		def indexFile = tempDir.resolve("index.bin")
+		def jar = writeJar("module.jar", ["flintmodule.json": MOD_JSON, "test.accesswidener": ACCESS_WIDENER])
+		def index = ModuleMetadataIndex.read(indexFile)
+		index.get(jar)
+		index.close()
+		def bytes = Files.readAllBytes(indexFile)
+		Files.write(indexFile, Arrays.copyOf(bytes, bytes.length - 8))
+
+		when:
+		def read = ModuleMetadataIndex.read(indexFile)
+		replaceKeepingStat(jar)
+		read.get(jar)
+
+		then:
+		// Nothing was read from the index, so the jar has to be opened
+		thrown(UncheckedIOException)
+	}
+
+	private Path writeJar(String name, Map<String, String> entries) {
+		def jar = tempDir.resolve(name)
+
+		new ZipOutputStream(Files.newOutputStream(jar)).withCloseable { out ->
+			entries.each { entryName, content ->
+				out.putNextEntry(new ZipEntry(entryName))
+				out.write(content.bytes)
+				out.closeEntry()
+			}
+		}
+
+		return jar
+	}
+
+	private static void replaceKeepingStat(Path jar) {
+		def lastModified = Files.getLastModifiedTime(jar)
+		Files.write(jar, new byte[Files.size(jar)])
+		Files.setLastModifiedTime(jar, lastModified)
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.zip
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.util.zip.ParallelZipWriter
+import net.flintloader.steel.util.zip.RawZipEntry
+import net.flintloader.steel.util.zip.RawZipFile
+import net.flintloader.steel.util.zip.UnsupportedZipException
+
+class ParallelZipWriterTest extends Specification {
+	@TempDir
+	Path tempDir
+
+	def "Write: entries read back from the raw reader and java.util.zip"() {
+		setup:
+		def zip = tempDir.resolve("written.zip")
+		def entries = (0..<64).collectEntries { ["dir/entry${it}.txt".toString(), randomText(it * 1000)] }
+
+		when:
+		new ParallelZipWriter(zip).withCloseable { writer ->
+			writer.setComment("comment".bytes)
+			writer.writeDirectory("dir")
+			entries.each { name, data -> writer.write(name, data) }
+			writer.write(RawZipEntry.create("stored.txt", RawZipEntry.STORED, 0, 33), "stored".bytes)
+		}
+
+		then:
+		RawZipFile.open(zip).withCloseable { raw ->
+			assert raw.getEntries()*.name() == ["dir/"] + entries.keySet() + ["stored.txt"]
+			assert new String(raw.getComment()) == "comment"
+			assert raw.getEntry("stored.txt").method() == RawZipEntry.STORED
+			entries.each { name, data -> assert raw.read(raw.getEntry(name)) == data }
+			assert raw.read(raw.getEntry("stored.txt")) == "stored".bytes
+			true
+		}
+		readWithJava(zip) == entries + ["dir/": new byte[0], "stored.txt": "stored".bytes]
+	}
+
+	def "Write: copied entries keep their compressed data"() {
+		setup:
+		def source = writeWithJava("source.zip", ["a.txt": randomText(5000), "b.txt": randomText(10), "c.txt": randomText(100)])
+		def zip = tempDir.resolve("copied.zip")
+
+		when:
+		RawZipFile.open(source).withCloseable { raw ->
+			new ParallelZipWriter(zip).withCloseable { writer ->
+				def entries = raw.getEntries()
+				// A run of entries next to each other, copied as a single region
+				writer.copyVerbatim(raw, entries.subList(0, 2), entries[0].localHeaderOffset(), entries[2].localHeaderOffset())
+				writer.copy(raw, entries[2])
+				writer.write("d.txt", "new".bytes)
+			}
+		}
+
+		then:
+		readWithJava(zip) == readWithJava(source) + ["d.txt": "new".bytes]
+	}
+
+	def "Read: a truncated zip is rejected"() {
+		setup:
+		def zip = writeWithJava("truncated.zip", ["a.txt": randomText(5000)])
+		def bytes = Files.readAllBytes(zip)
+		Files.write(zip, Arrays.copyOf(bytes, bytes.length - 10))
+
+		when:
+		RawZipFile.open(zip).close()
+
+		then:
+		thrown(ZipException)
+	}
+
+	def "Read: an entry with corrupted data fails its crc check"() {
+		setup:
+		def zip = tempDir.resolve("corrupted.zip")
+		new ParallelZipWriter(zip).withCloseable { writer ->
+			writer.write(RawZipEntry.create("a.txt", RawZipEntry.STORED, 0, 33), "some stored data".bytes)
+		}
+
+		// The data follows the 30 byte local header and the name
+		def bytes = Files.readAllBytes(zip)
+		bytes[30 + "a.txt".length()] ^= 0xFF
+		Files.write(zip, bytes)
+
+		when:
+		RawZipFile.open(zip).withCloseable { raw ->
+			raw.read(raw.getEntry("a.txt"))
+		}
+
+		then:
+		def e = thrown(ZipException)
+		e.message.contains("invalid crc")
+	}
+
+	def "Read: encrypted entries are unsupported"() {
+		setup:
+		def zip = writeWithJava("encrypted.zip", ["a.txt": randomText(100)])
+		def bytes = Files.readAllBytes(zip)
+		def buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+		def centralHeader = (0..bytes.length - 4).find { buffer.getInt(it) == 0x02014b50 }
+		buffer.putShort(centralHeader + 8, (short) (buffer.getShort(centralHeader + 8) | 1))
+		Files.write(zip, bytes)
+
+		when:
+		RawZipFile.open(zip).close()
+
+		then:
+		thrown(UnsupportedZipException)
+	}
+
+	private Path writeWithJava(String name, Map<String, byte[]> entries) {
+		def zip = tempDir.resolve(name)
+
+		new ZipOutputStream(Files.newOutputStream(zip)).withCloseable { out ->
+			entries.each { entryName, data ->
+				out.putNextEntry(new ZipEntry(entryName))
+				out.write(data)
+				out.closeEntry()
+			}
+		}
+
+		return zip
+	}
+
+	static Map<String, byte[]> readWithJava(Path zip) {
+		new ZipFile(zip.toFile()).withCloseable { zipFile ->
+			return zipFile.entries().toList().collectEntries { [it.name, zipFile.getInputStream(it).bytes] }
+		}
+	}
+
+	static byte[] randomText(int length) {
+		def random = new Random(length)
+		def bytes = new byte[length]
+
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) ((char) 'a' + random.nextInt(4))
+		}
+
+		return bytes
+	}
+}
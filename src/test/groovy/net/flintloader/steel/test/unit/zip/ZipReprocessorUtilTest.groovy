@@ -0,0 +1,123 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.zip
+
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.time.LocalDateTime
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.util.ZipReprocessorUtil
+import net.flintloader.steel.util.zip.RawZipFile
+import net.flintloader.steel.util.zip.UnsupportedZipException
+
+class ZipReprocessorUtilTest extends Specification {
+	static final LocalDateTime CONSTANT_TIME = LocalDateTime.of(1980, 2, 1, 0, 0)
+
+	@TempDir
+	Path tempDir
+
+	def "Reprocess: entries are sorted with constant times"() {
+		setup:
+		def zip = writeZip(["c.txt", "a/b.txt", "b.txt"])
+
+		when:
+		ZipReprocessorUtil.reprocessZip(zip.toFile(), true, false)
+
+		then:
+		entries(zip)*.name == ["a/b.txt", "b.txt", "c.txt"]
+		entries(zip)*.getTimeLocal().every { it == CONSTANT_TIME }
+		ParallelZipWriterTest.readWithJava(zip) == ["a/b.txt": "a/b.txt".bytes, "b.txt": "b.txt".bytes, "c.txt": "c.txt".bytes]
+	}
+
+	def "Reprocess: the zip is left as it is when there is nothing to change"() {
+		setup:
+		def zip = writeZip(["c.txt", "b.txt"])
+		def bytes = Files.readAllBytes(zip)
+
+		when:
+		ZipReprocessorUtil.reprocessZip(zip.toFile(), false, true)
+
+		then:
+		Files.readAllBytes(zip) == bytes
+	}
+
+	def "Reprocess: a missing zip is an error"() {
+		when:
+		ZipReprocessorUtil.reprocessZip(tempDir.resolve("missing.zip").toFile(), true, false)
+
+		then:
+		thrown(NoSuchFileException)
+	}
+
+	def "Reprocess: zips not supported by the raw reader fall back to java.util.zip"() {
+		setup:
+		// More than 65535 entries requires ZIP64
+		def names = (0..<66_000).collect { "entry${it}.txt".toString() }
+		def zip = writeZip(names.reverse())
+
+		when:
+		RawZipFile.open(zip).close()
+
+		then:
+		thrown(UnsupportedZipException)
+
+		when:
+		ZipReprocessorUtil.reprocessZip(zip.toFile(), true, false)
+
+		then:
+		entries(zip)*.name == names.toSorted()
+		entries(zip)*.getTimeLocal().every { it == CONSTANT_TIME }
+	}
+
+	private Path writeZip(List<String> names) {
+		def zip = tempDir.resolve("input.zip")
+
+		new ZipOutputStream(Files.newOutputStream(zip)).withCloseable { out ->
+			for (String name : names) {
+				def entry = new ZipEntry(name)
+				entry.setTimeLocal(LocalDateTime.of(2020, 1, 1, 12, 0))
+				out.putNextEntry(entry)
+				out.write(name.bytes)
+				out.closeEntry()
+			}
+		}
+
+		return zip
+	}
+
+	private static List<ZipEntry> entries(Path zip) {
+		new ZipFile(zip.toFile()).withCloseable { zipFile ->
+			return zipFile.entries().toList()
+		}
+	}
+}
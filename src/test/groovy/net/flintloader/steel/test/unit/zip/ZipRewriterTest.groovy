@@ -0,0 +1,152 @@
+/*
+ * This file is part of flint-steel, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016-2021 FabricMC
+ * Copyright (c) 2016-2021 Flint Loader Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.flintloader.steel.test.unit.zip
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.LocalDateTime
+import java.util.zip.Deflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.flintloader.steel.util.zip.RawZipFile
+import net.flintloader.steel.util.zip.ZipRewriter
+
+class ZipRewriterTest extends Specification {
+	static final LocalDateTime INPUT_TIME = LocalDateTime.of(2020, 1, 1, 12, 0)
+	static final LocalDateTime CONSTANT_TIME = LocalDateTime.of(1980, 2, 1, 0, 0)
+
+	@TempDir
+	Path tempDir
+
+	def "Rewrite: edits are applied and untouched entries are copied as they are"() {
+		setup:
+		def zip = writeZip("input.zip", ["a.txt": "a", "b.txt": "b", "c.txt": "c"])
+		def before = rawData(zip, "a.txt")
+
+		when:
+		ZipRewriter.open(zip).withCloseable { rewriter ->
+			rewriter.put("b.txt", "replaced".bytes)
+			rewriter.remove("c.txt")
+			rewriter.put("new/d.txt", "added".bytes)
+			rewriter.commit()
+		}
+
+		then:
+		ParallelZipWriterTest.readWithJava(zip) == ["a.txt": "a".bytes, "b.txt": "replaced".bytes, "new/": new byte[0], "new/d.txt": "added".bytes]
+		rawData(zip, "a.txt") == before
+		// Replaced entries keep the time of the input, new entries have no time to preserve
+		times(zip) == ["a.txt": INPUT_TIME, "b.txt": INPUT_TIME, "new/": CONSTANT_TIME, "new/d.txt": CONSTANT_TIME]
+	}
+
+	def "Rewrite: sorted entries with constant times"() {
+		setup:
+		def zip = writeZip("input.zip", ["b.txt": "b", "a.txt": "a"])
+
+		when:
+		ZipRewriter.open(zip).withCloseable { rewriter ->
+			rewriter.put("c.txt", "c".bytes)
+			rewriter.setReproducibleFileOrder(true)
+			rewriter.setPreserveFileTimestamps(false)
+			rewriter.commit()
+		}
+
+		then:
+		times(zip) == ["a.txt": CONSTANT_TIME, "b.txt": CONSTANT_TIME, "c.txt": CONSTANT_TIME]
+		times(zip).keySet().toList() == ["a.txt", "b.txt", "c.txt"]
+	}
+
+	def "Rewrite: a new zip is created when the file does not exist"() {
+		setup:
+		def zip = tempDir.resolve("created.zip")
+
+		when:
+		ZipRewriter.open(zip).withCloseable { rewriter ->
+			rewriter.put("a.txt", "a".bytes)
+			rewriter.commit()
+		}
+
+		then:
+		ParallelZipWriterTest.readWithJava(zip) == ["a.txt": "a".bytes]
+	}
+
+	def "Rewrite: a corrupted entry fails the commit and leaves the zip unchanged"() {
+		setup:
+		def zip = writeZip("corrupted.zip", ["a.txt": "some data to be deflated, some data to be deflated"])
+		def bytes = Files.readAllBytes(zip)
+		// Corrupt the deflated data, which follows the local header along with its name and extra field
+		def buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+		bytes[30 + buffer.getShort(26) + buffer.getShort(28) + 2] ^= 0xFF
+		Files.write(zip, bytes)
+
+		when:
+		ZipRewriter.open(zip).withCloseable { rewriter ->
+			// Storing the entry uncompressed requires it to be inflated
+			rewriter.setCompressionLevel(Deflater.NO_COMPRESSION)
+			rewriter.commit()
+		}
+
+		then:
+		thrown(ZipException)
+		Files.readAllBytes(zip) == bytes
+		Files.list(tempDir).withCloseable { it.toList() } == [zip]
+	}
+
+	private Path writeZip(String name, Map<String, String> entries) {
+		def zip = tempDir.resolve(name)
+
+		new ZipOutputStream(Files.newOutputStream(zip)).withCloseable { out ->
+			entries.each { entryName, data ->
+				def entry = new ZipEntry(entryName)
+				entry.setTimeLocal(INPUT_TIME)
+				out.putNextEntry(entry)
+				out.write(data.bytes)
+				out.closeEntry()
+			}
+		}
+
+		return zip
+	}
+
+	private static byte[] rawData(Path zip, String name) {
+		RawZipFile.open(zip).withCloseable { raw ->
+			return raw.readRaw(raw.getEntry(name))
+		}
+	}
+
+	private static Map<String, LocalDateTime> times(Path zip) {
+		new ZipFile(zip.toFile()).withCloseable { zipFile ->
+			return zipFile.entries().toList().collectEntries { [it.name, it.getTimeLocal()] }
+		}
+	}
+}